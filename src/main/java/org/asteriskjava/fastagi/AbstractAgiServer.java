@@ -1,5 +1,6 @@
 package org.asteriskjava.fastagi;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -7,6 +8,8 @@ import java.util.concurrent.TimeUnit;
 
 import org.asteriskjava.fastagi.internal.DefaultAgiChannelFactory;
 import org.asteriskjava.util.DaemonThreadFactory;
+import org.asteriskjava.util.ExecutionRuntime;
+import org.asteriskjava.util.ExecutorFactory;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
@@ -46,6 +49,21 @@ public abstract class AbstractAgiServer
      */
     private ThreadPoolExecutor pool;
 
+    /**
+     * Creates the executor used instead of the thread pool if set.
+     */
+    private ExecutorFactory executorFactory;
+
+    /**
+     * The executor created by the executorFactory.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Provides the executor used instead of the thread pool if set.
+     */
+    private ExecutionRuntime runtime;
+
     /**
      * The strategy to use for mapping AgiRequests to AgiScripts that serve
      * them.
@@ -171,6 +189,59 @@ public abstract class AbstractAgiServer
         this.maximumPoolSize = maximumPoolSize;
     }
 
+    /**
+     * Returns the factory used to create the executor that serves the AGI
+     * requests.
+     *
+     * @return the factory or <code>null</code> if the thread pool is used.
+     * @since 2.0.0
+     */
+    public synchronized ExecutorFactory getExecutorFactory()
+    {
+        return executorFactory;
+    }
+
+    /**
+     * Sets the factory used to create the executor that serves the AGI
+     * requests. If set, the executor created by this factory is used instead
+     * of the thread pool, so the pool size settings have no effect and the
+     * number of concurrent requests is not limited.
+     * <p>
+     * AGI scripts spend most of their time waiting for Asterisk to answer
+     * their commands. With a
+     * {@link org.asteriskjava.util.VirtualThreadExecutorFactory} each request
+     * is served by its own virtual thread, which needs far less memory than a
+     * platform thread.
+     * <p>
+     * Must be set before the server is started.
+     *
+     * @param executorFactory the factory or <code>null</code> to use the
+     *            thread pool.
+     * @since 2.0.0
+     */
+    public synchronized void setExecutorFactory(ExecutorFactory executorFactory)
+    {
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Sets the runtime whose executor serves the AGI requests instead of the
+     * thread pool, so several servers and manager connections can share the
+     * same threads. The runtime's executor is not shut down with this server.
+     * <p>
+     * Ignored if an executor factory has been set. Must be set before the
+     * server is started.
+     *
+     * @param runtime the runtime or <code>null</code> to use the thread
+     *            pool.
+     * @see #setExecutorFactory(ExecutorFactory)
+     * @since 2.0.0
+     */
+    public synchronized void setRuntime(ExecutionRuntime runtime)
+    {
+        this.runtime = runtime;
+    }
+
     /**
      * Sets the strategy to use for mapping AgiRequests to AgiScripts that serve
      * them.
@@ -199,6 +270,10 @@ public abstract class AbstractAgiServer
         {
             pool.shutdown();
         }
+        if (executor != null)
+        {
+            executor.shutdown();
+        }
     }
 
     @Override
@@ -209,13 +284,18 @@ public abstract class AbstractAgiServer
         {
             pool.shutdown();
         }
+        if (executor != null)
+        {
+            executor.shutdown();
+        }
 
         super.finalize();
     }
 
     /**
      * Execute the runnable using the configured ThreadPoolExecutor obtained
-     * from {@link #getPool()}.
+     * from {@link #getPool()} or the executor created by the executor factory
+     * if one has been set.
      *
      * @param command the command to run.
      * @throws RejectedExecutionException if the runnable can't be executed
@@ -228,7 +308,7 @@ public abstract class AbstractAgiServer
             return;
         }
 
-        getPool().execute(command);
+        getExecutor().execute(command);
     }
 
     protected void handleException(String message, Exception e)
@@ -236,6 +316,22 @@ public abstract class AbstractAgiServer
         logger.warn(message, e);
     }
 
+    private synchronized ExecutorService getExecutor()
+    {
+        if (executorFactory == null)
+        {
+            return runtime == null ? getPool() : runtime.getExecutor();
+        }
+
+        if (executor == null)
+        {
+            executor = executorFactory.newExecutor("AJ AgiServer");
+            logger.info("Executor started using " + executorFactory.getClass().getSimpleName() + ".");
+        }
+
+        return executor;
+    }
+
     private synchronized ThreadPoolExecutor getPool()
     {
         if (pool == null)
@@ -19,6 +19,7 @@ package org.asteriskjava.fastagi;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.asteriskjava.util.ExecutionRuntime;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
@@ -42,6 +43,7 @@ public class AgiServerThread
     private AgiServer agiServer;
     private Thread thread;
     private boolean daemon = true;
+    private ExecutionRuntime runtime;
 
     /**
      * Creates a new AgiServerThread.
@@ -96,6 +98,21 @@ public class AgiServerThread
         this.daemon = daemon;
     }
 
+    /**
+     * Sets the runtime that creates the thread running the AgiServer.
+     * <p>
+     * Default is the {@link ExecutionRuntime#getDefault() shared runtime}.
+     * Virtual threads are always daemon threads, so a runtime using them
+     * cannot be combined with <code>setDaemon(false)</code>.
+     *
+     * @param runtime the runtime to use.
+     * @since 2.0.0
+     */
+    public synchronized void setRuntime(ExecutionRuntime runtime)
+    {
+        this.runtime = runtime;
+    }
+
     /**
      * Starts the AgiServer in its own thread.
      * <p>
@@ -127,9 +144,10 @@ public class AgiServerThread
 
     protected Thread createThread()
     {
+        final ExecutionRuntime threadRuntime = runtime == null ? ExecutionRuntime.getDefault() : runtime;
         Thread t;
 
-        t = new Thread(new Runnable()
+        t = threadRuntime.newThread(new Runnable()
         {
             public void run()
             {
@@ -142,9 +160,11 @@ public class AgiServerThread
                     throw new RuntimeException("Exception running AgiServer.", e);
                 }
             }
-        });
-        t.setName("Asterisk-Java AgiServer-" + idCounter.getAndIncrement());
-        t.setDaemon(daemon);
+        }, "Asterisk-Java AgiServer-" + idCounter.getAndIncrement());
+        if (t.isDaemon() != daemon)
+        {
+            t.setDaemon(daemon);
+        }
         t.setUncaughtExceptionHandler(new AgiThreadUncaughtExceptionHanlder());
 
         return t;
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live;
+
+import java.io.Serializable;
+
+/**
+ * The state of an {@link AsteriskAgent} at the time a {@link LiveSnapshot}
+ * has been taken.
+ * <br>
+ * Objects of this type are immutable.
+ *
+ * @see LiveSnapshot#getAgent(String)
+ * @since 2.0.0
+ */
+public final class AgentSnapshot implements Serializable
+{
+    /**
+     * Serial version identifier.
+     */
+    private static final long serialVersionUID = 7519536405562740916L;
+    private final String agentId;
+    private final String name;
+    private final AgentState state;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param agentId the id of the agent, for example "Agent/1000".
+     * @param name    the name of the agent.
+     * @param state   the state of the agent.
+     */
+    public AgentSnapshot(String agentId, String name, AgentState state)
+    {
+        this.agentId = agentId;
+        this.name = name;
+        this.state = state;
+    }
+
+    /**
+     * Returns the id of the agent.
+     *
+     * @return the id of the agent.
+     */
+    public String getAgentId()
+    {
+        return agentId;
+    }
+
+    /**
+     * Returns the name of the agent.
+     *
+     * @return the name of the agent.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the state of the agent.
+     *
+     * @return the state of the agent.
+     */
+    public AgentState getState()
+    {
+        return state;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb;
+
+        sb = new StringBuilder("AgentSnapshot[");
+        sb.append("agentId='").append(agentId).append("',");
+        sb.append("name='").append(name).append("',");
+        sb.append("state=").append(state).append("]");
+        return sb.toString();
+    }
+}
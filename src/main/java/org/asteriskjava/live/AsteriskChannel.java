@@ -149,6 +149,9 @@ public interface AsteriskChannel extends LiveObject
 
     /**
      * Returns a list of all visited dialplan entries.
+     * <p>
+     * Only the most recent entries are kept, see
+     * {@link DefaultAsteriskServer#setChannelHistorySize(int)}.
      * 
      * @return a list of all visited dialplan entries.
      * @since 0.3
@@ -215,6 +218,9 @@ public interface AsteriskChannel extends LiveObject
 
     /**
      * Returns a list of all channels that have been dialed by this channel.
+     * <p>
+     * Only the most recent entries are kept, see
+     * {@link DefaultAsteriskServer#setChannelHistorySize(int)}.
      * 
      * @return a list of all channels that have been dialed by this channel.
      */
@@ -248,6 +254,9 @@ public interface AsteriskChannel extends LiveObject
 
     /**
      * Returns a list of all channels this channel was briged with.
+     * <p>
+     * Only the most recent entries are kept, see
+     * {@link DefaultAsteriskServer#setChannelHistorySize(int)}.
      * 
      * @return a list of all channels this channel was briged with.
      */
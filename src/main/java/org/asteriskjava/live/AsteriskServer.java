@@ -260,6 +260,24 @@ public interface AsteriskServer
      */
     Collection<AsteriskChannel> getChannels() throws ManagerCommunicationException;
 
+    /**
+     * Returns an immutable snapshot of the active channels, the queues and
+     * the agents of the Asterisk server.
+     * <p>
+     * Snapshots are published after events have been processed, at most once
+     * per snapshot interval, so a snapshot may lag behind the live objects by
+     * that interval. In return reading a snapshot does not copy anything and
+     * never waits for the processing of events. Only the first call may wait
+     * as it builds the first snapshot.
+     *
+     * @return the current snapshot.
+     * @throws ManagerCommunicationException if there is a problem communication
+     *             with Asterisk
+     * @see DefaultAsteriskServer#setSnapshotInterval(long)
+     * @since 2.0.0
+     */
+    LiveSnapshot getSnapshot() throws ManagerCommunicationException;
+
     /**
      * Returns a channel by its name.
      * 
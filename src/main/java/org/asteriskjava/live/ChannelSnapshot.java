@@ -0,0 +1,215 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The state of an {@link AsteriskChannel} at the time a {@link LiveSnapshot}
+ * has been taken. Related channels are referenced by their unique id and can
+ * be looked up in the same snapshot.
+ * <br>
+ * Objects of this type are immutable.
+ *
+ * @see LiveSnapshot#getChannel(String)
+ * @since 2.0.0
+ */
+public final class ChannelSnapshot implements Serializable
+{
+    /**
+     * Serial version identifier.
+     */
+    private static final long serialVersionUID = 2830169577345672164L;
+    private final String id;
+    private final String name;
+    private final ChannelState state;
+    private final CallerId callerId;
+    private final String account;
+    private final long dateOfCreation;
+    private final Extension currentExtension;
+    private final String linkedChannelId;
+    private final String dialedChannelId;
+    private final String dialingChannelId;
+    private final String queueName;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param id               the unique id of the channel.
+     * @param name             the name of the channel.
+     * @param state            the state of the channel.
+     * @param callerId         the Caller*ID of the channel.
+     * @param account          the account code of the channel.
+     * @param dateOfCreation   the date the channel has been created.
+     * @param currentExtension the last visited dialplan entry.
+     * @param linkedChannelId  the unique id of the channel this channel is
+     *                         bridged with.
+     * @param dialedChannelId  the unique id of the channel dialed by this
+     *                         channel.
+     * @param dialingChannelId the unique id of the channel that dialed this
+     *                         channel.
+     * @param queueName        the name of the queue the channel is waiting in.
+     */
+    public ChannelSnapshot(String id, String name, ChannelState state, CallerId callerId, String account,
+            Date dateOfCreation, Extension currentExtension, String linkedChannelId, String dialedChannelId,
+            String dialingChannelId, String queueName)
+    {
+        this.id = id;
+        this.name = name;
+        this.state = state;
+        this.callerId = callerId;
+        this.account = account;
+        this.dateOfCreation = dateOfCreation.getTime();
+        this.currentExtension = currentExtension;
+        this.linkedChannelId = linkedChannelId;
+        this.dialedChannelId = dialedChannelId;
+        this.dialingChannelId = dialingChannelId;
+        this.queueName = queueName;
+    }
+
+    /**
+     * Returns the unique id of the channel.
+     *
+     * @return the unique id of the channel.
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+    /**
+     * Returns the name of the channel.
+     *
+     * @return the name of the channel.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the state of the channel.
+     *
+     * @return the state of the channel.
+     */
+    public ChannelState getState()
+    {
+        return state;
+    }
+
+    /**
+     * Returns the Caller*ID of the channel.
+     *
+     * @return the Caller*ID of the channel.
+     */
+    public CallerId getCallerId()
+    {
+        return callerId;
+    }
+
+    /**
+     * Returns the account code used to bill the channel.
+     *
+     * @return the account code used to bill the channel.
+     */
+    public String getAccount()
+    {
+        return account;
+    }
+
+    /**
+     * Returns the date the channel has been created.
+     *
+     * @return the date the channel has been created.
+     */
+    public Date getDateOfCreation()
+    {
+        return new Date(dateOfCreation);
+    }
+
+    /**
+     * Returns the last dialplan entry visited by the channel.
+     *
+     * @return the last visited dialplan entry or <code>null</code> if none
+     *         has been visited.
+     */
+    public Extension getCurrentExtension()
+    {
+        return currentExtension;
+    }
+
+    /**
+     * Returns the unique id of the channel this channel is bridged with.
+     *
+     * @return the unique id of the linked channel or <code>null</code> if
+     *         this channel is not bridged.
+     */
+    public String getLinkedChannelId()
+    {
+        return linkedChannelId;
+    }
+
+    /**
+     * Returns the unique id of the channel that has been dialed by this
+     * channel.
+     *
+     * @return the unique id of the dialed channel or <code>null</code> if
+     *         none has been dialed.
+     */
+    public String getDialedChannelId()
+    {
+        return dialedChannelId;
+    }
+
+    /**
+     * Returns the unique id of the channel that dialed this channel.
+     *
+     * @return the unique id of the dialing channel or <code>null</code> if
+     *         this channel has not been dialed by another channel.
+     */
+    public String getDialingChannelId()
+    {
+        return dialingChannelId;
+    }
+
+    /**
+     * Returns the name of the queue the channel is waiting in.
+     *
+     * @return the name of the queue or <code>null</code> if the channel is
+     *         not waiting in a queue.
+     */
+    public String getQueueName()
+    {
+        return queueName;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb;
+
+        sb = new StringBuilder("ChannelSnapshot[");
+        sb.append("id='").append(id).append("',");
+        sb.append("name='").append(name).append("',");
+        sb.append("state=").append(state).append(",");
+        sb.append("callerId=").append(callerId).append(",");
+        sb.append("linkedChannelId='").append(linkedChannelId).append("',");
+        sb.append("queueName='").append(queueName).append("']");
+        return sb.toString();
+    }
+}
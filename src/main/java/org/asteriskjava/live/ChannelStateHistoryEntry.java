@@ -16,6 +16,10 @@
  */
 package org.asteriskjava.live;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -32,8 +36,24 @@ public class ChannelStateHistoryEntry implements Serializable
      * Serial version identifier.
      */
     private static final long serialVersionUID = 5437551192335452460L;
-    private final Date date;
-    private final ChannelState state;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * The serialized form is unchanged from when the date was stored as a
+     * Date.
+     *
+     * @serialField date Date the date or <code>null</code>.
+     * @serialField state ChannelState the state.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {new ObjectStreamField("date", Date.class),
+            new ObjectStreamField("state", ChannelState.class)};
+
+    /**
+     * The date as milliseconds since the epoch or {@link #NO_DATE}. A long
+     * is stored instead of a Date to keep channel histories small.
+     */
+    private long date;
+    private ChannelState state;
 
     /**
      * Creates a new instance.
@@ -43,7 +63,7 @@ public class ChannelStateHistoryEntry implements Serializable
      */
     public ChannelStateHistoryEntry(Date date, ChannelState state)
     {
-        this.date = date;
+        this.date = date == null ? NO_DATE : date.getTime();
         this.state = state;
     }
 
@@ -54,7 +74,7 @@ public class ChannelStateHistoryEntry implements Serializable
      */
     public Date getDate()
     {
-        return date;
+        return date == NO_DATE ? null : new Date(date);
     }
 
     /**
@@ -67,13 +87,29 @@ public class ChannelStateHistoryEntry implements Serializable
         return state;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("date", getDate());
+        fields.put("state", state);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        final ObjectInputStream.GetField fields = in.readFields();
+        final Date d = (Date) fields.get("date", null);
+        this.date = d == null ? NO_DATE : d.getTime();
+        this.state = (ChannelState) fields.get("state", null);
+    }
+
     @Override
     public String toString()
     {
         final StringBuilder sb;
 
         sb = new StringBuilder("ChannelStateHistoryEntry[");
-        sb.append("date=").append(date).append(",");
+        sb.append("date=").append(getDate()).append(",");
         sb.append("state=").append(state).append("]");
         return sb.toString();
     }
@@ -16,6 +16,7 @@
  */
 package org.asteriskjava.live;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -27,6 +28,7 @@ import org.asteriskjava.manager.DefaultManagerConnection;
 import org.asteriskjava.manager.ManagerConnection;
 import org.asteriskjava.manager.ManagerEventListener;
 import org.asteriskjava.manager.action.OriginateAction;
+import org.asteriskjava.util.ExecutionRuntime;
 
 /**
  * Default implementation of the AsteriskServer interface.
@@ -121,6 +123,100 @@ public class DefaultAsteriskServer implements AsteriskServer
         this.impl.setManagerConnection(eventConnection);
     }
 
+    /**
+     * Sets the runtime used for the background tasks of this server. By
+     * default all servers share {@link ExecutionRuntime#getDefault()}.
+     *
+     * @param runtime the runtime to use.
+     * @since 2.0.0
+     */
+    public void setRuntime(ExecutionRuntime runtime)
+    {
+        this.impl.setRuntime(runtime);
+    }
+
+    /**
+     * Sets how long hung up channels are kept before they are removed from
+     * memory. <br>
+     * Default is 15 minutes.
+     *
+     * @param retentionTime the time in milliseconds.
+     * @since 2.0.0
+     */
+    public void setHungupChannelRetentionTime(long retentionTime)
+    {
+        this.impl.setHungupChannelRetentionTime(retentionTime);
+    }
+
+    /**
+     * Sets the maximum number of hung up channels that are kept in memory.
+     * When there are more, the channels that have been hung up first are
+     * removed before their retention time has passed. <br>
+     * Default is no limit.
+     *
+     * @param maxHungupChannels the maximum number of hung up channels.
+     * @since 2.0.0
+     */
+    public void setMaxHungupChannels(int maxHungupChannels)
+    {
+        this.impl.setMaxHungupChannels(maxHungupChannels);
+    }
+
+    /**
+     * Sets the number of entries kept in each history of a channel, like the
+     * visited dialplan entries. When a history is full its oldest entry is
+     * dropped. <br>
+     * Default is 32.
+     *
+     * @param channelHistorySize the maximum number of entries in a history.
+     * @since 2.0.0
+     */
+    public void setChannelHistorySize(int channelHistorySize)
+    {
+        this.impl.setChannelHistorySize(channelHistorySize);
+    }
+
+    /**
+     * Sets the minimum time between two snapshots returned by
+     * {@link #getSnapshot()}. <br>
+     * Default is 100 milliseconds.
+     *
+     * @param interval the minimum time in milliseconds, 0 to publish a new
+     *            snapshot after each event.
+     * @since 2.0.0
+     */
+    public void setSnapshotInterval(long interval)
+    {
+        this.impl.setSnapshotInterval(interval);
+    }
+
+    /**
+     * Sets the file the state is periodically written to. If the file exists
+     * when the server is initialized the state is restored from it at once
+     * and reconciled with Asterisk in the background. <br>
+     * Default is no checkpoint.
+     *
+     * @param checkpointFile the file to use or <code>null</code> to disable
+     *            checkpoints.
+     * @since 2.0.0
+     */
+    public void setCheckpointFile(File checkpointFile)
+    {
+        this.impl.setCheckpointFile(checkpointFile);
+    }
+
+    /**
+     * Sets the time between two checkpoints. <br>
+     * Default is 10 seconds.
+     *
+     * @param checkpointInterval the time in milliseconds.
+     * @since 2.0.0
+     */
+    public void setCheckpointInterval(long checkpointInterval)
+    {
+        this.impl.setCheckpointInterval(checkpointInterval);
+    }
+
     public void initialize() throws ManagerCommunicationException
     {
         this.impl.initialize();
@@ -307,6 +403,11 @@ public class DefaultAsteriskServer implements AsteriskServer
         return this.impl.getAgents();
     }
 
+    public LiveSnapshot getSnapshot() throws ManagerCommunicationException
+    {
+        return this.impl.getSnapshot();
+    }
+
     public AsteriskQueue getQueueByName(String queueName)
     {
         return impl.getQueueByName(queueName);
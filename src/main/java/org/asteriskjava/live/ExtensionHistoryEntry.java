@@ -16,6 +16,10 @@
  */
 package org.asteriskjava.live;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -32,8 +36,22 @@ public class ExtensionHistoryEntry implements Serializable
      * Serial version identifier.
      */
     private static final long serialVersionUID = 5437551192335452460L;
-    private final Date date;
-    private final Extension extension;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * Keeps the serialized form of earlier versions that stored a Date.
+     *
+     * @serialField date Date the date or <code>null</code>.
+     * @serialField extension Extension the extension.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {new ObjectStreamField("date", Date.class),
+            new ObjectStreamField("extension", Extension.class)};
+
+    /**
+     * The date as milliseconds since the epoch or {@link #NO_DATE}.
+     */
+    private long date;
+    private Extension extension;
 
     /**
      * Creates a new instance.
@@ -43,7 +61,7 @@ public class ExtensionHistoryEntry implements Serializable
      */
     public ExtensionHistoryEntry(Date date, Extension extension)
     {
-        this.date = date;
+        this.date = date == null ? NO_DATE : date.getTime();
         this.extension = extension;
     }
 
@@ -54,7 +72,7 @@ public class ExtensionHistoryEntry implements Serializable
      */
     public Date getDate()
     {
-        return date;
+        return date == NO_DATE ? null : new Date(date);
     }
 
     /**
@@ -67,6 +85,22 @@ public class ExtensionHistoryEntry implements Serializable
         return extension;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("date", getDate());
+        fields.put("extension", extension);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        final ObjectInputStream.GetField fields = in.readFields();
+        final Date d = (Date) fields.get("date", null);
+        this.date = d == null ? NO_DATE : d.getTime();
+        this.extension = (Extension) fields.get("extension", null);
+    }
+
     @Override
     public String toString()
     {
@@ -74,7 +108,7 @@ public class ExtensionHistoryEntry implements Serializable
 
         sb = new StringBuilder(100);
         sb.append("ExtensionHistoryEntry[");
-        sb.append("date=").append(date).append(",");
+        sb.append("date=").append(getDate()).append(",");
         sb.append("extension=").append(extension).append("]");
         return sb.toString();
     }
@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * An immutable view of the channels, queues and agents of an
+ * {@link AsteriskServer} at one point in time.
+ * <p>
+ * Snapshots are taken between two events, so they are consistent across
+ * objects: a channel that is bridged to another channel finds that channel
+ * bridged to itself in the same snapshot. Reading a snapshot never blocks the
+ * processing of events and is much cheaper than
+ * {@link AsteriskServer#getChannels()} and friends, which makes it suitable
+ * for dashboards that poll the state of the server frequently.
+ * <p>
+ * Snapshots share the objects of channels, queues and agents that have not
+ * changed with earlier snapshots, so holding on to a snapshot does not
+ * duplicate the whole model.
+ *
+ * @see AsteriskServer#getSnapshot()
+ * @since 2.0.0
+ */
+public interface LiveSnapshot
+{
+    /**
+     * Returns the sequence number of this snapshot. Snapshots published later
+     * have higher sequence numbers.
+     *
+     * @return the sequence number of this snapshot.
+     */
+    long getSequence();
+
+    /**
+     * Returns the date this snapshot has been taken.
+     *
+     * @return the date this snapshot has been taken.
+     */
+    Date getDate();
+
+    /**
+     * Returns the active channels, i.e. all channels that have not been hung
+     * up.
+     *
+     * @return an unmodifiable collection of the active channels.
+     */
+    Collection<ChannelSnapshot> getChannels();
+
+    /**
+     * Returns the active channel with the given unique id.
+     *
+     * @param id the unique id of the channel.
+     * @return the channel or <code>null</code> if there is no active channel
+     *         with the given id.
+     */
+    ChannelSnapshot getChannel(String id);
+
+    /**
+     * Returns the queues.
+     *
+     * @return an unmodifiable collection of the queues.
+     */
+    Collection<QueueSnapshot> getQueues();
+
+    /**
+     * Returns the queue with the given name.
+     *
+     * @param name the name of the queue.
+     * @return the queue or <code>null</code> if there is no queue with the
+     *         given name.
+     */
+    QueueSnapshot getQueue(String name);
+
+    /**
+     * Returns the agents.
+     *
+     * @return an unmodifiable collection of the agents.
+     */
+    Collection<AgentSnapshot> getAgents();
+
+    /**
+     * Returns the agent with the given id.
+     *
+     * @param agentId the id of the agent, for example "Agent/1000".
+     * @return the agent or <code>null</code> if there is no agent with the
+     *         given id.
+     */
+    AgentSnapshot getAgent(String agentId);
+}
@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live;
+
+import java.io.Serializable;
+
+/**
+ * The state of an {@link AsteriskQueueMember} at the time a
+ * {@link LiveSnapshot} has been taken.
+ * <br>
+ * Objects of this type are immutable.
+ *
+ * @see QueueSnapshot#getMembers()
+ * @since 2.0.0
+ */
+public final class QueueMemberSnapshot implements Serializable
+{
+    /**
+     * Serial version identifier.
+     */
+    private static final long serialVersionUID = -4166286400328816418L;
+    private final String location;
+    private final QueueMemberState state;
+    private final Integer penalty;
+    private final boolean paused;
+    private final Integer callsTaken;
+    private final Long lastCall;
+    private final String membership;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param location   the location of the member.
+     * @param state      the state of the member.
+     * @param penalty    the penalty of the member.
+     * @param paused     whether the member is paused.
+     * @param callsTaken the number of calls taken by the member.
+     * @param lastCall   the time of the last call taken by the member.
+     * @param membership "dynamic" or "static".
+     */
+    public QueueMemberSnapshot(String location, QueueMemberState state, Integer penalty, boolean paused,
+            Integer callsTaken, Long lastCall, String membership)
+    {
+        this.location = location;
+        this.state = state;
+        this.penalty = penalty;
+        this.paused = paused;
+        this.callsTaken = callsTaken;
+        this.lastCall = lastCall;
+        this.membership = membership;
+    }
+
+    /**
+     * Returns the location of the member.
+     *
+     * @return the location of the member.
+     */
+    public String getLocation()
+    {
+        return location;
+    }
+
+    /**
+     * Returns the state of the member.
+     *
+     * @return the state of the member.
+     */
+    public QueueMemberState getState()
+    {
+        return state;
+    }
+
+    /**
+     * Returns the penalty of the member.
+     *
+     * @return the penalty of the member.
+     */
+    public Integer getPenalty()
+    {
+        return penalty;
+    }
+
+    /**
+     * Returns whether the member is paused.
+     *
+     * @return <code>true</code> if the member is paused, <code>false</code>
+     *         otherwise.
+     */
+    public boolean isPaused()
+    {
+        return paused;
+    }
+
+    /**
+     * Returns the number of calls taken by the member.
+     *
+     * @return the number of calls taken by the member.
+     */
+    public Integer getCallsTaken()
+    {
+        return callsTaken;
+    }
+
+    /**
+     * Returns the time of the last call taken by the member.
+     *
+     * @return the time of the last call in seconds since the epoch.
+     */
+    public Long getLastCall()
+    {
+        return lastCall;
+    }
+
+    /**
+     * Returns whether the member has been added dynamically or is defined in
+     * <code>queues.conf</code>.
+     *
+     * @return "dynamic" or "static".
+     */
+    public String getMembership()
+    {
+        return membership;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb;
+
+        sb = new StringBuilder("QueueMemberSnapshot[");
+        sb.append("location='").append(location).append("',");
+        sb.append("state=").append(state).append(",");
+        sb.append("penalty=").append(penalty).append(",");
+        sb.append("paused=").append(paused).append("]");
+        return sb.toString();
+    }
+}
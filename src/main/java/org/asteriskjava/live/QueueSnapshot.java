@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The state of an {@link AsteriskQueue} and its members at the time a
+ * {@link LiveSnapshot} has been taken. The channels waiting in the queue are
+ * referenced by their unique id and can be looked up in the same snapshot.
+ * <br>
+ * Objects of this type are immutable.
+ *
+ * @see LiveSnapshot#getQueue(String)
+ * @since 2.0.0
+ */
+public final class QueueSnapshot implements Serializable
+{
+    /**
+     * Serial version identifier.
+     */
+    private static final long serialVersionUID = -1733424497474869787L;
+    private final String name;
+    private final Integer max;
+    private final String strategy;
+    private final Integer serviceLevel;
+    private final Integer weight;
+    private final List<QueueMemberSnapshot> members;
+    private final List<String> entryChannelIds;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param name            the name of the queue.
+     * @param max             the maximum number of people waiting in the
+     *                        queue.
+     * @param strategy        the strategy of the queue.
+     * @param serviceLevel    the service level of the queue in seconds.
+     * @param weight          the weight of the queue.
+     * @param members         the members of the queue.
+     * @param entryChannelIds the unique ids of the channels waiting in the
+     *                        queue, ordered by their position.
+     */
+    public QueueSnapshot(String name, Integer max, String strategy, Integer serviceLevel, Integer weight,
+            List<QueueMemberSnapshot> members, List<String> entryChannelIds)
+    {
+        this.name = name;
+        this.max = max;
+        this.strategy = strategy;
+        this.serviceLevel = serviceLevel;
+        this.weight = weight;
+        this.members = Collections.unmodifiableList(new ArrayList<>(members));
+        this.entryChannelIds = Collections.unmodifiableList(new ArrayList<>(entryChannelIds));
+    }
+
+    /**
+     * Returns the name of the queue.
+     *
+     * @return the name of the queue.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the maximum number of people waiting in the queue.
+     *
+     * @return the maximum number of people waiting in the queue or 0 for
+     *         unlimited.
+     */
+    public Integer getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Returns the strategy of the queue.
+     *
+     * @return the strategy of the queue.
+     */
+    public String getStrategy()
+    {
+        return strategy;
+    }
+
+    /**
+     * Returns the service level of the queue.
+     *
+     * @return the service level in seconds.
+     */
+    public Integer getServiceLevel()
+    {
+        return serviceLevel;
+    }
+
+    /**
+     * Returns the weight of the queue.
+     *
+     * @return the weight of the queue.
+     */
+    public Integer getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Returns the members of the queue.
+     *
+     * @return an unmodifiable list of the members of the queue.
+     */
+    public List<QueueMemberSnapshot> getMembers()
+    {
+        return members;
+    }
+
+    /**
+     * Returns the unique ids of the channels waiting in the queue.
+     *
+     * @return an unmodifiable list of channel ids, ordered by their position
+     *         in the queue.
+     */
+    public List<String> getEntryChannelIds()
+    {
+        return entryChannelIds;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb;
+
+        sb = new StringBuilder("QueueSnapshot[");
+        sb.append("name='").append(name).append("',");
+        sb.append("strategy='").append(strategy).append("',");
+        sb.append("members=").append(members.size()).append(",");
+        sb.append("entries=").append(entryChannelIds.size()).append("]");
+        return sb.toString();
+    }
+}
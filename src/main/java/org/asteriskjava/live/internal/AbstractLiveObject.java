@@ -18,6 +18,7 @@ package org.asteriskjava.live.internal;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.asteriskjava.live.AsteriskServer;
 import org.asteriskjava.live.LiveObject;
@@ -32,6 +33,11 @@ import org.asteriskjava.util.LogFactory;
  */
 abstract class AbstractLiveObject implements LiveObject
 {
+    private static final AtomicIntegerFieldUpdater<AbstractLiveObject> VERSION_UPDATER = AtomicIntegerFieldUpdater
+            .newUpdater(AbstractLiveObject.class, "version");
+    private static final AtomicIntegerFieldUpdater<AbstractLiveObject> DIRTY_UPDATER = AtomicIntegerFieldUpdater
+            .newUpdater(AbstractLiveObject.class, "dirty");
+
     private final Log logger = LogFactory.getLog(this.getClass());
     private final PropertyChangeSupport changes;
     protected final AsteriskServerImpl server;
@@ -39,11 +45,30 @@ abstract class AbstractLiveObject implements LiveObject
     // last time this object was updated
     private long lastUpdate;
 
+    /**
+     * Incremented on each change, tells the {@link SnapshotPublisher} if the
+     * snapshot of this object is out of date.
+     */
+    private volatile int version;
+    /**
+     * 1 while this object is waiting in the list of changed objects of the
+     * {@link SnapshotPublisher}.
+     */
+    private volatile int dirty;
+    // only accessed by the snapshot publisher
+    private Object snapshot;
+    private int snapshotVersion;
+
+    /**
+     * Creates a new live object. It is not reported to the
+     * {@link SnapshotPublisher} until it is completely constructed and has
+     * been registered by the manager creating it calling {@link #changed()}.
+     */
     AbstractLiveObject(AsteriskServerImpl server)
     {
         this.server = server;
         this.changes = new PropertyChangeSupport(this);
-        stampLastUpdate();
+        this.lastUpdate = System.currentTimeMillis();
     }
 
     public AsteriskServer getServer()
@@ -108,5 +133,76 @@ abstract class AbstractLiveObject implements LiveObject
     public void stampLastUpdate()
     {
         lastUpdate = System.currentTimeMillis();
+        changed();
+    }
+
+    /**
+     * Marks this object as changed without updating the time of the last
+     * update, for changes of related objects that are part of the snapshot
+     * of this object.
+     */
+    void changed()
+    {
+        VERSION_UPDATER.incrementAndGet(this);
+        if (server != null && server.snapshotPublisher != null)
+        {
+            server.snapshotPublisher.changed(this);
+        }
+    }
+
+    /**
+     * Marks this object as waiting to be published.
+     *
+     * @return <code>true</code> if it has not been waiting before.
+     */
+    boolean markDirty()
+    {
+        return DIRTY_UPDATER.compareAndSet(this, 0, 1);
+    }
+
+    void clearDirty()
+    {
+        dirty = 0;
+    }
+
+    int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Returns the snapshot of this object if it has not changed since the
+     * snapshot was built.
+     *
+     * @return the snapshot or <code>null</code> if there is none or if it
+     *         is out of date.
+     */
+    Object getSnapshot()
+    {
+        return snapshotVersion == version ? snapshot : null;
+    }
+
+    /**
+     * Returns the last snapshot built of this object even if it is out of
+     * date.
+     *
+     * @return the snapshot or <code>null</code> if there is none.
+     */
+    Object getLastSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Stores the snapshot of this object.
+     *
+     * @param snapshot the snapshot.
+     * @param version the version of this object the snapshot has been built
+     *            from, read before building it.
+     */
+    void setSnapshot(Object snapshot, int version)
+    {
+        this.snapshot = snapshot;
+        this.snapshotVersion = version;
     }
 }
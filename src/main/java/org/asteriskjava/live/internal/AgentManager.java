@@ -21,11 +21,9 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.asteriskjava.live.AgentSnapshot;
 import org.asteriskjava.live.AgentState;
 import org.asteriskjava.live.AsteriskAgent;
-import org.asteriskjava.live.ManagerCommunicationException;
-import org.asteriskjava.manager.ResponseEvents;
-import org.asteriskjava.manager.action.AgentsAction;
 import org.asteriskjava.manager.event.AgentCallbackLoginEvent;
 import org.asteriskjava.manager.event.AgentCallbackLogoffEvent;
 import org.asteriskjava.manager.event.AgentCalledEvent;
@@ -34,7 +32,6 @@ import org.asteriskjava.manager.event.AgentConnectEvent;
 import org.asteriskjava.manager.event.AgentLoginEvent;
 import org.asteriskjava.manager.event.AgentLogoffEvent;
 import org.asteriskjava.manager.event.AgentsEvent;
-import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
@@ -72,29 +69,6 @@ public class AgentManager
         ringingAgents = new HashMap<>();
     }
 
-    /**
-     * Retrieves all agents registered at Asterisk server by sending an
-     * AgentsAction.
-     *
-     * @throws ManagerCommunicationException if communication with Asterisk
-     *                                       server fails.
-     */
-    void initialize() throws ManagerCommunicationException
-    {
-        ResponseEvents re;
-
-        re = server.sendEventGeneratingAction(new AgentsAction());
-
-        for (ManagerEvent event : re.getEvents())
-        {
-            if (event instanceof AgentsEvent)
-            {
-                logger.info( event );
-                handleAgentsEvent((AgentsEvent) event);
-            }
-        }
-    }
-
     void disconnected()
     {
         synchronized (agents)
@@ -110,13 +84,43 @@ public class AgentManager
      */
     void handleAgentsEvent(AgentsEvent event)
     {
-        AsteriskAgentImpl agent = new AsteriskAgentImpl(server,
-                event.getName(), "Agent/" + event.getAgent(), AgentState.valueOf(event.getStatus()));
+        final AgentState state = AgentState.valueOf(event.getStatus());
+        AsteriskAgentImpl agent = getAgentByAgentId("Agent/" + event.getAgent());
+
+        // the agent has been restored from a checkpoint
+        if (agent != null)
+        {
+            if (agent.getState() != state)
+            {
+                updateAgentState(agent, state);
+            }
+            return;
+        }
+
+        agent = new AsteriskAgentImpl(server, event.getName(), "Agent/" + event.getAgent(), state);
         logger.info("Adding agent " + agent.getName() + "(" + agent.getAgentId() + ")");
 
         addAgent(agent);
     }
 
+    /**
+     * Restores agents from a checkpoint. Agents that are already known are
+     * skipped.
+     *
+     * @param snapshots the agents to restore.
+     */
+    void restoreAgents(Collection<AgentSnapshot> snapshots)
+    {
+        for (AgentSnapshot snapshot : snapshots)
+        {
+            if (getAgentByAgentId(snapshot.getAgentId()) == null)
+            {
+                addAgent(new AsteriskAgentImpl(server, snapshot.getName(), snapshot.getAgentId(), snapshot.getState()));
+            }
+        }
+        logger.info("Restored " + snapshots.size() + " agents");
+    }
+
     /**
      * Add a new agent to the manager.
      *
@@ -128,6 +132,7 @@ public class AgentManager
         {
             agents.put(agent.getAgentId(), agent);
         }
+        agent.changed();
         server.fireNewAgent(agent);
     }
 
@@ -27,7 +27,6 @@ import org.asteriskjava.live.AsteriskQueueEntry;
 import org.asteriskjava.live.CallDetailRecord;
 import org.asteriskjava.live.CallerId;
 import org.asteriskjava.live.ChannelState;
-import org.asteriskjava.live.ChannelStateHistoryEntry;
 import org.asteriskjava.live.DialedChannelHistoryEntry;
 import org.asteriskjava.live.Extension;
 import org.asteriskjava.live.ExtensionHistoryEntry;
@@ -54,6 +53,16 @@ import org.asteriskjava.util.MixMonitorDirection;
 
 /**
  * Default implementation of the AsteriskChannel interface.
+ * <p>
+ * Channels are kept compact as large servers hold tens of thousands of them:
+ * the histories and the variables are only allocated when they are first
+ * used, and each history keeps at most the number of entries configured by
+ * {@link AsteriskServerImpl#setChannelHistorySize(int)}. The dialed channels
+ * are taken from the dialed channel history, so they are bounded as well.
+ * A new channel takes about 250 bytes on a 64 bit JVM with compressed
+ * references, not counting its name and id. Each history entry adds about 32
+ * bytes, so with the default history size the histories of a channel stay
+ * below 5 KB no matter how long the call lasts.
  *
  * @author srt
  * @version $Id$
@@ -65,18 +74,36 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
      * Date this channel has been created.
      */
     private final Date dateOfCreation;
-    private final List<ExtensionHistoryEntry> extensionHistory;
-    private final List<ChannelStateHistoryEntry> stateHistory;
-    private final List<LinkedChannelHistoryEntry> linkedChannelHistory;
-    private final List<DialedChannelHistoryEntry> dialedChannelHistory;
-    private final List<AsteriskChannel> dialedChannels;
-    private final List<AsteriskChannel> dialingChannels;
     /**
-     * If this channel is bridged to another channel, the linkedChannels
-     * contains the channel this channel is bridged with.
+     * Guards the histories and the variables. It is never held while calling
+     * out to listeners or to Asterisk.
      */
-    private final List<AsteriskChannel> linkedChannels;
-    private final Map<String, String> variables;
+    private final Object lock = new Object();
+    /**
+     * The most recent dialplan entries visited by this channel,
+     * <code>null</code> until the first one is visited.
+     */
+    private BoundedHistory<ExtensionHistoryEntry> extensionHistory;
+    /**
+     * The first dialplan entry visited by this channel, kept even when it is
+     * no longer part of the extension history.
+     */
+    private Extension firstExtension;
+    /**
+     * Bit set of all states this channel has been in, see
+     * {@link #stateBit(ChannelState)}. The states are not kept in a history
+     * as only {@link #wasInState(ChannelState)} needs them.
+     */
+    private int visitedStates;
+    private BoundedHistory<LinkedChannelHistoryEntry> linkedChannelHistory;
+    private BoundedHistory<DialedChannelHistoryEntry> dialedChannelHistory;
+    private volatile AsteriskChannel dialingChannel;
+    /**
+     * The channel this channel is bridged with if any, <code>null</code>
+     * otherwise.
+     */
+    private volatile AsteriskChannel linkedChannel;
+    private Map<String, String> variables;
     /**
      * Unique id of this channel.
      */
@@ -176,14 +203,6 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
         this.name = name;
         this.id = id;
         this.dateOfCreation = dateOfCreation;
-        this.extensionHistory = new ArrayList<>();
-        this.stateHistory = new ArrayList<>();
-        this.linkedChannelHistory = new ArrayList<>();
-        this.dialedChannelHistory = new ArrayList<>();
-        this.variables = new HashMap<>();
-        this.dialedChannels = new ArrayList<>();
-        this.dialingChannels = new ArrayList<>();
-        this.linkedChannels = new ArrayList<>();
     }
 
     public String getId()
@@ -269,18 +288,15 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
 
     public boolean wasInState(ChannelState state)
     {
-        synchronized (stateHistory)
+        synchronized (lock)
         {
-            for (ChannelStateHistoryEntry historyEntry : stateHistory)
-            {
-                if (historyEntry.getState() == state)
-                {
-                    return true;
-                }
-            }
+            return (visitedStates & stateBit(state)) != 0;
         }
+    }
 
-        return false;
+    private static int stateBit(ChannelState state)
+    {
+        return state == null ? 1 << 31 : 1 << state.ordinal();
     }
 
     public boolean wasBusy()
@@ -297,7 +313,6 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
      */
     synchronized void stateChanged(Date date, ChannelState state)
     {
-        final ChannelStateHistoryEntry historyEntry;
         final ChannelState oldState = this.state;
 
         if (oldState == state)
@@ -307,10 +322,9 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
 
         // System.err.println(id + " state change: " + oldState + " => " + state
         // + " (" + name + ")");
-        historyEntry = new ChannelStateHistoryEntry(date, state);
-        synchronized (stateHistory)
+        synchronized (lock)
         {
-            stateHistory.add(historyEntry);
+            visitedStates |= stateBit(state);
         }
 
         this.state = state;
@@ -337,52 +351,30 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
 
     public Extension getCurrentExtension()
     {
-        final Extension extension;
-
-        synchronized (extensionHistory)
+        synchronized (lock)
         {
-            if (extensionHistory.isEmpty())
-            {
-                extension = null;
-            }
-            else
+            if (extensionHistory == null)
             {
-                extension = extensionHistory.get(extensionHistory.size() - 1).getExtension();
+                return null;
             }
+            return extensionHistory.getLast().getExtension();
         }
-
-        return extension;
     }
 
     public Extension getFirstExtension()
     {
-        final Extension extension;
-
-        synchronized (extensionHistory)
+        synchronized (lock)
         {
-            if (extensionHistory.isEmpty())
-            {
-                extension = null;
-            }
-            else
-            {
-                extension = extensionHistory.get(0).getExtension();
-            }
+            return firstExtension;
         }
-
-        return extension;
     }
 
     public List<ExtensionHistoryEntry> getExtensionHistory()
     {
-        final List<ExtensionHistoryEntry> copy;
-
-        synchronized (extensionHistory)
+        synchronized (lock)
         {
-            copy = new ArrayList<>(extensionHistory);
+            return toList(extensionHistory);
         }
-
-        return copy;
     }
 
     /**
@@ -398,8 +390,13 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
 
         historyEntry = new ExtensionHistoryEntry(date, extension);
 
-        synchronized (extensionHistory)
+        synchronized (lock)
         {
+            if (extensionHistory == null)
+            {
+                extensionHistory = newHistory();
+                firstExtension = extension;
+            }
             extensionHistory.add(historyEntry);
         }
 
@@ -457,30 +454,36 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
     }
 
     /**
-     * Retrives the conplete List of all dialed channels associated to ths calls
+     * Retrives the List of the dialed channels associated to ths calls, at
+     * most the channel history size.
      *
-     * @return List of all dialed channels
+     * @return List of the dialed channels
      */
     public List<AsteriskChannel> getDialedChannels()
     {
-        final List<AsteriskChannel> copy;
+        final List<AsteriskChannel> dialedChannels = new ArrayList<>();
 
-        synchronized (dialedChannels)
+        // derived from the history so it is bounded the same way
+        for (DialedChannelHistoryEntry entry : getDialedChannelHistory())
         {
-            copy = new ArrayList<>(dialedChannels);
+            dialedChannels.add(entry.getChannel());
         }
-
-        return copy;
+        return dialedChannels;
     }
 
     /* dialed channels */
 
     public AsteriskChannel getDialedChannel()
     {
-        synchronized (dialedChannels)
+        synchronized (lock)
         {
-            for (AsteriskChannel channel : dialedChannels)
+            if (dialedChannelHistory == null)
+            {
+                return null;
+            }
+            for (int i = 0; i < dialedChannelHistory.size(); i++)
             {
+                final AsteriskChannel channel = dialedChannelHistory.get(i).getChannel();
                 if (channel != null)
                     return channel;
             }
@@ -490,32 +493,26 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
 
     public List<DialedChannelHistoryEntry> getDialedChannelHistory()
     {
-        final List<DialedChannelHistoryEntry> copy;
-
-        synchronized (linkedChannelHistory)
+        synchronized (lock)
         {
-            copy = new ArrayList<>(dialedChannelHistory);
+            return toList(dialedChannelHistory);
         }
-
-        return copy;
     }
 
     synchronized void channelDialed(Date date, AsteriskChannel dialedChannel)
     {
         final AsteriskChannel oldDialedChannel;
-        synchronized (dialedChannels)
-        {
-            if (dialedChannels.isEmpty())
-                oldDialedChannel = null;
-            else
-                oldDialedChannel = dialedChannels.get(dialedChannels.size() - 1);
-            dialedChannels.add(dialedChannel);
-        }
         final DialedChannelHistoryEntry historyEntry;
 
         historyEntry = new DialedChannelHistoryEntry(date, dialedChannel);
-        synchronized (dialedChannelHistory)
+        synchronized (lock)
         {
+            if (dialedChannelHistory == null)
+            {
+                dialedChannelHistory = newHistory();
+            }
+            final DialedChannelHistoryEntry last = dialedChannelHistory.getLast();
+            oldDialedChannel = last == null ? null : last.getChannel();
             dialedChannelHistory.add(historyEntry);
         }
 
@@ -526,31 +523,14 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
 
     public AsteriskChannel getDialingChannel()
     {
-        synchronized (dialingChannels)
-        {
-            if (dialingChannels.isEmpty())
-                return null;
-            return dialingChannels.get(0);
-        }
+        return dialingChannel;
     }
 
     synchronized void channelDialing(Date date, AsteriskChannel dialingChannel)
     {
-        final AsteriskChannel oldDialingChannel;
-        synchronized (this.dialingChannels)
-        {
-            if (this.dialingChannels.isEmpty())
-            {
-                oldDialingChannel = null;
-                this.dialingChannels.add(dialingChannel);
-            }
-            else
-            {
-                oldDialingChannel = this.dialingChannels.get(0);
-                this.dialingChannels.set(0, dialingChannel);
-            }
-        }
+        final AsteriskChannel oldDialingChannel = this.dialingChannel;
 
+        this.dialingChannel = dialingChannel;
         firePropertyChange(PROPERTY_DIALING_CHANNEL, oldDialingChannel, dialingChannel);
     }
 
@@ -558,24 +538,15 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
 
     public AsteriskChannel getLinkedChannel()
     {
-        synchronized (linkedChannels)
-        {
-            if (linkedChannels.isEmpty())
-                return null;
-            return linkedChannels.get(0);
-        }
+        return linkedChannel;
     }
 
     public List<LinkedChannelHistoryEntry> getLinkedChannelHistory()
     {
-        final List<LinkedChannelHistoryEntry> copy;
-
-        synchronized (linkedChannelHistory)
+        synchronized (lock)
         {
-            copy = new ArrayList<>(linkedChannelHistory);
+            return toList(linkedChannelHistory);
         }
-
-        return copy;
     }
 
     public boolean wasLinked()
@@ -591,26 +562,17 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
      */
     synchronized void channelLinked(Date date, AsteriskChannel linkedChannel)
     {
-        final AsteriskChannel oldLinkedChannel;
-        synchronized (this.linkedChannels)
-        {
-            if (this.linkedChannels.isEmpty())
-            {
-                oldLinkedChannel = null;
-                this.linkedChannels.add(linkedChannel);
-            }
-            else
-            {
-                oldLinkedChannel = this.linkedChannels.get(0);
-                this.linkedChannels.set(0, linkedChannel);
-            }
-        }
-
+        final AsteriskChannel oldLinkedChannel = this.linkedChannel;
         final LinkedChannelHistoryEntry historyEntry;
 
+        this.linkedChannel = linkedChannel;
         historyEntry = new LinkedChannelHistoryEntry(date, linkedChannel);
-        synchronized (linkedChannelHistory)
+        synchronized (lock)
         {
+            if (linkedChannelHistory == null)
+            {
+                linkedChannelHistory = newHistory();
+            }
             linkedChannelHistory.add(historyEntry);
         }
         this.wasLinked = true;
@@ -619,38 +581,15 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
 
     synchronized void channelUnlinked(Date date)
     {
-        final AsteriskChannel oldLinkedChannel;
+        final AsteriskChannel oldLinkedChannel = this.linkedChannel;
 
-        synchronized (this.linkedChannels)
+        this.linkedChannel = null;
+        synchronized (lock)
         {
-            if (this.linkedChannels.isEmpty())
-            {
-                oldLinkedChannel = null;
-            }
-            else
+            if (linkedChannelHistory != null)
             {
-                oldLinkedChannel = this.linkedChannels.get(0);
+                linkedChannelHistory.getLast().setDateUnlinked(date);
             }
-            linkedChannels.clear();
-        }
-
-        final LinkedChannelHistoryEntry historyEntry;
-
-        synchronized (linkedChannelHistory)
-        {
-            if (linkedChannelHistory.isEmpty())
-            {
-                historyEntry = null;
-            }
-            else
-            {
-                historyEntry = linkedChannelHistory.get(linkedChannelHistory.size() - 1);
-            }
-        }
-
-        if (historyEntry != null)
-        {
-            historyEntry.setDateUnlinked(date);
         }
 
         firePropertyChange(PROPERTY_LINKED_CHANNEL, oldLinkedChannel, null);
@@ -725,19 +664,17 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
     public void redirectBothLegs(String context, String exten, int priority)
             throws ManagerCommunicationException, NoSuchChannelException
     {
+        final AsteriskChannel linkedChannel = this.linkedChannel;
         ManagerResponse response;
 
-        synchronized (linkedChannels)
+        if (linkedChannel == null)
         {
-            if (linkedChannels.isEmpty())
-            {
-                response = server.sendAction(new RedirectAction(name, context, exten, priority));
-            }
-            else
-            {
-                response = server.sendAction(new RedirectAction(name, linkedChannels.get(0).getName(), context, exten,
-                        priority, context, exten, priority));
-            }
+            response = server.sendAction(new RedirectAction(name, context, exten, priority));
+        }
+        else
+        {
+            response = server.sendAction(new RedirectAction(name, linkedChannel.getName(), context, exten, priority,
+                    context, exten, priority));
         }
 
         if (response instanceof ManagerError)
@@ -751,28 +688,27 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
         ManagerResponse response;
         String value;
 
-        synchronized (variables)
+        synchronized (lock)
         {
+            value = variables == null ? null : variables.get(variable);
+        }
+        if (value != null)
+        {
+            return value;
+        }
 
-            value = variables.get(variable);
-            if (value != null)
-            {
-                return value;
-            }
-
-            response = server.sendAction(new GetVarAction(name, variable));
-            if (response instanceof ManagerError)
-            {
-                throw new NoSuchChannelException("Channel '" + name + "' is not available: " + response.getMessage());
-            }
-            value = response.getAttribute("Value");
-            if (value == null)
-            {
-                value = response.getAttribute(variable); // for Asterisk 1.0.x
-            }
-
-            variables.put(variable, value);
+        response = server.sendAction(new GetVarAction(name, variable));
+        if (response instanceof ManagerError)
+        {
+            throw new NoSuchChannelException("Channel '" + name + "' is not available: " + response.getMessage());
+        }
+        value = response.getAttribute("Value");
+        if (value == null)
+        {
+            value = response.getAttribute(variable); // for Asterisk 1.0.x
         }
+
+        updateVariable(variable, value);
         return value;
     }
 
@@ -785,10 +721,7 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
         {
             throw new NoSuchChannelException("Channel '" + name + "' is not available: " + response.getMessage());
         }
-        synchronized (variables)
-        {
-            variables.put(variable, value);
-        }
+        updateVariable(variable, value);
     }
 
     public void playDtmf(String digit) throws ManagerCommunicationException, NoSuchChannelException, IllegalArgumentException
@@ -927,8 +860,12 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
 
     void updateVariable(String name, String value)
     {
-        synchronized (variables)
+        synchronized (lock)
         {
+            if (variables == null)
+            {
+                variables = new HashMap<>(4);
+            }
             // final String oldValue = variables.get(name);
             variables.put(name, value);
             // TODO add notification for updated channel variables
@@ -937,8 +874,12 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
 
     public Map<String, String> getVariables()
     {
-        synchronized (variables)
+        synchronized (lock)
         {
+            if (variables == null)
+            {
+                return new HashMap<>();
+            }
             return new HashMap<>(variables);
         }
     }
@@ -995,13 +936,27 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
         firePropertyChange(PROPERTY_MONITORED, oldMonitored, monitored);
     }
 
+    private <E> BoundedHistory<E> newHistory()
+    {
+        return new BoundedHistory<>(server.getChannelHistorySize());
+    }
+
+    private static <E> List<E> toList(BoundedHistory<E> history)
+    {
+        if (history == null)
+        {
+            return new ArrayList<>();
+        }
+        return history.toList();
+    }
+
     @Override
     public String toString()
     {
         final StringBuilder sb;
         final List<AsteriskChannel> dialedChannels;
-        final List<AsteriskChannel> dialingChannel;
-        final List<AsteriskChannel> linkedChannel;
+        final AsteriskChannel dialingChannel;
+        final AsteriskChannel linkedChannel;
 
         sb = new StringBuilder("AsteriskChannel[");
 
@@ -1014,8 +969,8 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
             sb.append("account='").append(getAccount()).append("',");
             sb.append("dateOfCreation=").append(getDateOfCreation()).append(",");
             dialedChannels = getDialedChannels();
-            dialingChannel = this.dialingChannels;
-            linkedChannel = this.linkedChannels;
+            dialingChannel = this.dialingChannel;
+            linkedChannel = this.linkedChannel;
         }
         if (dialedChannels.isEmpty())
         {
@@ -1024,40 +979,32 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
         else
         {
             sb.append("dialedChannel=AsteriskChannel[");
-            synchronized (dialedChannels)
+            for (AsteriskChannel dialedChannel : dialedChannels)
             {
-                for (AsteriskChannel dialedChannel : dialedChannels)
-                {
-                    sb.append("[id='").append(dialedChannel.getId()).append("',");
-                    sb.append("name='").append(dialedChannel.getName()).append("'],");
-                }
-                sb.append("],");
+                sb.append("[id='").append(dialedChannel.getId()).append("',");
+                sb.append("name='").append(dialedChannel.getName()).append("'],");
             }
+            sb.append("],");
         }
-        if (dialingChannel.isEmpty())
+        if (dialingChannel == null)
         {
             sb.append("dialingChannel=null,");
         }
         else
         {
             sb.append("dialingChannel=AsteriskChannel[");
-            sb.append("id='").append(dialingChannel.get(0).getId()).append("',");
-            sb.append("name='").append(dialingChannel.get(0).getName()).append("'],");
+            sb.append("id='").append(dialingChannel.getId()).append("',");
+            sb.append("name='").append(dialingChannel.getName()).append("'],");
         }
-        synchronized (linkedChannel)
+        if (linkedChannel == null)
         {
-            if (linkedChannel.isEmpty())
-            {
-                sb.append("linkedChannel=null");
-            }
-            else
-            {
-                sb.append("linkedChannel=AsteriskChannel[");
-                {
-                    sb.append("id='").append(linkedChannel.get(0).getId()).append("',");
-                    sb.append("name='").append(linkedChannel.get(0).getName()).append("']");
-                }
-            }
+            sb.append("linkedChannel=null");
+        }
+        else
+        {
+            sb.append("linkedChannel=AsteriskChannel[");
+            sb.append("id='").append(linkedChannel.getId()).append("',");
+            sb.append("name='").append(linkedChannel.getName()).append("']");
         }
         sb.append("]");
 
@@ -22,14 +22,15 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.asteriskjava.live.AsteriskQueue;
 import org.asteriskjava.live.AsteriskQueueEntry;
 import org.asteriskjava.live.AsteriskQueueListener;
 import org.asteriskjava.live.AsteriskQueueMember;
 import org.asteriskjava.util.AstUtil;
+import org.asteriskjava.util.HashedWheelTimer;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
@@ -42,11 +43,13 @@ import org.asteriskjava.util.LogFactory;
 class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue
 {
     /**
-     * TimerTask that monitors exceeding service levels.
+     * Task that monitors exceeding service levels. It expires on the shared
+     * timer of the server's runtime and notifies the listeners on its
+     * executor, as listeners may block the timer thread otherwise.
      *
      * @author Patrick Breucking
      */
-    private class ServiceLevelTimerTask extends TimerTask
+    private class ServiceLevelTimerTask implements Runnable
     {
         private final AsteriskQueueEntry entry;
 
@@ -58,7 +61,30 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue
         @Override
         public void run()
         {
-            fireServiceLevelExceeded(entry);
+            synchronized (serviceLevelTimeouts)
+            {
+                if (serviceLevelTimeouts.remove(entry) == null)
+                {
+                    // removed or cancelled while expiring
+                    return;
+                }
+            }
+
+            try
+            {
+                server.getRuntime().getExecutor().execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        fireServiceLevelExceeded(entry);
+                    }
+                });
+            }
+            catch (IllegalStateException | RejectedExecutionException e)
+            {
+                logger.debug("Runtime has been shut down, not firing service level exceeded for " + entry);
+            }
         }
     }
 
@@ -79,10 +105,9 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue
 
     private Integer weight;
     private final List<AsteriskQueueEntryImpl> entries;
-    private final Timer timer;
     private final Map<String, AsteriskQueueMemberImpl> members;
     private final List<AsteriskQueueListener> listeners;
-    private final Map<AsteriskQueueEntry, ServiceLevelTimerTask> serviceLevelTimerTasks;
+    private final Map<AsteriskQueueEntry, HashedWheelTimer.Timeout> serviceLevelTimeouts;
 
     AsteriskQueueImpl(AsteriskServerImpl server, String name, Integer max,
                       String strategy, Integer serviceLevel, Integer weight,
@@ -98,21 +123,25 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue
         entries = new ArrayList<>(25);
         listeners = new ArrayList<>();
         members = new HashMap<>();
-        timer = new Timer("ServiceLevelTimer-" + name, true);
-        serviceLevelTimerTasks = new HashMap<>();
+        serviceLevelTimeouts = new HashMap<>();
         this.calls = calls;
         this.holdTime = holdTime;
         this.talkTime = talkTime;
         this.completed = completed;
         this.abandoned = abandoned;
         this.serviceLevelPerf = serviceLevelPerf;
-
-        stampLastUpdate();
     }
 
     void cancelServiceLevelTimer()
     {
-        timer.cancel();
+        synchronized (serviceLevelTimeouts)
+        {
+            for (HashedWheelTimer.Timeout timeout : serviceLevelTimeouts.values())
+            {
+                timeout.cancel();
+            }
+            serviceLevelTimeouts.clear();
+        }
     }
 
     public String getName()
@@ -357,11 +386,11 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue
         long delay = serviceLevel * 1000L;
         if (delay > 0)
         {
-            ServiceLevelTimerTask timerTask = new ServiceLevelTimerTask(qe);
-            timer.schedule(timerTask, delay);
-            synchronized (serviceLevelTimerTasks)
+            // hold the lock so the task cannot expire before it is registered
+            synchronized (serviceLevelTimeouts)
             {
-                serviceLevelTimerTasks.put(qe, timerTask);
+                serviceLevelTimeouts.put(qe, server.getRuntime().getTimer()
+                        .newTimeout(new ServiceLevelTimerTask(qe), delay, TimeUnit.MILLISECONDS));
             }
         }
 
@@ -374,6 +403,7 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue
             // but hopefully this one has no listeners yet
             shift();
         }
+        changed();
 
         // Set the channel property ony here as queue entries and channels
         // maintain a reciprocal reference.
@@ -398,13 +428,12 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue
      */
     void removeEntry(AsteriskQueueEntryImpl entry, Date dateReceived)
     {
-        synchronized (serviceLevelTimerTasks)
+        synchronized (serviceLevelTimeouts)
         {
-            if (serviceLevelTimerTasks.containsKey(entry))
+            final HashedWheelTimer.Timeout timeout = serviceLevelTimeouts.remove(entry);
+            if (timeout != null)
             {
-                ServiceLevelTimerTask timerTask = serviceLevelTimerTasks.get(entry);
-                timerTask.cancel();
-                serviceLevelTimerTasks.remove(entry);
+                timeout.cancel();
             }
         }
 
@@ -423,6 +452,7 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue
         // Fire outside lock
         if (changed)
         {
+            changed();
             entry.getChannel().setQueueEntry(null);
             entry.left(dateReceived);
             fireEntryLeave(entry);
@@ -623,6 +653,7 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue
             logger.info("Adding new member to the queue " + getName() + ": " + member.toString());
             members.put(member.getLocation(), member);
         }
+        changed();
 
         fireMemberAdded(member);
     }
@@ -711,6 +742,7 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue
                     + member.toString());
             members.remove(member.getLocation());
         }
+        changed();
 
         fireMemberRemoved(member);
     }
@@ -16,6 +16,9 @@
  */
 package org.asteriskjava.live.internal;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -24,8 +27,12 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -41,12 +48,14 @@ import org.asteriskjava.live.AsteriskServerListener;
 import org.asteriskjava.live.CallerId;
 import org.asteriskjava.live.ChannelState;
 import org.asteriskjava.live.LiveException;
+import org.asteriskjava.live.LiveSnapshot;
 import org.asteriskjava.live.ManagerCommunicationException;
 import org.asteriskjava.live.MeetMeRoom;
 import org.asteriskjava.live.MeetMeUser;
 import org.asteriskjava.live.NoSuchChannelException;
 import org.asteriskjava.live.OriginateCallback;
 import org.asteriskjava.live.Voicemailbox;
+import org.asteriskjava.manager.ActionFuture;
 import org.asteriskjava.manager.ManagerConnection;
 import org.asteriskjava.manager.ManagerConnectionState;
 import org.asteriskjava.manager.ManagerEventListener;
@@ -113,6 +122,8 @@ import org.asteriskjava.manager.response.ManagerResponse;
 import org.asteriskjava.manager.response.ModuleCheckResponse;
 import org.asteriskjava.util.AstUtil;
 import org.asteriskjava.util.DateUtil;
+import org.asteriskjava.util.DispatchTable;
+import org.asteriskjava.util.ExecutionRuntime;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
@@ -133,6 +144,8 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
     private static final String SHOW_VOICEMAIL_USERS_COMMAND = "show voicemail users";
     private static final String SHOW_VOICEMAIL_USERS_1_6_COMMAND = "voicemail show users";
     private static final Pattern SHOW_VOICEMAIL_USERS_PATTERN = Pattern.compile("^(\\S+)\\s+(\\S+)\\s+(.{25})");
+    private static final int DEFAULT_CHANNEL_HISTORY_SIZE = 32;
+    private static final long DEFAULT_CHECKPOINT_INTERVAL = 10000L;
 
     private final Log logger = LogFactory.getLog(this.getClass());
 
@@ -144,7 +157,45 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
     private ManagerEventListenerProxy managerEventListenerProxy;
 
     private boolean initialized = false;
-    private boolean initializing = false;
+
+    /**
+     * The synchronization of the state in progress or <code>null</code> if
+     * there is none.
+     */
+    private volatile StateSynchronizer stateSynchronizer;
+
+    /**
+     * The thread that processes the events. It must never wait for the state
+     * to be synchronized as it applies the events the synchronization waits
+     * for.
+     */
+    private volatile Thread eventThread;
+
+    private volatile ExecutionRuntime runtime = ExecutionRuntime.getDefault();
+    private volatile int channelHistorySize = DEFAULT_CHANNEL_HISTORY_SIZE;
+
+    /**
+     * The checkpoint the state is written to and restored from or
+     * <code>null</code> if checkpoints are disabled.
+     */
+    private LiveCheckpoint checkpoint;
+    private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private boolean checkpointRestoreAttempted;
+    private ScheduledFuture< ? > checkpointTask;
+    private final Runnable checkpointWriter = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            writeCheckpoint();
+        }
+    };
+
+    /**
+     * Sequence of the last snapshot written to the checkpoint, guarded by
+     * the checkpoint.
+     */
+    private long checkpointSequence = -1L;
 
     final Set<AsteriskServerListener> listeners;
 
@@ -152,6 +203,7 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
     final MeetMeManager meetMeManager;
     final QueueManager queueManager;
     final AgentManager agentManager;
+    final SnapshotPublisher snapshotPublisher;
 
     /**
      * The exact version string of the Asterisk server we are connected to.
@@ -217,6 +269,7 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
         agentManager = new AgentManager(this);
         meetMeManager = new MeetMeManager(this, channelManager);
         queueManager = new QueueManager(this, channelManager);
+        snapshotPublisher = new SnapshotPublisher(this);
     }
 
     /**
@@ -249,6 +302,150 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
         this.skipQueues = skipQueues;
     }
 
+    /**
+     * Sets the runtime used for the background tasks of this server. By
+     * default all servers share {@link ExecutionRuntime#getDefault()}.
+     *
+     * @param runtime the runtime to use.
+     * @since 2.0.0
+     */
+    public void setRuntime(ExecutionRuntime runtime)
+    {
+        if (runtime == null)
+        {
+            throw new IllegalArgumentException("Runtime must not be null");
+        }
+        this.runtime = runtime;
+    }
+
+    /**
+     * Returns the runtime used for the background tasks of this server.
+     *
+     * @return the runtime of this server.
+     * @since 2.0.0
+     */
+    public ExecutionRuntime getRuntime()
+    {
+        return runtime;
+    }
+
+    /**
+     * Sets how long hung up channels are kept before they are removed from
+     * memory. <br>
+     * Default is 15 minutes.
+     *
+     * @param retentionTime the time in milliseconds.
+     * @since 2.0.0
+     */
+    public void setHungupChannelRetentionTime(long retentionTime)
+    {
+        channelManager.setRemovalThreshold(retentionTime);
+    }
+
+    /**
+     * Sets the maximum number of hung up channels that are kept in memory.
+     * When there are more, the channels that have been hung up first are
+     * removed before their retention time has passed. This bounds the memory
+     * used for hung up channels on busy servers. <br>
+     * Default is no limit.
+     *
+     * @param maxHungupChannels the maximum number of hung up channels.
+     * @since 2.0.0
+     */
+    public void setMaxHungupChannels(int maxHungupChannels)
+    {
+        channelManager.setMaxHungupChannels(maxHungupChannels);
+    }
+
+    /**
+     * Sets the number of entries kept in each history of a channel, like the
+     * visited dialplan entries or the channels it has been linked with. When
+     * a history is full its oldest entry is dropped, so calls that loop
+     * through an IVR do not use more and more memory. The new size applies to
+     * histories created afterwards. <br>
+     * Default is 32.
+     *
+     * @param channelHistorySize the maximum number of entries in a history.
+     * @throws IllegalArgumentException if channelHistorySize is less than 1.
+     * @since 2.0.0
+     */
+    public void setChannelHistorySize(int channelHistorySize)
+    {
+        if (channelHistorySize < 1)
+        {
+            throw new IllegalArgumentException("channelHistorySize must be at least 1");
+        }
+        this.channelHistorySize = channelHistorySize;
+    }
+
+    int getChannelHistorySize()
+    {
+        return channelHistorySize;
+    }
+
+    /**
+     * Sets the minimum time between two snapshots returned by
+     * {@link #getSnapshot()}. A new snapshot is published at most once per
+     * interval when events are received. <br>
+     * Default is 100 milliseconds.
+     *
+     * @param interval the minimum time in milliseconds, 0 to publish a new
+     *            snapshot after each event.
+     * @throws IllegalArgumentException if interval is negative.
+     * @since 2.0.0
+     */
+    public void setSnapshotInterval(long interval)
+    {
+        snapshotPublisher.setInterval(interval);
+    }
+
+    /**
+     * Sets the file the state is periodically written to. If the file exists
+     * when the server is initialized the state is restored from it at once
+     * and then reconciled with Asterisk in the background, instead of waiting
+     * for the full state to be received. The file is memory mapped and holds
+     * the channels, queues, agents and MeetMe rooms in a compact binary
+     * format. Reconciling requires Asterisk 1.6.2 or later, older versions
+     * fall back to a full synchronization. <br>
+     * Default is no checkpoint.
+     *
+     * @param checkpointFile the file to use or <code>null</code> to disable
+     *            checkpoints.
+     * @throws IllegalStateException if the server has already been
+     *             initialized.
+     * @since 2.0.0
+     */
+    public synchronized void setCheckpointFile(File checkpointFile)
+    {
+        if (initialized || stateSynchronizer != null)
+        {
+            throw new IllegalStateException("Checkpoint file must be set before the server is initialized");
+        }
+        if (checkpoint != null)
+        {
+            checkpoint.close();
+        }
+        checkpoint = checkpointFile == null ? null : new LiveCheckpoint(checkpointFile);
+    }
+
+    /**
+     * Sets the time between two checkpoints. A checkpoint is only written if
+     * the state changed since the last one. <br>
+     * Default is 10 seconds.
+     *
+     * @param checkpointInterval the time in milliseconds.
+     * @throws IllegalArgumentException if checkpointInterval is less than 1.
+     * @since 2.0.0
+     */
+    public synchronized void setCheckpointInterval(long checkpointInterval)
+    {
+        if (checkpointInterval < 1)
+        {
+            throw new IllegalArgumentException("checkpointInterval must be at least 1");
+        }
+        this.checkpointInterval = checkpointInterval;
+    }
+
     public void setManagerConnection(ManagerConnection eventConnection)
     {
         if (this.eventConnection != null)
@@ -269,12 +466,62 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
         initializeIfNeeded();
     }
 
-    private synchronized void initializeIfNeeded() throws ManagerCommunicationException
+    /**
+     * Synchronizes the state with Asterisk unless that has already been done
+     * and waits until the synchronization is done. The thread processing the
+     * events only starts the synchronization.
+     */
+    private void initializeIfNeeded() throws ManagerCommunicationException
     {
-        if (initialized || initializing)
+        StateSynchronizer synchronizer;
+        final boolean restored;
+
+        synchronized (this)
+        {
+            if (initialized)
+            {
+                return;
+            }
+            synchronizer = stateSynchronizer;
+            if (synchronizer == null)
+            {
+                synchronizer = startStateSynchronization();
+            }
+            restored = initialized;
+        }
+
+        if (restored)
         {
+            // the restored state is used while it is reconciled, published
+            // without holding the lock of this server as the thread
+            // processing the events takes the lock of the publisher first
+            snapshotPublisher.update();
             return;
         }
+
+        if (Thread.currentThread() != eventThread)
+        {
+            synchronizer.await();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock of this server.
+     */
+    private StateSynchronizer startStateSynchronization() throws ManagerCommunicationException
+    {
+        final StateSynchronizer synchronizer;
+
+        // restore before events are received, they must not be handled
+        // while the state is replaced
+        boolean restored = false;
+        if (checkpoint != null && !checkpointRestoreAttempted && managerEventListenerProxy == null
+                && eventListener == null)
+        {
+            checkpointRestoreAttempted = true;
+            restored = restoreCheckpoint();
+        }
+
         if (asyncEventHandling && managerEventListenerProxy == null)
         {
             managerEventListenerProxy = new ManagerEventListenerProxy(this);
@@ -286,8 +533,6 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
             eventConnection.addEventListener(eventListener);
         }
 
-        initializing = true;
-
         if (eventConnection.getState() == ManagerConnectionState.INITIAL
                 || eventConnection.getState() == ManagerConnectionState.DISCONNECTED)
         {
@@ -301,27 +546,177 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
             }
         }
 
-        channelManager.initialize();
-        agentManager.initialize();
-        meetMeManager.initialize();
-        if (!skipQueues)
+        // the events of the synchronization may be received before start()
+        // returns
+        synchronizer = new StateSynchronizer(this, skipQueues, restored);
+        stateSynchronizer = synchronizer;
+        if (restored)
         {
-            queueManager.initialize();
+            // the restored state is used while it is reconciled
+            initialized = true;
         }
+        synchronizer.start();
+        return synchronizer;
+    }
 
-        if (asyncEventHandling && managerEventListenerProxy == null)
+    /**
+     * Restores the state from the checkpoint, must be called while holding
+     * the lock of this server and before the event listener is registered.
+     *
+     * @return <code>true</code> if the state has been restored,
+     *         <code>false</code> if there is no valid checkpoint.
+     */
+    private boolean restoreCheckpoint()
+    {
+        final LiveCheckpoint.Contents contents;
+        final Date date;
+
+        try
         {
-            managerEventListenerProxy = new ManagerEventListenerProxy(this);
-            eventConnection.addEventListener(managerEventListenerProxy);
+            contents = checkpoint.read();
         }
-        else if (!asyncEventHandling && eventListener == null)
+        catch (IOException e)
         {
-            eventListener = this;
-            eventConnection.addEventListener(eventListener);
+            logger.warn("Unable to restore state from checkpoint " + checkpoint.getFile() + ": " + e.getMessage());
+            return false;
+        }
+        if (contents == null)
+        {
+            return false;
+        }
+
+        date = new Date(contents.date);
+        channelManager.restoreChannels(contents.channels, date);
+        queueManager.restoreQueues(contents.queues, date);
+        agentManager.restoreAgents(contents.agents);
+        meetMeManager.restoreRooms(contents.rooms, date);
+        logger.info("Restored state from checkpoint of " + date);
+        return true;
+    }
+
+    /**
+     * Called by the state synchronizer when it is done.
+     *
+     * @param synchronizer the synchronizer that is done.
+     * @param success <code>true</code> if the state has been synchronized,
+     *            <code>false</code> if the synchronization failed or has
+     *            been cancelled.
+     */
+    void stateSynchronized(StateSynchronizer synchronizer, boolean success)
+    {
+        StateSynchronizer fallback = null;
+
+        synchronized (this)
+        {
+            if (stateSynchronizer != synchronizer)
+            {
+                return;
+            }
+            stateSynchronizer = null;
+            if (!success && synchronizer.isReconciling())
+            {
+                // keep the restored state until it has been replaced
+                logger.warn("Unable to reconcile the restored state, synchronizing it from scratch");
+                fallback = new StateSynchronizer(this, skipQueues, false);
+                stateSynchronizer = fallback;
+            }
+            else
+            {
+                initialized = success;
+            }
+        }
+
+        if (fallback != null)
+        {
+            try
+            {
+                fallback.start();
+            }
+            catch (ManagerCommunicationException e)
+            {
+                logger.error("Unable to synchronize the state", e);
+            }
+            return;
+        }
+
+        if (success)
+        {
+            logger.info("Initializing done");
+            snapshotPublisher.update();
+            scheduleCheckpoints();
+        }
+    }
+
+    /**
+     * Starts writing checkpoints once the state has been synchronized.
+     */
+    private synchronized void scheduleCheckpoints()
+    {
+        if (checkpoint == null || checkpointTask != null)
+        {
+            return;
+        }
+
+        try
+        {
+            checkpointTask = runtime.getScheduler().scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    // writing blocks on I/O, the scheduler only triggers it
+                    try
+                    {
+                        runtime.getExecutor().execute(checkpointWriter);
+                    }
+                    catch (IllegalStateException | RejectedExecutionException e)
+                    {
+                        logger.warn("Unable to write checkpoint, runtime has been shut down");
+                    }
+                }
+            }, checkpointInterval, checkpointInterval, TimeUnit.MILLISECONDS);
+        }
+        catch (IllegalStateException | RejectedExecutionException e)
+        {
+            logger.warn("Unable to schedule checkpoints, runtime has been shut down");
+        }
+    }
+
+    /**
+     * Writes the state to the checkpoint unless it did not change since the
+     * last checkpoint.
+     */
+    private void writeCheckpoint()
+    {
+        final LiveCheckpoint target;
+
+        synchronized (this)
+        {
+            // the state is cleared while disconnected
+            if (!initialized || checkpoint == null)
+            {
+                return;
+            }
+            target = checkpoint;
+        }
+
+        final LiveSnapshot snapshot = snapshotPublisher.getSnapshot();
+        synchronized (target)
+        {
+            if (snapshot.getSequence() == checkpointSequence)
+            {
+                return;
+            }
+            try
+            {
+                target.write(snapshot, meetMeManager.getMeetMeRooms());
+                checkpointSequence = snapshot.getSequence();
+            }
+            catch (IOException | RuntimeException e)
+            {
+                logger.warn("Unable to write checkpoint " + target.getFile() + ": " + e.getMessage());
+            }
         }
-        logger.info("Initializing done");
-        initializing = false;
-        initialized = true;
     }
 
     /* Implementation of the AsteriskServer interface */
@@ -512,6 +907,16 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
         return channelManager.getChannels();
     }
 
+    public LiveSnapshot getSnapshot() throws ManagerCommunicationException
+    {
+        // do not contend for the lock of initializeIfNeeded() once started
+        if (!snapshotPublisher.isStarted())
+        {
+            initializeIfNeeded();
+        }
+        return snapshotPublisher.getSnapshot();
+    }
+
     public AsteriskChannel getChannelByName(String name) throws ManagerCommunicationException
     {
         initializeIfNeeded();
@@ -986,6 +1391,18 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
         }
     }
 
+    ActionFuture<ManagerResponse> sendActionAsync(ManagerAction action) throws ManagerCommunicationException
+    {
+        try
+        {
+            return eventConnection.sendActionAsync(action);
+        }
+        catch (Exception e)
+        {
+            throw ManagerCommunicationExceptionMapper.mapSendActionException(action.getAction(), e);
+        }
+    }
+
     ResponseEvents sendEventGeneratingAction(EventGeneratingAction action) throws ManagerCommunicationException
     {
         // return connectionPool.sendEventGeneratingAction(action);
@@ -1022,168 +1439,144 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
         }
     }
 
-    /* Implementation of the ManagerEventListener interface */
-
     /**
-     * Handles all events received from the Asterisk server. <br>
-     * Events are queued until channels and queues are initialized and then
-     * delegated to the dispatchEvent method.
+     * Called by the channel manager when the trace id of a channel has been
+     * resolved. If the channel has been created by an originate action of
+     * this server its callback is notified that the channel is dialing. For
+     * local channels only the first side is reported.
+     *
+     * @param channel the channel.
+     * @param traceId the trace id of the channel.
      */
-    public void onManagerEvent(ManagerEvent event)
+    void traceIdResolved(final AsteriskChannelImpl channel, String traceId)
     {
-        // Handle Channel related events
-        if (event instanceof ConnectEvent)
-        {
-            handleConnectEvent((ConnectEvent) event);
-        }
-        else if (event instanceof DisconnectEvent)
-        {
-            handleDisconnectEvent((DisconnectEvent) event);
-        }
-        else if (event instanceof NewChannelEvent)
-        {
-            channelManager.handleNewChannelEvent((NewChannelEvent) event);
-        }
-        else if (event instanceof NewExtenEvent)
-        {
-            channelManager.handleNewExtenEvent((NewExtenEvent) event);
-        }
-        else if (event instanceof NewStateEvent)
-        {
-            channelManager.handleNewStateEvent((NewStateEvent) event);
-        }
-        else if (event instanceof NewCallerIdEvent)
-        {
-            channelManager.handleNewCallerIdEvent((NewCallerIdEvent) event);
-        }
-        else if (event instanceof DialEvent)
-        {
-            channelManager.handleDialEvent((DialEvent) event);
-        }
-        else if (event instanceof BridgeEvent)
-        {
-            channelManager.handleBridgeEvent((BridgeEvent) event);
-        }
-        else if (event instanceof RenameEvent)
-        {
-            channelManager.handleRenameEvent((RenameEvent) event);
-        }
-        else if (event instanceof HangupEvent)
-        {
-            channelManager.handleHangupEvent((HangupEvent) event);
-        }
-        else if (event instanceof CdrEvent)
-        {
-            channelManager.handleCdrEvent((CdrEvent) event);
-        }
-        else if (event instanceof VarSetEvent)
-        {
-            channelManager.handleVarSetEvent((VarSetEvent) event);
-        }
-        else if (event instanceof DtmfEvent)
-        {
-            channelManager.handleDtmfEvent((DtmfEvent) event);
-        }
-        else if (event instanceof MonitorStartEvent)
-        {
-            channelManager.handleMonitorStartEvent((MonitorStartEvent) event);
-        }
-        else if (event instanceof MonitorStopEvent)
-        {
-            channelManager.handleMonitorStopEvent((MonitorStopEvent) event);
-        }
-        // End of channel related events
-        // Handle parking related event
-        else if (event instanceof ParkedCallEvent)
+        final String name = channel.getName();
+        if (name == null || (name.toLowerCase(Locale.ENGLISH).startsWith("local/") && !name.endsWith(",1")
+                && !name.endsWith(";1")))
         {
-            channelManager.handleParkedCallEvent((ParkedCallEvent) event);
-        }
-        else if (event instanceof ParkedCallGiveUpEvent)
-        {
-            channelManager.handleParkedCallGiveUpEvent((ParkedCallGiveUpEvent) event);
-        }
-        else if (event instanceof ParkedCallTimeOutEvent)
-        {
-            channelManager.handleParkedCallTimeOutEvent((ParkedCallTimeOutEvent) event);
-        }
-        else if (event instanceof UnparkedCallEvent)
-        {
-            channelManager.handleUnparkedCallEvent((UnparkedCallEvent) event);
-        }
-        // End of parking related events
-        // Handle queue related event
-        else if (event instanceof JoinEvent)
-        {
-            queueManager.handleJoinEvent((JoinEvent) event);
-        }
-        else if (event instanceof LeaveEvent)
-        {
-            queueManager.handleLeaveEvent((LeaveEvent) event);
-        }
-        else if (event instanceof QueueMemberStatusEvent)
-        {
-            queueManager.handleQueueMemberStatusEvent((QueueMemberStatusEvent) event);
-        }
-        else if (event instanceof QueueMemberPenaltyEvent)
-        {
-            queueManager.handleQueueMemberPenaltyEvent((QueueMemberPenaltyEvent) event);
-        }
-        else if (event instanceof QueueMemberAddedEvent)
-        {
-            queueManager.handleQueueMemberAddedEvent((QueueMemberAddedEvent) event);
-        }
-        else if (event instanceof QueueMemberRemovedEvent)
-        {
-            queueManager.handleQueueMemberRemovedEvent((QueueMemberRemovedEvent) event);
-        }
-        else if (event instanceof QueueMemberPausedEvent)
-        {
-            queueManager.handleQueueMemberPausedEvent((QueueMemberPausedEvent) event);
-        }
-        // >>>>>> AJ 94
-        // Handle meetMeEvents
-        else if (event instanceof AbstractMeetMeEvent)
-        {
-            meetMeManager.handleMeetMeEvent((AbstractMeetMeEvent) event);
-        }
-        else if (event instanceof OriginateResponseEvent)
-        {
-            handleOriginateEvent((OriginateResponseEvent) event);
-        }
-        // Handle agents-related events
-        else if (event instanceof AgentsEvent)
-        {
-            agentManager.handleAgentsEvent((AgentsEvent) event);
+            return;
         }
-        else if (event instanceof AgentCalledEvent)
+
+        final OriginateCallbackData callbackData = getOriginateCallbackDataByTraceId(traceId);
+        if (callbackData == null)
         {
-            agentManager.handleAgentCalledEvent((AgentCalledEvent) event);
+            return;
         }
-        else if (event instanceof AgentConnectEvent)
+
+        synchronized (callbackData)
         {
-            agentManager.handleAgentConnectEvent((AgentConnectEvent) event);
+            if (callbackData.getChannel() != null)
+            {
+                return;
+            }
+            callbackData.setChannel(channel);
         }
-        else if (event instanceof AgentCompleteEvent)
+
+        // the callback may block so it is not run on the thread processing
+        // the events
+        try
         {
-            agentManager.handleAgentCompleteEvent((AgentCompleteEvent) event);
+            runtime.getExecutor().execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        callbackData.getCallback().onDialing(channel);
+                    }
+                    catch (Throwable t)
+                    {
+                        logger.warn("Exception dispatching originate progress. " + channel, t);
+                    }
+                }
+            });
         }
-        else if (event instanceof AgentCallbackLoginEvent)
+        catch (IllegalStateException | RejectedExecutionException e)
         {
-            agentManager.handleAgentCallbackLoginEvent((AgentCallbackLoginEvent) event);
+            logger.warn("Unable to dispatch originate progress, runtime has been shut down. " + channel);
         }
-        else if (event instanceof AgentCallbackLogoffEvent)
+    }
+
+    /* Implementation of the ManagerEventListener interface */
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * Handlers for the events received from the Asterisk server, resolved
+     * once per event class.
+     */
+    private static final DispatchTable<AsteriskServerImpl, ManagerEvent> EVENT_HANDLERS = DispatchTable
+            .builder(AsteriskServerImpl.class, ManagerEvent.class)
+            // Handle Channel related events
+            .addMethod(LOOKUP, "handleConnectEvent", ConnectEvent.class)
+            .addMethod(LOOKUP, "handleDisconnectEvent", DisconnectEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleNewChannelEvent", NewChannelEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleNewExtenEvent", NewExtenEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleNewStateEvent", NewStateEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleNewCallerIdEvent", NewCallerIdEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleDialEvent", DialEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleBridgeEvent", BridgeEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleRenameEvent", RenameEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleHangupEvent", HangupEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleCdrEvent", CdrEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleVarSetEvent", VarSetEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleDtmfEvent", DtmfEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleMonitorStartEvent", MonitorStartEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleMonitorStopEvent", MonitorStopEvent.class)
+            // Handle parking related event
+            .addDelegate(LOOKUP, "channelManager", "handleParkedCallEvent", ParkedCallEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleParkedCallGiveUpEvent", ParkedCallGiveUpEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleParkedCallTimeOutEvent", ParkedCallTimeOutEvent.class)
+            .addDelegate(LOOKUP, "channelManager", "handleUnparkedCallEvent", UnparkedCallEvent.class)
+            // Handle queue related event
+            .addDelegate(LOOKUP, "queueManager", "handleJoinEvent", JoinEvent.class)
+            .addDelegate(LOOKUP, "queueManager", "handleLeaveEvent", LeaveEvent.class)
+            .addDelegate(LOOKUP, "queueManager", "handleQueueMemberStatusEvent", QueueMemberStatusEvent.class)
+            .addDelegate(LOOKUP, "queueManager", "handleQueueMemberPenaltyEvent", QueueMemberPenaltyEvent.class)
+            .addDelegate(LOOKUP, "queueManager", "handleQueueMemberAddedEvent", QueueMemberAddedEvent.class)
+            .addDelegate(LOOKUP, "queueManager", "handleQueueMemberRemovedEvent", QueueMemberRemovedEvent.class)
+            .addDelegate(LOOKUP, "queueManager", "handleQueueMemberPausedEvent", QueueMemberPausedEvent.class)
+            // Handle meetMeEvents
+            .addDelegate(LOOKUP, "meetMeManager", "handleMeetMeEvent", AbstractMeetMeEvent.class)
+            .addMethod(LOOKUP, "handleOriginateEvent", OriginateResponseEvent.class)
+            // Handle agents-related events
+            .addDelegate(LOOKUP, "agentManager", "handleAgentsEvent", AgentsEvent.class)
+            .addDelegate(LOOKUP, "agentManager", "handleAgentCalledEvent", AgentCalledEvent.class)
+            .addDelegate(LOOKUP, "agentManager", "handleAgentConnectEvent", AgentConnectEvent.class)
+            .addDelegate(LOOKUP, "agentManager", "handleAgentCompleteEvent", AgentCompleteEvent.class)
+            .addDelegate(LOOKUP, "agentManager", "handleAgentCallbackLoginEvent", AgentCallbackLoginEvent.class)
+            .addDelegate(LOOKUP, "agentManager", "handleAgentCallbackLogoffEvent", AgentCallbackLogoffEvent.class)
+            .addDelegate(LOOKUP, "agentManager", "handleAgentLoginEvent", AgentLoginEvent.class)
+            .addDelegate(LOOKUP, "agentManager", "handleAgentLogoffEvent", AgentLogoffEvent.class)
+            .build();
+
+    /**
+     * Handles all events received from the Asterisk server. <br>
+     * Events are queued until channels and queues are initialized and then
+     * delegated to the dispatchEvent method.
+     */
+    public void onManagerEvent(ManagerEvent event)
+    {
+        final Thread currentThread = Thread.currentThread();
+        if (eventThread != currentThread)
         {
-            agentManager.handleAgentCallbackLogoffEvent((AgentCallbackLogoffEvent) event);
+            eventThread = currentThread;
         }
-        else if (event instanceof AgentLoginEvent)
+
+        snapshotPublisher.beginEvent();
+        try
         {
-            agentManager.handleAgentLoginEvent((AgentLoginEvent) event);
+            final StateSynchronizer synchronizer = stateSynchronizer;
+            if (synchronizer == null || !synchronizer.handleEvent(event))
+            {
+                EVENT_HANDLERS.dispatch(this, event);
+            }
         }
-        else if (event instanceof AgentLogoffEvent)
+        finally
         {
-            agentManager.handleAgentLogoffEvent((AgentLogoffEvent) event);
+            snapshotPublisher.endEvent();
         }
-        // End of agent-related events
 
         // dispatch the events to the chainListener if they exist.
         fireChainListeners(event);
@@ -1217,36 +1610,36 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
 
         // same for channels, agents and queues rooms, they are reinitialized
         // when reconnected
+        final StateSynchronizer synchronizer;
+        synchronized (this)
+        {
+            synchronizer = stateSynchronizer;
+            stateSynchronizer = null;
+            initialized = false;
+        }
+        if (synchronizer != null)
+        {
+            synchronizer.cancel();
+        }
+
         channelManager.disconnected();
         agentManager.disconnected();
         meetMeManager.disconnected();
         queueManager.disconnected();
-        initialized = false;
-        initializing = false;
+        snapshotPublisher.invalidate();
     }
 
     /*
      * Requests the current state from the asterisk server after the connection
-     * to the asterisk server is restored.
+     * to the asterisk server is restored. The state is applied by this thread
+     * as it is received, so it does not wait.
      */
 
     private void handleConnectEvent(ConnectEvent connectEvent)
     {
         try
         {
-            initialize();
-
-            channelManager.initialize();
-            agentManager.initialize();
-            meetMeManager.initialize();
-            if (!skipQueues)
-            {
-                queueManager.initialize();
-            }
-
-            logger.info("Initializing done");
-            initialized = true;
-            initializing = false;
+            initializeIfNeeded();
         }
         catch (Exception e)
         {
@@ -1357,6 +1750,26 @@ public class AsteriskServerImpl implements AsteriskServer, ManagerEventListener
     @Override
     public void shutdown()
     {
+        final LiveCheckpoint lastCheckpoint;
+        synchronized (this)
+        {
+            if (checkpointTask != null)
+            {
+                checkpointTask.cancel(false);
+                checkpointTask = null;
+            }
+            lastCheckpoint = checkpoint;
+        }
+        if (lastCheckpoint != null)
+        {
+            // write the final state before it is cleared on logoff
+            writeCheckpoint();
+            synchronized (lastCheckpoint)
+            {
+                lastCheckpoint.close();
+            }
+        }
+
         if (eventConnection != null && (eventConnection.getState() == ManagerConnectionState.CONNECTED
                 || eventConnection.getState() == ManagerConnectionState.RECONNECTING))
         {
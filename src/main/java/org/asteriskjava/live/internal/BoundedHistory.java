@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A ring buffer that keeps the most recent entries of a history. The buffer
+ * starts small and grows with the number of entries until it reaches its
+ * maximum size, then each new entry replaces the oldest one.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <E> the type of the entries.
+ * @since 2.0.0
+ */
+final class BoundedHistory<E>
+{
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final int maxSize;
+    private Object[] entries;
+    /**
+     * Index of the oldest entry.
+     */
+    private int head;
+    private int size;
+
+    /**
+     * Creates a new history.
+     *
+     * @param maxSize the maximum number of entries to keep.
+     * @throws IllegalArgumentException if maxSize is less than 1.
+     */
+    BoundedHistory(int maxSize)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.entries = new Object[Math.min(INITIAL_CAPACITY, maxSize)];
+    }
+
+    /**
+     * Adds an entry, removing the oldest entry if the history is full.
+     *
+     * @param entry the entry to add.
+     */
+    void add(E entry)
+    {
+        if (size == entries.length && size < maxSize)
+        {
+            // the buffer has not wrapped yet, so head is still 0
+            entries = Arrays.copyOf(entries, Math.min(entries.length * 2, maxSize));
+        }
+
+        if (size < entries.length)
+        {
+            entries[(head + size) % entries.length] = entry;
+            size++;
+        }
+        else
+        {
+            entries[head] = entry;
+            head = (head + 1) % entries.length;
+        }
+    }
+
+    /**
+     * Returns the entry at the given position, 0 being the oldest entry that
+     * is still kept.
+     *
+     * @param index the position of the entry.
+     * @return the entry at the given position.
+     * @throws IndexOutOfBoundsException if there is no such entry.
+     */
+    @SuppressWarnings("unchecked")
+    E get(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (E) entries[(head + index) % entries.length];
+    }
+
+    /**
+     * Returns the most recent entry.
+     *
+     * @return the most recent entry or <code>null</code> if the history is
+     *         empty.
+     */
+    E getLast()
+    {
+        return size == 0 ? null : get(size - 1);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Returns a copy of the entries, oldest first.
+     *
+     * @return a copy of the entries.
+     */
+    List<E> toList()
+    {
+        final List<E> copy = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++)
+        {
+            copy.add(get(i));
+        }
+        return copy;
+    }
+}
@@ -16,34 +16,39 @@
  */
 package org.asteriskjava.live.internal;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.Deque;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.asteriskjava.live.AsteriskChannel;
 import org.asteriskjava.live.CallerId;
+import org.asteriskjava.live.ChannelSnapshot;
 import org.asteriskjava.live.ChannelState;
 import org.asteriskjava.live.Extension;
 import org.asteriskjava.live.HangupCause;
 import org.asteriskjava.live.ManagerCommunicationException;
-import org.asteriskjava.live.NoSuchChannelException;
-import org.asteriskjava.manager.ResponseEvents;
-import org.asteriskjava.manager.action.StatusAction;
+import org.asteriskjava.manager.ActionFuture;
+import org.asteriskjava.manager.ActionFutureCallback;
+import org.asteriskjava.manager.action.GetVarAction;
 import org.asteriskjava.manager.event.AbstractChannelEvent;
 import org.asteriskjava.manager.event.BridgeEvent;
 import org.asteriskjava.manager.event.CdrEvent;
+import org.asteriskjava.manager.event.CoreShowChannelEvent;
 import org.asteriskjava.manager.event.DialEvent;
 import org.asteriskjava.manager.event.DtmfEvent;
 import org.asteriskjava.manager.event.HangupEvent;
-import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.event.MonitorStartEvent;
 import org.asteriskjava.manager.event.MonitorStopEvent;
 import org.asteriskjava.manager.event.NewCallerIdEvent;
@@ -57,13 +62,24 @@ import org.asteriskjava.manager.event.RenameEvent;
 import org.asteriskjava.manager.event.StatusEvent;
 import org.asteriskjava.manager.event.UnparkedCallEvent;
 import org.asteriskjava.manager.event.VarSetEvent;
-import org.asteriskjava.util.DaemonThreadFactory;
+import org.asteriskjava.manager.response.ManagerError;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.asteriskjava.util.AstUtil;
 import org.asteriskjava.util.DateUtil;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
 /**
  * Manages channel events on behalf of an AsteriskServer.
+ * <p>
+ * The channels are kept in concurrent maps. Changes to the maps are
+ * serialized by a lock that is only taken by the thread processing the
+ * events and by disconnects, lookups do not lock so applications
+ * reading the channels never block event processing.
+ * <p>
+ * The handlers never hold the monitors of two channels at the same time, so
+ * linking and unlinking channels cannot deadlock with other threads locking
+ * the channels in the opposite order.
  *
  * @author srt
  * @version $Id$
@@ -73,20 +89,55 @@ class ChannelManager
     private final Log logger = LogFactory.getLog(getClass());
 
     /**
-     * How long we wait before we remove hung up channels from memory (in
-     * milliseconds).
+     * How long we wait by default before we remove hung up channels from
+     * memory (in milliseconds).
      */
-    private static final long REMOVAL_THRESHOLD = 15 * 60 * 1000L; // 15 minutes
-    private static final long SLEEP_TIME_BEFORE_GET_VAR = 50L;
+    static final long DEFAULT_REMOVAL_THRESHOLD = 15 * 60 * 1000L; // 15 minutes
+
+    /**
+     * How long we wait for the trace id of a new channel to be received with
+     * its events before we look it up (in milliseconds).
+     */
+    private static final long TRACE_ID_LOOKUP_DELAY = 50L;
 
     private final AsteriskServerImpl server;
 
+    private static final AsteriskChannelImpl[] NO_CHANNELS = new AsteriskChannelImpl[0];
+
     /**
      * A map of all active channel by their unique id.
      */
-    final Map<String, AsteriskChannelImpl> channels = new LinkedHashMap<>();
+    private final ConcurrentMap<String, AsteriskChannelImpl> channels = new ConcurrentHashMap<>();
+
+    /**
+     * The channels in {@link #channels} by their name, in the order they
+     * have been added. Names are usually unique, only hung up channels that
+     * have not yet been removed share their name with another channel. The
+     * arrays are never modified but replaced.
+     */
+    private final ConcurrentMap<String, AsteriskChannelImpl[]> channelsByName = new ConcurrentHashMap<>();
+
+    /**
+     * Serializes changes to {@link #channels}, {@link #channelsByName} and
+     * {@link #hungupChannels}.
+     */
+    private final Object registryLock = new Object();
+
+    /**
+     * The hung up channels that have not yet been removed, in the order they
+     * have been hung up. As the dates of removal increase along the queue
+     * only its head has to be checked for channels that are due.
+     */
+    private final Deque<HungupChannel> hungupChannels = new ArrayDeque<>();
+
+    private volatile long removalThreshold = DEFAULT_REMOVAL_THRESHOLD;
+    private volatile int maxHungupChannels = Integer.MAX_VALUE;
 
-    ScheduledThreadPoolExecutor traceScheduledExecutorService;
+    /**
+     * Incremented whenever the channels are cleared, so trace id lookups
+     * scheduled before are skipped.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
 
     /**
      * Creates a new instance.
@@ -98,31 +149,44 @@ class ChannelManager
         this.server = server;
     }
 
-    void initialize() throws ManagerCommunicationException
+    /**
+     * Sets how long hung up channels are kept before they are removed.
+     *
+     * @param removalThreshold the time in milliseconds.
+     */
+    void setRemovalThreshold(long removalThreshold)
     {
-        initialize(null);
+        if (removalThreshold < 0)
+        {
+            throw new IllegalArgumentException("removalThreshold must not be negative");
+        }
+        this.removalThreshold = removalThreshold;
     }
 
-    void initialize(List<String> variables) throws ManagerCommunicationException
+    long getRemovalThreshold()
     {
-        ResponseEvents re;
-
-        shutdown();
-        
-        traceScheduledExecutorService = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());// Executors.newSingleThreadScheduledExecutor
+        return removalThreshold;
+    }
 
-        StatusAction sa = new StatusAction();
-        sa.setVariables(variables);
-        re = server.sendEventGeneratingAction(sa);
-        for (ManagerEvent event : re.getEvents())
+    /**
+     * Sets the maximum number of hung up channels that are kept. When there
+     * are more, the channels that have been hung up first are removed before
+     * the removal threshold is reached.
+     *
+     * @param maxHungupChannels the maximum number of hung up channels.
+     */
+    void setMaxHungupChannels(int maxHungupChannels)
+    {
+        if (maxHungupChannels < 0)
         {
-            if (event instanceof StatusEvent)
-            {
-                handleStatusEvent((StatusEvent) event);
-            }
+            throw new IllegalArgumentException("maxHungupChannels must not be negative");
         }
-        logger.debug("ChannelManager has been initialised");
-        
+        this.maxHungupChannels = maxHungupChannels;
+    }
+
+    int getMaxHungupChannels()
+    {
+        return maxHungupChannels;
     }
 
     void disconnected()
@@ -133,13 +197,12 @@ class ChannelManager
     
     private void shutdown()
     {
-        if (traceScheduledExecutorService != null)
-        {
-            traceScheduledExecutorService.shutdown();
-        }
-        synchronized (channels)
+        generation.incrementAndGet();
+        synchronized (registryLock)
         {
             channels.clear();
+            channelsByName.clear();
+            hungupChannels.clear();
         }
   	
     }
@@ -152,59 +215,201 @@ class ChannelManager
      */
     Collection<AsteriskChannel> getChannels()
     {
-        Collection<AsteriskChannel> copy;
+        final Collection<AsteriskChannel> copy = new ArrayList<>(channels.size() + 2);
 
-        synchronized (channels)
+        for (AsteriskChannel channel : channels.values())
         {
-            copy = new ArrayList<>(channels.size() + 2);
-            for (AsteriskChannel channel : channels.values())
+            if (channel.getState() != ChannelState.HUNGUP)
             {
-                if (channel.getState() != ChannelState.HUNGUP)
-                {
-                    copy.add(channel);
-                }
+                copy.add(channel);
             }
         }
         return copy;
     }
 
+    /**
+     * Returns a view of all channels including the ones that have been hung
+     * up but not yet removed.
+     *
+     * @return an unmodifiable view of the channels.
+     */
+    Collection<AsteriskChannelImpl> getChannelImpls()
+    {
+        return Collections.unmodifiableCollection(channels.values());
+    }
+
     private void addChannel(AsteriskChannelImpl channel)
     {
-        synchronized (channels)
+        synchronized (registryLock)
         {
-            channels.put(channel.getId(), channel);
+            final AsteriskChannelImpl replaced = channels.put(channel.getId(), channel);
+            if (replaced != null)
+            {
+                removeFromNameIndex(replaced.getName(), replaced);
+            }
+            addToNameIndex(channel.getName(), channel);
         }
+        channel.changed();
     }
 
     /**
-     * Removes channels that have been hung more than {@link #REMOVAL_THRESHOLD}
-     * milliseconds.
+     * Changes the name of the given channel and updates the name index.
+     *
+     * @param channel the channel to rename.
+     * @param date the date of the rename.
+     * @param name the new name.
+     */
+    private void nameChanged(AsteriskChannelImpl channel, Date date, String name)
+    {
+        final String oldName;
+
+        synchronized (channel)
+        {
+            oldName = channel.getName();
+            channel.nameChanged(date, name);
+        }
+
+        synchronized (registryLock)
+        {
+            if (removeFromNameIndex(oldName, channel))
+            {
+                addToNameIndex(channel.getName(), channel);
+            }
+        }
+    }
+
+    private void addToNameIndex(String name, AsteriskChannelImpl channel)
+    {
+        if (name == null)
+        {
+            return;
+        }
+
+        final AsteriskChannelImpl[] channelsWithName = channelsByName.get(name);
+        if (channelsWithName == null)
+        {
+            channelsByName.put(name, new AsteriskChannelImpl[]{channel});
+            return;
+        }
+
+        final AsteriskChannelImpl[] newChannelsWithName = Arrays.copyOf(channelsWithName, channelsWithName.length + 1);
+        newChannelsWithName[channelsWithName.length] = channel;
+        channelsByName.put(name, newChannelsWithName);
+    }
+
+    private boolean removeFromNameIndex(String name, AsteriskChannelImpl channel)
+    {
+        if (name == null)
+        {
+            return false;
+        }
+
+        final AsteriskChannelImpl[] channelsWithName = channelsByName.get(name);
+        if (channelsWithName == null)
+        {
+            return false;
+        }
+
+        int index = -1;
+        for (int i = 0; i < channelsWithName.length; i++)
+        {
+            if (channelsWithName[i] == channel)
+            {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0)
+        {
+            return false;
+        }
+
+        if (channelsWithName.length == 1)
+        {
+            channelsByName.remove(name);
+        }
+        else
+        {
+            final AsteriskChannelImpl[] newChannelsWithName = new AsteriskChannelImpl[channelsWithName.length - 1];
+            System.arraycopy(channelsWithName, 0, newChannelsWithName, 0, index);
+            System.arraycopy(channelsWithName, index + 1, newChannelsWithName, index,
+                    channelsWithName.length - index - 1);
+            channelsByName.put(name, newChannelsWithName);
+        }
+        return true;
+    }
+
+    private AsteriskChannelImpl[] getChannelImplsByName(String name)
+    {
+        final AsteriskChannelImpl[] channelsWithName = channelsByName.get(name);
+        return channelsWithName == null ? NO_CHANNELS : channelsWithName;
+    }
+
+    /**
+     * Links the given channels with each other. The channels are locked one
+     * after the other, never both at the same time.
+     */
+    private void linkChannels(Date date, AsteriskChannelImpl channel1, AsteriskChannelImpl channel2)
+    {
+        synchronized (channel1)
+        {
+            channel1.channelLinked(date, channel2);
+        }
+        synchronized (channel2)
+        {
+            channel2.channelLinked(date, channel1);
+        }
+    }
+
+    /**
+     * Unlinks the given channels. The channels are locked one after the
+     * other, never both at the same time.
+     */
+    private void unlinkChannels(Date date, AsteriskChannelImpl channel1, AsteriskChannelImpl channel2)
+    {
+        synchronized (channel1)
+        {
+            channel1.channelUnlinked(date);
+        }
+        synchronized (channel2)
+        {
+            channel2.channelUnlinked(date);
+        }
+    }
+
+    /**
+     * Removes channels that have been hung up more than the removal threshold
+     * and the channels that have been hung up first if there are more than
+     * the maximum number of hung up channels. Only the channels that are
+     * removed and the next one are looked at.
      */
     private void removeOldChannels()
     {
-        Iterator<AsteriskChannelImpl> i;
+        final long now = DateUtil.getDate().getTime();
 
-        synchronized (channels)
+        synchronized (registryLock)
         {
-            i = channels.values().iterator();
-            while (i.hasNext())
+            while (!hungupChannels.isEmpty())
             {
-                final AsteriskChannel channel = i.next();
-                final Date dateOfRemoval = channel.getDateOfRemoval();
-                if (channel.getState() == ChannelState.HUNGUP && dateOfRemoval != null)
+                final HungupChannel hungupChannel = hungupChannels.peekFirst();
+                if (hungupChannels.size() <= maxHungupChannels
+                        && now - hungupChannel.dateOfRemoval < removalThreshold)
                 {
-                    final long diff = DateUtil.getDate().getTime() - dateOfRemoval.getTime();
-                    if (diff >= REMOVAL_THRESHOLD)
-                    {
-                        i.remove();
-                    }
+                    break;
+                }
+
+                hungupChannels.removeFirst();
+                final AsteriskChannelImpl channel = hungupChannel.channel;
+                if (channels.remove(channel.getId(), channel))
+                {
+                    removeFromNameIndex(channel.getName(), channel);
                 }
             }
         }
     }
 
-    private AsteriskChannelImpl addNewChannel(String uniqueId, final String name, Date dateOfCreation, String callerIdNumber,
-            String callerIdName, ChannelState state, String account)
+    private AsteriskChannelImpl addNewChannel(String uniqueId, String name, Date dateOfCreation, String callerIdNumber,
+            String callerIdName, ChannelState state, String account, String traceId)
     {
         final AsteriskChannelImpl channel = new AsteriskChannelImpl(server, name, uniqueId, dateOfCreation);
         channel.setCallerId(new CallerId(callerIdName, callerIdNumber));
@@ -212,68 +417,162 @@ class ChannelManager
         channel.stateChanged(dateOfCreation, state);
         logger.info("Adding channel " + channel.getName() + "(" + channel.getId() + ")");
 
-        if (SLEEP_TIME_BEFORE_GET_VAR > 0)
+        addChannel(channel);
+
+        if (traceId != null)
         {
-            long start = System.currentTimeMillis();
-            long end = start + SLEEP_TIME_BEFORE_GET_VAR;
-            while (System.currentTimeMillis() < end)
-            {
-                try
-                {
-                    channel.getVariable(Constants.VARIABLE_TRACE_ID);
-                }
-                catch (NoSuchChannelException e)
-                {
-                    try
-                    {
-                        Thread.sleep(1L);
-                    }
-                    catch (InterruptedException intEx)
-                    {
-                        Thread.currentThread().interrupt();
-                    }
-                }
-            }
+            traceIdResolved(channel, traceId);
+        }
+        else
+        {
+            scheduleTraceIdLookup(channel);
         }
 
-        String traceId = getTraceId(channel);
-        channel.setTraceId(traceId);
+        server.fireNewAsteriskChannel(channel);
+        return channel;
+    }// addNewChannel
 
-        addChannel(channel);
+    /**
+     * Sets the trace id of the given channel unless it is already known and
+     * notifies the server so it can report the progress of originate actions.
+     *
+     * @param channel the channel.
+     * @param traceId the trace id of the channel.
+     */
+    private void traceIdResolved(AsteriskChannelImpl channel, String traceId)
+    {
+        synchronized (channel)
+        {
+            if (channel.getTraceId() != null)
+            {
+                return;
+            }
+            channel.setTraceId(traceId);
+            channel.updateVariable(Constants.VARIABLE_TRACE_ID, traceId);
+        }
+        server.traceIdResolved(channel, traceId);
+    }
 
-        // todo getChannelImplById -> LinkedHashMap, callbacks order
-        traceScheduledExecutorService.schedule(new Runnable()
+    /**
+     * Looks up the trace id of a new channel if it has not been received with
+     * the events of the channel after {@link #TRACE_ID_LOOKUP_DELAY}. The
+     * lookup does not block any thread: it is scheduled on the shared
+     * scheduler and the GetVar action is sent asynchronously.
+     *
+     * @param channel the new channel.
+     */
+    private void scheduleTraceIdLookup(final AsteriskChannelImpl channel)
+    {
+        final int scheduledGeneration = generation.get();
+        final Runnable traceIdLookup = new Runnable()
         {
             @Override
             public void run()
             {
-                final String traceId = getTraceId(channel);
-                channel.setTraceId(traceId);
+                if (generation.get() != scheduledGeneration || channel.getTraceId() != null
+                        || channel.getState() == ChannelState.HUNGUP)
+                {
+                    return;
+                }
 
-                if (traceId != null && (!name.toLowerCase(Locale.ENGLISH).startsWith("local/") || name.endsWith(",1")
-                        || name.endsWith(";1")))
+                final ActionFuture<ManagerResponse> future;
+                try
+                {
+                    future = server.sendActionAsync(new GetVarAction(channel.getName(), Constants.VARIABLE_TRACE_ID));
+                }
+                catch (ManagerCommunicationException e)
                 {
-                    final OriginateCallbackData callbackData = server.getOriginateCallbackDataByTraceId(traceId);
+                    logger.debug("Unable to look up trace id of " + channel.getName() + ": " + e.getMessage());
+                    return;
+                }
 
-                    if (callbackData != null && callbackData.getChannel() == null)
+                future.addCallback(new ActionFutureCallback<ManagerResponse>()
+                {
+                    @Override
+                    public void onSuccess(ManagerResponse response)
                     {
-                        callbackData.setChannel(channel);
-                        try
+                        if (response instanceof ManagerError || generation.get() != scheduledGeneration)
+                        {
+                            return;
+                        }
+
+                        String traceId = response.getAttribute("Value");
+                        if (traceId == null)
                         {
-                            callbackData.getCallback().onDialing(channel);
+                            traceId = response.getAttribute(Constants.VARIABLE_TRACE_ID); // for Asterisk 1.0.x
                         }
-                        catch (Throwable t)
+                        if (!AstUtil.isNull(traceId))
                         {
-                            logger.warn("Exception dispatching originate progress. " + channel, t);
-                        } // t
-                    } // i
-                } // i
+                            traceIdResolved(channel, traceId);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable cause)
+                    {
+                        logger.debug("Unable to look up trace id of " + channel.getName() + ": " + cause);
+                    }
+                });
             }
-        }, SLEEP_TIME_BEFORE_GET_VAR, TimeUnit.MILLISECONDS);
+        };
 
-        server.fireNewAsteriskChannel(channel);
-        return channel;
-    }// addNewChannel
+        try
+        {
+            server.getRuntime().getScheduler().schedule(traceIdLookup, TRACE_ID_LOOKUP_DELAY, TimeUnit.MILLISECONDS);
+        }
+        catch (IllegalStateException | RejectedExecutionException e)
+        {
+            logger.debug("Not looking up trace id of " + channel.getName() + ", runtime has been shut down");
+        }
+    }
+
+    /**
+     * Sets the trace id of a known channel if it has been sent with the given
+     * event.
+     */
+    private void traceIdReceived(AsteriskChannelImpl channel, AbstractChannelEvent event)
+    {
+        final String traceId = getTraceId(event);
+        if (traceId != null)
+        {
+            traceIdResolved(channel, traceId);
+        }
+    }
+
+    /**
+     * Returns the trace id sent with the channel variables of the given event.
+     */
+    private static String getTraceId(AbstractChannelEvent event)
+    {
+        final Map<String, String> chanVariables = event.getChanVariables();
+        if (chanVariables == null)
+        {
+            return null;
+        }
+
+        final String traceId = chanVariables.get(Constants.VARIABLE_TRACE_ID);
+        return AstUtil.isNull(traceId) ? null : traceId;
+    }
+
+    /**
+     * Returns whether the given variable is the trace id, with or without the
+     * underscores that make it inherited.
+     */
+    private static boolean isTraceIdVariable(String variable)
+    {
+        if (variable == null)
+        {
+            return false;
+        }
+
+        int i = 0;
+        while (i < 2 && i < variable.length() && variable.charAt(i) == '_')
+        {
+            i++;
+        }
+        return variable.startsWith(Constants.VARIABLE_TRACE_ID, i)
+                && variable.length() - i == Constants.VARIABLE_TRACE_ID.length();
+    }
 
     void handleStatusEvent(StatusEvent event)
     {
@@ -324,19 +623,15 @@ class ChannelManager
                 channel.stateChanged(event.getDateReceived(), ChannelState.valueOf(event.getChannelState()));
             }
             channel.extensionVisited(event.getDateReceived(), extension);
+        }
 
-            if (event.getBridgedChannel() != null)
+        if (event.getBridgedChannel() != null)
+        {
+            final AsteriskChannelImpl linkedChannel = getChannelImplByName(event.getBridgedChannel());
+            if (linkedChannel != null)
             {
-                final AsteriskChannelImpl linkedChannel = getChannelImplByName(event.getBridgedChannel());
-                if (linkedChannel != null)
-                {
-                    // the date used here is not correct!
-                    channel.channelLinked(event.getDateReceived(), linkedChannel);
-                    synchronized (linkedChannel)
-                    {
-                        linkedChannel.channelLinked(event.getDateReceived(), channel);
-                    }
-                }
+                // the date used here is not correct!
+                linkChannels(event.getDateReceived(), channel, linkedChannel);
             }
         }
 
@@ -348,6 +643,190 @@ class ChannelManager
         }
     }
 
+    /**
+     * Updates a channel reported by a CoreShowChannelsAction or adds it if it
+     * is unknown. Used to reconcile channels restored from a checkpoint.
+     *
+     * @param event the event reporting the channel.
+     */
+    void handleCoreShowChannelEvent(CoreShowChannelEvent event)
+    {
+        AsteriskChannelImpl channel;
+        boolean isNew = false;
+
+        channel = getChannelImplById(event.getUniqueid());
+        if (channel == null)
+        {
+            final long seconds = parseDuration(event.getDuration());
+
+            channel = new AsteriskChannelImpl(server, event.getChannel(), event.getUniqueid(),
+                    new Date(DateUtil.getDate().getTime() - seconds * 1000L));
+            isNew = true;
+        }
+
+        // Asterisk reports "Extension" rather than "Exten" here
+        final String exten = event.getExtension() != null ? event.getExtension() : event.getExten();
+        synchronized (channel)
+        {
+            final Extension current = channel.getCurrentExtension();
+
+            channel.setCallerId(new CallerId(event.getCallerIdName(), event.getCallerIdNum()));
+            channel.setAccount(event.getAccountcode());
+            if (event.getChannelState() != null)
+            {
+                channel.stateChanged(event.getDateReceived(), ChannelState.valueOf(event.getChannelState()));
+            }
+            if ((event.getContext() != null || exten != null) && (current == null
+                    || !AstUtil.isEqual(current.getContext(), event.getContext())
+                    || !AstUtil.isEqual(current.getExtension(), exten)
+                    || !AstUtil.isEqual(current.getPriority(), event.getPriority())))
+            {
+                channel.extensionVisited(event.getDateReceived(),
+                        new Extension(event.getContext(), exten, event.getPriority(),
+                                event.getApplication(), event.getApplicationdata()));
+            }
+        }
+
+        final AsteriskChannelImpl linkedChannel = getChannelImplByNameAndActive(event.getBridgedChannel());
+        final AsteriskChannel previousLinkedChannel = channel.getLinkedChannel();
+        if (linkedChannel != null && previousLinkedChannel != linkedChannel)
+        {
+            linkChannels(event.getDateReceived(), channel, linkedChannel);
+        }
+        else if (linkedChannel == null && previousLinkedChannel instanceof AsteriskChannelImpl
+                && previousLinkedChannel.getLinkedChannel() == channel)
+        {
+            // the bridge ended while disconnected
+            unlinkChannels(event.getDateReceived(), channel, (AsteriskChannelImpl) previousLinkedChannel);
+        }
+        else if (linkedChannel == null && previousLinkedChannel != null)
+        {
+            synchronized (channel)
+            {
+                channel.channelUnlinked(event.getDateReceived());
+            }
+        }
+
+        if (isNew)
+        {
+            logger.info("Adding new channel " + channel.getName());
+            addChannel(channel);
+            server.fireNewAsteriskChannel(channel);
+        }
+    }
+
+    /**
+     * Parses the duration reported by CoreShowChannelsAction, "hh:mm:ss".
+     */
+    private static long parseDuration(String duration)
+    {
+        long seconds = 0;
+
+        if (duration == null)
+        {
+            return 0;
+        }
+        for (String part : duration.split(":"))
+        {
+            try
+            {
+                seconds = seconds * 60 + Long.parseLong(part.trim());
+            }
+            catch (NumberFormatException e)
+            {
+                return 0;
+            }
+        }
+        return seconds;
+    }
+
+    /**
+     * Hangs up channels that Asterisk did not report when the state has been
+     * synchronized, like channels restored from a checkpoint that have been
+     * hung up in the meantime.
+     *
+     * @param uniqueIds the unique ids of the channels.
+     */
+    void removeStaleChannels(Collection<String> uniqueIds)
+    {
+        for (String uniqueId : uniqueIds)
+        {
+            final AsteriskChannelImpl channel = getChannelImplById(uniqueId);
+            if (channel != null && channel.getState() != ChannelState.HUNGUP)
+            {
+                logger.info("Channel " + channel.getName() + " is gone");
+                hangup(channel, DateUtil.getDate(), null, null);
+            }
+        }
+    }
+
+    /**
+     * Restores channels from a checkpoint including the links between them.
+     * Channels that are already known are skipped.
+     *
+     * @param snapshots the channels to restore.
+     * @param date the date of the checkpoint.
+     */
+    void restoreChannels(Collection<ChannelSnapshot> snapshots, Date date)
+    {
+        final List<AsteriskChannelImpl> restored = new ArrayList<>(snapshots.size());
+
+        for (ChannelSnapshot snapshot : snapshots)
+        {
+            if (getChannelImplById(snapshot.getId()) != null)
+            {
+                continue;
+            }
+
+            final AsteriskChannelImpl channel = new AsteriskChannelImpl(server, snapshot.getName(), snapshot.getId(),
+                    snapshot.getDateOfCreation());
+            synchronized (channel)
+            {
+                channel.setCallerId(snapshot.getCallerId());
+                channel.setAccount(snapshot.getAccount());
+                if (snapshot.getState() != null)
+                {
+                    channel.stateChanged(date, snapshot.getState());
+                }
+                if (snapshot.getCurrentExtension() != null)
+                {
+                    channel.extensionVisited(date, snapshot.getCurrentExtension());
+                }
+            }
+            addChannel(channel);
+            restored.add(channel);
+        }
+
+        for (ChannelSnapshot snapshot : snapshots)
+        {
+            final AsteriskChannelImpl channel = getChannelImplById(snapshot.getId());
+            final AsteriskChannelImpl linkedChannel = getChannelImplById(snapshot.getLinkedChannelId());
+            final AsteriskChannelImpl dialedChannel = getChannelImplById(snapshot.getDialedChannelId());
+
+            if (linkedChannel != null && channel.getLinkedChannel() == null)
+            {
+                linkChannels(date, channel, linkedChannel);
+            }
+            if (dialedChannel != null)
+            {
+                synchronized (channel)
+                {
+                    channel.channelDialed(date, dialedChannel);
+                }
+                synchronized (dialedChannel)
+                {
+                    dialedChannel.channelDialing(date, channel);
+                }
+            }
+        }
+
+        for (AsteriskChannelImpl channel : restored)
+        {
+            server.fireNewAsteriskChannel(channel);
+        }
+        logger.info("Restored " + restored.size() + " channels");
+    }
+
     /**
      * Returns a channel from the ChannelManager's cache with the given name If
      * multiple channels are found, returns the most recently CREATED one. If
@@ -367,21 +846,15 @@ class ChannelManager
             return null;
         }
 
-        synchronized (channels)
+        for (AsteriskChannelImpl tmp : getChannelImplsByName(name))
         {
-            for (AsteriskChannelImpl tmp : channels.values())
+            // return the most recent channel or when dates are similar,
+            // the active one
+            if (dateOfCreation == null || tmp.getDateOfCreation().after(dateOfCreation)
+                    || (tmp.getDateOfCreation().equals(dateOfCreation) && tmp.getState() != ChannelState.HUNGUP))
             {
-                if (name.equals(tmp.getName()))
-                {
-                    // return the most recent channel or when dates are similar,
-                    // the active one
-                    if (dateOfCreation == null || tmp.getDateOfCreation().after(dateOfCreation)
-                            || (tmp.getDateOfCreation().equals(dateOfCreation) && tmp.getState() != ChannelState.HUNGUP))
-                    {
-                        channel = tmp;
-                        dateOfCreation = channel.getDateOfCreation();
-                    }
-                }
+                channel = tmp;
+                dateOfCreation = channel.getDateOfCreation();
             }
         }
         return channel;
@@ -411,14 +884,11 @@ class ChannelManager
             return null;
         }
 
-        synchronized (channels)
+        for (AsteriskChannelImpl tmp : getChannelImplsByName(name))
         {
-            for (AsteriskChannelImpl tmp : channels.values())
+            if (tmp.getState() != ChannelState.HUNGUP)
             {
-                if (name.equals(tmp.getName()) && tmp.getState() != ChannelState.HUNGUP)
-                {
-                    channel = tmp;
-                }
+                channel = tmp;
             }
         }
         return channel;
@@ -431,10 +901,7 @@ class ChannelManager
             return null;
         }
 
-        synchronized (channels)
-        {
-            return channels.get(uniqueId);
-        }
+        return channels.get(uniqueId);
     }// getChannelImplById
 
     /**
@@ -494,18 +961,20 @@ class ChannelManager
             else
             {
                 addNewChannel(event.getUniqueId(), event.getChannel(), event.getDateReceived(), event.getCallerIdNum(),
-                        event.getCallerIdName(), ChannelState.valueOf(event.getChannelState()), event.getAccountCode());
+                        event.getCallerIdName(), ChannelState.valueOf(event.getChannelState()), event.getAccountCode(),
+                        getTraceId(event));
             }
         }
         else
         {
             // channel had already been created probably by a NewCallerIdEvent
+            nameChanged(channel, event.getDateReceived(), event.getChannel());
             synchronized (channel)
             {
-                channel.nameChanged(event.getDateReceived(), event.getChannel());
                 channel.setCallerId(new CallerId(event.getCallerIdName(), event.getCallerIdNum()));
                 channel.stateChanged(event.getDateReceived(), ChannelState.valueOf(event.getChannelState()));
             }
+            traceIdReceived(channel, event);
         }
     }
 
@@ -543,10 +1012,14 @@ class ChannelManager
             }
 
             logger.info("Changing unique_id for '" + channel.getName() + "' from " + oldId + " to " + newId + " < " + event);
-            synchronized (channels)
+            synchronized (registryLock)
             {
                 channels.remove(oldId);
-                channels.put(newId, channel);
+                final AsteriskChannelImpl replaced = channels.put(newId, channel);
+                if (replaced != null && replaced != channel)
+                {
+                    removeFromNameIndex(replaced.getName(), replaced);
+                }
                 channel.idChanged(event.getDateReceived(), newId);
             }
         }
@@ -570,9 +1043,13 @@ class ChannelManager
                 // NewStateEvent can occur instead of a NewChannelEvent
                 channel = addNewChannel(event.getUniqueId(), event.getChannel(), event.getDateReceived(),
                         event.getCallerIdNum(), event.getCallerIdName(), ChannelState.valueOf(event.getChannelState()),
-                        null /* account code not available */);
+                        null /* account code not available */, getTraceId(event));
             }
         }
+        else
+        {
+            traceIdReceived(channel, event);
+        }
 
         // NewStateEvent can provide a new CallerIdNum or CallerIdName not
         // previously received through a
@@ -612,10 +1089,7 @@ class ChannelManager
             {
                 logger.info("Renaming channel (following NewStateEvent) '" + channel.getName() + "' to '"
                         + event.getChannel() + "'");
-                synchronized (channel)
-                {
-                    channel.nameChanged(event.getDateReceived(), event.getChannel());
-                }
+                nameChanged(channel, event.getDateReceived(), event.getChannel());
             }
         }
 
@@ -644,9 +1118,13 @@ class ChannelManager
                 // NewCallerIdEvent can occur before NewChannelEvent
                 channel = addNewChannel(event.getUniqueId(), event.getChannel(), event.getDateReceived(),
                         event.getCallerIdNum(), event.getCallerIdName(), ChannelState.DOWN,
-                        null /* account code not available */);
+                        null /* account code not available */, getTraceId(event));
             }
         }
+        else
+        {
+            traceIdReceived(channel, event);
+        }
 
         synchronized (channel)
         {
@@ -670,9 +1148,27 @@ class ChannelManager
             cause = HangupCause.getByCode(event.getCause());
         }
 
+        hangup(channel, event.getDateReceived(), cause, event.getCauseTxt());
+    }
+
+    private void hangup(AsteriskChannelImpl channel, Date date, HangupCause cause, String causeTxt)
+    {
+        final boolean wasHungup;
         synchronized (channel)
         {
-            channel.hungup(event.getDateReceived(), cause, event.getCauseTxt());
+            wasHungup = channel.getState() == ChannelState.HUNGUP;
+            channel.hungup(date, cause, causeTxt);
+        }
+
+        if (!wasHungup)
+        {
+            final Date dateOfRemoval = channel.getDateOfRemoval();
+            final HungupChannel hungupChannel = new HungupChannel(channel,
+                    dateOfRemoval == null ? DateUtil.getDate().getTime() : dateOfRemoval.getTime());
+            synchronized (registryLock)
+            {
+                hungupChannels.addLast(hungupChannel);
+            }
         }
 
         logger.info("Removing channel " + channel.getName() + " due to hangup (" + cause + ")");
@@ -707,8 +1203,6 @@ class ChannelManager
         } // i
 
         logger.info(sourceChannel.getName() + " dialed " + destinationChannel.getName());
-        getTraceId(sourceChannel);
-        getTraceId(destinationChannel);
         synchronized (sourceChannel)
         {
             sourceChannel.channelDialed(event.getDateReceived(), destinationChannel);
@@ -738,29 +1232,13 @@ class ChannelManager
         if (event.isLink())
         {
             logger.info("Linking channels " + channel1.getName() + " and " + channel2.getName());
-            synchronized (channel1)
-            {
-                channel1.channelLinked(event.getDateReceived(), channel2);
-            }
-
-            synchronized (channel2)
-            {
-                channel2.channelLinked(event.getDateReceived(), channel1);
-            }
+            linkChannels(event.getDateReceived(), channel1, channel2);
         }
 
         if (event.isUnlink())
         {
             logger.info("Unlinking channels " + channel1.getName() + " and " + channel2.getName());
-            synchronized (channel1)
-            {
-                channel1.channelUnlinked(event.getDateReceived());
-            }
-
-            synchronized (channel2)
-            {
-                channel2.channelUnlinked(event.getDateReceived());
-            }
+            unlinkChannels(event.getDateReceived(), channel1, channel2);
         }
     }
 
@@ -776,10 +1254,7 @@ class ChannelManager
 
         logger.info("Renaming channel '" + channel.getName() + "' to '" + event.getNewname() + "', uniqueId is "
                 + event.getUniqueId());
-        synchronized (channel)
-        {
-            channel.nameChanged(event.getDateReceived(), event.getNewname());
-        }
+        nameChanged(channel, event.getDateReceived(), event.getNewname());
     }
 
     void handleCdrEvent(CdrEvent event)
@@ -802,23 +1277,6 @@ class ChannelManager
         }
     }
 
-    private String getTraceId(AsteriskChannel channel)
-    {
-        String traceId;
-
-        try
-        {
-            traceId = channel.getVariable(Constants.VARIABLE_TRACE_ID);
-        }
-        catch (Exception e)
-        {
-            traceId = null;
-        }
-        // logger.info("TraceId for channel " + channel.getName() + " is " +
-        // traceId);
-        return traceId;
-    }
-
     void handleParkedCallEvent(ParkedCallEvent event)
     {
         // Only bristuffed versions: AsteriskChannelImpl channel =
@@ -942,6 +1400,11 @@ class ChannelManager
         {
             channel.updateVariable(event.getVariable(), event.getValue());
         }
+
+        if (isTraceIdVariable(event.getVariable()) && !AstUtil.isNull(event.getValue()))
+        {
+            traceIdResolved(channel, event.getValue());
+        }
     }
 
     void handleDtmfEvent(DtmfEvent event)
@@ -1037,4 +1500,18 @@ class ChannelManager
         logger.info("Channel " + channel.getName() + " is not monitored");
     }
 
+    /**
+     * Entry of the queue of hung up channels.
+     */
+    private static final class HungupChannel
+    {
+        private final AsteriskChannelImpl channel;
+        private final long dateOfRemoval;
+
+        private HungupChannel(AsteriskChannelImpl channel, long dateOfRemoval)
+        {
+            this.channel = channel;
+            this.dateOfRemoval = dateOfRemoval;
+        }
+    }
 }
@@ -0,0 +1,635 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.asteriskjava.live.AgentSnapshot;
+import org.asteriskjava.live.AgentState;
+import org.asteriskjava.live.CallerId;
+import org.asteriskjava.live.ChannelSnapshot;
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.live.Extension;
+import org.asteriskjava.live.LiveSnapshot;
+import org.asteriskjava.live.MeetMeRoom;
+import org.asteriskjava.live.MeetMeUser;
+import org.asteriskjava.live.QueueMemberSnapshot;
+import org.asteriskjava.live.QueueMemberState;
+import org.asteriskjava.live.QueueSnapshot;
+
+/**
+ * A checkpoint of the channels, queues, agents and MeetMe rooms of a server
+ * kept in a memory mapped file.
+ * <p>
+ * The file starts with a header of {@value #HEADER_SIZE} bytes: a magic
+ * number, the version of the format, the date of the checkpoint, the length
+ * of the payload and its CRC32 checksum. The payload follows the header.
+ * Numbers are stored as variable length integers and strings as their length
+ * followed by their UTF-8 bytes. The ids of the channels are stored first and
+ * channels are referenced by their position, so links between channels,
+ * queue entries and MeetMe users only take one or two bytes.
+ * <p>
+ * The magic number is cleared before the payload is written and restored
+ * last, and the checksum is verified when the checkpoint is read, so a
+ * checkpoint that has not been written completely is never used. The file is
+ * not forced to the disk, it survives restarts of the application but not
+ * necessarily crashes of the operating system.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @since 2.0.0
+ */
+final class LiveCheckpoint
+{
+    static final int HEADER_SIZE = 24;
+
+    private static final int MAGIC = 0x414a4350; // "AJCP"
+    private static final int VERSION = 1;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer mapped;
+
+    /**
+     * The payload is encoded into this buffer first to compute its checksum,
+     * it is reused for all checkpoints.
+     */
+    private ByteBuffer payload = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    /**
+     * Creates a new instance.
+     *
+     * @param file the file to keep the checkpoint in.
+     */
+    LiveCheckpoint(File file)
+    {
+        this.file = file;
+    }
+
+    File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Writes a checkpoint, replacing the previous one.
+     *
+     * @param snapshot the channels, queues and agents to write.
+     * @param rooms the MeetMe rooms to write.
+     * @throws IOException if the checkpoint cannot be written.
+     */
+    void write(LiveSnapshot snapshot, Collection<MeetMeRoom> rooms) throws IOException
+    {
+        while (true)
+        {
+            payload.clear();
+            try
+            {
+                encode(snapshot, rooms);
+                break;
+            }
+            catch (BufferOverflowException e)
+            {
+                payload = ByteBuffer.allocate(payload.capacity() * 2);
+            }
+        }
+
+        final int length = payload.position();
+        final CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, length);
+
+        final MappedByteBuffer buffer = map(HEADER_SIZE + length);
+        buffer.putInt(0, 0);
+        buffer.position(HEADER_SIZE);
+        buffer.put(payload.array(), 0, length);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, snapshot.getDate().getTime());
+        buffer.putInt(16, length);
+        buffer.putInt(20, (int) crc.getValue());
+        buffer.putInt(0, MAGIC);
+    }
+
+    /**
+     * Reads the checkpoint.
+     *
+     * @return the checkpoint or <code>null</code> if there is none.
+     * @throws IOException if the checkpoint cannot be read or is invalid.
+     */
+    Contents read() throws IOException
+    {
+        if (!file.isFile() || file.length() < HEADER_SIZE)
+        {
+            return null;
+        }
+
+        final ByteBuffer buffer;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r"))
+        {
+            buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+        }
+
+        if (buffer.getInt(0) != MAGIC)
+        {
+            throw new IOException("Incomplete or unknown checkpoint in " + file);
+        }
+        if (buffer.getInt(4) != VERSION)
+        {
+            throw new IOException("Unsupported checkpoint version " + buffer.getInt(4) + " in " + file);
+        }
+
+        final long date = buffer.getLong(8);
+        final int length = buffer.getInt(16);
+        if (length < 0 || length > buffer.capacity() - HEADER_SIZE)
+        {
+            throw new IOException("Invalid checkpoint length " + length + " in " + file);
+        }
+
+        buffer.position(HEADER_SIZE);
+        buffer.limit(HEADER_SIZE + length);
+        if ((int) checksum(buffer.duplicate()) != buffer.getInt(20))
+        {
+            throw new IOException("Checksum mismatch in checkpoint " + file);
+        }
+
+        try
+        {
+            return decode(buffer, date);
+        }
+        catch (BufferUnderflowException | IllegalArgumentException e)
+        {
+            throw new IOException("Invalid checkpoint in " + file, e);
+        }
+    }
+
+    /**
+     * Releases the file. The mapping itself is released when it is garbage
+     * collected.
+     */
+    void close()
+    {
+        mapped = null;
+        if (randomAccessFile != null)
+        {
+            try
+            {
+                randomAccessFile.close();
+            }
+            catch (IOException e)
+            {
+                // nothing we can do
+            }
+            randomAccessFile = null;
+        }
+    }
+
+    private MappedByteBuffer map(int size) throws IOException
+    {
+        if (mapped != null && mapped.capacity() >= size)
+        {
+            return mapped;
+        }
+
+        if (randomAccessFile == null)
+        {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, mapped == null ? 0 : mapped.capacity());
+        while (capacity < size)
+        {
+            capacity *= 2;
+        }
+        mapped = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        return mapped;
+    }
+
+    private static long checksum(ByteBuffer buffer)
+    {
+        final CRC32 crc = new CRC32();
+        final byte[] chunk = new byte[8192];
+
+        while (buffer.hasRemaining())
+        {
+            final int n = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        return crc.getValue();
+    }
+
+    /* encoding */
+
+    private void encode(LiveSnapshot snapshot, Collection<MeetMeRoom> rooms)
+    {
+        final long date = snapshot.getDate().getTime();
+        final Collection<ChannelSnapshot> channels = snapshot.getChannels();
+        final Map<String, Integer> channelIndexes = new HashMap<>(channels.size() * 4 / 3 + 1);
+
+        for (ChannelSnapshot channel : channels)
+        {
+            channelIndexes.put(channel.getId(), channelIndexes.size());
+        }
+
+        // the ids come first, so links can be resolved while reading
+        putUnsigned(channels.size());
+        for (ChannelSnapshot channel : channels)
+        {
+            putString(channel.getId());
+        }
+        for (ChannelSnapshot channel : channels)
+        {
+            final CallerId callerId = channel.getCallerId();
+            final Extension extension = channel.getCurrentExtension();
+
+            putString(channel.getName());
+            putNullable(channel.getState() == null ? null : (long) channel.getState().getStatus());
+            putString(callerId == null ? null : callerId.getName());
+            putString(callerId == null ? null : callerId.getNumber());
+            putString(channel.getAccount());
+            putSigned(date - channel.getDateOfCreation().getTime());
+            payload.put((byte) (extension == null ? 0 : 1));
+            if (extension != null)
+            {
+                putString(extension.getContext());
+                putString(extension.getExtension());
+                putNullable(extension.getPriority());
+                putString(extension.getApplication());
+                putString(extension.getAppData());
+            }
+            putReference(channelIndexes, channel.getLinkedChannelId());
+            putReference(channelIndexes, channel.getDialedChannelId());
+            putReference(channelIndexes, channel.getDialingChannelId());
+        }
+
+        final Collection<QueueSnapshot> queues = snapshot.getQueues();
+        putUnsigned(queues.size());
+        for (QueueSnapshot queue : queues)
+        {
+            putString(queue.getName());
+            putNullable(queue.getMax());
+            putString(queue.getStrategy());
+            putNullable(queue.getServiceLevel());
+            putNullable(queue.getWeight());
+            putUnsigned(queue.getMembers().size());
+            for (QueueMemberSnapshot member : queue.getMembers())
+            {
+                putString(member.getLocation());
+                putNullable(member.getState() == null ? null : (long) member.getState().getStatus());
+                putNullable(member.getPenalty());
+                payload.put((byte) (member.isPaused() ? 1 : 0));
+                putNullable(member.getCallsTaken());
+                putNullable(member.getLastCall());
+                putString(member.getMembership());
+            }
+            putUnsigned(queue.getEntryChannelIds().size());
+            for (String channelId : queue.getEntryChannelIds())
+            {
+                putReference(channelIndexes, channelId);
+            }
+        }
+
+        final Collection<AgentSnapshot> agents = snapshot.getAgents();
+        putUnsigned(agents.size());
+        for (AgentSnapshot agent : agents)
+        {
+            putString(agent.getAgentId());
+            putString(agent.getName());
+            putString(agent.getState() == null ? null : agent.getState().name());
+        }
+
+        putUnsigned(rooms.size());
+        for (MeetMeRoom room : rooms)
+        {
+            final Collection<MeetMeUser> users = room.getUsers();
+
+            putString(room.getRoomNumber());
+            putUnsigned(users.size());
+            for (MeetMeUser user : users)
+            {
+                putNullable(user.getUserNumber());
+                putReference(channelIndexes, user.getChannel() == null ? null : user.getChannel().getId());
+                payload.put((byte) ((user.isMuted() ? 1 : 0) | (user.isTalking() ? 2 : 0)));
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned variable length integer, 7 bits per byte.
+     */
+    private void putUnsigned(long value)
+    {
+        while ((value & ~0x7fL) != 0)
+        {
+            payload.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        payload.put((byte) value);
+    }
+
+    private void putSigned(long value)
+    {
+        putUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    private void putNullable(Number value)
+    {
+        if (value == null)
+        {
+            putUnsigned(0);
+        }
+        else
+        {
+            final long l = value.longValue();
+            putUnsigned(((l << 1) ^ (l >> 63)) + 1);
+        }
+    }
+
+    private void putString(String value)
+    {
+        if (value == null)
+        {
+            putUnsigned(0);
+            return;
+        }
+
+        final byte[] bytes = value.getBytes(UTF_8);
+        putUnsigned(bytes.length + 1L);
+        payload.put(bytes);
+    }
+
+    private void putReference(Map<String, Integer> channelIndexes, String channelId)
+    {
+        final Integer index = channelId == null ? null : channelIndexes.get(channelId);
+        putUnsigned(index == null ? 0 : index + 1L);
+    }
+
+    /* decoding */
+
+    private static Contents decode(ByteBuffer buffer, long date)
+    {
+        final int channelCount = getCount(buffer);
+        final String[] ids = new String[channelCount];
+        final List<ChannelSnapshot> channels = new ArrayList<>(channelCount);
+
+        for (int i = 0; i < channelCount; i++)
+        {
+            ids[i] = getString(buffer);
+        }
+        for (int i = 0; i < channelCount; i++)
+        {
+            final String name = getString(buffer);
+            final Integer state = getInteger(buffer);
+            final String callerIdName = getString(buffer);
+            final String callerIdNumber = getString(buffer);
+            final String account = getString(buffer);
+            final Date dateOfCreation = new Date(date - getSigned(buffer));
+            Extension extension = null;
+            if (buffer.get() != 0)
+            {
+                extension = new Extension(getString(buffer), getString(buffer), getInteger(buffer), getString(buffer),
+                        getString(buffer));
+            }
+            final String linkedChannelId = getId(ids, getCount(buffer));
+            final String dialedChannelId = getId(ids, getCount(buffer));
+            final String dialingChannelId = getId(ids, getCount(buffer));
+
+            channels.add(new ChannelSnapshot(ids[i], name, state == null ? null : ChannelState.valueOf(state),
+                    callerIdName == null && callerIdNumber == null ? null : new CallerId(callerIdName, callerIdNumber),
+                    account, dateOfCreation, extension, linkedChannelId, dialedChannelId, dialingChannelId, null));
+        }
+
+        final int queueCount = getCount(buffer);
+        final List<QueueSnapshot> queues = new ArrayList<>(queueCount);
+        for (int i = 0; i < queueCount; i++)
+        {
+            final String name = getString(buffer);
+            final Integer max = getInteger(buffer);
+            final String strategy = getString(buffer);
+            final Integer serviceLevel = getInteger(buffer);
+            final Integer weight = getInteger(buffer);
+
+            final int memberCount = getCount(buffer);
+            final List<QueueMemberSnapshot> members = new ArrayList<>(memberCount);
+            for (int j = 0; j < memberCount; j++)
+            {
+                final String location = getString(buffer);
+                final Integer state = getInteger(buffer);
+                final Integer penalty = getInteger(buffer);
+                final boolean paused = buffer.get() != 0;
+                final Integer callsTaken = getInteger(buffer);
+                final Long lastCall = getNullable(buffer);
+                final String membership = getString(buffer);
+                members.add(new QueueMemberSnapshot(location, state == null ? null : QueueMemberState.valueOf(state),
+                        penalty, paused, callsTaken, lastCall, membership));
+            }
+
+            final int entryCount = getCount(buffer);
+            final List<String> entryChannelIds = new ArrayList<>(entryCount);
+            for (int j = 0; j < entryCount; j++)
+            {
+                final String channelId = getId(ids, getCount(buffer));
+                if (channelId != null)
+                {
+                    entryChannelIds.add(channelId);
+                }
+            }
+            queues.add(new QueueSnapshot(name, max, strategy, serviceLevel, weight, members, entryChannelIds));
+        }
+
+        final int agentCount = getCount(buffer);
+        final List<AgentSnapshot> agents = new ArrayList<>(agentCount);
+        for (int i = 0; i < agentCount; i++)
+        {
+            final String agentId = getString(buffer);
+            final String name = getString(buffer);
+            final String state = getString(buffer);
+            agents.add(new AgentSnapshot(agentId, name, state == null ? null : AgentState.valueOf(state)));
+        }
+
+        final int roomCount = getCount(buffer);
+        final List<Room> rooms = new ArrayList<>(roomCount);
+        for (int i = 0; i < roomCount; i++)
+        {
+            final String roomNumber = getString(buffer);
+            final int userCount = getCount(buffer);
+            final List<RoomUser> users = new ArrayList<>(userCount);
+            for (int j = 0; j < userCount; j++)
+            {
+                final Integer userNumber = getInteger(buffer);
+                final String channelId = getId(ids, getCount(buffer));
+                final byte flags = buffer.get();
+                if (channelId != null)
+                {
+                    users.add(new RoomUser(userNumber, channelId, (flags & 1) != 0, (flags & 2) != 0));
+                }
+            }
+            rooms.add(new Room(roomNumber, users));
+        }
+
+        return new Contents(date, channels, queues, agents, rooms);
+    }
+
+    private static long getUnsigned(ByteBuffer buffer)
+    {
+        long value = 0;
+        int shift = 0;
+        byte b;
+
+        do
+        {
+            if (shift > 63)
+            {
+                throw new IllegalArgumentException("Malformed variable length integer");
+            }
+            b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long getSigned(ByteBuffer buffer)
+    {
+        final long value = getUnsigned(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int getCount(ByteBuffer buffer)
+    {
+        final long value = getUnsigned(buffer);
+        if (value > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Invalid count " + value);
+        }
+        return (int) value;
+    }
+
+    private static Long getNullable(ByteBuffer buffer)
+    {
+        final long value = getUnsigned(buffer);
+        if (value == 0)
+        {
+            return null;
+        }
+        return ((value - 1) >>> 1) ^ -((value - 1) & 1);
+    }
+
+    private static Integer getInteger(ByteBuffer buffer)
+    {
+        final Long value = getNullable(buffer);
+        return value == null ? null : value.intValue();
+    }
+
+    private static String getString(ByteBuffer buffer)
+    {
+        final int length = getCount(buffer);
+        if (length == 0)
+        {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length - 1];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static String getId(String[] ids, int reference)
+    {
+        if (reference == 0)
+        {
+            return null;
+        }
+        if (reference > ids.length)
+        {
+            throw new IllegalArgumentException("Invalid channel reference " + reference);
+        }
+        return ids[reference - 1];
+    }
+
+    /**
+     * The state read from a checkpoint.
+     */
+    static final class Contents
+    {
+        final long date;
+        final List<ChannelSnapshot> channels;
+        final List<QueueSnapshot> queues;
+        final List<AgentSnapshot> agents;
+        final List<Room> rooms;
+
+        Contents(long date, List<ChannelSnapshot> channels, List<QueueSnapshot> queues, List<AgentSnapshot> agents,
+                List<Room> rooms)
+        {
+            this.date = date;
+            this.channels = channels;
+            this.queues = queues;
+            this.agents = agents;
+            this.rooms = rooms;
+        }
+    }
+
+    /**
+     * A MeetMe room read from a checkpoint.
+     */
+    static final class Room
+    {
+        final String roomNumber;
+        final List<RoomUser> users;
+
+        Room(String roomNumber, List<RoomUser> users)
+        {
+            this.roomNumber = roomNumber;
+            this.users = users;
+        }
+    }
+
+    /**
+     * A user of a MeetMe room read from a checkpoint.
+     */
+    static final class RoomUser
+    {
+        final Integer userNumber;
+        final String channelId;
+        final boolean muted;
+        final boolean talking;
+
+        RoomUser(Integer userNumber, String channelId, boolean muted, boolean talking)
+        {
+            this.userNumber = userNumber;
+            this.channelId = channelId;
+            this.muted = muted;
+            this.talking = talking;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+
+import org.asteriskjava.live.AgentSnapshot;
+import org.asteriskjava.live.ChannelSnapshot;
+import org.asteriskjava.live.LiveSnapshot;
+import org.asteriskjava.live.QueueSnapshot;
+
+/**
+ * Default implementation of the LiveSnapshot interface.
+ *
+ * @since 2.0.0
+ */
+class LiveSnapshotImpl implements LiveSnapshot
+{
+    private final long sequence;
+    private final long date;
+    private final SnapshotMap<ChannelSnapshot> channels;
+    private final SnapshotMap<QueueSnapshot> queues;
+    private final SnapshotMap<AgentSnapshot> agents;
+
+    LiveSnapshotImpl(long sequence, long date, SnapshotMap<ChannelSnapshot> channels,
+            SnapshotMap<QueueSnapshot> queues, SnapshotMap<AgentSnapshot> agents)
+    {
+        this.sequence = sequence;
+        this.date = date;
+        this.channels = channels;
+        this.queues = queues;
+        this.agents = agents;
+    }
+
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    public Date getDate()
+    {
+        return new Date(date);
+    }
+
+    public Collection<ChannelSnapshot> getChannels()
+    {
+        return Collections.unmodifiableCollection(channels.values());
+    }
+
+    public ChannelSnapshot getChannel(String id)
+    {
+        return channels.get(id);
+    }
+
+    public Collection<QueueSnapshot> getQueues()
+    {
+        return Collections.unmodifiableCollection(queues.values());
+    }
+
+    public QueueSnapshot getQueue(String name)
+    {
+        return queues.get(name);
+    }
+
+    public Collection<AgentSnapshot> getAgents()
+    {
+        return Collections.unmodifiableCollection(agents.values());
+    }
+
+    public AgentSnapshot getAgent(String agentId)
+    {
+        return agents.get(agentId);
+    }
+
+    SnapshotMap<ChannelSnapshot> getChannelMap()
+    {
+        return channels;
+    }
+
+    SnapshotMap<QueueSnapshot> getQueueMap()
+    {
+        return queues;
+    }
+
+    SnapshotMap<AgentSnapshot> getAgentMap()
+    {
+        return agents;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb;
+
+        sb = new StringBuilder("LiveSnapshot[");
+        sb.append("sequence=").append(sequence).append(",");
+        sb.append("date=").append(getDate()).append(",");
+        sb.append("channels=").append(channels.size()).append(",");
+        sb.append("queues=").append(queues.size()).append(",");
+        sb.append("agents=").append(agents.size()).append("]");
+        return sb.toString();
+    }
+}
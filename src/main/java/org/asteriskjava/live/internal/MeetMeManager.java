@@ -18,6 +18,7 @@ package org.asteriskjava.live.internal;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -368,6 +369,54 @@ class MeetMeManager
         return user;
     }
 
+    /**
+     * Restores rooms and their users from a checkpoint. Users are only
+     * restored if their channel has been restored. The rooms are not
+     * populated here, that is done once the channels have been synchronized.
+     *
+     * @param checkpointRooms the rooms to restore.
+     * @param date the date of the checkpoint.
+     */
+    void restoreRooms(List<LiveCheckpoint.Room> checkpointRooms, Date date)
+    {
+        final List<MeetMeUserImpl> restored = new ArrayList<>();
+
+        synchronized (rooms)
+        {
+            for (LiveCheckpoint.Room checkpointRoom : checkpointRooms)
+            {
+                if (rooms.containsKey(checkpointRoom.roomNumber))
+                {
+                    continue;
+                }
+
+                final MeetMeRoomImpl room = new MeetMeRoomImpl(server, checkpointRoom.roomNumber);
+                rooms.put(checkpointRoom.roomNumber, room);
+                for (LiveCheckpoint.RoomUser checkpointUser : checkpointRoom.users)
+                {
+                    final AsteriskChannelImpl channel = channelManager.getChannelImplById(checkpointUser.channelId);
+                    if (channel == null)
+                    {
+                        continue;
+                    }
+
+                    final MeetMeUserImpl user = new MeetMeUserImpl(server, room, checkpointUser.userNumber, channel,
+                            date);
+                    user.setMuted(checkpointUser.muted);
+                    user.setTalking(checkpointUser.talking);
+                    room.addUser(user);
+                    channel.setMeetMeUserImpl(user);
+                    restored.add(user);
+                }
+            }
+        }
+
+        for (MeetMeUserImpl user : restored)
+        {
+            server.fireNewMeetMeUser(user);
+        }
+    }
+
     /**
      * Returns the room with the given number or creates a new one if none is
      * there yet.
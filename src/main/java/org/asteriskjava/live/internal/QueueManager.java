@@ -26,8 +26,12 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.asteriskjava.live.AsteriskQueue;
+import org.asteriskjava.live.AsteriskQueueEntry;
+import org.asteriskjava.live.AsteriskQueueMember;
 import org.asteriskjava.live.ManagerCommunicationException;
+import org.asteriskjava.live.QueueMemberSnapshot;
 import org.asteriskjava.live.QueueMemberState;
+import org.asteriskjava.live.QueueSnapshot;
 import org.asteriskjava.manager.EventTimeoutException;
 import org.asteriskjava.manager.ResponseEvents;
 import org.asteriskjava.manager.action.QueueStatusAction;
@@ -198,6 +202,19 @@ class QueueManager
         return copy;
     }
 
+    /**
+     * Returns a copy of the list of the queues without refreshing them.
+     *
+     * @return a copy of the list of the queues.
+     */
+    Collection<AsteriskQueueImpl> getQueueImpls()
+    {
+        synchronized (queuesLRU)
+        {
+            return new ArrayList<>(queuesLRU.values());
+        }
+    }
+
     public List<AsteriskQueue> getQueuesUpdatedAfter(Date date)
     {
         refreshQueuesIfForced();
@@ -230,12 +247,13 @@ class QueueManager
      * 
      * @param queue the AsteriskQueueImpl to be added
      */
-    private void addQueue(AsteriskQueueImpl queue)
+    void addQueue(AsteriskQueueImpl queue)
     {
         synchronized (queuesLRU)
         {
             queuesLRU.put(queue.getName(), queue);
         }
+        queue.changed();
     }
 
     /**
@@ -243,7 +261,7 @@ class QueueManager
      * 
      * @param event the event received
      */
-    private void handleQueueParamsEvent(QueueParamsEvent event)
+    void handleQueueParamsEvent(QueueParamsEvent event)
     {
         AsteriskQueueImpl queue;
 
@@ -297,7 +315,7 @@ class QueueManager
      * 
      * @param event the QueueMemberEvent received
      */
-    private void handleQueueMemberEvent(QueueMemberEvent event)
+    void handleQueueMemberEvent(QueueMemberEvent event)
     {
         final AsteriskQueueImpl queue = getInternalQueueByName(event.getQueue());
         if (queue == null)
@@ -338,7 +356,7 @@ class QueueManager
      * 
      * @param event - the QueueEntryEvent received
      */
-    private void handleQueueEntryEvent(QueueEntryEvent event)
+    void handleQueueEntryEvent(QueueEntryEvent event)
     {
         final AsteriskQueueImpl queue = getInternalQueueByName(event.getQueue());
         final AsteriskChannelImpl channel = channelManager.getChannelImplByName(event.getChannel());
@@ -373,6 +391,86 @@ class QueueManager
         queue.createNewEntry(channel, reportedPosition, event.getDateReceived());
     }
 
+    /**
+     * Restores queues, their members and entries from a checkpoint. Queues
+     * that are already known are skipped, entries are only restored if their
+     * channel has been restored.
+     *
+     * @param snapshots the queues to restore.
+     * @param date the date of the checkpoint.
+     */
+    void restoreQueues(Collection<QueueSnapshot> snapshots, Date date)
+    {
+        int restored = 0;
+
+        for (QueueSnapshot snapshot : snapshots)
+        {
+            if (getInternalQueueByName(snapshot.getName()) != null)
+            {
+                continue;
+            }
+
+            final AsteriskQueueImpl queue = new AsteriskQueueImpl(server, snapshot.getName(), snapshot.getMax(),
+                    snapshot.getStrategy(), snapshot.getServiceLevel(), snapshot.getWeight(), null, null, null, null,
+                    null, null);
+            addQueue(queue);
+
+            for (QueueMemberSnapshot member : snapshot.getMembers())
+            {
+                queue.addMember(new AsteriskQueueMemberImpl(server, queue, member.getLocation(), member.getState(),
+                        member.isPaused(), member.getPenalty(), member.getMembership(), member.getCallsTaken(),
+                        member.getLastCall()));
+            }
+
+            int position = 1;
+            for (String channelId : snapshot.getEntryChannelIds())
+            {
+                final AsteriskChannelImpl channel = channelManager.getChannelImplById(channelId);
+                if (channel != null)
+                {
+                    queue.createNewEntry(channel, position++, date);
+                }
+            }
+            restored++;
+        }
+        logger.info("Restored " + restored + " queues");
+    }
+
+    /**
+     * Removes the members and entries of a queue that Asterisk did not report
+     * when the queue has been synchronized.
+     *
+     * @param queueName the name of the queue.
+     * @param locations the locations of the reported members.
+     * @param channelNames the channel names of the reported entries.
+     * @param date the date of the synchronization.
+     */
+    void removeUnreported(String queueName, Collection<String> locations, Collection<String> channelNames, Date date)
+    {
+        final AsteriskQueueImpl queue = getInternalQueueByName(queueName);
+        if (queue == null)
+        {
+            return;
+        }
+
+        for (AsteriskQueueMember member : queue.getMembers())
+        {
+            if (!locations.contains(member.getLocation()))
+            {
+                logger.info("Removing member " + member.getLocation() + " that left queue " + queueName);
+                queue.removeMember((AsteriskQueueMemberImpl) member);
+            }
+        }
+        for (AsteriskQueueEntry entry : queue.getEntries())
+        {
+            if (!channelNames.contains(entry.getChannel().getName()))
+            {
+                logger.info("Removing entry " + entry.getChannel().getName() + " that left queue " + queueName);
+                queue.removeEntry((AsteriskQueueEntryImpl) entry, date);
+            }
+        }
+    }
+
     /**
      * Called from AsteriskServerImpl whenever a new entry appears in a queue.
      * 
@@ -531,7 +629,7 @@ class QueueManager
         return queue;
     }
 
-    private AsteriskQueueImpl getInternalQueueByName(String queueName)
+    AsteriskQueueImpl getInternalQueueByName(String queueName)
     {
         AsteriskQueueImpl queue;
 
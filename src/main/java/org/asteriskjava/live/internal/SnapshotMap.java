@@ -0,0 +1,239 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map of snapshots that shares its entries with the map it has
+ * been derived from.
+ * <p>
+ * A map consists of a base map shared by all maps derived from it and a
+ * small map of the entries changed since the base map has been built, with
+ * <code>null</code> values for removed entries. Deriving a map with
+ * {@link #with(Map)} only copies the changed entries. Once they exceed a
+ * limit that grows with the square root of the size of the base map, the
+ * changes are merged into a new base map, so publishing a snapshot costs
+ * time proportional to the number of changed objects rather than to the
+ * number of all objects.
+ *
+ * @param <V> the type of the snapshots.
+ * @since 2.0.0
+ */
+final class SnapshotMap<V> extends AbstractMap<String, V>
+{
+    private static final int MIN_CHANGES = 64;
+
+    private final Map<String, V> base;
+    private final Map<String, V> changes;
+    private final int size;
+
+    private SnapshotMap(Map<String, V> base, Map<String, V> changes, int size)
+    {
+        this.base = base;
+        this.changes = changes;
+        this.size = size;
+    }
+
+    /**
+     * Creates a new map with the entries of the given map.
+     *
+     * @param map the entries, the map must not be modified afterwards.
+     * @return the new map.
+     */
+    static <V> SnapshotMap<V> of(Map<String, V> map)
+    {
+        return new SnapshotMap<>(map, Collections.<String, V> emptyMap(), map.size());
+    }
+
+    /**
+     * Returns a map with the given changes applied to the entries of this
+     * map. This map is not modified.
+     *
+     * @param updates the new values by key, <code>null</code> to remove an
+     *            entry.
+     * @return the new map or this map if there are no updates.
+     */
+    SnapshotMap<V> with(Map<String, V> updates)
+    {
+        if (updates.isEmpty())
+        {
+            return this;
+        }
+
+        final Map<String, V> merged = new HashMap<>(changes);
+        int newSize = size;
+        for (Map.Entry<String, V> update : updates.entrySet())
+        {
+            final String key = update.getKey();
+            final V value = update.getValue();
+            final boolean present = get(key) != null;
+
+            if (value == null)
+            {
+                if (!present)
+                {
+                    continue;
+                }
+                newSize--;
+            }
+            else if (!present)
+            {
+                newSize++;
+            }
+
+            if (value == null && !base.containsKey(key))
+            {
+                merged.remove(key);
+            }
+            else
+            {
+                merged.put(key, value);
+            }
+        }
+
+        if (merged.size() <= Math.max(MIN_CHANGES, 4 * (int) Math.sqrt(base.size())))
+        {
+            return new SnapshotMap<>(base, merged, newSize);
+        }
+
+        final Map<String, V> newBase = new HashMap<>(base);
+        for (Map.Entry<String, V> change : merged.entrySet())
+        {
+            if (change.getValue() == null)
+            {
+                newBase.remove(change.getKey());
+            }
+            else
+            {
+                newBase.put(change.getKey(), change.getValue());
+            }
+        }
+        return of(newBase);
+    }
+
+    @Override
+    public V get(Object key)
+    {
+        if (changes.containsKey(key))
+        {
+            return changes.get(key);
+        }
+        return base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<String, V>>()
+        {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterates over the unchanged entries of the base map followed by the
+     * changed entries that have not been removed.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, V>>
+    {
+        private Iterator<Map.Entry<String, V>> current = base.entrySet().iterator();
+        private boolean inChanges;
+        private Map.Entry<String, V> next;
+
+        EntryIterator()
+        {
+            advance();
+        }
+
+        private void advance()
+        {
+            while (true)
+            {
+                while (current.hasNext())
+                {
+                    final Map.Entry<String, V> entry = current.next();
+                    if (inChanges ? entry.getValue() != null : !changes.containsKey(entry.getKey()))
+                    {
+                        next = entry;
+                        return;
+                    }
+                }
+                if (inChanges)
+                {
+                    next = null;
+                    return;
+                }
+                inChanges = true;
+                current = changes.entrySet().iterator();
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, V> next()
+        {
+            if (next == null)
+            {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<String, V> entry = new SimpleImmutableEntry<>(next);
+            advance();
+            return entry;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,584 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.asteriskjava.live.AgentSnapshot;
+import org.asteriskjava.live.AsteriskAgent;
+import org.asteriskjava.live.AsteriskChannel;
+import org.asteriskjava.live.AsteriskQueue;
+import org.asteriskjava.live.AsteriskQueueEntry;
+import org.asteriskjava.live.AsteriskQueueMember;
+import org.asteriskjava.live.ChannelSnapshot;
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.live.LiveSnapshot;
+import org.asteriskjava.live.QueueMemberSnapshot;
+import org.asteriskjava.live.QueueSnapshot;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+/**
+ * Publishes {@link LiveSnapshot}s of the channels, queues and agents of a
+ * server.
+ * <p>
+ * Events are processed while holding the lock of the publisher, see
+ * {@link #beginEvent()} and {@link #endEvent()}, and snapshots are built
+ * while holding it as well, so a snapshot never sees an event half
+ * processed. After an event the snapshot is published if the interval since
+ * the last one has passed, otherwise a task on the scheduler of the server's
+ * runtime publishes it when the interval is over. Readers only do a volatile
+ * read of the current snapshot.
+ * <p>
+ * Live objects count their changes, see {@link AbstractLiveObject#getVersion()},
+ * and report them to the publisher once the first snapshot has been built,
+ * see {@link #changed(AbstractLiveObject)}. Publishing only builds the
+ * snapshots of the objects reported since the last snapshot and derives the
+ * maps of the new snapshot from the previous ones, see {@link SnapshotMap},
+ * so it does not depend on the total number of objects.
+ * <p>
+ * Nothing is published until the first snapshot is requested, so servers
+ * that do not use snapshots only pay for an uncontended lock per event.
+ *
+ * @since 2.0.0
+ */
+class SnapshotPublisher
+{
+    static final long DEFAULT_INTERVAL = 100L;
+
+    private final Log logger = LogFactory.getLog(getClass());
+    private final AsteriskServerImpl server;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+    private final Runnable publishTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            publishScheduled.set(false);
+            // the event in progress, if any, publishes or schedules again
+            if (lock.tryLock())
+            {
+                try
+                {
+                    if (pending)
+                    {
+                        publish();
+                    }
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+        }
+    };
+
+    private final ChannelSnapshotter channelSnapshotter = new ChannelSnapshotter();
+    private final QueueSnapshotter queueSnapshotter = new QueueSnapshotter();
+    private final AgentSnapshotter agentSnapshotter = new AgentSnapshotter();
+
+    private volatile LiveSnapshotImpl snapshot;
+    private volatile long interval = DEFAULT_INTERVAL;
+
+    /**
+     * The objects changed since the last snapshot, only filled once the first
+     * snapshot has been built.
+     */
+    private final Queue<AbstractLiveObject> changedObjects = new ConcurrentLinkedQueue<>();
+    private volatile boolean tracking;
+
+    // guarded by lock
+    private long sequence;
+    private long lastPublished;
+    private boolean pending;
+    private boolean rebuild;
+
+    SnapshotPublisher(AsteriskServerImpl server)
+    {
+        this.server = server;
+    }
+
+    /**
+     * Sets the minimum time between two snapshots.
+     *
+     * @param interval the minimum time in milliseconds, 0 to publish a
+     *            snapshot after each event.
+     */
+    void setInterval(long interval)
+    {
+        if (interval < 0)
+        {
+            throw new IllegalArgumentException("interval must not be negative");
+        }
+        this.interval = interval;
+    }
+
+    long getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     * Checks if snapshots are published, i.e. if a snapshot has been
+     * requested before.
+     *
+     * @return <code>true</code> if snapshots are published,
+     *         <code>false</code> otherwise.
+     */
+    boolean isStarted()
+    {
+        return snapshot != null;
+    }
+
+    /**
+     * Returns the current snapshot, building the first one if none has been
+     * requested before.
+     *
+     * @return the current snapshot.
+     */
+    LiveSnapshot getSnapshot()
+    {
+        final LiveSnapshotImpl current = snapshot;
+        if (current != null)
+        {
+            return current;
+        }
+
+        lock.lock();
+        try
+        {
+            if (snapshot == null)
+            {
+                publish();
+            }
+            return snapshot;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called before an event is processed, must be followed by a call to
+     * {@link #endEvent()}.
+     */
+    void beginEvent()
+    {
+        lock.lock();
+    }
+
+    /**
+     * Called after an event has been processed.
+     */
+    void endEvent()
+    {
+        try
+        {
+            if (snapshot != null)
+            {
+                pending = true;
+                publishIfDue();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes changes that have been made outside of event processing, like
+     * the initial state retrieved from Asterisk.
+     */
+    void update()
+    {
+        beginEvent();
+        endEvent();
+    }
+
+    /**
+     * Records a change of the given object for the next snapshot. Called by
+     * the object itself, see {@link AbstractLiveObject#changed()}.
+     *
+     * @param object the object that has changed.
+     */
+    void changed(AbstractLiveObject object)
+    {
+        if (tracking && object.markDirty())
+        {
+            changedObjects.add(object);
+        }
+    }
+
+    /**
+     * Builds the next snapshot from all objects instead of the changed ones,
+     * for changes that live objects do not report like the removal of all
+     * objects on disconnect.
+     */
+    void invalidate()
+    {
+        beginEvent();
+        rebuild = true;
+        endEvent();
+    }
+
+    private void publishIfDue()
+    {
+        final long wait = lastPublished + TimeUnit.MILLISECONDS.toNanos(interval) - System.nanoTime();
+
+        if (wait <= 0)
+        {
+            publish();
+            return;
+        }
+
+        if (publishScheduled.compareAndSet(false, true))
+        {
+            try
+            {
+                server.getRuntime().getScheduler().schedule(publishTask, wait, TimeUnit.NANOSECONDS);
+            }
+            catch (IllegalStateException | RejectedExecutionException e)
+            {
+                publishScheduled.set(false);
+                logger.debug("Runtime has been shut down, snapshot will be published after the next event");
+            }
+        }
+    }
+
+    private void publish()
+    {
+        final LiveSnapshotImpl previous = snapshot;
+        final SnapshotMap<ChannelSnapshot> channels;
+        final SnapshotMap<QueueSnapshot> queues;
+        final SnapshotMap<AgentSnapshot> agents;
+
+        if (previous == null || rebuild)
+        {
+            // changes reported from now on are published by the next snapshot
+            tracking = true;
+            rebuild = false;
+            takeChangedObjects();
+
+            channels = build(server.channelManager.getChannelImpls(), channelSnapshotter);
+            queues = build(server.queueManager.getQueueImpls(), queueSnapshotter);
+            agents = build(server.agentManager.getAgents(), agentSnapshotter);
+        }
+        else
+        {
+            final List<AsteriskChannelImpl> changedChannels = new ArrayList<>();
+            final Set<AsteriskQueueImpl> changedQueues = new LinkedHashSet<>();
+            final List<AsteriskAgent> changedAgents = new ArrayList<>();
+
+            for (AbstractLiveObject object : takeChangedObjects())
+            {
+                if (object instanceof AsteriskChannelImpl)
+                {
+                    changedChannels.add((AsteriskChannelImpl) object);
+                }
+                else if (object instanceof AsteriskQueueImpl)
+                {
+                    changedQueues.add((AsteriskQueueImpl) object);
+                }
+                else if (object instanceof AsteriskQueueMemberImpl)
+                {
+                    // members are part of the snapshot of their queue
+                    final AsteriskQueue queue = ((AsteriskQueueMemberImpl) object).getQueue();
+                    if (queue instanceof AsteriskQueueImpl)
+                    {
+                        changedQueues.add((AsteriskQueueImpl) queue);
+                    }
+                }
+                else if (object instanceof AsteriskAgentImpl)
+                {
+                    changedAgents.add((AsteriskAgent) object);
+                }
+            }
+
+            channels = update(previous.getChannelMap(), changedChannels, channelSnapshotter);
+            queues = update(previous.getQueueMap(), changedQueues, queueSnapshotter);
+            agents = update(previous.getAgentMap(), changedAgents, agentSnapshotter);
+        }
+
+        snapshot = new LiveSnapshotImpl(++sequence, System.currentTimeMillis(), channels, queues, agents);
+        lastPublished = System.nanoTime();
+        pending = false;
+    }
+
+    /**
+     * Removes the changed objects from the queue. Their dirty flag is reset
+     * before their snapshots are built, so changes made meanwhile are
+     * reported again.
+     */
+    private List<AbstractLiveObject> takeChangedObjects()
+    {
+        final List<AbstractLiveObject> objects = new ArrayList<>();
+        AbstractLiveObject object;
+
+        while ((object = changedObjects.poll()) != null)
+        {
+            object.clearDirty();
+            objects.add(object);
+        }
+        return objects;
+    }
+
+    /**
+     * Builds the map of snapshots of all the given objects.
+     */
+    private <T, S> SnapshotMap<S> build(Collection<? extends T> objects, Snapshotter<T, S> snapshotter)
+    {
+        final Map<String, S> snapshots = new HashMap<>();
+
+        for (T object : objects)
+        {
+            if (snapshotter.include(object))
+            {
+                final S snapshot = snapshotter.snapshot(object);
+                snapshots.put(snapshotter.getKey(snapshot), snapshot);
+            }
+        }
+        return SnapshotMap.of(snapshots);
+    }
+
+    /**
+     * Derives the map of snapshots from the previous one, replacing the
+     * snapshots of the given changed objects.
+     */
+    @SuppressWarnings("unchecked")
+    private <T, S> SnapshotMap<S> update(SnapshotMap<S> previous, Collection<? extends T> objects,
+            Snapshotter<T, S> snapshotter)
+    {
+        final Map<String, S> updates = new HashMap<>();
+
+        for (T object : objects)
+        {
+            // the key may have changed, e.g. the unique id of a channel
+            final S last = (S) ((AbstractLiveObject) object).getLastSnapshot();
+            if (last != null)
+            {
+                final String lastKey = snapshotter.getKey(last);
+                if (previous.get(lastKey) == last && !updates.containsKey(lastKey))
+                {
+                    updates.put(lastKey, null);
+                }
+            }
+
+            if (snapshotter.include(object) && snapshotter.isRegistered(server, object))
+            {
+                final S snapshot = snapshotter.snapshot(object);
+                updates.put(snapshotter.getKey(snapshot), snapshot);
+            }
+        }
+        return previous.with(updates);
+    }
+
+    private static String getId(AsteriskChannel channel)
+    {
+        return channel == null ? null : channel.getId();
+    }
+
+    /**
+     * Creates the snapshots of one type of live objects.
+     *
+     * @param <T> the type of the live objects.
+     * @param <S> the type of their snapshots.
+     */
+    private abstract static class Snapshotter<T, S>
+    {
+        boolean include(T object)
+        {
+            return true;
+        }
+
+        abstract String getKey(S snapshot);
+
+        abstract S build(T object);
+
+        /**
+         * Checks if the given object is still known to the server, objects
+         * that have been removed must not be published.
+         */
+        boolean isRegistered(AsteriskServerImpl server, T object)
+        {
+            return true;
+        }
+
+        /**
+         * Checks if the last snapshot of an object that has not changed
+         * itself is still up to date.
+         */
+        boolean isCurrent(T object, S cached)
+        {
+            return true;
+        }
+
+        /**
+         * Returns the snapshot of the given object, reusing the last one if
+         * the object has not changed since.
+         */
+        @SuppressWarnings("unchecked")
+        S snapshot(T object)
+        {
+            final AbstractLiveObject liveObject = (AbstractLiveObject) object;
+            final int version = liveObject.getVersion();
+            final S cached = (S) liveObject.getSnapshot();
+            if (cached != null && isCurrent(object, cached))
+            {
+                return cached;
+            }
+
+            final S snapshot = build(object);
+            liveObject.setSnapshot(snapshot, version);
+            return snapshot;
+        }
+    }
+
+    private static final class ChannelSnapshotter extends Snapshotter<AsteriskChannelImpl, ChannelSnapshot>
+    {
+        @Override
+        boolean include(AsteriskChannelImpl channel)
+        {
+            return channel.getState() != ChannelState.HUNGUP;
+        }
+
+        @Override
+        boolean isRegistered(AsteriskServerImpl server, AsteriskChannelImpl channel)
+        {
+            return server.channelManager.getChannelImplById(channel.getId()) == channel;
+        }
+
+        @Override
+        String getKey(ChannelSnapshot snapshot)
+        {
+            return snapshot.getId();
+        }
+
+        @Override
+        ChannelSnapshot build(AsteriskChannelImpl channel)
+        {
+            final AsteriskQueueEntryImpl queueEntry = channel.getQueueEntry();
+
+            return new ChannelSnapshot(channel.getId(), channel.getName(), channel.getState(), channel.getCallerId(),
+                    channel.getAccount(), channel.getDateOfCreation(), channel.getCurrentExtension(),
+                    getId(channel.getLinkedChannel()), getId(channel.getDialedChannel()),
+                    getId(channel.getDialingChannel()), queueEntry == null ? null : queueEntry.getQueue().getName());
+        }
+    }
+
+    private static final class QueueSnapshotter extends Snapshotter<AsteriskQueueImpl, QueueSnapshot>
+    {
+        private final Snapshotter<AsteriskQueueMember, QueueMemberSnapshot> memberSnapshotter =
+                new Snapshotter<AsteriskQueueMember, QueueMemberSnapshot>()
+        {
+            @Override
+            String getKey(QueueMemberSnapshot snapshot)
+            {
+                return snapshot.getLocation();
+            }
+
+            @Override
+            QueueMemberSnapshot build(AsteriskQueueMember member)
+            {
+                return new QueueMemberSnapshot(member.getLocation(), member.getState(), member.getPenalty(),
+                        member.isPaused(), member.getCallsTaken(), member.getLastCall(), member.getMembership());
+            }
+        };
+
+        @Override
+        String getKey(QueueSnapshot snapshot)
+        {
+            return snapshot.getName();
+        }
+
+        @Override
+        boolean isRegistered(AsteriskServerImpl server, AsteriskQueueImpl queue)
+        {
+            return server.queueManager.getInternalQueueByName(queue.getName()) == queue;
+        }
+
+        /**
+         * The snapshot of a queue contains the snapshots of its members, so
+         * it is only current if its members have not changed either.
+         */
+        @Override
+        boolean isCurrent(AsteriskQueueImpl queue, QueueSnapshot cached)
+        {
+            return cached.getMembers().equals(getMembers(queue));
+        }
+
+        @Override
+        QueueSnapshot build(AsteriskQueueImpl queue)
+        {
+            final List<AsteriskQueueEntry> entries = queue.getEntries();
+            final List<String> entryChannelIds = new ArrayList<>(entries.size());
+
+            for (AsteriskQueueEntry entry : entries)
+            {
+                entryChannelIds.add(getId(entry.getChannel()));
+            }
+            return new QueueSnapshot(queue.getName(), queue.getMax(), queue.getStrategy(), queue.getServiceLevel(),
+                    queue.getWeight(), getMembers(queue), entryChannelIds);
+        }
+
+        private List<QueueMemberSnapshot> getMembers(AsteriskQueueImpl queue)
+        {
+            final List<QueueMemberSnapshot> members = new ArrayList<>();
+
+            for (AsteriskQueueMember member : queue.getMembers())
+            {
+                members.add(memberSnapshotter.snapshot(member));
+            }
+            return members;
+        }
+    }
+
+    private static final class AgentSnapshotter extends Snapshotter<AsteriskAgent, AgentSnapshot>
+    {
+        @Override
+        String getKey(AgentSnapshot snapshot)
+        {
+            return snapshot.getAgentId();
+        }
+
+        @Override
+        boolean isRegistered(AsteriskServerImpl server, AsteriskAgent agent)
+        {
+            return server.agentManager.getAgentByAgentId(agent.getAgentId()) == agent;
+        }
+
+        @Override
+        AgentSnapshot build(AsteriskAgent agent)
+        {
+            return new AgentSnapshot(agent.getAgentId(), agent.getName(), agent.getState());
+        }
+    }
+}
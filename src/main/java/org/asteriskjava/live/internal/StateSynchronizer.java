@@ -0,0 +1,602 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.live.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.live.ManagerCommunicationException;
+import org.asteriskjava.manager.ActionFutureCallback;
+import org.asteriskjava.manager.action.AgentsAction;
+import org.asteriskjava.manager.action.CoreShowChannelsAction;
+import org.asteriskjava.manager.action.EventGeneratingAction;
+import org.asteriskjava.manager.action.QueueStatusAction;
+import org.asteriskjava.manager.action.QueueSummaryAction;
+import org.asteriskjava.manager.action.StatusAction;
+import org.asteriskjava.manager.event.AgentsEvent;
+import org.asteriskjava.manager.event.CoreShowChannelEvent;
+import org.asteriskjava.manager.event.LeaveEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.QueueEntryEvent;
+import org.asteriskjava.manager.event.QueueMemberEvent;
+import org.asteriskjava.manager.event.QueueParamsEvent;
+import org.asteriskjava.manager.event.QueueSummaryEvent;
+import org.asteriskjava.manager.event.ResponseEvent;
+import org.asteriskjava.manager.event.StatusEvent;
+import org.asteriskjava.manager.response.ManagerError;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.asteriskjava.util.AstUtil;
+import org.asteriskjava.util.DateUtil;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+/**
+ * Synchronizes the channels, agents, queues and MeetMe rooms of a server
+ * with the state of Asterisk after connecting.
+ * <p>
+ * The Status, Agents and QueueStatus actions are sent at once and do not wait
+ * for each other. Their response events are received along with all other
+ * events and applied one by one as they arrive, by the thread processing the
+ * events. So the state reported by Asterisk and the events received during
+ * the synchronization are applied in the order Asterisk sent them and live
+ * changes are neither lost nor overwritten by older state.
+ * <p>
+ * Queue entries of channels that have not yet been reported are deferred
+ * until all channels are known, unless the channel leaves the queue in the
+ * meantime. The MeetMe rooms are populated once all channels are known.
+ * <p>
+ * When the state has been restored from a checkpoint it is reconciled
+ * instead: the channels are listed with CoreShowChannels, which is cheaper
+ * than Status, and QueueStatus is only sent for the queues that have callers
+ * or members according to the QueueSummary or the checkpoint. In both cases channels
+ * that Asterisk no longer reports are hung up.
+ *
+ * @since 2.0.0
+ */
+final class StateSynchronizer
+{
+    private static final AtomicLong idCounter = new AtomicLong();
+
+    /**
+     * Milliseconds without response events after which a QueueStatus action
+     * is considered complete, like the default event timeout of the
+     * connection.
+     */
+    private static final long QUEUE_STATUS_TIMEOUT = 5000L;
+
+    private final Log logger = LogFactory.getLog(getClass());
+    private final AsteriskServerImpl server;
+    private final boolean reconcile;
+    private final Part channels;
+    private final Part queues;
+    private final String prefix;
+
+    /**
+     * The parts by the action id of their action.
+     */
+    private final Map<String, Part> parts = new LinkedHashMap<>();
+
+    /**
+     * Queue entries of unknown channels by queue and channel name, only used
+     * by the thread processing the events.
+     */
+    private final Map<String, QueueEntryEvent> deferredEntries = new LinkedHashMap<>();
+
+    /**
+     * Unique ids of the channels known before the synchronization that have
+     * not yet been reported, only used by the thread processing the events.
+     */
+    private final Set<String> unconfirmed = new HashSet<>();
+
+    /**
+     * Names of the queues that must be queried after the QueueSummary, only
+     * used by the thread processing the events.
+     */
+    private final List<String> staleQueues = new ArrayList<>();
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    /**
+     * Number of actions and MeetMe room updates that are not yet done.
+     */
+    private int pending;
+    private boolean finished;
+    private ManagerCommunicationException failure;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param server     the server to synchronize.
+     * @param skipQueues <code>true</code> to not synchronize the queues.
+     * @param reconcile  <code>true</code> to reconcile the state restored
+     *                   from a checkpoint, <code>false</code> to synchronize
+     *                   it from scratch.
+     */
+    StateSynchronizer(AsteriskServerImpl server, boolean skipQueues, boolean reconcile)
+    {
+        this.server = server;
+        this.reconcile = reconcile;
+        this.prefix = "AJ_SYNC_" + idCounter.incrementAndGet() + "_";
+        this.channels = new Part(reconcile ? new CoreShowChannelsAction() : new StatusAction(), prefix + "channels");
+        new Part(new AgentsAction(), prefix + "agents");
+        if (skipQueues)
+        {
+            this.queues = null;
+        }
+        else
+        {
+            this.queues = new Part(reconcile ? new QueueSummaryAction() : new QueueStatusAction(), prefix + "queues");
+        }
+        this.pending = parts.size();
+
+        for (AsteriskChannelImpl channel : server.channelManager.getChannelImpls())
+        {
+            if (channel.getState() != ChannelState.HUNGUP)
+            {
+                unconfirmed.add(channel.getId());
+            }
+        }
+    }
+
+    /**
+     * Returns whether the state restored from a checkpoint is reconciled.
+     *
+     * @return <code>true</code> if the state is reconciled,
+     *         <code>false</code> if it is synchronized from scratch.
+     */
+    boolean isReconciling()
+    {
+        return reconcile;
+    }
+
+    /**
+     * Sends the actions. Their response events must be passed to
+     * {@link #handleEvent(ManagerEvent)} from then on.
+     *
+     * @throws ManagerCommunicationException if an action could not be sent.
+     */
+    void start() throws ManagerCommunicationException
+    {
+        // parts for single queues are added while the actions are sent
+        for (Part part : new ArrayList<>(parts.values()))
+        {
+            try
+            {
+                part.send();
+            }
+            catch (ManagerCommunicationException e)
+            {
+                fail(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Applies a response event of the synchronization. Must be called by the
+     * thread processing the events for each event received while the
+     * synchronization is in progress.
+     *
+     * @param event the event received.
+     * @return <code>true</code> if the event belongs to the synchronization
+     *         and has been handled, <code>false</code> if it must be handled
+     *         as usual.
+     */
+    boolean handleEvent(ManagerEvent event)
+    {
+        final Part part;
+        final boolean complete;
+        final boolean channelsDone;
+
+        if (event instanceof LeaveEvent)
+        {
+            final LeaveEvent leaveEvent = (LeaveEvent) event;
+            deferredEntries.remove(entryKey(leaveEvent.getQueue(), leaveEvent.getChannel()));
+            return false;
+        }
+        if (!(event instanceof ResponseEvent))
+        {
+            return false;
+        }
+
+        part = parts.get(((ResponseEvent) event).getActionId());
+        if (part == null)
+        {
+            return false;
+        }
+
+        synchronized (this)
+        {
+            if (finished || part.done)
+            {
+                return true;
+            }
+            complete = part.action.getActionCompleteEventClass().isInstance(event);
+            part.done = complete;
+            channelsDone = channels.done;
+        }
+
+        if (!complete)
+        {
+            part.active = true;
+            apply(event, channelsDone);
+            return true;
+        }
+
+        logger.debug("Received state reported by " + part.action.getAction() + " action");
+        if (part == channels)
+        {
+            if (!unconfirmed.isEmpty())
+            {
+                server.channelManager.removeStaleChannels(unconfirmed);
+                unconfirmed.clear();
+            }
+
+            // all channels are known now
+            for (QueueEntryEvent entry : deferredEntries.values())
+            {
+                server.queueManager.handleQueueEntryEvent(entry);
+            }
+            deferredEntries.clear();
+            populateMeetMeRooms();
+        }
+        else if (part == queues && reconcile)
+        {
+            queryStaleQueues();
+        }
+        else if (part instanceof QueuePart)
+        {
+            final QueuePart queuePart = (QueuePart) part;
+            server.queueManager.removeUnreported(queuePart.queue, queuePart.members, queuePart.entries,
+                    DateUtil.getDate());
+        }
+        partDone();
+        return true;
+    }
+
+    /**
+     * Waits until the synchronization is done.
+     *
+     * @throws ManagerCommunicationException if the synchronization failed or
+     *             the thread has been interrupted.
+     */
+    void await() throws ManagerCommunicationException
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ManagerCommunicationException("Interrupted while synchronizing the state", e);
+        }
+
+        synchronized (this)
+        {
+            if (failure != null)
+            {
+                throw new ManagerCommunicationException(failure.getMessage(), failure);
+            }
+        }
+    }
+
+    /**
+     * Aborts the synchronization, for example because the connection has
+     * been lost.
+     */
+    void cancel()
+    {
+        fail(new ManagerCommunicationException("Connection lost while synchronizing the state", null));
+    }
+
+    private void apply(ManagerEvent event, boolean channelsDone)
+    {
+        if (event instanceof StatusEvent)
+        {
+            unconfirmed.remove(((StatusEvent) event).getUniqueId());
+            server.channelManager.handleStatusEvent((StatusEvent) event);
+        }
+        else if (event instanceof CoreShowChannelEvent)
+        {
+            unconfirmed.remove(((CoreShowChannelEvent) event).getUniqueid());
+            server.channelManager.handleCoreShowChannelEvent((CoreShowChannelEvent) event);
+        }
+        else if (event instanceof QueueSummaryEvent)
+        {
+            final QueueSummaryEvent summary = (QueueSummaryEvent) event;
+            if (isStale(summary))
+            {
+                staleQueues.add(summary.getQueue());
+            }
+        }
+        else if (event instanceof AgentsEvent)
+        {
+            server.agentManager.handleAgentsEvent((AgentsEvent) event);
+        }
+        else if (event instanceof QueueParamsEvent)
+        {
+            server.queueManager.handleQueueParamsEvent((QueueParamsEvent) event);
+        }
+        else if (event instanceof QueueMemberEvent)
+        {
+            final QueueMemberEvent member = (QueueMemberEvent) event;
+            final Part part = parts.get(member.getActionId());
+            if (part instanceof QueuePart)
+            {
+                ((QueuePart) part).members.add(member.getLocation());
+            }
+            server.queueManager.handleQueueMemberEvent(member);
+        }
+        else if (event instanceof QueueEntryEvent)
+        {
+            final QueueEntryEvent entry = (QueueEntryEvent) event;
+            final Part part = parts.get(entry.getActionId());
+            if (part instanceof QueuePart)
+            {
+                ((QueuePart) part).entries.add(entry.getChannel());
+            }
+
+            if (!channelsDone && server.channelManager.getChannelImplByName(entry.getChannel()) == null)
+            {
+                deferredEntries.put(entryKey(entry.getQueue(), entry.getChannel()), entry);
+            }
+            else
+            {
+                server.queueManager.handleQueueEntryEvent(entry);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a queue restored from a checkpoint may differ from the
+     * state of Asterisk. The summary only reports the number of callers and
+     * members, which does not reveal callers or members that have been
+     * swapped nor members whose status, penalty or paused flag has changed.
+     * So only queues without callers and members on both sides are known to
+     * be up to date, all others are queried.
+     */
+    private boolean isStale(QueueSummaryEvent summary)
+    {
+        final AsteriskQueueImpl queue = server.queueManager.getInternalQueueByName(summary.getQueue());
+
+        return queue == null || !AstUtil.isEqual(summary.getCallers(), 0)
+                || !AstUtil.isEqual(summary.getLoggedIn(), 0) || !queue.getEntries().isEmpty()
+                || !queue.getMembers().isEmpty();
+    }
+
+    /**
+     * Sends a QueueStatus action for each queue that may differ from its
+     * summary.
+     */
+    private void queryStaleQueues()
+    {
+        logger.info("Querying " + staleQueues.size() + " queues that may have changed since the checkpoint");
+        for (String queue : staleQueues)
+        {
+            final QueuePart part = new QueuePart(queue, prefix + "queue_" + queue);
+            synchronized (this)
+            {
+                pending++;
+            }
+            try
+            {
+                part.send();
+            }
+            catch (ManagerCommunicationException e)
+            {
+                fail(e);
+                return;
+            }
+        }
+        staleQueues.clear();
+    }
+
+    /**
+     * Populates the MeetMe rooms in the background as the commands used
+     * block until their response is received.
+     */
+    private void populateMeetMeRooms()
+    {
+        final Runnable task = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                server.meetMeManager.initialize();
+                partDone();
+            }
+        };
+
+        synchronized (this)
+        {
+            pending++;
+        }
+        try
+        {
+            server.getRuntime().getExecutor().execute(task);
+        }
+        catch (IllegalStateException | RejectedExecutionException e)
+        {
+            logger.warn("Unable to populate MeetMe rooms, runtime has been shut down");
+            partDone();
+        }
+    }
+
+    private void partDone()
+    {
+        synchronized (this)
+        {
+            pending--;
+            if (pending > 0 || finished)
+            {
+                return;
+            }
+            finished = true;
+        }
+        latch.countDown();
+        server.stateSynchronized(this, true);
+    }
+
+    private void fail(ManagerCommunicationException cause)
+    {
+        synchronized (this)
+        {
+            if (finished)
+            {
+                return;
+            }
+            finished = true;
+            failure = cause;
+        }
+        latch.countDown();
+        server.stateSynchronized(this, false);
+    }
+
+    private static String entryKey(String queue, String channel)
+    {
+        return queue + "/" + channel;
+    }
+
+    /**
+     * One of the actions sent to synchronize the state.
+     * <p>
+     * Only the response is awaited, the response events are passed to
+     * {@link #handleEvent(ManagerEvent)} like all other events so they are
+     * not collected in memory until the action is complete.
+     */
+    private class Part implements ActionFutureCallback<ManagerResponse>, Runnable
+    {
+        private final EventGeneratingAction action;
+        private boolean done;
+        private volatile boolean active;
+
+        Part(EventGeneratingAction action, String actionId)
+        {
+            this.action = action;
+            action.setActionId(actionId);
+            parts.put(actionId, this);
+        }
+
+        void send() throws ManagerCommunicationException
+        {
+            server.sendActionAsync(action).addCallback(this);
+        }
+
+        @Override
+        public void onSuccess(ManagerResponse response)
+        {
+            // otherwise the part is done when its complete event is handled
+            if (response instanceof ManagerError && reconcile && (this == channels || this == queues))
+            {
+                // Asterisk before 1.6.2 does not support the actions used to
+                // reconcile, fall back to a full synchronization
+                fail(new ManagerCommunicationException("Unable to reconcile state with " + action.getAction() + ": "
+                        + response.getMessage(), null));
+            }
+            else if (response instanceof ManagerError)
+            {
+                logger.warn("Unable to synchronize state with " + action.getAction() + ": " + response.getMessage());
+                ignore();
+            }
+            else if (action instanceof QueueStatusAction)
+            {
+                // Asterisk 1.0.x doesn't send a QueueStatusCompleteEvent
+                scheduleTimeout();
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable cause)
+        {
+            fail(ManagerCommunicationExceptionMapper.mapSendActionException(action.getAction(),
+                    cause instanceof Exception ? (Exception) cause : new Exception(cause)));
+        }
+
+        /**
+         * Called by the timer when no QueueStatusCompleteEvent has been
+         * received in time.
+         */
+        @Override
+        public void run()
+        {
+            if (active)
+            {
+                active = false;
+                scheduleTimeout();
+            }
+            else
+            {
+                ignore();
+            }
+        }
+
+        private void scheduleTimeout()
+        {
+            server.getRuntime().getTimer().newTimeout(this, QUEUE_STATUS_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+
+        private void ignore()
+        {
+            synchronized (StateSynchronizer.this)
+            {
+                if (done || finished)
+                {
+                    return;
+                }
+                done = true;
+            }
+            if (this == channels)
+            {
+                populateMeetMeRooms();
+            }
+            partDone();
+        }
+    }
+
+    /**
+     * Queries a single queue that differs from its summary and removes the
+     * members and entries that are not reported.
+     */
+    private final class QueuePart extends Part
+    {
+        private final String queue;
+        private final Set<String> members = new HashSet<>();
+        private final Set<String> entries = new HashSet<>();
+
+        QueuePart(String queue, String actionId)
+        {
+            super(newQueueStatusAction(queue), actionId);
+            this.queue = queue;
+        }
+    }
+
+    private static QueueStatusAction newQueueStatusAction(String queue)
+    {
+        final QueueStatusAction action = new QueueStatusAction();
+        action.setQueue(queue);
+        return action;
+    }
+}
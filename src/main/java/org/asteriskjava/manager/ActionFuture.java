@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager;
+
+import java.util.concurrent.Future;
+
+/**
+ * The pending result of an action sent asynchronously.
+ * <p>
+ * The future completes with the response or fails with a
+ * {@link TimeoutException} if no response has been received in time, or with
+ * an {@link java.io.IOException} if the action could not be sent.
+ * Cancelling the future stops waiting for the response, it does not abort the
+ * action on the Asterisk server.
+ *
+ * @param <V> the type of the result.
+ * @see ManagerConnection#sendActionAsync(org.asteriskjava.manager.action.ManagerAction)
+ * @see ManagerConnection#sendEventGeneratingActionAsync(org.asteriskjava.manager.action.EventGeneratingAction)
+ * @since 2.0.0
+ */
+public interface ActionFuture<V> extends Future<V>
+{
+    /**
+     * Registers a callback that is called once the future is completed. If it
+     * is already completed the callback is called immediately on the calling
+     * thread, otherwise it is called on the thread that completes the future.
+     * Be careful that your callback terminates quickly as it may be called
+     * from the reader thread.
+     *
+     * @param callback the callback to call on completion.
+     */
+    void addCallback(ActionFutureCallback< ? super V> callback);
+}
@@ -0,0 +1,44 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager;
+
+/**
+ * Callback interface to receive the result of an {@link ActionFuture}.
+ *
+ * @param <V> the type of the result.
+ * @see ActionFuture#addCallback(ActionFutureCallback)
+ * @since 2.0.0
+ */
+public interface ActionFutureCallback<V>
+{
+    /**
+     * This method is called when the action has completed successfully.
+     *
+     * @param result the result of the action.
+     */
+    void onSuccess(V result);
+
+    /**
+     * This method is called when the action has failed, timed out or has been
+     * cancelled.
+     *
+     * @param cause the reason for the failure, a
+     *            {@link java.util.concurrent.CancellationException} if the
+     *            future has been cancelled.
+     */
+    void onFailure(Throwable cause);
+}
@@ -16,9 +16,13 @@
  */
 package org.asteriskjava.manager;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.asteriskjava.AsteriskVersion;
 import org.asteriskjava.manager.action.EventGeneratingAction;
@@ -26,6 +30,8 @@ import org.asteriskjava.manager.action.ManagerAction;
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.internal.ManagerConnectionImpl;
 import org.asteriskjava.manager.response.ManagerResponse;
+import org.asteriskjava.util.ExecutionRuntime;
+import org.asteriskjava.util.LatencyHistogram;
 
 /**
  * Default implemention of the
@@ -231,6 +237,172 @@ public class DefaultManagerConnection implements ManagerConnection
         impl.setKeepAliveAfterAuthenticationFailure(keepAliveAfterAuthenticationFailure);
     }
 
+    /**
+     * Set to <code>true</code> to read events and responses with a reader that
+     * splits the data received from Asterisk into frames at the byte level
+     * instead of reading it line by line.
+     * <p>
+     * Default is <code>false</code>.
+     *
+     * @param nioReader <code>true</code> to use the byte level reader.
+     * @since 2.0.0
+     */
+    public void setNioReader(boolean nioReader)
+    {
+        impl.setNioReader(nioReader);
+    }
+
+    /**
+     * Set to <code>true</code> to send actions from a separate writer thread
+     * that sends all actions queued in the meantime with a single write and
+     * flush.
+     * <p>
+     * Default is <code>false</code>.
+     *
+     * @param pipelinedWriter <code>true</code> to use the pipelined writer.
+     * @since 2.0.0
+     */
+    public void setPipelinedWriter(boolean pipelinedWriter)
+    {
+        impl.setPipelinedWriter(pipelinedWriter);
+    }
+
+    /**
+     * Set to <code>true</code> to build events of classes annotated with
+     * {@link org.asteriskjava.manager.event.LazyAttributes} with each
+     * attribute converted and set when its getter is first called.
+     * <p>
+     * Default is <code>false</code>.
+     *
+     * @param lazyEvents <code>true</code> to build events lazily.
+     * @since 2.0.0
+     */
+    public void setLazyEvents(boolean lazyEvents)
+    {
+        impl.setLazyEvents(lazyEvents);
+    }
+
+    /**
+     * Set to <code>true</code> to install server side event filters after
+     * login and on every reconnect, so Asterisk only sends the events required
+     * by the {@link FilteredManagerEventListener}s registered.
+     * <p>
+     * Requires Asterisk 13 or later. Default is <code>false</code>.
+     *
+     * @param autoEventFilters <code>true</code> to install server side event
+     *            filters.
+     * @see org.asteriskjava.manager.action.FilterAction
+     * @since 2.0.0
+     */
+    public void setAutoEventFilters(boolean autoEventFilters)
+    {
+        impl.setAutoEventFilters(autoEventFilters);
+    }
+
+    /**
+     * Sets the runtime that provides the threads of this connection. By
+     * default all connections share {@link ExecutionRuntime#getDefault()}.
+     *
+     * @param runtime the runtime to use.
+     * @since 2.0.0
+     */
+    public void setRuntime(ExecutionRuntime runtime)
+    {
+        impl.setRuntime(runtime);
+    }
+
+    /**
+     * Sets the capacity of the queue between the thread reading from Asterisk
+     * and a separate thread dispatching events and responses to the
+     * listeners.
+     * <p>
+     * Must be set before the connection is used. Default is 0 which disables
+     * the queue and dispatches on the reader thread.
+     *
+     * @param dispatchQueueCapacity the number of events and responses the
+     *            queue can hold, 0 to disable it.
+     * @since 2.0.0
+     */
+    public void setDispatchQueueCapacity(int dispatchQueueCapacity)
+    {
+        impl.setDispatchQueueCapacity(dispatchQueueCapacity);
+    }
+
+    /**
+     * Sets what happens when the dispatch queue is full. Default is
+     * {@link DispatchQueueOverflowPolicy#BLOCK}.
+     *
+     * @param dispatchQueueOverflowPolicy the overflow policy.
+     * @since 2.0.0
+     */
+    public void setDispatchQueueOverflowPolicy(DispatchQueueOverflowPolicy dispatchQueueOverflowPolicy)
+    {
+        impl.setDispatchQueueOverflowPolicy(dispatchQueueOverflowPolicy);
+    }
+
+    /**
+     * Sets the event classes that may be dropped when the dispatch queue is
+     * full and the overflow policy is {@link DispatchQueueOverflowPolicy#DROP}
+     * . If none are set all events may be dropped.
+     *
+     * @param droppableEventClasses the event classes that may be dropped.
+     * @since 2.0.0
+     */
+    public void setDroppableEventClasses(Set<Class< ? extends ManagerEvent>> droppableEventClasses)
+    {
+        impl.setDroppableEventClasses(droppableEventClasses);
+    }
+
+    /**
+     * Sets the directory to write events to when the dispatch queue is full
+     * and the overflow policy is {@link DispatchQueueOverflowPolicy#SPILL}.
+     *
+     * @param spillDirectory the directory for the spill file.
+     * @since 2.0.0
+     */
+    public void setSpillDirectory(File spillDirectory)
+    {
+        impl.setSpillDirectory(spillDirectory);
+    }
+
+    /**
+     * Returns the depth, high water mark and overflow counters of the
+     * dispatch queue.
+     *
+     * @return the statistics of the dispatch queue or <code>null</code> if the
+     *         queue is disabled or the connection has not yet been used.
+     * @since 2.0.0
+     */
+    public DispatchQueueStatistics getDispatchQueueStatistics()
+    {
+        return impl.getDispatchQueueStatistics();
+    }
+
+    /**
+     * Returns the histogram of the time between sending an action and
+     * dispatching its response.
+     *
+     * @return the histogram of response round trip times.
+     * @since 2.0.0
+     */
+    public LatencyHistogram getResponseTimeHistogram()
+    {
+        return impl.getResponseTimeHistogram();
+    }
+
+    /**
+     * Returns the number of events skipped without being built because none
+     * of the registered listeners required them.
+     *
+     * @return the number of skipped events by lower case event type.
+     * @see FilteredManagerEventListener
+     * @since 2.0.0
+     */
+    public Map<String, Long> getSkippedEventCounts()
+    {
+        return impl.getSkippedEventCounts();
+    }
+
     /* Implementation of ManagerConnection interface */
 
     public String getHostname()
@@ -350,6 +522,48 @@ public class DefaultManagerConnection implements ManagerConnection
         return impl.sendEventGeneratingAction(action, timeout);
     }
 
+    public ActionFuture<ManagerResponse> sendActionAsync(ManagerAction action)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        return impl.sendActionAsync(action);
+    }
+
+    public ActionFuture<ManagerResponse> sendActionAsync(ManagerAction action, long timeout)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        return impl.sendActionAsync(action, timeout);
+    }
+
+    public List<ActionFuture<ManagerResponse>> sendActions(List< ? extends ManagerAction> actions)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        return impl.sendActions(actions);
+    }
+
+    public ActionFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        return impl.sendEventGeneratingActionAsync(action);
+    }
+
+    public ActionFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action, long timeout)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        return impl.sendEventGeneratingActionAsync(action, timeout);
+    }
+
+    public ResponseEventStream streamEventGeneratingAction(EventGeneratingAction action)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        return impl.streamEventGeneratingAction(action);
+    }
+
+    public ResponseEventStream streamEventGeneratingAction(EventGeneratingAction action, int bufferSize, long timeout)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        return impl.streamEventGeneratingAction(action, bufferSize, timeout);
+    }
+
     public void addEventListener(final ManagerEventListener listener)
     {
         impl.addEventListener(listener);
@@ -360,6 +574,11 @@ public class DefaultManagerConnection implements ManagerConnection
         impl.removeEventListener(listener);
     }
 
+    public void refreshRequiredEvents()
+    {
+        impl.refreshRequiredEvents();
+    }
+
     public String getProtocolIdentifier()
     {
         return impl.getProtocolIdentifier();
@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager;
+
+/**
+ * Defines what happens when the dispatch queue between the thread reading
+ * from Asterisk and the thread dispatching events is full.
+ *
+ * @see DispatchQueueStatistics
+ * @since 2.0.0
+ */
+public enum DispatchQueueOverflowPolicy
+{
+    /**
+     * The reader thread waits until there is room in the queue. Asterisk will
+     * eventually drop the connection if the listeners do not catch up.
+     */
+    BLOCK,
+
+    /**
+     * Events of the types configured as droppable are discarded, all other
+     * events and all responses are queued as with {@link #BLOCK}. If no event
+     * types are configured all events are droppable.
+     */
+    DROP,
+
+    /**
+     * Events that do not fit into the queue are written to a temporary file
+     * and dispatched from there in order once the queue has been drained.
+     */
+    SPILL
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager;
+
+import java.util.Map;
+
+/**
+ * Provides the fill level of the queue between the thread reading from
+ * Asterisk and the thread dispatching events and responses.
+ * <p>
+ * Use these values to alert before slow listeners cause Asterisk to drop the
+ * connection.
+ *
+ * @see DispatchQueueOverflowPolicy
+ * @since 2.0.0
+ */
+public interface DispatchQueueStatistics
+{
+    /**
+     * Returns the number of events and responses the in memory queue can
+     * hold.
+     *
+     * @return the capacity of the queue.
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of events and responses received but not yet
+     * dispatched, including those spilled to disk.
+     *
+     * @return the current depth of the queue.
+     */
+    int getDepth();
+
+    /**
+     * Returns the highest depth observed since the queue was created or
+     * {@link #resetHighWaterMark()} was last called.
+     *
+     * @return the high water mark.
+     */
+    int getHighWaterMark();
+
+    /**
+     * Resets the high water mark to the current depth.
+     */
+    void resetHighWaterMark();
+
+    /**
+     * Returns the number of events dropped because the queue was full.
+     *
+     * @return the number of events dropped.
+     */
+    long getDroppedCount();
+
+    /**
+     * Returns the number of events dropped because the queue was full per
+     * lower case event type.
+     *
+     * @return a copy of the number of events dropped per event type.
+     */
+    Map<String, Long> getDroppedCountByEventType();
+
+    /**
+     * Returns the number of events and responses written to disk because the
+     * queue was full.
+     *
+     * @return the number of events and responses spilled to disk.
+     */
+    long getSpilledCount();
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager;
+
+import java.util.Set;
+
+import org.asteriskjava.manager.event.ManagerEvent;
+
+/**
+ * A {@link ManagerEventListener} that declares the event classes it is
+ * interested in.
+ * <p>
+ * The connection computes the union of the event classes required by its
+ * listeners. Events received from Asterisk that none of them requires are
+ * skipped before they are built, so they cost neither object construction
+ * nor dispatching. As soon as a plain {@link ManagerEventListener} is
+ * registered all events are built again.
+ * <p>
+ * The listener is only notified about events of the classes it requires.
+ *
+ * @see ManagerConnection#addEventListener(ManagerEventListener)
+ * @see ManagerConnection#refreshRequiredEvents()
+ * @since 2.0.0
+ */
+public interface FilteredManagerEventListener extends ManagerEventListener
+{
+    /**
+     * Returns the event classes this listener is interested in, events of
+     * their subclasses are included.
+     * <p>
+     * Called whenever a listener is added or removed and on
+     * {@link ManagerConnection#refreshRequiredEvents()}.
+     *
+     * @return the event classes required by this listener or
+     *         <code>null</code> if it requires all events.
+     */
+    Set<Class< ? extends ManagerEvent>> requiredEvents();
+}
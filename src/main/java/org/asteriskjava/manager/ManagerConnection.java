@@ -19,6 +19,7 @@ package org.asteriskjava.manager;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.nio.charset.Charset;
+import java.util.List;
 
 import org.asteriskjava.AsteriskVersion;
 import org.asteriskjava.manager.action.EventGeneratingAction;
@@ -403,6 +404,154 @@ public interface ManagerConnection
     ResponseEvents sendEventGeneratingAction(EventGeneratingAction action, long timeout)
             throws IOException, EventTimeoutException, IllegalArgumentException, IllegalStateException;
 
+    /**
+     * Sends a ManagerAction to the Asterisk server without waiting for the
+     * corresponding {@link ManagerResponse}. The returned future fails with a
+     * {@link TimeoutException} if no response is received within the default
+     * timeout period.
+     * <p>
+     * No thread is blocked while waiting for the response, so this allows a
+     * large number of actions to be in flight at the same time.
+     *
+     * @param action the action to send to the Asterisk server
+     * @return the future response.
+     * @throws IllegalArgumentException if the action is <code>null</code>.
+     * @throws IllegalStateException if you are not connected to an Asterisk
+     *             server.
+     * @see #sendActionAsync(ManagerAction, long)
+     * @since 2.0.0
+     */
+    ActionFuture<ManagerResponse> sendActionAsync(ManagerAction action)
+            throws IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Sends a ManagerAction to the Asterisk server without waiting for the
+     * corresponding {@link ManagerResponse}.
+     *
+     * @param action the action to send to the Asterisk server
+     * @param timeout milliseconds to wait for the response before failing the
+     *            future with a TimeoutException
+     * @return the future response.
+     * @throws IllegalArgumentException if the action is <code>null</code>.
+     * @throws IllegalStateException if you are not connected to an Asterisk
+     *             server.
+     * @since 2.0.0
+     */
+    ActionFuture<ManagerResponse> sendActionAsync(ManagerAction action, long timeout)
+            throws IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Sends the given ManagerActions to the Asterisk server in the given order
+     * without waiting for any of the corresponding {@link ManagerResponse}s.
+     * <p>
+     * The actions are written to the connection as one batch, so this is the
+     * most efficient way to send a large number of actions at once. Each of
+     * the returned futures fails with a {@link TimeoutException} if its
+     * response is not received within the default timeout period.
+     *
+     * @param actions the actions to send to the Asterisk server
+     * @return the future responses in the order of the actions.
+     * @throws IllegalArgumentException if one of the actions is
+     *             <code>null</code>.
+     * @throws IllegalStateException if you are not connected to an Asterisk
+     *             server.
+     * @see #sendActionAsync(ManagerAction)
+     * @since 2.0.0
+     */
+    List<ActionFuture<ManagerResponse>> sendActions(List< ? extends ManagerAction> actions)
+            throws IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Sends an {@link EventGeneratingAction} to the Asterisk server without
+     * waiting for the corresponding {@link ManagerResponse} and the
+     * {@link org.asteriskjava.manager.event.ResponseEvent}s. The returned
+     * future completes when the action complete event has been received or
+     * fails with an {@link EventTimeoutException} if it is not received within
+     * the default timeout period.
+     *
+     * @param action the action to send to the Asterisk server
+     * @return the future ResponseEvents.
+     * @throws IllegalArgumentException if the action is <code>null</code>, the
+     *             actionCompleteEventClass property of the action is
+     *             <code>null</code> or if actionCompleteEventClass is not a
+     *             ResponseEvent.
+     * @throws IllegalStateException if you are not connected to an Asterisk
+     *             server.
+     * @see #sendEventGeneratingAction(EventGeneratingAction)
+     * @since 2.0.0
+     */
+    ActionFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action)
+            throws IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Sends an {@link EventGeneratingAction} to the Asterisk server without
+     * waiting for the corresponding {@link ManagerResponse} and the
+     * {@link org.asteriskjava.manager.event.ResponseEvent}s.
+     *
+     * @param action the action to send to the Asterisk server
+     * @param timeout milliseconds to wait for the response and the action
+     *            complete event before failing the future with an
+     *            EventTimeoutException
+     * @return the future ResponseEvents.
+     * @throws IllegalArgumentException if the action is <code>null</code>, the
+     *             actionCompleteEventClass property of the action is
+     *             <code>null</code> or if actionCompleteEventClass is not a
+     *             ResponseEvent.
+     * @throws IllegalStateException if you are not connected to an Asterisk
+     *             server.
+     * @since 2.0.0
+     */
+    ActionFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action, long timeout)
+            throws IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Sends an {@link EventGeneratingAction} to the Asterisk server and
+     * returns a stream of its response events that delivers them as they are
+     * received, instead of collecting all of them until the action complete
+     * event has been received. Use it for actions that report large numbers
+     * of events like a {@link org.asteriskjava.manager.action.StatusAction}
+     * on a busy server.
+     * <p>
+     * Up to 1024 events are buffered, each event must be received within the
+     * default timeout period.
+     *
+     * @param action the action to send to the Asterisk server
+     * @return the stream of response events.
+     * @throws IllegalArgumentException if the action is <code>null</code>, the
+     *             actionCompleteEventClass property of the action is
+     *             <code>null</code> or if actionCompleteEventClass is not a
+     *             ResponseEvent.
+     * @throws IllegalStateException if you are not connected to an Asterisk
+     *             server.
+     * @see #streamEventGeneratingAction(EventGeneratingAction, int, long)
+     * @since 2.0.0
+     */
+    ResponseEventStream streamEventGeneratingAction(EventGeneratingAction action)
+            throws IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Sends an {@link EventGeneratingAction} to the Asterisk server and
+     * returns a stream of its response events that delivers them as they are
+     * received.
+     *
+     * @param action the action to send to the Asterisk server
+     * @param bufferSize the maximum number of events to buffer before the
+     *            connection stops reading from Asterisk
+     * @param timeout milliseconds to wait for the next event and for the
+     *            buffer to have space before failing the stream with an
+     *            EventTimeoutException
+     * @return the stream of response events.
+     * @throws IllegalArgumentException if the action is <code>null</code>, the
+     *             actionCompleteEventClass property of the action is
+     *             <code>null</code>, if actionCompleteEventClass is not a
+     *             ResponseEvent or if bufferSize is less than 1.
+     * @throws IllegalStateException if you are not connected to an Asterisk
+     *             server.
+     * @since 2.0.0
+     */
+    ResponseEventStream streamEventGeneratingAction(EventGeneratingAction action, int bufferSize, long timeout)
+            throws IllegalArgumentException, IllegalStateException;
+
     /**
      * Registers an event listener that is called whenever an
      * {@link org.asteriskjava.manager.event.ManagerEvent} is receiced from the
@@ -427,5 +576,16 @@ public interface ManagerConnection
      */
     void removeEventListener(ManagerEventListener eventListener);
 
+    /**
+     * Recomputes the event classes required by the registered
+     * {@link FilteredManagerEventListener}s. Listeners whose required events
+     * change after they have been added must call this method for the change
+     * to take effect.
+     *
+     * @see FilteredManagerEventListener#requiredEvents()
+     * @since 2.0.0
+     */
+    void refreshRequiredEvents();
+
     void deregisterEventClass(Class< ? extends ManagerEvent> eventClass);
 }
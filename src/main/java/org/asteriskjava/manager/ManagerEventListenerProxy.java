@@ -1,13 +1,22 @@
 package org.asteriskjava.manager;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.util.DaemonThreadFactory;
+import org.asteriskjava.util.ExecutorFactory;
 
 /**
  * Proxies a ManagerEventListener and dispatches events asynchronously by using
@@ -27,52 +36,327 @@ import org.asteriskjava.util.DaemonThreadFactory;
  * ...
  * connection.addEventListener(new ManagerEventListenerProxy(myListener));
  * </pre>
- * 
+ * The proxy can also spread the events over several lanes, each with its own
+ * thread and bounded queue. Events are assigned to a lane by a
+ * {@link KeyExtractor}, events with the same key are always processed by the
+ * same lane in the order they have been received while events with different
+ * keys are processed in parallel. The default key is the linked id of the
+ * call, or the unique id of the channel for events without a linked id, so
+ * the events of a call are processed in order. Events without a key are all
+ * processed by the first lane. The target must be thread safe in this mode.
+ * When the queue of a lane is full the reader thread waits until there is
+ * room again.
+ * <pre>
+ * connection.addEventListener(new ManagerEventListenerProxy(myListener, 8, 10000));
+ * </pre>
+ *
  * @author srt
  * @author fink
  * @since 0.3
  */
-public class ManagerEventListenerProxy implements ManagerEventListener {
-		private final ThreadPoolExecutor executor;
+public class ManagerEventListenerProxy implements FilteredManagerEventListener {
+    /**
+     * Determines the key used to assign events to lanes.
+     *
+     * @since 2.0.0
+     */
+    public interface KeyExtractor {
+        /**
+         * Returns the key of the given event.
+         *
+         * @param event the event.
+         * @return the key of the event or <code>null</code> if it has none.
+         */
+        Object getKey(ManagerEvent event);
+    }
+
+    /**
+     * Uses the linked id of an event as its key, or its unique id if it has
+     * no linked id.
+     *
+     * @since 2.0.0
+     */
+    public static final KeyExtractor CALL_KEY_EXTRACTOR = new CallKeyExtractor();
+
+    private final ThreadPoolExecutor[] lanes;
+    private final AtomicIntegerArray maxQueueDepths;
+    private final KeyExtractor keyExtractor;
     private final ManagerEventListener target;
 
 
     /**
      * Creates a new ManagerEventListenerProxy that notifies the given target
      * asynchronously when new events are received.
-     * 
+     *
      * @param target the target listener to invoke.
      * @see Executors#newSingleThreadExecutor(ThreadFactory)
      */
     public ManagerEventListenerProxy(ManagerEventListener target) {
-	    executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory());
-	    this.target = target;
-	    if (target == null) {
-		    throw new NullPointerException("ManagerEventListener target is null!");
-	    }
+        this(target, 1, Integer.MAX_VALUE, CALL_KEY_EXTRACTOR);
+    }//new
+
+    /**
+     * Creates a new ManagerEventListenerProxy that notifies the given target
+     * asynchronously on the given number of lanes, keeping the events of each
+     * call in order.
+     *
+     * @param target the target listener to invoke, must be thread safe if
+     *            more than one lane is used.
+     * @param laneCount the number of lanes.
+     * @param queueCapacity the maximum number of events queued per lane.
+     * @see #CALL_KEY_EXTRACTOR
+     * @since 2.0.0
+     */
+    public ManagerEventListenerProxy(ManagerEventListener target, int laneCount, int queueCapacity) {
+        this(target, laneCount, queueCapacity, CALL_KEY_EXTRACTOR);
+    }//new
+
+    /**
+     * Creates a new ManagerEventListenerProxy that notifies the given target
+     * asynchronously on the given number of lanes, keeping the events with
+     * the same key in order.
+     *
+     * @param target the target listener to invoke, must be thread safe if
+     *            more than one lane is used.
+     * @param laneCount the number of lanes.
+     * @param queueCapacity the maximum number of events queued per lane.
+     * @param keyExtractor determines the lane of each event.
+     * @since 2.0.0
+     */
+    public ManagerEventListenerProxy(ManagerEventListener target, int laneCount, int queueCapacity,
+            KeyExtractor keyExtractor) {
+        this(target, laneCount, queueCapacity, keyExtractor, null);
+    }//new
+
+    /**
+     * Creates a new ManagerEventListenerProxy that notifies the given target
+     * asynchronously on the given number of lanes, keeping the events with
+     * the same key in order, and runs the lanes on threads created by the
+     * given factory.
+     *
+     * @param target the target listener to invoke, must be thread safe if
+     *            more than one lane is used.
+     * @param laneCount the number of lanes.
+     * @param queueCapacity the maximum number of events queued per lane.
+     * @param keyExtractor determines the lane of each event.
+     * @param executorFactory creates the threads of the lanes, for example a
+     *            {@link org.asteriskjava.util.VirtualThreadExecutorFactory},
+     *            or <code>null</code> to use platform daemon threads.
+     * @since 2.0.0
+     */
+    public ManagerEventListenerProxy(ManagerEventListener target, int laneCount, int queueCapacity,
+            KeyExtractor keyExtractor, ExecutorFactory executorFactory) {
+        if (target == null) {
+            throw new NullPointerException("ManagerEventListener target is null!");
+        }
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("laneCount must be at least 1");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1");
+        }
+        if (keyExtractor == null) {
+            throw new NullPointerException("KeyExtractor is null!");
+        }
+
+        final ThreadFactory threadFactory = executorFactory == null ? new DaemonThreadFactory()
+                : executorFactory.newThreadFactory("AJ ManagerEventListenerProxy");
+        final RejectedExecutionHandler blockingPolicy = new BlockingPolicy();
+        this.lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(queueCapacity), threadFactory, blockingPolicy);
+        }
+        this.maxQueueDepths = new AtomicIntegerArray(laneCount);
+        this.keyExtractor = keyExtractor;
+        this.target = target;
     }//new
 
 
     @Override public void onManagerEvent(final ManagerEvent event) {
-			executor.execute(new Runnable() {
-					@Override public void run() {
-							target.onManagerEvent(event);
-					}
-			});
+        final int lane = lanes.length == 1 ? 0 : getLane(event);
+        final ThreadPoolExecutor executor = lanes[lane];
+
+        executor.execute(new Runnable() {
+            @Override public void run() {
+                target.onManagerEvent(event);
+            }
+        });
+
+        final int depth = executor.getQueue().size();
+        int max = maxQueueDepths.get(lane);
+        while (depth > max && !maxQueueDepths.compareAndSet(lane, max, depth)) {
+            max = maxQueueDepths.get(lane);
+        }
     }//onManagerEvent
 
+    private int getLane(ManagerEvent event) {
+        final Object key = keyExtractor.getKey(event);
+        if (key == null) {
+            return 0;
+        }
+
+        // spread the bits of poor hash codes before reducing them
+        int h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return (h & Integer.MAX_VALUE) % lanes.length;
+    }
+
+
+    /**
+     * Returns the events required by the target if it is a
+     * {@link FilteredManagerEventListener}.
+     *
+     * @return the events required by the target or <code>null</code> if it
+     *         requires all events.
+     * @since 2.0.0
+     */
+    @Override public Set<Class<? extends ManagerEvent>> requiredEvents() {
+        if (target instanceof FilteredManagerEventListener) {
+            return ((FilteredManagerEventListener) target).requiredEvents();
+        }
+        return null;
+    }//requiredEvents
+
+
+    /**
+     * Returns the number of lanes events are processed on.
+     *
+     * @return the number of lanes.
+     * @since 2.0.0
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Returns the number of events currently waiting in the queue of each
+     * lane.
+     *
+     * @return the queue depth per lane.
+     * @since 2.0.0
+     */
+    public int[] getQueueDepths() {
+        final int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].getQueue().size();
+        }
+        return depths;
+    }
+
+    /**
+     * Returns the highest number of events that have been waiting in the
+     * queue of each lane since the proxy has been created.
+     *
+     * @return the maximum queue depth per lane.
+     * @since 2.0.0
+     */
+    public int[] getMaxQueueDepths() {
+        final int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = maxQueueDepths.get(i);
+        }
+        return depths;
+    }
+
 
     public void shutdown() {
-        executor.shutdown();
+        for (ThreadPoolExecutor executor : lanes) {
+            executor.shutdown();
+        }
     }
 
+    /**
+     * Makes the reader thread wait for room in the queue of a lane instead of
+     * dropping the event, running it on the reader thread would break the
+     * order of the lane.
+     */
+    private static final class BlockingPolicy implements RejectedExecutionHandler {
+        @Override public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("ManagerEventListenerProxy has been shut down");
+            }
+
+            try {
+                executor.getQueue().put(r);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for room in the queue", e);
+            }
+        }
+    }//BlockingPolicy
+
+    /**
+     * Looks up the linked id and unique id getters once per event class. The
+     * spelling of these properties varies between events so they are matched
+     * ignoring case.
+     */
+    private static final class CallKeyExtractor implements KeyExtractor {
+        private static final MethodHandle[] NO_GETTERS = new MethodHandle[0];
+
+        private final ClassValue<MethodHandle[]> getters = new ClassValue<MethodHandle[]>() {
+            @Override protected MethodHandle[] computeValue(Class<?> type) {
+                final MethodHandle linkedId = findGetter(type, "getLinkedId");
+                final MethodHandle uniqueId = findGetter(type, "getUniqueId");
+
+                if (linkedId == null && uniqueId == null) {
+                    return NO_GETTERS;
+                }
+                if (linkedId == null) {
+                    return new MethodHandle[]{uniqueId};
+                }
+                if (uniqueId == null) {
+                    return new MethodHandle[]{linkedId};
+                }
+                return new MethodHandle[]{linkedId, uniqueId};
+            }
+        };
+
+        private static MethodHandle findGetter(Class<?> type, String name) {
+            for (Method method : type.getMethods()) {
+                if (method.getName().equalsIgnoreCase(name) && method.getParameterTypes().length == 0
+                        && method.getReturnType() == String.class && !Modifier.isStatic(method.getModifiers())) {
+                    try {
+                        return MethodHandles.publicLookup().unreflect(method);
+                    }
+                    catch (IllegalAccessException e) {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override public Object getKey(ManagerEvent event) {
+            for (MethodHandle getter : getters.get(event.getClass())) {
+                final String key;
+                try {
+                    key = (String) getter.invoke(event);
+                }
+                catch (Throwable t) {
+                    continue;
+                }
+                if (key != null && key.length() > 0) {
+                    return key;
+                }
+            }
+            return null;
+        }
+    }//CallKeyExtractor
+
 		public static class Access {
 		    private Access() {
-		        
+
 		    }
-		    
+
 			public static int getThreadQueueSize (ManagerEventListenerProxy proxy) {
-				return proxy.executor.getQueue().size();
+				int size = 0;
+				for (ThreadPoolExecutor executor : proxy.lanes) {
+					size += executor.getQueue().size();
+				}
+				return size;
 			}
 		}//Access
 }
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.asteriskjava.manager.event.ResponseEvent;
+import org.asteriskjava.manager.response.ManagerResponse;
+
+/**
+ * The response events of an
+ * {@link org.asteriskjava.manager.action.EventGeneratingAction} delivered as
+ * they arrive instead of being collected until the action complete event has
+ * been received.
+ * <p>
+ * The events are kept in a bounded buffer. When it is full the connection
+ * stops reading from Asterisk until you take an event, so consume the stream
+ * promptly: no other events and responses are received on the connection in
+ * the meantime. If the buffer stays full for longer than the timeout of the
+ * stream it fails and the remaining events are discarded.
+ * <p>
+ * Always close the stream if you stop reading before its end.
+ *
+ * @see ManagerConnection#streamEventGeneratingAction(org.asteriskjava.manager.action.EventGeneratingAction)
+ * @since 2.0.0
+ */
+public interface ResponseEventStream extends Closeable
+{
+    /**
+     * Returns the next response event, waiting for it to be received if
+     * needed. The last event returned is the one that indicates completion.
+     *
+     * @return the next response event or <code>null</code> if all events
+     *         have been returned or the action failed, see
+     *         {@link #getResponse()}.
+     * @throws EventTimeoutException if no event has been received within the
+     *             timeout or the stream failed because it has not been
+     *             consumed in time.
+     * @throws IOException if the action could not be sent or the thread has
+     *             been interrupted while waiting.
+     */
+    ResponseEvent next() throws EventTimeoutException, IOException;
+
+    /**
+     * Returns the response to the action.
+     *
+     * @return the response or <code>null</code> if it has not yet been
+     *         received.
+     */
+    ManagerResponse getResponse();
+
+    /**
+     * Stops receiving response events and discards the ones not yet
+     * returned.
+     */
+    void close();
+}
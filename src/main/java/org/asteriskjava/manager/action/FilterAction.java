@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.action;
+
+/**
+ * The FilterAction adds an event filter to the current manager session.
+ * <p>
+ * A filter is a regular expression that is matched against the complete text
+ * of each event. Filters prefixed with "!" are blacklist filters, all others
+ * are whitelist filters. As soon as a whitelist filter has been added only
+ * events that match at least one of the whitelist filters and none of the
+ * blacklist filters are sent. Filters cannot be removed, they last until the
+ * session ends.
+ * <p>
+ * Example: <code>new FilterAction("Event: Newchannel")</code>
+ * <p>
+ * Available since Asterisk 13.
+ *
+ * @since 2.0.0
+ */
+public class FilterAction extends AbstractManagerAction
+{
+    /**
+     * Serializable version identifier.
+     */
+    private static final long serialVersionUID = 7214867323651407513L;
+
+    /**
+     * The only operation supported by Asterisk.
+     */
+    public static final String OPERATION_ADD = "Add";
+
+    private String operation;
+    private String filter;
+
+    /**
+     * Creates a new empty FilterAction.
+     */
+    public FilterAction()
+    {
+
+    }
+
+    /**
+     * Creates a new FilterAction that adds the given filter.
+     *
+     * @param filter the regular expression to match events against, prefixed
+     *            with "!" for a blacklist filter.
+     */
+    public FilterAction(String filter)
+    {
+        this.operation = OPERATION_ADD;
+        this.filter = filter;
+    }
+
+    /**
+     * Returns the name of this action, i.e. "Filter".
+     */
+    @Override
+    public String getAction()
+    {
+        return "Filter";
+    }
+
+    /**
+     * Returns the operation to perform.
+     *
+     * @return the operation to perform.
+     */
+    public String getOperation()
+    {
+        return operation;
+    }
+
+    /**
+     * Sets the operation to perform, currently only {@link #OPERATION_ADD} is
+     * supported.
+     *
+     * @param operation the operation to perform.
+     */
+    public void setOperation(String operation)
+    {
+        this.operation = operation;
+    }
+
+    /**
+     * Returns the filter.
+     *
+     * @return the regular expression to match events against.
+     */
+    public String getFilter()
+    {
+        return filter;
+    }
+
+    /**
+     * Sets the filter.
+     *
+     * @param filter the regular expression to match events against, prefixed
+     *            with "!" for a blacklist filter.
+     */
+    public void setFilter(String filter)
+    {
+        this.filter = filter;
+    }
+}
@@ -24,6 +24,7 @@ public abstract class AbstractBridgeEvent extends ManagerEvent
 
     public String getBridgeUniqueId()
     {
+        materialize("bridgeuniqueid");
         return bridgeUniqueId;
     }
 
@@ -34,6 +35,7 @@ public abstract class AbstractBridgeEvent extends ManagerEvent
 
     public String getBridgeType()
     {
+        materialize("bridgetype");
         return bridgeType;
     }
 
@@ -44,6 +46,7 @@ public abstract class AbstractBridgeEvent extends ManagerEvent
 
     public Integer getBridgeNumChannels()
     {
+        materialize("bridgenumchannels");
         return bridgeNumChannels;
     }
 
@@ -54,6 +57,7 @@ public abstract class AbstractBridgeEvent extends ManagerEvent
 
     public String getBridgeCreator()
     {
+        materialize("bridgecreator");
         return bridgeCreator;
     }
 
@@ -64,6 +68,7 @@ public abstract class AbstractBridgeEvent extends ManagerEvent
 
     public String getBridgeName()
     {
+        materialize("bridgename");
         return bridgeName;
     }
 
@@ -74,6 +79,7 @@ public abstract class AbstractBridgeEvent extends ManagerEvent
 
     public String getBridgeTechnology()
     {
+        materialize("bridgetechnology");
         return bridgeTechnology;
     }
 
@@ -84,6 +90,7 @@ public abstract class AbstractBridgeEvent extends ManagerEvent
 
     public String getAccountCode()
     {
+        materialize("accountcode");
         return accountCode;
     }
 
@@ -16,6 +16,8 @@
  */
 package org.asteriskjava.manager.event;
 
+import java.util.Map;
+
 /**
  * Abstract base class providing common properties channel related events.
  * 
@@ -41,6 +43,8 @@ public abstract class AbstractChannelEvent extends ManagerEvent
      */
     protected String uniqueId;
 
+    private Map<String, String> chanVariables;
+
     protected AbstractChannelEvent(Object source)
     {
         super(source);
@@ -144,4 +148,30 @@ public abstract class AbstractChannelEvent extends ManagerEvent
     {
         this.accountCode = accountCode;
     }
+
+    /**
+     * Returns the channel variables sent with this event. As of Asterisk 12
+     * the variables listed in the <code>channelvars</code> option of
+     * <code>manager.conf</code> are included in the events of a channel.
+     *
+     * @return a Map with the variable names as keys and their values or
+     *         <code>null</code> if no variables have been sent.
+     * @since 2.0.0
+     */
+    public Map<String, String> getChanVariables()
+    {
+        return chanVariables;
+    }
+
+    /**
+     * Sets the channel variables sent with this event.
+     *
+     * @param chanVariables a Map with the variable names as keys and their
+     *            values.
+     * @since 2.0.0
+     */
+    public void setChanVariable(Map<String, String> chanVariables)
+    {
+        this.chanVariables = chanVariables;
+    }
 }
@@ -48,6 +48,7 @@ public abstract class AbstractRtcpEvent extends ManagerEvent
      */
     public Long getFractionLost()
     {
+        materialize("fractionlost");
         return fractionLost;
     }
 
@@ -63,6 +64,7 @@ public abstract class AbstractRtcpEvent extends ManagerEvent
      */
     public Double getIaJitter()
     {
+        materialize("iajitter");
         return iaJitter;
     }
 
@@ -78,6 +80,7 @@ public abstract class AbstractRtcpEvent extends ManagerEvent
      */
     public Double getDlSr()
     {
+        materialize("dlsr");
         return dlSr;
     }
 
@@ -5,6 +5,7 @@ package org.asteriskjava.manager.event;
  *
  * https://wiki.asterisk.org/wiki/display/AST/Asterisk+13+ManagerEvent_AttendedTransfer
  */
+@LazyAttributes
 public class AttendedTransferEvent extends AbstractBridgeEvent {
     private static final long serialVersionUID = 1L;
 
@@ -101,6 +102,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererChannel()
     {
+        materialize("origtransfererchannel");
         return origTransfererChannel;
     }
 
@@ -111,6 +113,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererChannelState()
     {
+        materialize("origtransfererchannelstate");
         return origTransfererChannelState;
     }
 
@@ -121,6 +124,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererChannelStateDesc()
     {
+        materialize("origtransfererchannelstatedesc");
         return origTransfererChannelStateDesc;
     }
 
@@ -131,6 +135,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererCallerIDNum()
     {
+        materialize("origtransferercalleridnum");
         return origTransfererCallerIDNum;
     }
 
@@ -141,6 +146,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererCallerIDName()
     {
+        materialize("origtransferercalleridname");
         return origTransfererCallerIDName;
     }
 
@@ -151,6 +157,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererConnectedLineNum()
     {
+        materialize("origtransfererconnectedlinenum");
         return origTransfererConnectedLineNum;
     }
 
@@ -161,6 +168,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererConnectedLineName()
     {
+        materialize("origtransfererconnectedlinename");
         return origTransfererConnectedLineName;
     }
 
@@ -171,6 +179,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererAccountCode()
     {
+        materialize("origtransfereraccountcode");
         return origTransfererAccountCode;
     }
 
@@ -180,6 +189,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererContext()
     {
+        materialize("origtransferercontext");
         return origTransfererContext;
     }
 
@@ -190,6 +200,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererExten()
     {
+        materialize("origtransfererexten");
         return origTransfererExten;
     }
 
@@ -200,6 +211,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererPriority()
     {
+        materialize("origtransfererpriority");
         return origTransfererPriority;
     }
 
@@ -210,6 +222,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererUniqueid()
     {
+        materialize("origtransfereruniqueid");
         return origTransfererUniqueid;
     }
 
@@ -220,6 +233,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigBridgeUniqueid()
     {
+        materialize("origbridgeuniqueid");
         return origBridgeUniqueid;
     }
 
@@ -230,6 +244,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigBridgeType()
     {
+        materialize("origbridgetype");
         return origBridgeType;
     }
 
@@ -240,6 +255,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigBridgeTechnology()
     {
+        materialize("origbridgetechnology");
         return origBridgeTechnology;
     }
 
@@ -250,6 +266,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigBridgeCreator()
     {
+        materialize("origbridgecreator");
         return origBridgeCreator;
     }
 
@@ -260,6 +277,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigBridgeName()
     {
+        materialize("origbridgename");
         return origBridgeName;
     }
 
@@ -270,6 +288,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigBridgeNumChannels()
     {
+        materialize("origbridgenumchannels");
         return origBridgeNumChannels;
     }
 
@@ -280,6 +299,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererChannel()
     {
+        materialize("secondtransfererchannel");
         return secondTransfererChannel;
     }
 
@@ -290,6 +310,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererChannelState()
     {
+        materialize("secondtransfererchannelstate");
         return secondTransfererChannelState;
     }
 
@@ -300,6 +321,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererChannelStateDesc()
     {
+        materialize("secondtransfererchannelstatedesc");
         return secondTransfererChannelStateDesc;
     }
 
@@ -310,6 +332,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererCallerIDNum()
     {
+        materialize("secondtransferercalleridnum");
         return secondTransfererCallerIDNum;
     }
 
@@ -320,6 +343,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererCallerIDName()
     {
+        materialize("secondtransferercalleridname");
         return secondTransfererCallerIDName;
     }
 
@@ -329,6 +353,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
     }
 
     public String getSecondTransfererConnectedLineNum() {
+        materialize("secondtransfererconnectedlinenum");
         return secondTransfererConnectedLineNum;
     }
 
@@ -339,6 +364,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererConnectedLineName()
     {
+        materialize("secondtransfererconnectedlinename");
         return secondTransfererConnectedLineName;
     }
 
@@ -349,6 +375,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererAccountCode()
     {
+        materialize("secondtransfereraccountcode");
         return secondTransfererAccountCode;
     }
 
@@ -359,6 +386,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererContext()
     {
+        materialize("secondtransferercontext");
         return secondTransfererContext;
     }
 
@@ -369,6 +397,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererExten()
     {
+        materialize("secondtransfererexten");
         return secondTransfererExten;
     }
 
@@ -379,6 +408,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererPriority()
     {
+        materialize("secondtransfererpriority");
         return secondTransfererPriority;
     }
 
@@ -389,6 +419,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererUniqueid()
     {
+        materialize("secondtransfereruniqueid");
         return secondTransfererUniqueid;
     }
 
@@ -399,6 +430,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondBridgeUniqueid()
     {
+        materialize("secondbridgeuniqueid");
         return secondBridgeUniqueid;
     }
 
@@ -409,6 +441,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondBridgeType()
     {
+        materialize("secondbridgetype");
         return secondBridgeType;
     }
 
@@ -419,6 +452,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondBridgeTechnology()
     {
+        materialize("secondbridgetechnology");
         return secondBridgeTechnology;
     }
 
@@ -429,6 +463,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondBridgeCreator()
     {
+        materialize("secondbridgecreator");
         return secondBridgeCreator;
     }
 
@@ -439,6 +474,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondBridgeName()
     {
+        materialize("secondbridgename");
         return secondBridgeName;
     }
 
@@ -449,6 +485,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondBridgeNumChannels()
     {
+        materialize("secondbridgenumchannels");
         return secondBridgeNumChannels;
     }
 
@@ -459,6 +496,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getDestType()
     {
+        materialize("desttype");
         return destType;
     }
 
@@ -469,6 +507,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getDestBridgeUniqueid()
     {
+        materialize("destbridgeuniqueid");
         return destBridgeUniqueid;
     }
 
@@ -479,6 +518,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getDestApp()
     {
+        materialize("destapp");
         return destApp;
     }
 
@@ -489,6 +529,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneChannel()
     {
+        materialize("localonechannel");
         return localOneChannel;
     }
 
@@ -499,6 +540,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneChannelState()
     {
+        materialize("localonechannelstate");
         return localOneChannelState;
     }
 
@@ -509,6 +551,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneChannelStateDesc()
     {
+        materialize("localonechannelstatedesc");
         return localOneChannelStateDesc;
     }
 
@@ -519,6 +562,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneCallerIDNum()
     {
+        materialize("localonecalleridnum");
         return localOneCallerIDNum;
     }
 
@@ -529,6 +573,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneCallerIDName()
     {
+        materialize("localonecalleridname");
         return localOneCallerIDName;
     }
 
@@ -539,6 +584,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneConnectedLineNum()
     {
+        materialize("localoneconnectedlinenum");
         return localOneConnectedLineNum;
     }
 
@@ -549,6 +595,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneConnectedLineName()
     {
+        materialize("localoneconnectedlinename");
         return localOneConnectedLineName;
     }
 
@@ -559,6 +606,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneAccountCode()
     {
+        materialize("localoneaccountcode");
         return localOneAccountCode;
     }
 
@@ -569,6 +617,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneContext()
     {
+        materialize("localonecontext");
         return localOneContext;
     }
 
@@ -579,6 +628,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneExten()
     {
+        materialize("localoneexten");
         return localOneExten;
     }
 
@@ -589,6 +639,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOnePriority()
     {
+        materialize("localonepriority");
         return localOnePriority;
     }
 
@@ -599,6 +650,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalOneUniqueid()
     {
+        materialize("localoneuniqueid");
         return localOneUniqueid;
     }
 
@@ -609,6 +661,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoChannel()
     {
+        materialize("localtwochannel");
         return localTwoChannel;
     }
 
@@ -619,6 +672,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoChannelState()
     {
+        materialize("localtwochannelstate");
         return localTwoChannelState;
     }
 
@@ -629,6 +683,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoChannelStateDesc()
     {
+        materialize("localtwochannelstatedesc");
         return localTwoChannelStateDesc;
     }
 
@@ -639,6 +694,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoCallerIDNum()
     {
+        materialize("localtwocalleridnum");
         return localTwoCallerIDNum;
     }
 
@@ -649,6 +705,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoCallerIDName()
     {
+        materialize("localtwocalleridname");
         return localTwoCallerIDName;
     }
 
@@ -659,6 +716,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoConnectedLineNum()
     {
+        materialize("localtwoconnectedlinenum");
         return localTwoConnectedLineNum;
     }
 
@@ -669,6 +727,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoConnectedLineName()
     {
+        materialize("localtwoconnectedlinename");
         return localTwoConnectedLineName;
     }
 
@@ -679,6 +738,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoAccountCode()
     {
+        materialize("localtwoaccountcode");
         return localTwoAccountCode;
     }
 
@@ -689,6 +749,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoContext()
     {
+        materialize("localtwocontext");
         return localTwoContext;
     }
 
@@ -699,6 +760,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoExten()
     {
+        materialize("localtwoexten");
         return localTwoExten;
     }
 
@@ -709,6 +771,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoPriority()
     {
+        materialize("localtwopriority");
         return localTwoPriority;
     }
 
@@ -719,6 +782,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getLocalTwoUniqueid()
     {
+        materialize("localtwouniqueid");
         return localTwoUniqueid;
     }
 
@@ -729,6 +793,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getDestTransfererChannel()
     {
+        materialize("desttransfererchannel");
         return destTransfererChannel;
     }
 
@@ -739,6 +804,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeChannel()
     {
+        materialize("transfereechannel");
         return transfereeChannel;
     }
 
@@ -749,6 +815,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeChannelState()
     {
+        materialize("transfereechannelstate");
         return transfereeChannelState;
     }
 
@@ -759,6 +826,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeChannelStateDesc()
     {
+        materialize("transfereechannelstatedesc");
         return transfereeChannelStateDesc;
     }
 
@@ -769,6 +837,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeCallerIDNum()
     {
+        materialize("transfereecalleridnum");
         return transfereeCallerIDNum;
     }
 
@@ -779,6 +848,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeCallerIDName()
     {
+        materialize("transfereecalleridname");
         return transfereeCallerIDName;
     }
 
@@ -789,6 +859,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeConnectedLineNum()
     {
+        materialize("transfereeconnectedlinenum");
         return transfereeConnectedLineNum;
     }
 
@@ -799,6 +870,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeConnectedLineName()
     {
+        materialize("transfereeconnectedlinename");
         return transfereeConnectedLineName;
     }
 
@@ -809,6 +881,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeAccountCode()
     {
+        materialize("transfereeaccountcode");
         return transfereeAccountCode;
     }
 
@@ -819,6 +892,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeContext()
     {
+        materialize("transfereecontext");
         return transfereeContext;
     }
 
@@ -829,6 +903,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeExten()
     {
+        materialize("transfereeexten");
         return transfereeExten;
     }
 
@@ -839,6 +914,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereePriority()
     {
+        materialize("transfereepriority");
         return transfereePriority;
     }
 
@@ -849,6 +925,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeUniqueid()
     {
+        materialize("transfereeuniqueid");
         return transfereeUniqueid;
     }
 
@@ -859,6 +936,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeLinkedId()
     {
+        materialize("transfereelinkedid");
         return transfereeLinkedId;
     }
 
@@ -869,6 +947,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getTransfereeLanguage()
     {
+        materialize("transfereelanguage");
         return transfereeLanguage;
     }
 
@@ -879,6 +958,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererLinkedId()
     {
+        materialize("origtransfererlinkedid");
         return origTransfererLinkedId;
     }
 
@@ -889,6 +969,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererLanguage()
     {
+        materialize("secondtransfererlanguage");
         return secondTransfererLanguage;
     }
 
@@ -899,6 +980,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getIsexternal()
     {
+        materialize("isexternal");
         return isexternal;
     }
 
@@ -909,6 +991,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getResult()
     {
+        materialize("result");
         return result;
     }
 
@@ -919,6 +1002,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getSecondTransfererLinkedId()
     {
+        materialize("secondtransfererlinkedid");
         return secondTransfererLinkedId;
     }
 
@@ -929,6 +1013,7 @@ public class AttendedTransferEvent extends AbstractBridgeEvent {
 
     public String getOrigTransfererLanguage()
     {
+        materialize("origtransfererlanguage");
         return origTransfererLanguage;
     }
 
@@ -30,6 +30,7 @@ import org.asteriskjava.util.DateUtil;
  * @author srt
  * @version $Id$
  */
+@LazyAttributes
 public class CdrEvent extends ManagerEvent
 {
     /**
@@ -83,6 +84,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getAccountCode()
     {
+        materialize("accountcode");
         return accountCode;
     }
 
@@ -104,6 +106,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getSrc()
     {
+        materialize("src");
         return src;
     }
 
@@ -125,6 +128,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getDestination()
     {
+        materialize("destination");
         return destination;
     }
 
@@ -146,6 +150,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getDestinationContext()
     {
+        materialize("destinationcontext");
         return destinationContext;
     }
 
@@ -167,6 +172,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getCallerId()
     {
+        materialize("callerid");
         return callerId;
     }
 
@@ -188,6 +194,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getChannel()
     {
+        materialize("channel");
         return channel;
     }
 
@@ -209,6 +216,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getDestinationChannel()
     {
+        materialize("destinationchannel");
         return destinationChannel;
     }
 
@@ -230,6 +238,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getLastApplication()
     {
+        materialize("lastapplication");
         return lastApplication;
     }
 
@@ -251,6 +260,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getLastData()
     {
+        materialize("lastdata");
         return lastData;
     }
 
@@ -273,6 +283,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getStartTime()
     {
+        materialize("starttime");
         return startTime;
     }
     
@@ -286,7 +297,7 @@ public class CdrEvent extends ManagerEvent
      */
     public Date getStartTimeAsDate()
     {
-        return DateUtil.parseDateTime(startTime);
+        return DateUtil.parseDateTime(getStartTime());
     }
     
     /**
@@ -298,7 +309,7 @@ public class CdrEvent extends ManagerEvent
      */
     public Date getStartTimeAsDate(TimeZone tz)
     {
-        return DateUtil.parseDateTime(startTime, tz);
+        return DateUtil.parseDateTime(getStartTime(), tz);
     }
 
     /**
@@ -320,6 +331,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getAnswerTime()
     {
+        materialize("answertime");
         return answerTime;
     }
 
@@ -333,7 +345,7 @@ public class CdrEvent extends ManagerEvent
      */
     public Date getAnswerTimeAsDate()
     {
-        return DateUtil.parseDateTime(answerTime);
+        return DateUtil.parseDateTime(getAnswerTime());
     }
 
     /**
@@ -345,7 +357,7 @@ public class CdrEvent extends ManagerEvent
      */
     public Date getAnswerTimeAsDate(TimeZone tz)
     {
-        return DateUtil.parseDateTime(answerTime, tz);
+        return DateUtil.parseDateTime(getAnswerTime(), tz);
     }
 
     /**
@@ -367,6 +379,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getEndTime()
     {
+        materialize("endtime");
         return endTime;
     }
 
@@ -380,7 +393,7 @@ public class CdrEvent extends ManagerEvent
      */
     public Date getEndTimeAsDate()
     {
-        return DateUtil.parseDateTime(endTime);
+        return DateUtil.parseDateTime(getEndTime());
     }
     
     /**
@@ -392,7 +405,7 @@ public class CdrEvent extends ManagerEvent
      */
     public Date getEndTimeAsDate(TimeZone tz)
     {
-        return DateUtil.parseDateTime(endTime, tz);
+        return DateUtil.parseDateTime(getEndTime(), tz);
     }
 
     /**
@@ -413,6 +426,7 @@ public class CdrEvent extends ManagerEvent
      */
     public Integer getDuration()
     {
+        materialize("duration");
         return duration;
     }
 
@@ -434,6 +448,7 @@ public class CdrEvent extends ManagerEvent
      */
     public Integer getBillableSeconds()
     {
+        materialize("billableseconds");
         return billableSeconds;
     }
 
@@ -463,6 +478,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getDisposition()
     {
+        materialize("disposition");
         return disposition;
     }
 
@@ -491,6 +507,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getAmaFlags()
     {
+        materialize("amaflags");
         return amaFlags;
     }
 
@@ -511,6 +528,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getUniqueId()
     {
+        materialize("uniqueid");
         return uniqueId;
     }
 
@@ -532,6 +550,7 @@ public class CdrEvent extends ManagerEvent
      */
     public String getUserField()
     {
+        materialize("userfield");
         return userField;
     }
 
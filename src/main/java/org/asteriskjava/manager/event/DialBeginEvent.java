@@ -1,5 +1,6 @@
 package org.asteriskjava.manager.event;
 
+@LazyAttributes
 public class DialBeginEvent extends DialEvent
 {
 
@@ -23,6 +24,7 @@ public class DialBeginEvent extends DialEvent
 
     public String getLanguage()
     {
+        materialize("language");
         return language;
     }
 
@@ -33,6 +35,7 @@ public class DialBeginEvent extends DialEvent
 
     public String getDestLanguage()
     {
+        materialize("destlanguage");
         return destlanguage;
     }
 
@@ -43,6 +46,7 @@ public class DialBeginEvent extends DialEvent
 
     public String getDestAccountCode()
     {
+        materialize("destaccountcode");
         return destAccountCode;
     }
 
@@ -53,6 +57,7 @@ public class DialBeginEvent extends DialEvent
 
     public String getDestlanguage()
     {
+        materialize("destlanguage");
         return destlanguage;
     }
 
@@ -63,6 +68,7 @@ public class DialBeginEvent extends DialEvent
 
     public String getLinkedId()
     {
+        materialize("linkedid");
         return linkedId;
     }
 
@@ -73,6 +79,7 @@ public class DialBeginEvent extends DialEvent
 
     public String getDestLinkedId()
     {
+        materialize("destlinkedid");
         return destLinkedId;
     }
 
@@ -83,6 +90,7 @@ public class DialBeginEvent extends DialEvent
 
 	public String getAccountcode()
 	{
+		materialize("accountcode");
 		return accountcode;
 	}
 
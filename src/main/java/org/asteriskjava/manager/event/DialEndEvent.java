@@ -1,5 +1,6 @@
 package org.asteriskjava.manager.event;
 
+@LazyAttributes
 public class DialEndEvent extends DialEvent
 {
     /**
@@ -21,6 +22,7 @@ public class DialEndEvent extends DialEvent
 
     public String getLanguage()
     {
+        materialize("language");
         return language;
     }
 
@@ -31,6 +33,7 @@ public class DialEndEvent extends DialEvent
 
     public String getDestLanguage()
     {
+        materialize("destlanguage");
         return destLanguage;
     }
 
@@ -41,6 +44,7 @@ public class DialEndEvent extends DialEvent
 
     public String getAccountCode()
     {
+        materialize("accountcode");
         return accountCode;
     }
 
@@ -51,6 +55,7 @@ public class DialEndEvent extends DialEvent
 
     public String getDestAccountCode()
     {
+        materialize("destaccountcode");
         return destAccountCode;
     }
 
@@ -61,6 +66,7 @@ public class DialEndEvent extends DialEvent
 
     public String getDestLinkedId()
     {
+        materialize("destlinkedid");
         return destLinkedId;
     }
 
@@ -71,6 +77,7 @@ public class DialEndEvent extends DialEvent
 
     public String getLinkedId()
     {
+        materialize("linkedid");
         return linkedId;
     }
 
@@ -27,6 +27,7 @@ package org.asteriskjava.manager.event;
  * @version $Id$
  * @since 0.2
  */
+@LazyAttributes
 public class DialEvent extends ManagerEvent
 {
     /**
@@ -130,6 +131,7 @@ public class DialEvent extends ManagerEvent
      */
     public String getSubEvent()
     {
+        materialize("subevent");
         return subEvent;
     }
 
@@ -146,6 +148,8 @@ public class DialEvent extends ManagerEvent
      */
     public String getChannel()
     {
+        materialize("channel");
+        materialize("src");
         return channel;
     }
 
@@ -169,6 +173,8 @@ public class DialEvent extends ManagerEvent
     @Deprecated
     public String getSrc()
     {
+        materialize("channel");
+        materialize("src");
         return channel;
     }
 
@@ -192,6 +198,8 @@ public class DialEvent extends ManagerEvent
      */
     public String getDestination()
     {
+        materialize("destination");
+        materialize("destchannel");
         return destination;
     }
 
@@ -227,6 +235,14 @@ public class DialEvent extends ManagerEvent
         return getCallerIdNum();
     }
 
+    @Override
+    public String getCallerIdNum()
+    {
+        // set by the legacy CallerID header
+        materialize("callerid");
+        return super.getCallerIdNum();
+    }
+
     /**
      * Sets the caller*ID.
      *
@@ -247,6 +263,8 @@ public class DialEvent extends ManagerEvent
      */
     public String getUniqueId()
     {
+        materialize("srcuniqueid");
+        materialize("uniqueid");
         return uniqueId;
     }
 
@@ -270,6 +288,8 @@ public class DialEvent extends ManagerEvent
     @Deprecated
     public String getSrcUniqueId()
     {
+        materialize("srcuniqueid");
+        materialize("uniqueid");
         return uniqueId;
     }
 
@@ -293,6 +313,7 @@ public class DialEvent extends ManagerEvent
      */
     public String getDestUniqueId()
     {
+        materialize("destuniqueid");
         return destUniqueId;
     }
 
@@ -316,6 +337,7 @@ public class DialEvent extends ManagerEvent
      */
     public String getDialString()
     {
+        materialize("dialstring");
         return dialString;
     }
 
@@ -354,6 +376,7 @@ public class DialEvent extends ManagerEvent
      */
     public String getDialStatus()
     {
+        materialize("dialstatus");
         return dialStatus;
     }
 
@@ -365,6 +388,8 @@ public class DialEvent extends ManagerEvent
     @Override
     public String toString()
     {
+        materializeAll();
+
         StringBuilder builder = new StringBuilder();
         builder.append("DialEvent [subEvent=");
         builder.append(subEvent);
@@ -394,6 +419,7 @@ public class DialEvent extends ManagerEvent
 
     public Integer getDestChannelState()
     {
+        materialize("destchannelstate");
         return destChannelState;
     }
 
@@ -404,6 +430,7 @@ public class DialEvent extends ManagerEvent
 
     public String getDestContext()
     {
+        materialize("destcontext");
         return destContext;
     }
 
@@ -414,6 +441,7 @@ public class DialEvent extends ManagerEvent
 
     public Integer getDestPriority()
     {
+        materialize("destpriority");
         return destPriority;
     }
 
@@ -424,6 +452,7 @@ public class DialEvent extends ManagerEvent
 
     public String getDestChannelStateDesc()
     {
+        materialize("destchannelstatedesc");
         return destChannelStateDesc;
     }
 
@@ -434,6 +463,7 @@ public class DialEvent extends ManagerEvent
 
     public String getDestExten()
     {
+        materialize("destexten");
         return destExten;
     }
 
@@ -444,6 +474,7 @@ public class DialEvent extends ManagerEvent
 
     public String getDestConnectedLineName()
     {
+        materialize("destconnectedlinename");
         return destConnectedLineName;
     }
 
@@ -454,6 +485,7 @@ public class DialEvent extends ManagerEvent
 
     public String getDestConnectedLineNum()
     {
+        materialize("destconnectedlinenum");
         return destConnectedLineNum;
     }
 
@@ -464,6 +496,7 @@ public class DialEvent extends ManagerEvent
 
     public String getDestCallerIdName()
     {
+        materialize("destcalleridname");
         return destCallerIdName;
     }
 
@@ -474,6 +507,7 @@ public class DialEvent extends ManagerEvent
 
     public String getDestCallerIdNum()
     {
+        materialize("destcalleridnum");
         return destCallerIdNum;
     }
 
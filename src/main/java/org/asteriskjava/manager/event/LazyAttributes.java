@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.event;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks event classes whose attributes may be converted and set on demand.
+ * <p>
+ * When lazy events are enabled on the connection, events of these classes
+ * keep the attributes received from Asterisk and convert each of them only
+ * when its getter is first called. This saves the conversion of attributes
+ * listeners never look at.
+ * <p>
+ * To support this every getter of the class and of all its superclasses must
+ * call {@link ManagerEvent#materialize(String)} with the name of the property
+ * before accessing its field, and other methods that access fields directly
+ * must call {@link ManagerEvent#materializeAll()}. Subclasses are not lazy
+ * unless they are annotated themselves. Lazily built events are meant to be
+ * read only, a value set on a property that is still pending is replaced by
+ * the received value when its getter is first called.
+ *
+ * @since 2.0.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface LazyAttributes
+{
+}
@@ -16,6 +16,8 @@
  */
 package org.asteriskjava.manager.event;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Date;
@@ -33,6 +35,10 @@ import org.asteriskjava.util.ReflectionUtil;
  * core or an extension module. <br>
  * There is one conrete subclass of ManagerEvent per each supported Asterisk
  * Event.
+ * <p>
+ * Events of classes annotated with {@link LazyAttributes} may be built with
+ * their attributes still pending, each attribute is then converted and set
+ * when its getter is first called.
  *
  * @author srt
  * @version $Id$
@@ -62,6 +68,7 @@ public abstract class ManagerEvent extends EventObject
 
     public String getCallerIdName()
     {
+        materialize("calleridname");
         return callerIdName;
     }
 
@@ -72,6 +79,7 @@ public abstract class ManagerEvent extends EventObject
 
     public String getConnectedLineNum()
     {
+        materialize("connectedlinenum");
         return connectedLineNum;
     }
 
@@ -82,6 +90,7 @@ public abstract class ManagerEvent extends EventObject
 
     public String getConnectedLineName()
     {
+        materialize("connectedlinename");
         return connectedLineName;
     }
 
@@ -92,6 +101,7 @@ public abstract class ManagerEvent extends EventObject
 
     public Integer getPriority()
     {
+        materialize("priority");
         return priority;
     }
 
@@ -102,6 +112,8 @@ public abstract class ManagerEvent extends EventObject
 
     public Integer getChannelState()
     {
+        materialize("channelstate");
+        materialize("channelstatedesc");
         return channelState == null ? AstState.str2state(channelStateDesc) : channelState;
     }
 
@@ -112,6 +124,7 @@ public abstract class ManagerEvent extends EventObject
 
     public String getChannelStateDesc()
     {
+        materialize("channelstatedesc");
         return channelStateDesc;
     }
 
@@ -122,6 +135,7 @@ public abstract class ManagerEvent extends EventObject
 
     public String getExten()
     {
+        materialize("exten");
         return exten;
     }
 
@@ -132,6 +146,7 @@ public abstract class ManagerEvent extends EventObject
 
     public String getCallerIdNum()
     {
+        materialize("calleridnum");
         return callerIdNum;
     }
 
@@ -142,6 +157,7 @@ public abstract class ManagerEvent extends EventObject
 
     public String getContext()
     {
+        materialize("context");
         return context;
     }
 
@@ -178,6 +194,42 @@ public abstract class ManagerEvent extends EventObject
     private String func;
     private Integer sequenceNumber;
 
+    /**
+     * Attributes received from Asterisk that have not yet been set keyed by
+     * property name, see {@link LazyAttributes}.
+     */
+    private transient volatile Map<String, Object> pendingAttributes;
+    private transient PendingAttributes pendingAttributesHandler;
+
+    /**
+     * Converts and sets attributes received from Asterisk on demand.
+     * <p>
+     * This interface is implemented by the event builder and is not intended
+     * to be used by applications.
+     *
+     * @since 2.0.0
+     */
+    public interface PendingAttributes
+    {
+        /**
+         * Converts and sets the attribute for the given property if it is
+         * still pending.
+         *
+         * @param event the event to set the attribute on.
+         * @param attributes the pending attributes of the event.
+         * @param property the lower case name of the property.
+         */
+        void materialize(ManagerEvent event, Map<String, Object> attributes, String property);
+
+        /**
+         * Converts and sets all pending attributes.
+         *
+         * @param event the event to set the attributes on.
+         * @param attributes the pending attributes of the event.
+         */
+        void materializeAll(ManagerEvent event, Map<String, Object> attributes);
+    }
+
     public ManagerEvent(Object source)
     {
         super(source);
@@ -214,6 +266,7 @@ public abstract class ManagerEvent extends EventObject
      */
     public String getPrivilege()
     {
+        materialize("privilege");
         return privilege;
     }
 
@@ -241,6 +294,7 @@ public abstract class ManagerEvent extends EventObject
      */
     public final Double getTimestamp()
     {
+        materialize("timestamp");
         return timestamp;
     }
 
@@ -267,6 +321,7 @@ public abstract class ManagerEvent extends EventObject
      */
     public final String getServer()
     {
+        materialize("server");
         return server;
     }
 
@@ -285,6 +340,7 @@ public abstract class ManagerEvent extends EventObject
 
     public String getSystemName()
     {
+        materialize("systemname");
         return systemName;
     }
 
@@ -311,6 +367,7 @@ public abstract class ManagerEvent extends EventObject
      */
     public String getFile()
     {
+        materialize("file");
         return file;
     }
 
@@ -337,6 +394,7 @@ public abstract class ManagerEvent extends EventObject
      */
     public Integer getLine()
     {
+        materialize("line");
         return line;
     }
 
@@ -363,6 +421,7 @@ public abstract class ManagerEvent extends EventObject
      */
     public String getFunc()
     {
+        materialize("func");
         return func;
     }
 
@@ -389,6 +448,7 @@ public abstract class ManagerEvent extends EventObject
      */
     public Integer getSequenceNumber()
     {
+        materialize("sequencenumber");
         return sequenceNumber;
     }
 
@@ -397,9 +457,66 @@ public abstract class ManagerEvent extends EventObject
         this.sequenceNumber = sequenceNumber;
     }
 
+    /**
+     * Sets the attributes to convert and set on demand. Only used by the event
+     * builder for classes annotated with {@link LazyAttributes}.
+     *
+     * @param pendingAttributes the pending attributes keyed by property name
+     *            or <code>null</code> if all attributes have been set.
+     * @param handler converts and sets the pending attributes.
+     * @since 2.0.0
+     */
+    public final void setPendingAttributes(Map<String, Object> pendingAttributes, PendingAttributes handler)
+    {
+        this.pendingAttributesHandler = handler;
+        this.pendingAttributes = pendingAttributes;
+    }
+
+    /**
+     * Sets the attribute for the given property if it has not yet been set.
+     * Must be called by all getters of classes annotated with
+     * {@link LazyAttributes} before accessing the field.
+     *
+     * @param property the lower case name of the property as used by its
+     *            setter.
+     * @since 2.0.0
+     */
+    protected final void materialize(String property)
+    {
+        final Map<String, Object> p = pendingAttributes;
+        if (p != null)
+        {
+            pendingAttributesHandler.materialize(this, p, property);
+        }
+    }
+
+    /**
+     * Sets all attributes that have not yet been set. Must be called by
+     * methods of classes annotated with {@link LazyAttributes} that access
+     * fields directly.
+     *
+     * @since 2.0.0
+     */
+    protected final void materializeAll()
+    {
+        final Map<String, Object> p = pendingAttributes;
+        if (p != null)
+        {
+            pendingAttributesHandler.materializeAll(this, p);
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        materializeAll();
+        out.defaultWriteObject();
+    }
+
     @Override
     public String toString()
     {
+        materializeAll();
+
         final List<String> ignoredProperties = Arrays.asList("file", "func", "line", "sequenceNumber", "datereceived",
                 "privilege", "source", "class");
         final StringBuilder sb = new StringBuilder(getClass().getName() + "[");
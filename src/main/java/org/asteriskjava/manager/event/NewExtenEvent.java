@@ -24,6 +24,7 @@ package org.asteriskjava.manager.event;
  * @author srt
  * @version $Id$
  */
+@LazyAttributes
 public class NewExtenEvent extends ManagerEvent
 {
     /**
@@ -50,6 +51,7 @@ public class NewExtenEvent extends ManagerEvent
 
     public String getLanguage()
     {
+        materialize("language");
         return language;
     }
 
@@ -63,6 +65,7 @@ public class NewExtenEvent extends ManagerEvent
      */
     public String getUniqueId()
     {
+        materialize("uniqueid");
         return uniqueId;
     }
 
@@ -79,6 +82,7 @@ public class NewExtenEvent extends ManagerEvent
      */
     public String getApplication()
     {
+        materialize("application");
         return application;
     }
 
@@ -96,6 +100,7 @@ public class NewExtenEvent extends ManagerEvent
      */
     public String getAppData()
     {
+        materialize("appdata");
         return appData;
     }
 
@@ -112,6 +117,7 @@ public class NewExtenEvent extends ManagerEvent
      */
     public String getChannel()
     {
+        materialize("channel");
         return channel;
     }
 
@@ -128,6 +134,7 @@ public class NewExtenEvent extends ManagerEvent
      */
     public String getExtension()
     {
+        materialize("extension");
         return extension;
     }
 
@@ -141,6 +148,7 @@ public class NewExtenEvent extends ManagerEvent
 
     public String getAccountCode()
     {
+        materialize("accountcode");
         return accountCode;
     }
 
@@ -151,6 +159,7 @@ public class NewExtenEvent extends ManagerEvent
 
     public String getLinkedId()
     {
+        materialize("linkedid");
         return linkedId;
     }
 
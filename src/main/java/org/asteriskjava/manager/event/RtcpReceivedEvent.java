@@ -27,6 +27,7 @@ import java.net.InetAddress;
  * @version $Id$
  * @since 1.0.0
  */
+@LazyAttributes
 public class RtcpReceivedEvent extends AbstractRtcpEvent
 {
     private static final long serialVersionUID = 2L;
@@ -88,6 +89,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
      */
     public InetAddress getFromAddress()
     {
+        materialize("from");
         return fromAddress;
     }
 
@@ -98,6 +100,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
      */
     public Integer getFromPort()
     {
+        materialize("from");
         return fromPort;
     }
 
@@ -115,6 +118,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
      */
     public Integer getToPort()
     {
+        materialize("to");
         return toPort;
     }
 
@@ -135,6 +139,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
      */
     public Long getPt()
     {
+        materialize("pt");
         return pt;
     }
 
@@ -166,6 +171,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Long getReceptionReports()
     {
+        materialize("receptionreports");
         return receptionReports;
     }
 
@@ -181,6 +187,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
      */
     public Long getSenderSsrc()
     {
+        materialize("senderssrc");
         return senderSsrc;
     }
 
@@ -196,6 +203,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
      */
     public Long getPacketsLost()
     {
+        materialize("packetslost");
         return packetsLost;
     }
 
@@ -206,6 +214,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Long getHighestSequence()
     {
+        materialize("highestsequence");
         return highestSequence;
     }
 
@@ -216,6 +225,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Long getSequenceNumberCycles()
     {
+        materialize("sequencenumbercycles");
         return sequenceNumberCycles;
     }
 
@@ -226,6 +236,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Double getLastSr()
     {
+        materialize("lastsr");
         return lastSr;
     }
 
@@ -241,6 +252,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
      */
     public Double getRtt()
     {
+        materialize("rtt");
         return rtt;
     }
 
@@ -251,11 +263,12 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
     
     public Long getRttAsMillseconds()
     {
-    	return (long) (rtt * 1000);
+    	return (long) (getRtt() * 1000);
     }
 
     public String getChannel()
     {
+        materialize("channel");
         return channel;
     }
 
@@ -266,6 +279,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public String getLanguage()
     {
+        materialize("language");
         return language;
     }
 
@@ -276,6 +290,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public String getReport0SequenceNumberCycles()
     {
+        materialize("report0sequencenumbercycles");
         return report0SequenceNumberCycles;
     }
 
@@ -286,6 +301,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public String getSsrc()
     {
+        materialize("ssrc");
         return ssrc;
     }
 
@@ -296,6 +312,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public String getReport0lsr()
     {
+        materialize("report0lsr");
         return report0lsr;
     }
 
@@ -306,6 +323,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Long getSentOctets()
     {
+        materialize("sentoctets");
         return sentOctets;
     }
 
@@ -316,6 +334,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public String getReport0Sourcessrc()
     {
+        materialize("report0sourcessrc");
         return report0Sourcessrc;
     }
 
@@ -326,6 +345,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Double getReport0dlsr()
     {
+        materialize("report0dlsr");
         return report0dlsr;
     }
 
@@ -336,6 +356,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public String getUniqueid()
     {
+        materialize("uniqueid");
         return uniqueid;
     }
 
@@ -346,6 +367,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Integer getReport0CumulativeLost()
     {
+        materialize("report0cumulativelost");
         return report0CumulativeLost;
     }
 
@@ -356,6 +378,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Integer getReport0FractionLost()
     {
+        materialize("report0fractionlost");
         return report0FractionLost;
     }
 
@@ -366,6 +389,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Integer getReport0iaJitter()
     {
+        materialize("report0iajitter");
         return report0iaJitter;
     }
 
@@ -376,11 +400,13 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public InetAddress getToAddress()
     {
+        materialize("to");
         return toAddress;
     }
 
     public String getSentntp()
     {
+        materialize("sentntp");
         return sentntp;
     }
 
@@ -391,6 +417,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Long getSentrtp()
     {
+        materialize("sentrtp");
         return sentrtp;
     }
 
@@ -401,6 +428,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Integer getReportCount()
     {
+        materialize("reportcount");
         return reportCount;
     }
 
@@ -411,6 +439,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Integer getReport0HighestSequence()
     {
+        materialize("report0highestsequence");
         return report0HighestSequence;
     }
 
@@ -421,6 +450,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public String getLinkedId()
     {
+        materialize("linkedid");
         return linkedId;
     }
 
@@ -431,6 +461,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public Integer getSentPackets()
     {
+        materialize("sentpackets");
         return sentPackets;
     }
 
@@ -441,6 +472,7 @@ public class RtcpReceivedEvent extends AbstractRtcpEvent
 
     public String getAccountCode()
     {
+        materialize("accountcode");
         return accountCode;
     }
 
@@ -28,6 +28,7 @@ package org.asteriskjava.manager.event;
  * @version $Id$
  * @since 1.0.0
  */
+@LazyAttributes
 public class VarSetEvent extends ManagerEvent
 {
     static final long serialVersionUID = 1L;
@@ -42,6 +43,7 @@ public class VarSetEvent extends ManagerEvent
 
     public String getLanguage()
     {
+        materialize("language");
         return language;
     }
 
@@ -64,6 +66,7 @@ public class VarSetEvent extends ManagerEvent
      */
     public String getChannel()
     {
+        materialize("channel");
         return channel;
     }
 
@@ -81,6 +84,7 @@ public class VarSetEvent extends ManagerEvent
      */
     public String getUniqueId()
     {
+        materialize("uniqueid");
         return uniqueId;
     }
 
@@ -96,6 +100,7 @@ public class VarSetEvent extends ManagerEvent
      */
     public String getVariable()
     {
+        materialize("variable");
         return variable;
     }
 
@@ -111,6 +116,7 @@ public class VarSetEvent extends ManagerEvent
      */
     public String getValue()
     {
+        materialize("value");
         return value;
     }
 
@@ -121,6 +127,7 @@ public class VarSetEvent extends ManagerEvent
 
     public String getLinkedId()
     {
+        materialize("linkedid");
         return linkedId;
     }
 
@@ -131,6 +138,7 @@ public class VarSetEvent extends ManagerEvent
 
     public String getAccountCode()
     {
+        materialize("accountcode");
         return accountCode;
     }
 
@@ -1,17 +1,17 @@
 package org.asteriskjava.manager.internal;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.event.UserEvent;
 import org.asteriskjava.util.AstUtil;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
-import org.asteriskjava.util.ReflectionUtil;
 
 /**
  * Abstract base class for reflection based builders.
@@ -19,133 +19,167 @@ import org.asteriskjava.util.ReflectionUtil;
 abstract class AbstractBuilder
 {
     protected final Log logger = LogFactory.getLog(getClass());
+    private final ManagerEvent.PendingAttributes pendingAttributesHandler = new PendingAttributesHandler();
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Sets the given attributes on the target object using the cached
+     * {@link SetterPlan} of its class.
+     *
+     * @param target the object to set the attributes on.
+     * @param attributes the attributes received from Asterisk.
+     * @param ignoredAttributes names of attributes to skip, may be
+     *            <code>null</code>.
+     */
     protected void setAttributes(Object target, Map<String, Object> attributes, Set<String> ignoredAttributes)
     {
-        Map<String, Method> setters;
+        final SetterPlan plan = SetterPlan.forClass(target.getClass());
 
-        setters = ReflectionUtil.getSetters(target.getClass());
         for (Map.Entry<String, Object> entry : attributes.entrySet())
         {
-            Object value;
-            final Class< ? > dataType;
-            Method setter;
-            String setterName;
-
             if (ignoredAttributes != null && ignoredAttributes.contains(entry.getKey()))
             {
                 continue;
             }
 
-            setterName = ReflectionUtil.stripIllegalCharacters(entry.getKey());
-
-            /*
-             * The source property needs special handling as it is already
-             * defined in java.util.EventObject (the base class of
-             * ManagerEvent), so we have to translate it.
-             */
-            if ("source".equals(setterName))
+            final SetterPlan.Setter setter = getSetter(plan, target, entry.getKey(), entry.getValue());
+            if (setter != null)
             {
-                setterName = "src";
+                setAttribute(target, setter, entry.getKey(), entry.getValue());
             }
-            else if ("class".equals(setterName))
+        }
+    }
+
+    /**
+     * Prepares the given attributes to be set on demand by the getters of the
+     * target event, see {@link org.asteriskjava.manager.event.LazyAttributes}.
+     * Only the setters are looked up, values are neither converted nor set.
+     * <p>
+     * The map is kept by the event as its store of pending attributes and is
+     * re-keyed to property names, so the caller must hand it over and must
+     * not use it afterwards.
+     *
+     * @param target the event to set the attributes on.
+     * @param attributes the attributes received from Asterisk.
+     * @param ignoredAttributes names of attributes to skip, may be
+     *            <code>null</code>.
+     */
+    protected void setAttributesLazily(ManagerEvent target, Map<String, Object> attributes,
+            Set<String> ignoredAttributes)
+    {
+        final SetterPlan plan = SetterPlan.forClass(target.getClass());
+        List<Object> renamed = null;
+
+        final Iterator<Map.Entry<String, Object>> iterator = attributes.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            final Map.Entry<String, Object> entry = iterator.next();
+            if (ignoredAttributes != null && ignoredAttributes.contains(entry.getKey()))
             {
-                setterName = "clazz";
+                iterator.remove();
+                continue;
             }
 
-            /*
-             * The class property needs to be renamed. It is used in
-             * MusicOnHoldEvent.
-             */
-            if ("class".equals(setterName))
+            final SetterPlan.Setter setter = getSetter(plan, target, entry.getKey(), entry.getValue());
+            if (setter == null)
             {
-                setterName = "classname";
+                iterator.remove();
             }
-
-            setter = setters.get(setterName);
-
-            if (setter == null && !setterName.endsWith("s")) // no exact match
-                                                             // => try plural
+            else if (!setter.getName().equals(entry.getKey()))
             {
-                setter = setters.get(setterName + "s");
-                // but only for maps
-                if (setter != null && !(setter.getParameterTypes()[0].isAssignableFrom(Map.class)))
+                // rare, e.g. "source" is set by setSrc()
+                if (renamed == null)
                 {
-                    setter = null;
+                    renamed = new ArrayList<>();
                 }
+                renamed.add(setter.getName());
+                renamed.add(entry.getValue());
+                iterator.remove();
             }
+        }
 
-            // it seems silly to warn if it's a user event -- maybe it was
-            // intentional
-            if (setter == null && !(target instanceof UserEvent))
+        if (renamed != null)
+        {
+            for (int i = 0; i < renamed.size(); i += 2)
             {
-                logger.warn("Unable to set property '" + entry.getKey() + "' to '" + entry.getValue() + "' on "
-                        + target.getClass().getName()
-                        + ": no setter. Please report at https://github.com/asterisk-java/asterisk-java/issues");
+                attributes.put((String) renamed.get(i), renamed.get(i + 1));
             }
+        }
 
-            if (setter == null)
-            {
-                continue;
-            }
+        if (!attributes.isEmpty())
+        {
+            target.setPendingAttributes(attributes, pendingAttributesHandler);
+        }
+    }
 
-            dataType = setter.getParameterTypes()[0];
+    private SetterPlan.Setter getSetter(SetterPlan plan, Object target, String name, Object value)
+    {
+        final SetterPlan.Setter setter = plan.getSetter(name);
 
-            if (dataType == Boolean.class)
-            {
-                value = AstUtil.isTrue(entry.getValue());
-            }
-            else if (dataType.isAssignableFrom(String.class))
-            {
-                value = entry.getValue();
-                if (AstUtil.isNull(value))
-                {
+        // it seems silly to warn if it's a user event -- maybe it was
+        // intentional
+        if (setter == null && !(target instanceof UserEvent))
+        {
+            logger.warn("Unable to set property '" + name + "' to '" + value + "' on " + target.getClass().getName()
+                    + ": no setter. Please report at https://github.com/asterisk-java/asterisk-java/issues");
+        }
+        return setter;
+    }
 
-                    value = null;
-                }
-            }
-            else if (dataType.isAssignableFrom(Map.class))
-            {
-                if (entry.getValue() instanceof List)
-                {
-                    List<String> list = (List<String>) entry.getValue();
-                    value = buildMap(list.toArray(new String[list.size()]));
-                }
-                else if (entry.getValue() instanceof String)
-                {
-                    value = buildMap((String) entry.getValue());
-                }
-                else
-                {
-                    value = null;
-                }
-            }
-            else
-            {
-                try
+    private void setAttribute(Object target, SetterPlan.Setter setter, String name, Object rawValue)
+    {
+        final Object value;
+
+        try
+        {
+            value = convert(setter, rawValue);
+        }
+        catch (Throwable e)
+        {
+            logger.error("Unable to convert value: Called the constructor of " + setter.getDataType() + " with value '"
+                    + rawValue + "' for the attribute '" + name + "'\n of event type " + target.getClass().getName()
+                    + " with resulting error: " + e.getMessage(), e);
+            return;
+        }
+
+        try
+        {
+            setter.invoke(target, value);
+        }
+        catch (Throwable e)
+        {
+            logger.error("Unable to set property '" + name + "' to '" + rawValue + "' on " + target.getClass().getName(),
+                    e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object convert(SetterPlan.Setter setter, Object value) throws Throwable
+    {
+        switch (setter.getConversion())
+        {
+            case BOOLEAN :
+                return AstUtil.isTrue(value);
+            case STRING :
+                return AstUtil.isNull(value) ? null : value;
+            case MAP :
+                if (value instanceof List)
                 {
-                    Constructor< ? > constructor = dataType.getConstructor(new Class[]{String.class});
-                    value = constructor.newInstance(entry.getValue());
+                    List<String> list = (List<String>) value;
+                    return buildMap(list.toArray(new String[list.size()]));
                 }
-                catch (Exception e)
+                else if (value instanceof String)
                 {
-                    logger.error("Unable to convert value: Called the constructor of " + dataType + " with value '"
-                            + entry.getValue() + "' for the attribute '" + entry.getKey() + "'\n of event type "
-                            + target.getClass().getName() + " with resulting error: " + e.getMessage(), e);
-                    continue;
+                    return buildMap((String) value);
                 }
-            }
-
-            try
-            {
-                setter.invoke(target, value);
-            }
-            catch (Exception e)
-            {
-                logger.error("Unable to set property '" + entry.getKey() + "' to '" + entry.getValue() + "' on "
-                        + target.getClass().getName(), e);
-            }
+                return null;
+            case INTEGER :
+                return Integer.valueOf((String) value);
+            case LONG :
+                return Long.valueOf((String) value);
+            case DOUBLE :
+                return Double.valueOf((String) value);
+            default :
+                return setter.construct(value);
         }
     }
 
@@ -173,4 +207,51 @@ abstract class AbstractBuilder
         }
         return map;
     }
+
+    /**
+     * Converts and sets the pending attributes of an event on demand. The map
+     * of pending attributes is the lock, the event drops it once it is empty.
+     */
+    private final class PendingAttributesHandler implements ManagerEvent.PendingAttributes
+    {
+        public void materialize(ManagerEvent event, Map<String, Object> attributes, String property)
+        {
+            synchronized (attributes)
+            {
+                final Object value = attributes.remove(property);
+                if (value == null)
+                {
+                    return;
+                }
+
+                setAttribute(event, property, value);
+                if (attributes.isEmpty())
+                {
+                    event.setPendingAttributes(null, null);
+                }
+            }
+        }
+
+        public void materializeAll(ManagerEvent event, Map<String, Object> attributes)
+        {
+            synchronized (attributes)
+            {
+                for (Map.Entry<String, Object> entry : attributes.entrySet())
+                {
+                    setAttribute(event, entry.getKey(), entry.getValue());
+                }
+                attributes.clear();
+                event.setPendingAttributes(null, null);
+            }
+        }
+
+        private void setAttribute(ManagerEvent event, String property, Object value)
+        {
+            final SetterPlan.Setter setter = SetterPlan.forClass(event.getClass()).getSetter(property);
+            if (setter != null)
+            {
+                AbstractBuilder.this.setAttribute(event, setter, property, value);
+            }
+        }
+    }
 }
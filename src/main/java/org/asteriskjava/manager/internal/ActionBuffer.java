@@ -0,0 +1,220 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Growable byte buffer that actions are encoded into in the connection's
+ * encoding.
+ * <p>
+ * For encodings that are a superset of ASCII (like UTF-8 and ISO-8859-1)
+ * ASCII characters are copied directly and precomputed header bytes are used
+ * as they are, only strings containing other characters go through the
+ * {@link CharsetEncoder}.
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @see ActionBuilder#buildAction(org.asteriskjava.manager.action.ManagerAction,
+ *      String, ActionBuffer)
+ */
+final class ActionBuffer implements ActionBuilderImpl.Output
+{
+    private final int initialCapacity;
+    private final CharsetEncoder encoder;
+    private final boolean asciiCompatible;
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a new buffer.
+     *
+     * @param encoding the encoding of the connection.
+     * @param initialCapacity the initial capacity in bytes.
+     */
+    ActionBuffer(Charset encoding, int initialCapacity)
+    {
+        this.initialCapacity = initialCapacity;
+        this.encoder = encoding.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.asciiCompatible = isAsciiCompatible(encoding);
+        this.buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    private static boolean isAsciiCompatible(Charset encoding)
+    {
+        final char[] ascii = new char[0x80];
+        for (int i = 0; i < ascii.length; i++)
+        {
+            ascii[i] = (char) i;
+        }
+
+        final byte[] encoded = new String(ascii).getBytes(encoding);
+        if (encoded.length != ascii.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < encoded.length; i++)
+        {
+            if (encoded[i] != i)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends the given string in the connection's encoding.
+     *
+     * @param s the string to append.
+     */
+    public void append(String s)
+    {
+        final int length = s.length();
+
+        if (asciiCompatible)
+        {
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++)
+            {
+                final char c = s.charAt(i);
+                if (c >= 0x80)
+                {
+                    encode(s, i);
+                    return;
+                }
+                buffer.put((byte) c);
+            }
+            return;
+        }
+
+        encode(s, 0);
+    }
+
+    /**
+     * Appends a string for which the ASCII bytes have been computed in
+     * advance.
+     *
+     * @param bytes the string encoded as ASCII or <code>null</code> if it
+     *            contains non ASCII characters.
+     * @param s the string.
+     */
+    public void append(byte[] bytes, String s)
+    {
+        if (bytes == null || !asciiCompatible)
+        {
+            append(s);
+            return;
+        }
+
+        ensureCapacity(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void encode(String s, int start)
+    {
+        final CharBuffer in = CharBuffer.wrap(s, start, s.length());
+
+        // the encoder is only reset when the buffer is cleared so stateful
+        // encodings (like the byte order mark of UTF-16) span the whole
+        // buffer. Errors are replaced so the result is either underflow or
+        // overflow.
+        while (encoder.encode(in, buffer, false).isOverflow())
+        {
+            grow(in.remaining() + 16);
+        }
+    }
+
+    private void ensureCapacity(int required)
+    {
+        if (buffer.remaining() < required)
+        {
+            grow(required);
+        }
+    }
+
+    private void grow(int required)
+    {
+        final int capacity = Math.max(buffer.capacity() * 2, buffer.position() + required);
+        final ByteBuffer larger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    /**
+     * Returns the number of bytes appended since the buffer was last cleared.
+     *
+     * @return the number of bytes in this buffer.
+     */
+    int length()
+    {
+        return buffer.position();
+    }
+
+    /**
+     * Discards the bytes appended after the given length, for example to
+     * remove a partially built action.
+     *
+     * @param length the number of bytes to keep.
+     */
+    void truncate(int length)
+    {
+        buffer.position(length);
+        if (length == 0)
+        {
+            encoder.reset();
+        }
+    }
+
+    /**
+     * Returns the bytes appended as a buffer ready to be read. The returned
+     * buffer must no longer be used after this buffer has been cleared or
+     * appended to.
+     *
+     * @return the bytes appended.
+     */
+    ByteBuffer flip()
+    {
+        final ByteBuffer result = buffer.duplicate();
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Discards the contents of this buffer. If the buffer has grown beyond
+     * the given size it is replaced by a buffer with the initial capacity.
+     *
+     * @param maxRetainedCapacity the maximum capacity to keep.
+     */
+    void clear(int maxRetainedCapacity)
+    {
+        if (buffer.capacity() > maxRetainedCapacity)
+        {
+            buffer = ByteBuffer.allocate(initialCapacity);
+        }
+        else
+        {
+            buffer.clear();
+        }
+        encoder.reset();
+    }
+}
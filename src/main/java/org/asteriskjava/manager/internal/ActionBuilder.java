@@ -59,4 +59,15 @@ interface ActionBuilder
      * @return a String representing the given action in an asterisk compatible format
      */
     String buildAction(final ManagerAction action, final String internalActionId);
+
+    /**
+     * Builds the given action like {@link #buildAction(ManagerAction, String)}
+     * but appends it directly to the given buffer in the buffer's encoding.
+     * 
+     * @param action the action to transform
+     * @param internalActionId the internal action id to add
+     * @param buffer the buffer to append the action to
+     * @since 2.0.0
+     */
+    void buildAction(final ManagerAction action, final String internalActionId, final ActionBuffer buffer);
 }
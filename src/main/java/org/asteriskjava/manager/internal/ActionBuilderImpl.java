@@ -16,25 +16,23 @@
  */
 package org.asteriskjava.manager.internal;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.HashSet;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
-import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 
 import org.asteriskjava.AsteriskVersion;
-import org.asteriskjava.manager.AsteriskMapping;
 import org.asteriskjava.manager.action.ManagerAction;
 import org.asteriskjava.manager.action.UserEventAction;
 import org.asteriskjava.manager.event.UserEvent;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
-import org.asteriskjava.util.ReflectionUtil;
 
 /**
  * Default implementation of the ActionBuilder interface.
+ * <p>
+ * The properties to send are taken from a {@link GetterPlan} cached per
+ * class. The same code writes either into a String or, for writers that do
+ * their own encoding, directly into an {@link ActionBuffer}.
  *
  * @author srt
  * @version $Id$
@@ -43,14 +41,42 @@ class ActionBuilderImpl implements ActionBuilder
 {
 
     private static final String LINE_SEPARATOR = "\r\n";
-    private static final String ATTRIBUTES_PROPERTY_NAME = "attributes";
+    private static final byte[] LINE_SEPARATOR_BYTES = ascii(LINE_SEPARATOR);
+    private static final String ACTION_HEADER = "action: ";
+    private static final byte[] ACTION_HEADER_BYTES = ascii(ACTION_HEADER);
+    private static final String ACTION_ID_HEADER = "actionid: ";
+    private static final byte[] ACTION_ID_HEADER_BYTES = ascii(ACTION_ID_HEADER);
+    private static final String USER_EVENT_HEADER = "UserEvent: ";
+    private static final byte[] USER_EVENT_HEADER_BYTES = ascii(USER_EVENT_HEADER);
 
     /**
      * Instance logger.
      */
     private final Log logger = LogFactory.getLog(getClass());
     private AsteriskVersion targetVersion;
-    private final Set<String> membersToIgnore = new HashSet<>();
+
+    /**
+     * Target of the builder, either a String or an {@link ActionBuffer}.
+     */
+    interface Output
+    {
+        /**
+         * Appends the given string.
+         *
+         * @param s the string to append.
+         */
+        void append(String s);
+
+        /**
+         * Appends a string for which the ASCII bytes have been computed in
+         * advance.
+         *
+         * @param bytes the string encoded as ASCII or <code>null</code> if it
+         *            contains non ASCII characters.
+         * @param s the string.
+         */
+        void append(byte[] bytes, String s);
+    }
 
     /**
      * Creates a new ActionBuilder for Asterisk 1.0.
@@ -58,15 +84,11 @@ class ActionBuilderImpl implements ActionBuilder
     ActionBuilderImpl()
     {
         this.targetVersion = AsteriskVersion.ASTERISK_1_0;
-        
-        /*
-         * When using the Reflection API to get all of the getters for building
-         * actions to send, we ignore some of the getters
-         */
-        this.membersToIgnore.add("class");
-        this.membersToIgnore.add("action");
-        this.membersToIgnore.add("actionid");
-        this.membersToIgnore.add(ATTRIBUTES_PROPERTY_NAME);
+    }
+
+    private static byte[] ascii(String s)
+    {
+        return s.getBytes(StandardCharsets.US_ASCII);
     }
 
     public void setTargetVersion(AsteriskVersion targetVersion)
@@ -79,286 +101,215 @@ class ActionBuilderImpl implements ActionBuilder
         return buildAction(action, null);
     }
 
-    @SuppressWarnings("unchecked")
     public String buildAction(final ManagerAction action, final String internalActionId)
     {
-        StringBuilder sb = new StringBuilder();
+        final StringOutput out = new StringOutput();
+        buildAction(action, internalActionId, out);
+        return out.sb.toString();
+    }
+
+    public void buildAction(final ManagerAction action, final String internalActionId, final ActionBuffer buffer)
+    {
+        buildAction(action, internalActionId, (Output) buffer);
+    }
 
-        sb.append("action: ");
-        sb.append(action.getAction());
-        sb.append(LINE_SEPARATOR);
+    private void buildAction(final ManagerAction action, final String internalActionId, final Output out)
+    {
+        out.append(ACTION_HEADER_BYTES, ACTION_HEADER);
+        out.append(action.getAction());
+        out.append(LINE_SEPARATOR_BYTES, LINE_SEPARATOR);
         if (internalActionId != null)
         {
-            sb.append("actionid: ");
-            sb.append(ManagerUtil.addInternalActionId(action.getActionId(), internalActionId));
-            sb.append(LINE_SEPARATOR);
+            out.append(ACTION_ID_HEADER_BYTES, ACTION_ID_HEADER);
+            out.append(ManagerUtil.addInternalActionId(action.getActionId(), internalActionId));
+            out.append(LINE_SEPARATOR_BYTES, LINE_SEPARATOR);
         }
         else if (action.getActionId() != null)
         {
-            sb.append("actionid: ");
-            sb.append(action.getActionId());
-            sb.append(LINE_SEPARATOR);
+            out.append(ACTION_ID_HEADER_BYTES, ACTION_ID_HEADER);
+            out.append(action.getActionId());
+            out.append(LINE_SEPARATOR_BYTES, LINE_SEPARATOR);
         }
 
-        Map<String, Method> getters;
-
         // if this is a user event action, we need to grab the internal event,
         // otherwise do below as normal
+        final Object target;
         if (action instanceof UserEventAction)
         {
-            UserEvent userEvent = ((UserEventAction) action).getUserEvent();
-            appendUserEvent(sb, userEvent);
-            
-            getters = ReflectionUtil.getGetters(userEvent.getClass());
-
-            // eventually we may want to add more Map keys for events to ignore
-            // when appending
-            appendGetters(sb, userEvent, getters);
+            final UserEvent userEvent = ((UserEventAction) action).getUserEvent();
+            target = userEvent;
+
+            final GetterPlan plan = GetterPlan.forClass(userEvent.getClass());
+            out.append(USER_EVENT_HEADER_BYTES, USER_EVENT_HEADER);
+            out.append(plan.getUserEventType());
+            out.append(LINE_SEPARATOR_BYTES, LINE_SEPARATOR);
         }
         else
         {
-            getters = ReflectionUtil.getGetters(action.getClass());
-
-            appendGetters(sb, action, getters);
+            target = action;
         }
 
+        final GetterPlan plan = GetterPlan.forClass(target.getClass());
+        appendGetters(out, target, plan);
+
         // actions that have the special getAttributes method will
         // have their Map appended without a singular key or separator
-        if (getters.containsKey(ATTRIBUTES_PROPERTY_NAME))
+        final GetterPlan.Getter attributesGetter = plan.getAttributesGetter();
+        if (attributesGetter != null)
         {
-            Method getter = getters.get(ATTRIBUTES_PROPERTY_NAME);
             Object value = null;
             try
             {
-                value = getter.invoke(action);
+                value = attributesGetter.invoke(target);
             }
-            catch (Exception ex)
+            catch (Throwable ex)
             {
-                logger.error("Unable to retrieve property '" + ATTRIBUTES_PROPERTY_NAME + "' of " + action.getClass(), ex);
+                logger.error("Unable to retrieve property '" + GetterPlan.ATTRIBUTES_PROPERTY_NAME + "' of "
+                        + target.getClass(), ex);
             }
 
             if (value instanceof Map)
             {
-                Map<Object, Object> attributes = (Map<Object, Object>) value;
-                for (Map.Entry<Object, Object> entry : attributes.entrySet())
+                final Map< ? , ? > attributes = (Map< ? , ? >) value;
+                for (Map.Entry< ? , ? > entry : attributes.entrySet())
                 {
-                    appendString(sb, entry.getKey() == null ? "null" : entry.getKey().toString(),
-                        entry.getValue() == null ? "null" : entry.getValue().toString());
+                    out.append(entry.getKey() == null ? "null" : entry.getKey().toString());
+                    out.append(": ");
+                    out.append(entry.getValue() == null ? "null" : entry.getValue().toString());
+                    out.append(LINE_SEPARATOR_BYTES, LINE_SEPARATOR);
                 }
             }
         }
 
-        sb.append(LINE_SEPARATOR);
-        return sb.toString();
+        out.append(LINE_SEPARATOR_BYTES, LINE_SEPARATOR);
     }
 
-    private void appendMap(StringBuilder sb, String key, Map<String, String> values)
+    private void appendGetters(Output out, Object target, GetterPlan plan)
     {
-        String singularKey;
-
-        // strip plural s (i.e. use "variable: " instead of "variables: "
-        if (key.endsWith("s"))
-        {
-            singularKey = key.substring(0, key.length() - 1);
-        }
-        else
+        for (GetterPlan.Getter getter : plan.getGetters())
         {
-            singularKey = key;
+            final Object value;
+
+            try
+            {
+                value = getter.invoke(target);
+            }
+            catch (Throwable ex)
+            {
+                logger.error("Unable to retrieve property '" + getter.getName() + "' of " + target.getClass(), ex);
+                continue;
+            }
+
+            if (value == null || value instanceof Class)
+            {
+                continue;
+            }
+
+            if (value instanceof Map)
+            {
+                appendMap(out, getter, (Map< ? , ? >) value);
+            }
+            else
+            {
+                out.append(getter.getHeaderBytes(), getter.getHeader());
+                out.append(value.toString());
+                out.append(LINE_SEPARATOR_BYTES, LINE_SEPARATOR);
+            }
         }
+    }
 
+    private void appendMap(Output out, GetterPlan.Getter getter, Map< ? , ? > values)
+    {
         if (targetVersion.isAtLeast(AsteriskVersion.ASTERISK_1_2))
         {
-            appendMap12(sb, singularKey, values);
+            appendMap12(out, getter, values);
         }
         else
         {
-            appendMap10(sb, singularKey, values);
+            appendMap10(out, getter, values);
         }
     }
 
-    private void appendMap10(StringBuilder sb, String singularKey, Map<String, String> values)
+    private void appendMap10(Output out, GetterPlan.Getter getter, Map< ? , ? > values)
     {
-        Iterator<Map.Entry<String, String>> entryIterator;
+        Iterator< ? extends Map.Entry< ? , ? >> entryIterator;
 
-        sb.append(singularKey);
-        sb.append(": ");
+        out.append(getter.getSingularHeaderBytes(), getter.getSingularHeader());
         entryIterator = values.entrySet().iterator();
         while (entryIterator.hasNext())
         {
-            Map.Entry<String, String> entry;
+            Map.Entry< ? , ? > entry;
 
             entry = entryIterator.next();
-            sb.append(entry.getKey());
-            sb.append("=");
+            out.append(String.valueOf(entry.getKey()));
+            out.append("=");
             if (entry.getValue() != null)
             {
-                sb.append(entry.getValue());
+                out.append(entry.getValue().toString());
             }
 
             if (entryIterator.hasNext())
             {
-                sb.append("|");
+                out.append("|");
             }
         }
-        sb.append(LINE_SEPARATOR);
+        out.append(LINE_SEPARATOR_BYTES, LINE_SEPARATOR);
     }
 
-    private void appendMap12(StringBuilder sb, String singularKey, Map<String, String> values)
+    private void appendMap12(Output out, GetterPlan.Getter getter, Map< ? , ? > values)
     {
-        for (Map.Entry<String, String> entry : values.entrySet())
+        for (Map.Entry< ? , ? > entry : values.entrySet())
         {
-            sb.append(singularKey);
-            sb.append(": ");
-            sb.append(entry.getKey());
-            sb.append("=");
+            final String key = String.valueOf(entry.getKey());
+
+            out.append(getter.getSingularHeaderBytes(), getter.getSingularHeader());
+            out.append(key);
+            out.append("=");
             if (entry.getValue() != null)
             {
-                if (entry.getKey().equalsIgnoreCase("Content"))
+                if (key.equalsIgnoreCase("Content"))
                 {
-                    String sp[] = entry.getValue().split("\n");
+                    String sp[] = entry.getValue().toString().split("\n");
                     if (sp.length > 0)
                     {
-                        sb.append(sp[0]);
+                        out.append(sp[0]);
                         for (int i = 1; i < sp.length; i++)
                         {
-                            sb.append(LINE_SEPARATOR);
-                            sb.append(singularKey);
-                            sb.append(": ");
-                            sb.append(entry.getKey());
-                            sb.append("=");
-                            sb.append(sp[i]);
+                            out.append(LINE_SEPARATOR_BYTES, LINE_SEPARATOR);
+                            out.append(getter.getSingularHeaderBytes(), getter.getSingularHeader());
+                            out.append(key);
+                            out.append("=");
+                            out.append(sp[i]);
                         }
                     }
 
                 }
                 else
                 {
-                    sb.append(entry.getValue());
+                    out.append(entry.getValue().toString());
                 }
             }
 
-            sb.append(LINE_SEPARATOR);
+            out.append(LINE_SEPARATOR_BYTES, LINE_SEPARATOR);
         }
     }
 
-    private void appendString(StringBuilder sb, String key, String value)
-    {
-        sb.append(key);
-        sb.append(": ");
-        sb.append(value);
-        sb.append(LINE_SEPARATOR);
-    }
-
-    private void appendUserEvent(StringBuilder sb, UserEvent event)
-    {
-        Class<?> clazz = event.getClass();
-
-        String className = clazz.getName();
-        String eventType = className.substring(className.lastIndexOf('.') + 1).toLowerCase(Locale.ENGLISH);
-
-        if (eventType.endsWith("event"))
-        {
-            eventType = eventType.substring(0, eventType.length() - "event".length());
-        }
-
-        appendString(sb, "UserEvent", eventType);
-    }
-
-    @SuppressWarnings("unchecked")
-    private void appendGetters(StringBuilder sb, Object action, Map<String, Method> getters)
-    {
-        for (Map.Entry<String, Method> entry : getters.entrySet())
-        {
-            final String name = entry.getKey();
-            final Method getter = entry.getValue();
-            final Object value;
-
-            if (membersToIgnore.contains(name))
-            {
-                continue;
-            }
-
-            try
-            {
-                value = getter.invoke(action);
-            }
-            catch (Exception ex)
-            {
-                logger.error("Unable to retrieve property '" + name + "' of " + action.getClass(), ex);
-                continue;
-            }
-
-            if (value == null || value instanceof Class)
-            {
-                continue;
-            }
-
-            final String mappedName = mapToAsterisk(getter);
-            if (value instanceof Map)
-            {
-                appendMap(sb, mappedName, (Map<String, String>) value);
-            }
-            else if (value instanceof String)
-            {
-                appendString(sb, mappedName, (String) value);
-            }
-            else
-            {
-                appendString(sb, mappedName, value.toString());
-            }
-        }
-    }
-
-    private static String mapToAsterisk(Method getter)
+    /**
+     * Output that builds a String.
+     */
+    private static final class StringOutput implements Output
     {
-        AsteriskMapping annotation;
+        private final StringBuilder sb = new StringBuilder(256);
 
-        // check annotation of getter method
-        annotation
-            = getter.getAnnotation(AsteriskMapping.class
-            );
-        if (annotation != null)
+        public void append(String s)
         {
-            return annotation.value();
+            sb.append(s);
         }
 
-        // check annotation of setter method
-        String setterName = determineSetterName(getter.getName());
-        try
+        public void append(byte[] bytes, String s)
         {
-            Method setter = getter.getDeclaringClass().getDeclaredMethod(setterName, getter.getReturnType());
-            annotation
-                = setter.getAnnotation(AsteriskMapping.class
-                );
-            if (annotation != null)
-            {
-                return annotation.value();
-            }
-        }
-        catch (NoSuchMethodException e)
-        {
-            // ok, no setter method
-        }
-
-        // check annotation of field
-        String fieldName = determineFieldName(getter.getName());
-        try
-        {
-            Field field = getter.getDeclaringClass().getDeclaredField(fieldName);
-            annotation
-                = field.getAnnotation(AsteriskMapping.class
-                );
-            if (annotation != null)
-            {
-                return annotation.value();
-            }
+            sb.append(s);
         }
-        catch (NoSuchFieldException e)
-        {
-            // ok, no field
-        }
-
-        return fieldName.toLowerCase(Locale.US);
     }
 
     static String determineSetterName(String getterName)
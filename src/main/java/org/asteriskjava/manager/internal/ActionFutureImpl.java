@@ -0,0 +1,213 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.asteriskjava.manager.ActionFuture;
+import org.asteriskjava.manager.ActionFutureCallback;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+/**
+ * Default implementation of the ActionFuture interface.
+ *
+ * @param <V> the type of the result.
+ * @since 2.0.0
+ */
+class ActionFutureImpl<V> implements ActionFuture<V>
+{
+    private final Log logger = LogFactory.getLog(getClass());
+
+    private boolean done;
+    private V result;
+    private Throwable failure;
+    private List<ActionFutureCallback< ? super V>> callbacks;
+
+    /**
+     * Completes this future with the given result.
+     *
+     * @param result the result.
+     * @return <code>true</code> if this call completed the future,
+     *         <code>false</code> if it was already completed.
+     */
+    boolean complete(V result)
+    {
+        final List<ActionFutureCallback< ? super V>> toNotify;
+        synchronized (this)
+        {
+            if (done)
+            {
+                return false;
+            }
+            this.result = result;
+            this.done = true;
+            toNotify = callbacks;
+            this.callbacks = null;
+            notifyAll();
+        }
+
+        if (toNotify != null)
+        {
+            for (ActionFutureCallback< ? super V> callback : toNotify)
+            {
+                notifySuccess(callback, result);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Completes this future with the given failure.
+     *
+     * @param cause the reason for the failure.
+     * @return <code>true</code> if this call completed the future,
+     *         <code>false</code> if it was already completed.
+     */
+    boolean fail(Throwable cause)
+    {
+        final List<ActionFutureCallback< ? super V>> toNotify;
+        synchronized (this)
+        {
+            if (done)
+            {
+                return false;
+            }
+            this.failure = cause;
+            this.done = true;
+            toNotify = callbacks;
+            this.callbacks = null;
+            notifyAll();
+        }
+
+        if (toNotify != null)
+        {
+            for (ActionFutureCallback< ? super V> callback : toNotify)
+            {
+                notifyFailure(callback, cause);
+            }
+        }
+        return true;
+    }
+
+    public void addCallback(ActionFutureCallback< ? super V> callback)
+    {
+        synchronized (this)
+        {
+            if (!done)
+            {
+                if (callbacks == null)
+                {
+                    callbacks = new ArrayList<>(2);
+                }
+                callbacks.add(callback);
+                return;
+            }
+        }
+
+        if (failure == null)
+        {
+            notifySuccess(callback, result);
+        }
+        else
+        {
+            notifyFailure(callback, failure);
+        }
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        return fail(new CancellationException("Cancelled while waiting for the response"));
+    }
+
+    public synchronized boolean isCancelled()
+    {
+        return failure instanceof CancellationException;
+    }
+
+    public synchronized boolean isDone()
+    {
+        return done;
+    }
+
+    public synchronized V get() throws InterruptedException, ExecutionException
+    {
+        while (!done)
+        {
+            wait();
+        }
+        return getResult();
+    }
+
+    public synchronized V get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException
+    {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done)
+        {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+            {
+                throw new TimeoutException("Timeout waiting for the result");
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    private V getResult() throws ExecutionException
+    {
+        if (failure instanceof CancellationException)
+        {
+            throw (CancellationException) failure;
+        }
+        if (failure != null)
+        {
+            throw new ExecutionException(failure);
+        }
+        return result;
+    }
+
+    private void notifySuccess(ActionFutureCallback< ? super V> callback, V value)
+    {
+        try
+        {
+            callback.onSuccess(value);
+        }
+        catch (Exception e)
+        {
+            logger.warn("Unexpected exception in callback " + callback.getClass().getName(), e);
+        }
+    }
+
+    private void notifyFailure(ActionFutureCallback< ? super V> callback, Throwable cause)
+    {
+        try
+        {
+            callback.onFailure(cause);
+        }
+        catch (Exception e)
+        {
+            logger.warn("Unexpected exception in callback " + callback.getClass().getName(), e);
+        }
+    }
+}
@@ -0,0 +1,573 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.asteriskjava.manager.DispatchQueueOverflowPolicy;
+import org.asteriskjava.manager.DispatchQueueStatistics;
+import org.asteriskjava.util.ExecutionRuntime;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+/**
+ * Bounded queue of received frames between the thread reading from Asterisk
+ * and a dedicated thread building and dispatching the events and responses.
+ * <p>
+ * Frames are the attribute maps produced by the {@link ManagerReader}. The
+ * in memory part of the queue is a pre-allocated ring buffer of fixed
+ * capacity. What happens when it is full is determined by the
+ * {@link DispatchQueueOverflowPolicy}. Frames without an "event" attribute
+ * (responses and the reader's own control frames) are never dropped.
+ * <p>
+ * When spilling, frames are appended to a temporary file as soon as the ring
+ * buffer is full and all following frames go to that file as well until the
+ * dispatch thread has caught up, so the order of frames is always preserved.
+ *
+ * @see ManagerConnectionImpl#setDispatchQueueCapacity(int)
+ * @since 2.0.0
+ */
+public class DispatchQueue implements DispatchQueueStatistics, Runnable
+{
+    /**
+     * Processes the frames taken from the queue on the dispatch thread.
+     */
+    interface FrameHandler
+    {
+        void handleFrame(Map<String, Object> frame);
+    }
+
+    private static final Map<String, Object> WAKE_UP = Collections.emptyMap();
+    private static final long SPILL_POLL_TIMEOUT = 100L;
+
+    private final Log logger = LogFactory.getLog(getClass());
+
+    private final int capacity;
+    private final DispatchQueueOverflowPolicy overflowPolicy;
+    private final Set<String> droppableEventTypes;
+    private final File spillDirectory;
+    private final BlockingQueue<Map<String, Object>> ring;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> droppedCountByEventType = new ConcurrentHashMap<>();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private volatile int highWaterMark;
+
+    /**
+     * Guards the spill file and the dispatch thread state.
+     */
+    private final Object lock = new Object();
+    private SpillFile spillFile;
+    private volatile int spillBacklog;
+    private FrameHandler handler;
+    private boolean running;
+    private volatile boolean stopRequested;
+
+    /**
+     * Creates a new DispatchQueue.
+     *
+     * @param capacity the number of frames the ring buffer can hold.
+     * @param overflowPolicy what to do when the ring buffer is full.
+     * @param droppableEventTypes lower case event types that may be dropped
+     *            by {@link DispatchQueueOverflowPolicy#DROP}, empty to allow
+     *            dropping of all events.
+     * @param spillDirectory the directory to create the spill file in for
+     *            {@link DispatchQueueOverflowPolicy#SPILL} or
+     *            <code>null</code> to use the default temporary directory.
+     */
+    public DispatchQueue(int capacity, DispatchQueueOverflowPolicy overflowPolicy,
+            Collection<String> droppableEventTypes, File spillDirectory)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy == null ? DispatchQueueOverflowPolicy.BLOCK : overflowPolicy;
+        this.droppableEventTypes = new HashSet<>();
+        if (droppableEventTypes != null)
+        {
+            for (String eventType : droppableEventTypes)
+            {
+                this.droppableEventTypes.add(eventType.toLowerCase(Locale.ENGLISH));
+            }
+        }
+        this.spillDirectory = spillDirectory;
+        this.ring = new ArrayBlockingQueue<>(capacity);
+    }
+
+    void setHandler(FrameHandler handler)
+    {
+        synchronized (lock)
+        {
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * Adds a frame to the queue applying the overflow policy if the ring
+     * buffer is full. Only called by the reader thread.
+     *
+     * @param frame the frame to add, must not be modified afterwards.
+     */
+    void put(Map<String, Object> frame)
+    {
+        if (overflowPolicy == DispatchQueueOverflowPolicy.SPILL)
+        {
+            synchronized (lock)
+            {
+                if (spillFile == null && ring.offer(frame))
+                {
+                    updateHighWaterMark();
+                    return;
+                }
+                if (spill(frame))
+                {
+                    updateHighWaterMark();
+                    return;
+                }
+                // frames spilled before must be dispatched before this one
+                if (!awaitSpillFileDrained())
+                {
+                    return;
+                }
+            }
+        }
+        else if (ring.offer(frame))
+        {
+            updateHighWaterMark();
+            return;
+        }
+
+        if (overflowPolicy == DispatchQueueOverflowPolicy.DROP && isDroppable(frame))
+        {
+            final String eventType = getEventType(frame);
+            droppedCount.incrementAndGet();
+            AtomicLong counter = droppedCountByEventType.get(eventType);
+            if (counter == null)
+            {
+                droppedCountByEventType.putIfAbsent(eventType, new AtomicLong());
+                counter = droppedCountByEventType.get(eventType);
+            }
+            counter.incrementAndGet();
+            return;
+        }
+
+        try
+        {
+            ring.put(frame);
+            updateHighWaterMark();
+        }
+        catch (InterruptedException e)
+        {
+            logger.warn("Interrupted while waiting for room in the dispatch queue, frame lost");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts the dispatch thread unless it is already running.
+     *
+     * @param threadName the name of the dispatch thread.
+     */
+    void start(String threadName)
+    {
+        start(threadName, ExecutionRuntime.getDefault());
+    }
+
+    /**
+     * Starts the dispatch thread unless it is already running.
+     *
+     * @param threadName the name of the dispatch thread.
+     * @param runtime the runtime that creates the dispatch thread.
+     */
+    void start(String threadName, ExecutionRuntime runtime)
+    {
+        synchronized (lock)
+        {
+            stopRequested = false;
+            if (running)
+            {
+                return;
+            }
+            running = true;
+
+            runtime.newThread(this, threadName).start();
+        }
+    }
+
+    /**
+     * Stops the dispatch thread after all frames queued so far have been
+     * dispatched.
+     */
+    void stop()
+    {
+        synchronized (lock)
+        {
+            if (!running)
+            {
+                return;
+            }
+            stopRequested = true;
+        }
+
+        // if the ring is full run() notices the stop request once drained
+        ring.offer(WAKE_UP);
+    }
+
+    /**
+     * Takes frames from the queue and passes them to the handler until
+     * {@link #stop()} is called.
+     */
+    public void run()
+    {
+        boolean stopped = false;
+        try
+        {
+            while (true)
+            {
+                final Map<String, Object> frame;
+                try
+                {
+                    frame = take();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                if (frame != WAKE_UP)
+                {
+                    dispatch(frame);
+                }
+
+                if (stopRequested)
+                {
+                    synchronized (lock)
+                    {
+                        if (stopRequested && ring.isEmpty() && spillFile == null)
+                        {
+                            running = false;
+                            stopped = true;
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            // interrupted or killed by an Error: allow start() to create a
+            // new dispatch thread
+            if (!stopped)
+            {
+                synchronized (lock)
+                {
+                    running = false;
+                }
+            }
+        }
+    }
+
+    private void dispatch(Map<String, Object> frame)
+    {
+        final FrameHandler currentHandler;
+        synchronized (lock)
+        {
+            currentHandler = handler;
+        }
+
+        try
+        {
+            currentHandler.handleFrame(frame);
+        }
+        catch (RuntimeException e)
+        {
+            logger.error("Unexpected exception while dispatching frame", e);
+        }
+    }
+
+    private Map<String, Object> take() throws InterruptedException
+    {
+        if (overflowPolicy != DispatchQueueOverflowPolicy.SPILL)
+        {
+            return ring.take();
+        }
+
+        while (true)
+        {
+            Map<String, Object> frame = ring.poll();
+            if (frame != null)
+            {
+                return frame;
+            }
+
+            // frames in the ring buffer are always older than those spilled
+            frame = unspill();
+            if (frame != null)
+            {
+                return frame;
+            }
+
+            frame = ring.poll(SPILL_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            // give run() a chance to check for stop() once the spill file is gone
+            return frame == null ? WAKE_UP : frame;
+        }
+    }
+
+    private boolean spill(Map<String, Object> frame)
+    {
+        try
+        {
+            if (spillFile == null)
+            {
+                spillFile = new SpillFile(spillDirectory);
+                logger.warn("Dispatch queue is full, spilling to " + spillFile.file);
+            }
+            spillFile.write(frame);
+            spillBacklog++;
+            spilledCount.incrementAndGet();
+            return true;
+        }
+        catch (IOException e)
+        {
+            logger.error("Unable to spill to disk, waiting for the dispatch thread to catch up", e);
+            return false;
+        }
+    }
+
+    /**
+     * Waits until the dispatch thread has taken all spilled frames. Must be
+     * called with the lock held.
+     *
+     * @return <code>true</code> if the spill file is gone,
+     *         <code>false</code> if the thread was interrupted.
+     */
+    private boolean awaitSpillFileDrained()
+    {
+        while (spillFile != null)
+        {
+            try
+            {
+                lock.wait();
+            }
+            catch (InterruptedException e)
+            {
+                logger.warn("Interrupted while waiting for spilled frames to be dispatched, frame lost");
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, Object> unspill()
+    {
+        synchronized (lock)
+        {
+            if (spillFile == null)
+            {
+                return null;
+            }
+
+            Map<String, Object> frame = null;
+            try
+            {
+                frame = spillFile.read();
+            }
+            catch (IOException | ClassNotFoundException e)
+            {
+                logger.error("Unable to read spilled frame, discarding the remaining " + spillBacklog
+                        + " spilled frames", e);
+                spillBacklog = 0;
+            }
+
+            if (frame != null)
+            {
+                spillBacklog--;
+            }
+            if (spillBacklog == 0)
+            {
+                spillFile.close();
+                spillFile = null;
+                lock.notifyAll();
+                logger.info("Dispatch queue caught up with spilled frames");
+            }
+            return frame;
+        }
+    }
+
+    private boolean isDroppable(Map<String, Object> frame)
+    {
+        if (!frame.containsKey("event"))
+        {
+            return false;
+        }
+        return droppableEventTypes.isEmpty() || droppableEventTypes.contains(getEventType(frame));
+    }
+
+    /**
+     * Returns the lower case event type of the given frame, for user events
+     * followed by the lower case user event type.
+     *
+     * @param frame the attributes of an event.
+     * @return the event type.
+     */
+    static String getEventType(Map<String, Object> frame)
+    {
+        final Object event = frame.get("event");
+        if (!(event instanceof String))
+        {
+            return String.valueOf(event);
+        }
+
+        String eventType = ((String) event).toLowerCase(Locale.ENGLISH);
+        if ("userevent".equals(eventType) && frame.get("userevent") instanceof String)
+        {
+            eventType += ((String) frame.get("userevent")).toLowerCase(Locale.ENGLISH);
+        }
+        return eventType;
+    }
+
+    private void updateHighWaterMark()
+    {
+        final int depth = getDepth();
+        if (depth > highWaterMark)
+        {
+            highWaterMark = depth;
+        }
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    public int getDepth()
+    {
+        return ring.size() + spillBacklog;
+    }
+
+    public int getHighWaterMark()
+    {
+        return highWaterMark;
+    }
+
+    public void resetHighWaterMark()
+    {
+        highWaterMark = getDepth();
+    }
+
+    public long getDroppedCount()
+    {
+        return droppedCount.get();
+    }
+
+    public Map<String, Long> getDroppedCountByEventType()
+    {
+        final Map<String, Long> copy = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : droppedCountByEventType.entrySet())
+        {
+            copy.put(entry.getKey(), entry.getValue().get());
+        }
+        return copy;
+    }
+
+    public long getSpilledCount()
+    {
+        return spilledCount.get();
+    }
+
+    /**
+     * Temporary file written by the reader thread and read by the dispatch
+     * thread.
+     */
+    private static final class SpillFile
+    {
+        private final File file;
+        private final ObjectOutputStream out;
+        private ObjectInputStream in;
+
+        SpillFile(File directory) throws IOException
+        {
+            this.file = File.createTempFile("asterisk-java-dispatch-", ".spill", directory);
+            this.file.deleteOnExit();
+            this.out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            this.out.flush();
+        }
+
+        void write(Map<String, Object> frame) throws IOException
+        {
+            out.writeObject(frame);
+            // frames are not shared, so don't keep references to them
+            out.reset();
+            out.flush();
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> read() throws IOException, ClassNotFoundException
+        {
+            if (in == null)
+            {
+                in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            }
+            return (Map<String, Object>) in.readObject();
+        }
+
+        void close()
+        {
+            try
+            {
+                out.close();
+                if (in != null)
+                {
+                    in.close();
+                }
+            }
+            catch (IOException e)
+            {
+                // nothing we can do
+            }
+            if (!file.delete())
+            {
+                file.deleteOnExit();
+            }
+        }
+    }
+}
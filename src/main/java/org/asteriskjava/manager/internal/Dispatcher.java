@@ -17,6 +17,7 @@
 package org.asteriskjava.manager.internal;
 
 import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.ResponseEvent;
 import org.asteriskjava.manager.response.ManagerResponse;
 
 
@@ -49,4 +50,17 @@ interface Dispatcher
      * @see ManagerReader
      */
     void dispatchEvent(ManagerEvent event);
+
+    /**
+     * This method is called by the reader when it dispatches events through a
+     * {@link DispatchQueue} and receives a ResponseEvent with an internal
+     * action id. The event is only dispatched to the handler of the event
+     * generating action it belongs to, it is passed to
+     * {@link #dispatchEvent(ManagerEvent)} later when it leaves the queue.
+     *
+     * @param event the event received by the reader
+     * @see ManagerReader
+     * @since 2.0.0
+     */
+    void dispatchResponseEvent(ResponseEvent event);
 }
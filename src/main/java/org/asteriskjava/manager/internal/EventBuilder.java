@@ -17,6 +17,7 @@
 package org.asteriskjava.manager.internal;
 
 import java.util.Map;
+import java.util.Set;
 
 import org.asteriskjava.manager.event.ManagerEvent;
 
@@ -56,5 +57,36 @@ interface EventBuilder
      */
     ManagerEvent buildEvent(Object source, Map<String, Object> attributes);
 
+    /**
+     * Returns the event class registered for the given event type.
+     *
+     * @param eventType the lower case event type as received in the "Event"
+     *            header, for user events followed by the lower case user
+     *            event type.
+     * @return the registered event class or <code>null</code> if none is
+     *         registered for the event type.
+     * @since 2.0.0
+     */
+    Class< ? extends ManagerEvent> getEventClass(String eventType);
+
+    /**
+     * Returns the event types event classes are registered for.
+     *
+     * @return the lower case event types.
+     * @since 2.0.0
+     */
+    Set<String> getRegisteredEventTypes();
+
+    /**
+     * Set to <code>true</code> to build events of classes annotated with
+     * {@link org.asteriskjava.manager.event.LazyAttributes} with their
+     * attributes pending, converting and setting each attribute when its
+     * getter is first called.
+     *
+     * @param lazyEvents <code>true</code> to build events lazily.
+     * @since 2.0.0
+     */
+    void setLazyEvents(boolean lazyEvents);
+
     void deregisterEventClass(Class< ? extends ManagerEvent> eventClass);
 }
@@ -41,6 +41,7 @@ class EventBuilderImpl extends AbstractBuilder implements EventBuilder
 {
     private static final Set<String> ignoredAttributes = new HashSet<>(Arrays.asList("event"));
     private Map<String, Class< ? >> registeredEventClasses;
+    private volatile boolean lazyEvents;
 
     EventBuilderImpl()
     {
@@ -227,6 +228,18 @@ class EventBuilderImpl extends AbstractBuilder implements EventBuilder
     }
 
     public final void registerEventClass(Class< ? extends ManagerEvent> clazz) throws IllegalArgumentException
+    {
+        registerEventClass(getEventType(clazz), clazz);
+    }
+
+    /**
+     * Returns the lower case event type the given class is registered for by
+     * {@link #registerEventClass(Class)}.
+     *
+     * @param clazz the event class.
+     * @return the event type derived from the class name.
+     */
+    static String getEventType(Class< ? extends ManagerEvent> clazz)
     {
         String className;
         String eventType;
@@ -244,7 +257,7 @@ class EventBuilderImpl extends AbstractBuilder implements EventBuilder
             eventType = "userevent" + eventType;
         }
 
-        registerEventClass(eventType, clazz);
+        return eventType;
     }
 
     /**
@@ -428,6 +441,10 @@ class EventBuilderImpl extends AbstractBuilder implements EventBuilder
             }
             peersEvent.setActionId(peersEvent.getChildEvents().get(0).getActionId());
         }
+        else if (lazyEvents && eventClass.isAnnotationPresent(LazyAttributes.class))
+        {
+            setAttributesLazily(event, attributes, ignoredAttributes);
+        }
         else
         {
             setAttributes(event, attributes, ignoredAttributes);
@@ -453,6 +470,22 @@ class EventBuilderImpl extends AbstractBuilder implements EventBuilder
         return event;
     }
 
+    @SuppressWarnings("unchecked")
+    public Class< ? extends ManagerEvent> getEventClass(String eventType)
+    {
+        return (Class< ? extends ManagerEvent>) registeredEventClasses.get(eventType);
+    }
+
+    public Set<String> getRegisteredEventTypes()
+    {
+        return new HashSet<>(registeredEventClasses.keySet());
+    }
+
+    public void setLazyEvents(boolean lazyEvents)
+    {
+        this.lazyEvents = lazyEvents;
+    }
+
     @Override
     public void deregisterEventClass(Class< ? extends ManagerEvent> eventClass)
     {
@@ -0,0 +1,328 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.asteriskjava.manager.AsteriskMapping;
+import org.asteriskjava.manager.event.UserEvent;
+import org.asteriskjava.util.ReflectionUtil;
+
+/**
+ * The getters of an action or user event class prepared once for use by the
+ * {@link ActionBuilderImpl}.
+ * <p>
+ * A plan contains a {@link Getter} for each property to send, holding a
+ * {@link MethodHandle} and the header name as mapped by
+ * {@link AsteriskMapping}, both as String and as ASCII bytes. Plans are cached
+ * per class in a {@link ClassValue}, so building an action does not perform
+ * any reflective lookups once the plan is warm.
+ *
+ * @see SetterPlan
+ */
+final class GetterPlan
+{
+    private static final ClassValue<GetterPlan> PLANS = new ClassValue<GetterPlan>()
+    {
+        @Override
+        protected GetterPlan computeValue(Class< ? > type)
+        {
+            return new GetterPlan(type);
+        }
+    };
+
+    static final String ATTRIBUTES_PROPERTY_NAME = "attributes";
+
+    /**
+     * Properties that are not sent as headers, action and actionid are
+     * written by the builder itself.
+     */
+    private static final Set<String> MEMBERS_TO_IGNORE = new HashSet<>(
+            Arrays.asList("class", "action", "actionid", ATTRIBUTES_PROPERTY_NAME));
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final List<Getter> getters;
+    private final Getter attributesGetter;
+    private final String userEventType;
+
+    private GetterPlan(Class< ? > type)
+    {
+        final List<Getter> list = new ArrayList<>();
+        Getter attributes = null;
+
+        for (Map.Entry<String, Method> entry : ReflectionUtil.getGetters(type).entrySet())
+        {
+            final String name = entry.getKey();
+            final Method method = entry.getValue();
+
+            if (ATTRIBUTES_PROPERTY_NAME.equals(name))
+            {
+                attributes = new Getter(method, name);
+            }
+            else if (!MEMBERS_TO_IGNORE.contains(name) && method.getReturnType() != Class.class)
+            {
+                list.add(new Getter(method, mapToAsterisk(method)));
+            }
+        }
+
+        this.getters = Collections.unmodifiableList(list);
+        this.attributesGetter = attributes;
+        this.userEventType = UserEvent.class.isAssignableFrom(type) ? determineUserEventType(type) : null;
+    }
+
+    /**
+     * Returns the plan for the given class.
+     *
+     * @param type the class to return the plan for.
+     * @return the plan for the given class.
+     */
+    static GetterPlan forClass(Class< ? > type)
+    {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Returns the getters of the properties to send as headers.
+     *
+     * @return the getters of the properties to send.
+     */
+    List<Getter> getGetters()
+    {
+        return getters;
+    }
+
+    /**
+     * Returns the getter of the special attributes property whose entries are
+     * sent as they are.
+     *
+     * @return the getter of the attributes property or <code>null</code> if
+     *         the class does not have one.
+     */
+    Getter getAttributesGetter()
+    {
+        return attributesGetter;
+    }
+
+    /**
+     * Returns the value of the UserEvent header for user event classes.
+     *
+     * @return the lower case user event type without the "event" suffix or
+     *         <code>null</code> if the class is not a {@link UserEvent}.
+     */
+    String getUserEventType()
+    {
+        return userEventType;
+    }
+
+    private static String determineUserEventType(Class< ? > type)
+    {
+        final String className = type.getName();
+        String eventType = className.substring(className.lastIndexOf('.') + 1).toLowerCase(Locale.ENGLISH);
+
+        if (eventType.endsWith("event"))
+        {
+            eventType = eventType.substring(0, eventType.length() - "event".length());
+        }
+        return eventType;
+    }
+
+    private static String mapToAsterisk(Method getter)
+    {
+        AsteriskMapping annotation;
+
+        // check annotation of getter method
+        annotation = getter.getAnnotation(AsteriskMapping.class);
+        if (annotation != null)
+        {
+            return annotation.value();
+        }
+
+        // check annotation of setter method
+        String setterName = ActionBuilderImpl.determineSetterName(getter.getName());
+        try
+        {
+            Method setter = getter.getDeclaringClass().getDeclaredMethod(setterName, getter.getReturnType());
+            annotation = setter.getAnnotation(AsteriskMapping.class);
+            if (annotation != null)
+            {
+                return annotation.value();
+            }
+        }
+        catch (NoSuchMethodException e)
+        {
+            // ok, no setter method
+        }
+
+        // check annotation of field
+        String fieldName = ActionBuilderImpl.determineFieldName(getter.getName());
+        try
+        {
+            Field field = getter.getDeclaringClass().getDeclaredField(fieldName);
+            annotation = field.getAnnotation(AsteriskMapping.class);
+            if (annotation != null)
+            {
+                return annotation.value();
+            }
+        }
+        catch (NoSuchFieldException e)
+        {
+            // ok, no field
+        }
+
+        return fieldName.toLowerCase(Locale.US);
+    }
+
+    private static byte[] toAscii(String s)
+    {
+        for (int i = 0; i < s.length(); i++)
+        {
+            if (s.charAt(i) >= 0x80)
+            {
+                return null;
+            }
+        }
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A prepared getter.
+     */
+    static final class Getter
+    {
+        private final Method method;
+        private final MethodHandle handle;
+        private final String name;
+        private final String header;
+        private final byte[] headerBytes;
+        private final String singularHeader;
+        private final byte[] singularHeaderBytes;
+
+        private Getter(Method method, String name)
+        {
+            this.method = method;
+            this.name = name;
+            this.header = name + ": ";
+            this.headerBytes = toAscii(header);
+
+            // strip plural s (i.e. use "variable: " instead of "variables: "
+            final String singularName = name.endsWith("s") ? name.substring(0, name.length() - 1) : name;
+            this.singularHeader = singularName + ": ";
+            this.singularHeaderBytes = toAscii(singularHeader);
+
+            MethodHandle h;
+            try
+            {
+                // public methods of non public classes are not accessible
+                // otherwise
+                if (!Modifier.isPublic(method.getDeclaringClass().getModifiers()))
+                {
+                    method.setAccessible(true);
+                }
+                h = MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE);
+            }
+            catch (IllegalAccessException | RuntimeException e)
+            {
+                h = null;
+            }
+            this.handle = h;
+        }
+
+        /**
+         * Returns the header name as mapped by {@link AsteriskMapping}.
+         *
+         * @return the header name.
+         */
+        String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Returns the header name followed by ": ".
+         *
+         * @return the header prefix.
+         */
+        String getHeader()
+        {
+            return header;
+        }
+
+        /**
+         * Returns {@link #getHeader()} as ASCII bytes.
+         *
+         * @return the header prefix or <code>null</code> if it contains non
+         *         ASCII characters.
+         */
+        byte[] getHeaderBytes()
+        {
+            return headerBytes;
+        }
+
+        /**
+         * Returns the header prefix used for the entries of map properties,
+         * i.e. without a trailing plural "s".
+         *
+         * @return the singular header prefix.
+         */
+        String getSingularHeader()
+        {
+            return singularHeader;
+        }
+
+        /**
+         * Returns {@link #getSingularHeader()} as ASCII bytes.
+         *
+         * @return the singular header prefix or <code>null</code> if it
+         *         contains non ASCII characters.
+         */
+        byte[] getSingularHeaderBytes()
+        {
+            return singularHeaderBytes;
+        }
+
+        /**
+         * Invokes the getter.
+         *
+         * @param target the object to get the value from.
+         * @return the value returned by the getter.
+         * @throws Throwable if the getter failed.
+         */
+        Object invoke(Object target) throws Throwable
+        {
+            if (handle == null)
+            {
+                return method.invoke(target);
+            }
+            return handle.invokeExact(target);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import static org.asteriskjava.manager.ManagerConnectionState.DISCONNECTING;
 import static org.asteriskjava.manager.ManagerConnectionState.INITIAL;
 import static org.asteriskjava.manager.ManagerConnectionState.RECONNECTING;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.InetAddress;
@@ -32,26 +33,40 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.asteriskjava.AsteriskVersion;
+import org.asteriskjava.manager.ActionFuture;
+import org.asteriskjava.manager.ActionFutureCallback;
 import org.asteriskjava.manager.AuthenticationFailedException;
+import org.asteriskjava.manager.DispatchQueueOverflowPolicy;
+import org.asteriskjava.manager.DispatchQueueStatistics;
 import org.asteriskjava.manager.EventTimeoutException;
 import org.asteriskjava.manager.ExpectedResponse;
+import org.asteriskjava.manager.FilteredManagerEventListener;
 import org.asteriskjava.manager.ManagerConnection;
 import org.asteriskjava.manager.ManagerConnectionState;
 import org.asteriskjava.manager.ManagerEventListener;
+import org.asteriskjava.manager.ResponseEventStream;
 import org.asteriskjava.manager.ResponseEvents;
 import org.asteriskjava.manager.SendActionCallback;
 import org.asteriskjava.manager.TimeoutException;
 import org.asteriskjava.manager.action.ChallengeAction;
 import org.asteriskjava.manager.action.CommandAction;
 import org.asteriskjava.manager.action.EventGeneratingAction;
+import org.asteriskjava.manager.action.FilterAction;
 import org.asteriskjava.manager.action.LoginAction;
 import org.asteriskjava.manager.action.LogoffAction;
 import org.asteriskjava.manager.action.ManagerAction;
@@ -68,6 +83,9 @@ import org.asteriskjava.manager.response.CommandResponse;
 import org.asteriskjava.manager.response.ManagerError;
 import org.asteriskjava.manager.response.ManagerResponse;
 import org.asteriskjava.util.DateUtil;
+import org.asteriskjava.util.ExecutionRuntime;
+import org.asteriskjava.util.HashedWheelTimer;
+import org.asteriskjava.util.LatencyHistogram;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 import org.asteriskjava.util.SocketConnectionFacade;
@@ -97,6 +115,35 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
     private static final Pattern VERSION_PATTERN_12 = Pattern.compile("^\\s*Asterisk ((SVN-branch|GIT)-)?12[-. ].*");
     private static final Pattern VERSION_PATTERN_13 = Pattern.compile("^\\s*Asterisk ((SVN-branch|GIT)-)?13[-. ].*");
 
+    /**
+     * Server side filter that lets through the events sent in response to
+     * actions.
+     */
+    private static final String RESPONSE_EVENTS_FILTER = "ActionID: ";
+
+    /**
+     * Server side filter that lets through all events.
+     */
+    private static final String ALL_EVENTS_FILTER = "Event: ";
+
+    /**
+     * Ends the event types of a server side filter. Asterisk matches the
+     * filters against the whole event, so the line break after the event
+     * type keeps "Hangup" from also matching "HangupRequest".
+     */
+    private static final String EVENT_TYPES_FILTER_END = ")[[:space:]]";
+
+    /**
+     * Maximum length of the regular expression of a single server side event
+     * filter, Asterisk limits the length of a line it reads.
+     */
+    private static final int MAX_EVENT_FILTER_LENGTH = 512;
+
+    /**
+     * Default number of response events buffered by a response event stream.
+     */
+    private static final int DEFAULT_STREAM_BUFFER_SIZE = 1024;
+
     private static final AtomicLong idCounter = new AtomicLong(0);
 
     /**
@@ -217,7 +264,7 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
      * Key is the internalActionId of the Action sent and value the
      * corresponding ResponseListener.
      */
-    private final Map<String, SendActionCallback> responseListeners;
+    private final ConcurrentMap<String, SendActionCallback> responseListeners;
 
     /**
      * Contains the event handlers that handle ResponseEvents for the
@@ -226,25 +273,117 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
      * Key is the internalActionId of the Action sent and value the
      * corresponding EventHandler.
      */
-    private final Map<String, ManagerEventListener> responseEventListeners;
+    private final ConcurrentMap<String, ManagerEventListener> responseEventListeners;
 
     /**
      * Contains the event handlers that users registered.
      */
     private final List<ManagerEventListener> eventListeners;
 
+    /**
+     * Immutable snapshot of {@link #eventListeners} used for dispatching,
+     * replaced whenever listeners are added or removed.
+     */
+    private volatile ListenerIndex listenerIndex = new ListenerIndex(Collections.<ManagerEventListener> emptyList());
+
+    /**
+     * The union of the event classes required by the registered listeners or
+     * <code>null</code> if one of them requires all events.
+     */
+    private volatile Set<Class< ? extends ManagerEvent>> requiredEvents = Collections.emptySet();
+
+    /**
+     * <code>true</code> to install server side event filters for the events
+     * required by the listeners.
+     */
+    private boolean autoEventFilters = false;
+
+    private final Object eventFilterLock = new Object();
+
+    /**
+     * Event types let through by the server side filters of the current
+     * session or <code>null</code> if no filter has been installed.
+     */
+    private Set<String> installedEventFilters;
+
+    /**
+     * <code>true</code> if a filter that lets through all events has been
+     * installed in the current session.
+     */
+    private boolean allEventsFilterInstalled;
+
+    /**
+     * Logs failures to install server side event filters.
+     */
+    private final ActionFutureCallback<ManagerResponse> eventFilterCallback = new ActionFutureCallback<ManagerResponse>()
+    {
+        public void onSuccess(ManagerResponse response)
+        {
+            if (response instanceof ManagerError)
+            {
+                logger.warn("Unable to install server side event filter: " + response.getMessage());
+            }
+        }
+
+        public void onFailure(Throwable cause)
+        {
+            logger.warn("Unable to install server side event filter: " + cause.getMessage());
+        }
+    };
+
     protected ManagerConnectionState state = INITIAL;
 
     private String eventMask;
 
+    /**
+     * <code>true</code> to read from Asterisk using the byte level
+     * {@link NioManagerReaderImpl}.
+     */
+    private boolean nioReader = false;
+
+    /**
+     * <code>true</code> to send actions from a separate thread using the
+     * {@link PipelinedManagerWriterImpl}.
+     */
+    private boolean pipelinedWriter = false;
+
+    /**
+     * <code>true</code> to build events that support it with their attributes
+     * set on demand.
+     */
+    private boolean lazyEvents = false;
+
+    /**
+     * Capacity of the queue between the reader and the dispatch thread, 0 to
+     * dispatch on the reader thread.
+     */
+    private int dispatchQueueCapacity = 0;
+    private DispatchQueueOverflowPolicy dispatchQueueOverflowPolicy = DispatchQueueOverflowPolicy.BLOCK;
+    private final Set<Class< ? extends ManagerEvent>> droppableEventClasses = new HashSet<>();
+    private File spillDirectory;
+    private DispatchQueue dispatchQueue;
+    private final AtomicLong dispatchThreadCounter = new AtomicLong(0);
+    private final AtomicLong writerThreadCounter = new AtomicLong(0);
+
+    /**
+     * Round trip times of actions sent with a callback.
+     */
+    private final LatencyHistogram responseTimeHistogram = new LatencyHistogram();
+
+    /**
+     * Provides the threads of this connection and the timer for the timeouts
+     * of asynchronously sent actions.
+     */
+    private volatile ExecutionRuntime runtime = ExecutionRuntime.getDefault();
+
     /**
      * Creates a new instance.
      */
     public ManagerConnectionImpl()
     {
         this.id = idCounter.getAndIncrement();
-        this.responseListeners = new HashMap<>();
-        this.responseEventListeners = new HashMap<>();
+        this.responseListeners = new ConcurrentHashMap<>();
+        this.responseEventListeners = new ConcurrentHashMap<>();
         this.eventListeners = new ArrayList<>();
         this.protocolIdentifier = new ProtocolIdentifierWrapper();
     }
@@ -253,11 +392,19 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
     // return a mock object
     protected ManagerReader createReader(Dispatcher dispatcher, Object source)
     {
+        if (nioReader)
+        {
+            return new NioManagerReaderImpl(dispatcher, source, encoding);
+        }
         return new ManagerReaderImpl(dispatcher, source);
     }
 
     protected ManagerWriter createWriter()
     {
+        if (pipelinedWriter)
+        {
+            return new PipelinedManagerWriterImpl(encoding);
+        }
         return new ManagerWriterImpl();
     }
 
@@ -378,6 +525,209 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         this.keepAliveAfterAuthenticationFailure = keepAliveAfterAuthenticationFailure;
     }
 
+    /**
+     * Set to <code>true</code> to read events and responses with a reader that
+     * splits the data received from Asterisk into frames at the byte level
+     * using a reusable direct buffer instead of reading it line by line. This
+     * considerably reduces the garbage created per event.
+     * <p>
+     * Must be set before the connection is used. Default is
+     * <code>false</code>.
+     *
+     * @param nioReader <code>true</code> to use the byte level reader.
+     * @since 2.0.0
+     */
+    public void setNioReader(boolean nioReader)
+    {
+        this.nioReader = nioReader;
+    }
+
+    /**
+     * Set to <code>true</code> to send actions from a separate writer thread.
+     * Sending an action then only queues it, the writer thread sends all
+     * actions queued in the meantime with a single write and flush. This
+     * considerably reduces the number of system calls for bursts of actions,
+     * see {@link #sendActions(List)}.
+     * <p>
+     * Must be set before the connection is used. Default is
+     * <code>false</code>.
+     *
+     * @param pipelinedWriter <code>true</code> to use the pipelined writer.
+     * @since 2.0.0
+     */
+    public void setPipelinedWriter(boolean pipelinedWriter)
+    {
+        this.pipelinedWriter = pipelinedWriter;
+    }
+
+    /**
+     * Set to <code>true</code> to build events of classes annotated with
+     * {@link org.asteriskjava.manager.event.LazyAttributes} lazily. Such
+     * events keep the attributes received from Asterisk and convert each of
+     * them only when its getter is first called, which saves CPU and garbage
+     * for high rate events when listeners only look at a few properties.
+     * <p>
+     * Must be set before the connection is used. Default is
+     * <code>false</code>.
+     *
+     * @param lazyEvents <code>true</code> to build events lazily.
+     * @since 2.0.0
+     */
+    public void setLazyEvents(boolean lazyEvents)
+    {
+        this.lazyEvents = lazyEvents;
+    }
+
+    /**
+     * Sets the runtime that provides the threads of this connection: the
+     * reader, writer and dispatcher threads, the executor used to reconnect
+     * and the timer for the timeouts of asynchronously sent actions.
+     * <p>
+     * Connections share the {@link ExecutionRuntime#getDefault() default
+     * runtime} unless another one is set. Must be set before the connection
+     * is logged in.
+     *
+     * @param runtime the runtime to use.
+     * @since 2.0.0
+     */
+    public void setRuntime(ExecutionRuntime runtime)
+    {
+        if (runtime == null)
+        {
+            throw new IllegalArgumentException("Runtime must not be null");
+        }
+        this.runtime = runtime;
+    }
+
+    /**
+     * Returns the runtime that provides the threads of this connection.
+     *
+     * @return the runtime of this connection.
+     * @since 2.0.0
+     */
+    public ExecutionRuntime getRuntime()
+    {
+        return runtime;
+    }
+
+    /**
+     * Set to <code>true</code> to install server side event filters using the
+     * {@link FilterAction} after login and on every reconnect, so Asterisk
+     * only sends the events required by the
+     * {@link FilteredManagerEventListener}s registered. Events sent in
+     * response to actions are always let through.
+     * <p>
+     * Filters are added when listeners requiring additional events are
+     * registered. As Asterisk does not support removing filters, events no
+     * longer required are sent until the next reconnect and skipped by the
+     * reader. Registering a plain {@link ManagerEventListener} lets through
+     * all events again.
+     * <p>
+     * Requires Asterisk 13 or later. Default is <code>false</code>.
+     *
+     * @param autoEventFilters <code>true</code> to install server side event
+     *            filters.
+     * @since 2.0.0
+     */
+    public void setAutoEventFilters(boolean autoEventFilters)
+    {
+        this.autoEventFilters = autoEventFilters;
+    }
+
+    /**
+     * Sets the capacity of the queue between the thread reading from Asterisk
+     * and a separate thread dispatching events and responses to the
+     * listeners.
+     * <p>
+     * With a queue slow listeners no longer stall reading from the socket
+     * until the queue is full, what happens then is determined by the
+     * {@link #setDispatchQueueOverflowPolicy(DispatchQueueOverflowPolicy)
+     * overflow policy}.
+     * <p>
+     * Must be set before the connection is used. Default is 0 which disables
+     * the queue and dispatches on the reader thread.
+     *
+     * @param dispatchQueueCapacity the number of events and responses the
+     *            queue can hold, 0 to disable it.
+     * @since 2.0.0
+     */
+    public void setDispatchQueueCapacity(int dispatchQueueCapacity)
+    {
+        this.dispatchQueueCapacity = dispatchQueueCapacity;
+    }
+
+    /**
+     * Sets what happens when the dispatch queue is full. Default is
+     * {@link DispatchQueueOverflowPolicy#BLOCK}.
+     *
+     * @param dispatchQueueOverflowPolicy the overflow policy.
+     * @see #setDispatchQueueCapacity(int)
+     * @since 2.0.0
+     */
+    public void setDispatchQueueOverflowPolicy(DispatchQueueOverflowPolicy dispatchQueueOverflowPolicy)
+    {
+        this.dispatchQueueOverflowPolicy = dispatchQueueOverflowPolicy;
+    }
+
+    /**
+     * Sets the event classes that may be dropped when the dispatch queue is
+     * full and the overflow policy is {@link DispatchQueueOverflowPolicy#DROP}
+     * . If none are set all events may be dropped.
+     *
+     * @param droppableEventClasses the event classes that may be dropped.
+     * @since 2.0.0
+     */
+    public void setDroppableEventClasses(Set<Class< ? extends ManagerEvent>> droppableEventClasses)
+    {
+        this.droppableEventClasses.clear();
+        if (droppableEventClasses != null)
+        {
+            this.droppableEventClasses.addAll(droppableEventClasses);
+        }
+    }
+
+    /**
+     * Sets the directory to write events to when the dispatch queue is full
+     * and the overflow policy is {@link DispatchQueueOverflowPolicy#SPILL}.
+     * Default is the directory given by the system property
+     * <code>java.io.tmpdir</code>.
+     *
+     * @param spillDirectory the directory for the spill file.
+     * @since 2.0.0
+     */
+    public void setSpillDirectory(File spillDirectory)
+    {
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Returns the depth, high water mark and overflow counters of the
+     * dispatch queue.
+     *
+     * @return the statistics of the dispatch queue or <code>null</code> if the
+     *         queue is disabled or the connection has not yet been used.
+     * @see #setDispatchQueueCapacity(int)
+     * @since 2.0.0
+     */
+    public DispatchQueueStatistics getDispatchQueueStatistics()
+    {
+        return dispatchQueue;
+    }
+
+    /**
+     * Returns the histogram of the time between sending an action and
+     * dispatching its response, recorded for all actions sent with a
+     * callback, including those sent by {@link #sendAction(ManagerAction)} and
+     * {@link #sendEventGeneratingAction(EventGeneratingAction)}.
+     *
+     * @return the histogram of response round trip times.
+     * @since 2.0.0
+     */
+    public LatencyHistogram getResponseTimeHistogram()
+    {
+        return responseTimeHistogram;
+    }
+
     /* Implementation of ManagerConnection interface */
 
     public String getUsername()
@@ -616,12 +966,20 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
 
         version = determineVersion();
 
+        synchronized (eventFilterLock)
+        {
+            installedEventFilters = null;
+            allEventsFilterInstalled = false;
+        }
+
         state = CONNECTED;
 
         writer.setTargetVersion(version);
 
         logger.info("Determined Asterisk version: " + version);
 
+        installEventFilters();
+
         // generate pseudo event indicating a successful login
         ConnectEvent connectEvent = new ConnectEvent(this);
         connectEvent.setProtocolIdentifier(getProtocolIdentifier());
@@ -775,6 +1133,29 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
             logger.debug("Creating reader for " + hostname + ":" + port);
             reader = createReader(this, this);
         }
+        reader.setLazyEvents(lazyEvents);
+        synchronized (eventListeners)
+        {
+            reader.setRequiredEvents(requiredEvents);
+        }
+
+        if (dispatchQueueCapacity > 0)
+        {
+            if (dispatchQueue == null)
+            {
+                logger.debug("Creating dispatch queue");
+                final Set<String> droppableEventTypes = new HashSet<>();
+                for (Class< ? extends ManagerEvent> eventClass : droppableEventClasses)
+                {
+                    droppableEventTypes.add(EventBuilderImpl.getEventType(eventClass));
+                }
+                dispatchQueue = new DispatchQueue(dispatchQueueCapacity, dispatchQueueOverflowPolicy,
+                        droppableEventTypes, spillDirectory);
+            }
+            reader.setDispatchQueue(dispatchQueue);
+            dispatchQueue.start("Asterisk-Java ManagerConnection-" + id + "-Dispatcher-"
+                    + dispatchThreadCounter.getAndIncrement(), runtime);
+        }
 
         if (writer == null)
         {
@@ -791,20 +1172,25 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         if (readerThread == null || !readerThread.isAlive() || reader.isDead())
         {
             logger.debug("Creating and starting reader thread");
-            readerThread = new Thread(reader);
-            readerThread
-                    .setName("Asterisk-Java ManagerConnection-" + id + "-Reader-" + readerThreadCounter.getAndIncrement());
-            readerThread.setDaemon(true);
+            readerThread = runtime.newThread(reader,
+                    "Asterisk-Java ManagerConnection-" + id + "-Reader-" + readerThreadCounter.getAndIncrement());
             readerThread.start();
         }
 
         logger.debug("Passing socket to writer");
         writer.setSocket(socket);
+
+        if (writer instanceof PipelinedManagerWriterImpl)
+        {
+            ((PipelinedManagerWriterImpl) writer).start("Asterisk-Java ManagerConnection-" + id + "-Writer-"
+                    + writerThreadCounter.getAndIncrement(), runtime);
+        }
     }
 
     protected SocketConnectionFacade createSocket() throws IOException
     {
-        return new SocketConnectionFacadeImpl(hostname, port, ssl, socketTimeout, socketReadTimeout, encoding);
+        return new SocketConnectionFacadeImpl(hostname, port, ssl, socketTimeout, socketReadTimeout, encoding,
+                SocketConnectionFacadeImpl.CRNL_PATTERN, nioReader);
     }
 
     public synchronized void logoff() throws IllegalStateException
@@ -830,6 +1216,15 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         }
         cleanup();
         state = DISCONNECTED;
+
+        if (dispatchQueue != null)
+        {
+            dispatchQueue.stop();
+        }
+        if (writer instanceof PipelinedManagerWriterImpl)
+        {
+            ((PipelinedManagerWriterImpl) writer).stop();
+        }
     }
 
     /**
@@ -867,13 +1262,15 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
     {
         ResponseHandlerResult result;
         SendActionCallback callbackHandler;
+        String internalActionId;
 
         result = new ResponseHandlerResult();
         callbackHandler = new DefaultSendActionCallback(result);
+        internalActionId = createInternalActionId();
 
         synchronized (result)
         {
-            sendAction(action, callbackHandler);
+            sendAction(action, internalActionId, callbackHandler);
 
             // definitely return null for the response of user events
             if (action instanceof UserEventAction)
@@ -900,6 +1297,8 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         // still no response?
         if (result.getResponse() == null)
         {
+            // don't keep the callback if the response never arrives
+            responseListeners.remove(internalActionId);
             throw new TimeoutException("Timeout waiting for response to " + action.getAction()
                     + (action.getActionId() == null ? "" : " (actionId: " + action.getActionId() + ")"));
         }
@@ -910,8 +1309,62 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
     public void sendAction(ManagerAction action, SendActionCallback callback)
             throws IOException, IllegalArgumentException, IllegalStateException
     {
-        final String internalActionId;
+        sendAction(action, createInternalActionId(), callback);
+    }
+
+    public ActionFuture<ManagerResponse> sendActionAsync(ManagerAction action)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        return sendActionAsync(action, defaultResponseTimeout);
+    }
+
+    /*
+     * Implements asynchronous sending of "simple" actions.
+     */
+    public ActionFuture<ManagerResponse> sendActionAsync(ManagerAction action, long timeout)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        final AsyncResponseHandler handler;
+
+        handler = new AsyncResponseHandler(action, createInternalActionId());
+        try
+        {
+            sendAction(action, handler.internalActionId, handler);
+            handler.scheduleTimeout(timeout);
+        }
+        catch (IOException e)
+        {
+            handler.future.fail(e);
+        }
+        return handler.future;
+    }
+
+    /**
+     * Sends the given action with the given internal action id.
+     */
+    private void sendAction(ManagerAction action, String internalActionId, SendActionCallback callback)
+            throws IOException, IllegalArgumentException, IllegalStateException
+    {
+        registerAction(action, internalActionId, callback);
+
+        try
+        {
+            writer.sendAction(action, internalActionId);
+        }
+        catch (IOException e)
+        {
+            this.responseListeners.remove(internalActionId);
+            throw e;
+        }
+    }
 
+    /**
+     * Checks that the given action may be sent and registers the callback for
+     * its response.
+     */
+    private void registerAction(ManagerAction action, String internalActionId, SendActionCallback callback)
+            throws IllegalArgumentException, IllegalStateException
+    {
         if (action == null)
         {
             throw new IllegalArgumentException("Unable to send action: action is null.");
@@ -939,16 +1392,11 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
             throw new IllegalStateException("Unable to send " + action.getAction() + " action: socket not connected.");
         }
 
-        internalActionId = createInternalActionId();
-
         // if the callbackHandler is null the user is obviously not interested
         // in the response, thats fine.
         if (callback != null)
         {
-            synchronized (this.responseListeners)
-            {
-                this.responseListeners.put(internalActionId, callback);
-            }
+            this.responseListeners.put(internalActionId, new TimedSendActionCallback(callback));
         }
 
         Class< ? extends ManagerResponse> responseClass = getExpectedResponseClass(action.getClass());
@@ -956,8 +1404,54 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         {
             reader.expectResponseClass(internalActionId, responseClass);
         }
+    }
+
+    /*
+     * Implements pipelined sending of a batch of actions.
+     */
+    public List<ActionFuture<ManagerResponse>> sendActions(List< ? extends ManagerAction> actions)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        final List<ActionFuture<ManagerResponse>> futures = new ArrayList<>(actions.size());
+        final List<AsyncResponseHandler> handlers = new ArrayList<>(actions.size());
+        final List<String> internalActionIds = new ArrayList<>(actions.size());
+
+        for (ManagerAction action : actions)
+        {
+            final AsyncResponseHandler handler = new AsyncResponseHandler(action, createInternalActionId());
+            try
+            {
+                registerAction(action, handler.internalActionId, handler);
+            }
+            catch (RuntimeException e)
+            {
+                for (AsyncResponseHandler registered : handlers)
+                {
+                    responseListeners.remove(registered.internalActionId);
+                }
+                throw e;
+            }
+            handlers.add(handler);
+            internalActionIds.add(handler.internalActionId);
+            futures.add(handler.future);
+        }
 
-        writer.sendAction(action, internalActionId);
+        try
+        {
+            writer.sendActions(actions, internalActionIds);
+            for (AsyncResponseHandler handler : handlers)
+            {
+                handler.scheduleTimeout(defaultResponseTimeout);
+            }
+        }
+        catch (IOException e)
+        {
+            for (AsyncResponseHandler handler : handlers)
+            {
+                handler.future.fail(e);
+            }
+        }
+        return futures;
     }
 
     boolean isShowVersionCommandAction(ManagerAction action)
@@ -997,27 +1491,7 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         final ResponseEventHandler responseEventHandler;
         final String internalActionId;
 
-        if (action == null)
-        {
-            throw new IllegalArgumentException("Unable to send action: action is null.");
-        }
-        else if (action.getActionCompleteEventClass() == null)
-        {
-            throw new IllegalArgumentException(
-                    "Unable to send action: actionCompleteEventClass for " + action.getClass().getName() + " is null.");
-        }
-        else if (!ResponseEvent.class.isAssignableFrom(action.getActionCompleteEventClass()))
-        {
-            throw new IllegalArgumentException(
-                    "Unable to send action: actionCompleteEventClass (" + action.getActionCompleteEventClass().getName()
-                            + ") for " + action.getClass().getName() + " is not a ResponseEvent.");
-        }
-
-        if (state != CONNECTED)
-        {
-            throw new IllegalStateException(
-                    "Actions may only be sent when in state " + "CONNECTED but connection is in state " + state);
-        }
+        checkEventGeneratingAction(action);
 
         responseEvents = new ResponseEventsImpl();
         responseEventHandler = new ResponseEventHandler(responseEvents, action.getActionCompleteEventClass());
@@ -1027,16 +1501,10 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         try
         {
             // register response handler...
-            synchronized (this.responseListeners)
-            {
-                this.responseListeners.put(internalActionId, responseEventHandler);
-            }
+            this.responseListeners.put(internalActionId, new TimedSendActionCallback(responseEventHandler));
 
             // ...and event handler.
-            synchronized (this.responseEventListeners)
-            {
-                this.responseEventListeners.put(internalActionId, responseEventHandler);
-            }
+            this.responseEventListeners.put(internalActionId, responseEventHandler);
 
             synchronized (responseEvents)
             {
@@ -1069,39 +1537,131 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         finally
         {
             // remove the event handler
-            synchronized (this.responseEventListeners)
-            {
-                this.responseEventListeners.remove(internalActionId);
-            }
+            this.responseEventListeners.remove(internalActionId);
 
             // Note: The response handler should have already been removed
             // when the response was received, however we remove it here
             // just in case it was never received.
-            synchronized (this.responseListeners)
-            {
-                this.responseListeners.remove(internalActionId);
-            }
+            this.responseListeners.remove(internalActionId);
 
         }
 
         return responseEvents;
     }
 
-    /**
-     * Creates a new unique internal action id based on the hash code of this
-     * connection and a sequence.
-     * 
-     * @return a new internal action id
-     * @see ManagerUtil#addInternalActionId(String,String)
-     * @see ManagerUtil#getInternalActionId(String)
-     * @see ManagerUtil#stripInternalActionId(String)
+    public ActionFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        return sendEventGeneratingActionAsync(action, defaultEventTimeout);
+    }
+
+    /*
+     * Implements asynchronous sending of event generating actions.
      */
-    private String createInternalActionId()
+    public ActionFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action, long timeout)
+            throws IllegalArgumentException, IllegalStateException
     {
-        final StringBuilder sb;
+        final AsyncResponseEventsHandler handler;
 
-        sb = new StringBuilder();
-        sb.append(this.hashCode());
+        checkEventGeneratingAction(action);
+
+        handler = new AsyncResponseEventsHandler(action, createInternalActionId());
+        this.responseListeners.put(handler.internalActionId, new TimedSendActionCallback(handler));
+        this.responseEventListeners.put(handler.internalActionId, handler);
+        handler.scheduleTimeout(timeout);
+
+        try
+        {
+            writer.sendAction(action, handler.internalActionId);
+        }
+        catch (IOException e)
+        {
+            handler.future.fail(e);
+        }
+        return handler.future;
+    }
+
+    public ResponseEventStream streamEventGeneratingAction(EventGeneratingAction action)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        return streamEventGeneratingAction(action, DEFAULT_STREAM_BUFFER_SIZE, defaultEventTimeout);
+    }
+
+    /*
+     * Implements streaming of the response events of event generating
+     * actions.
+     */
+    public ResponseEventStream streamEventGeneratingAction(EventGeneratingAction action, int bufferSize, long timeout)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        final String internalActionId;
+        final ResponseEventStreamImpl stream;
+
+        checkEventGeneratingAction(action);
+
+        internalActionId = createInternalActionId();
+        stream = new ResponseEventStreamImpl(action, bufferSize, timeout, new Runnable()
+        {
+            public void run()
+            {
+                responseListeners.remove(internalActionId);
+                responseEventListeners.remove(internalActionId);
+            }
+        });
+        this.responseListeners.put(internalActionId, new TimedSendActionCallback(stream));
+        this.responseEventListeners.put(internalActionId, stream);
+
+        try
+        {
+            writer.sendAction(action, internalActionId);
+        }
+        catch (IOException e)
+        {
+            stream.fail(e);
+        }
+        return stream;
+    }
+
+    private void checkEventGeneratingAction(EventGeneratingAction action)
+    {
+        if (action == null)
+        {
+            throw new IllegalArgumentException("Unable to send action: action is null.");
+        }
+        else if (action.getActionCompleteEventClass() == null)
+        {
+            throw new IllegalArgumentException(
+                    "Unable to send action: actionCompleteEventClass for " + action.getClass().getName() + " is null.");
+        }
+        else if (!ResponseEvent.class.isAssignableFrom(action.getActionCompleteEventClass()))
+        {
+            throw new IllegalArgumentException(
+                    "Unable to send action: actionCompleteEventClass (" + action.getActionCompleteEventClass().getName()
+                            + ") for " + action.getClass().getName() + " is not a ResponseEvent.");
+        }
+
+        if (state != CONNECTED)
+        {
+            throw new IllegalStateException(
+                    "Actions may only be sent when in state " + "CONNECTED but connection is in state " + state);
+        }
+    }
+
+    /**
+     * Creates a new unique internal action id based on the hash code of this
+     * connection and a sequence.
+     * 
+     * @return a new internal action id
+     * @see ManagerUtil#addInternalActionId(String,String)
+     * @see ManagerUtil#getInternalActionId(String)
+     * @see ManagerUtil#stripInternalActionId(String)
+     */
+    private String createInternalActionId()
+    {
+        final StringBuilder sb;
+
+        sb = new StringBuilder();
+        sb.append(this.hashCode());
         sb.append("_");
         sb.append(actionIdCounter.getAndIncrement());
 
@@ -1118,6 +1678,7 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
                 this.eventListeners.add(listener);
             }
         }
+        refreshRequiredEvents();
     }
 
     public void removeEventListener(final ManagerEventListener listener)
@@ -1129,6 +1690,189 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
                 this.eventListeners.remove(listener);
             }
         }
+        refreshRequiredEvents();
+    }
+
+    public void refreshRequiredEvents()
+    {
+        synchronized (this.eventListeners)
+        {
+            final ListenerIndex index = new ListenerIndex(eventListeners);
+
+            this.listenerIndex = index;
+            this.requiredEvents = index.requiredEvents;
+            if (reader != null)
+            {
+                reader.setRequiredEvents(index.requiredEvents);
+            }
+        }
+
+        installEventFilters();
+    }
+
+    /**
+     * Installs server side filters for the event types required by the
+     * listeners that are not yet let through in the current session.
+     *
+     * @see #setAutoEventFilters(boolean)
+     */
+    private void installEventFilters()
+    {
+        final ManagerReader currentReader = reader;
+        if (!autoEventFilters || state != CONNECTED || currentReader == null)
+        {
+            return;
+        }
+        if (version == null || !version.isAtLeast(AsteriskVersion.ASTERISK_13))
+        {
+            logger.debug("Not installing server side event filters, the Filter action requires Asterisk 13");
+            return;
+        }
+
+        final List<FilterAction> filterActions = new ArrayList<>();
+        synchronized (eventFilterLock)
+        {
+            if (allEventsFilterInstalled)
+            {
+                return;
+            }
+
+            final Set<String> eventTypes = currentReader.getRequiredEventTypes();
+            if (eventTypes == null)
+            {
+                // whitelist filters can not be removed, so one that matches
+                // all events is needed to let them through again
+                if (installedEventFilters != null)
+                {
+                    filterActions.add(new FilterAction(ALL_EVENTS_FILTER));
+                    allEventsFilterInstalled = true;
+                }
+            }
+            else
+            {
+                if (installedEventFilters == null)
+                {
+                    filterActions.add(new FilterAction(RESPONSE_EVENTS_FILTER));
+                    installedEventFilters = new HashSet<>();
+                }
+
+                final Set<String> missingEventTypes = new TreeSet<>();
+                for (String eventType : eventTypes)
+                {
+                    // user events are sent as "Event: UserEvent"
+                    final String eventName = eventType.startsWith("userevent") ? "userevent" : eventType;
+                    if (installedEventFilters.add(eventName))
+                    {
+                        missingEventTypes.add(eventName);
+                    }
+                }
+                filterActions.addAll(createEventFilterActions(missingEventTypes));
+            }
+        }
+
+        if (filterActions.isEmpty())
+        {
+            return;
+        }
+
+        logger.info("Installing " + filterActions.size() + " server side event filter(s)");
+        try
+        {
+            for (ActionFuture<ManagerResponse> future : sendActions(filterActions))
+            {
+                future.addCallback(eventFilterCallback);
+            }
+        }
+        catch (IllegalStateException e)
+        {
+            // disconnected in the meantime, filters are installed again on
+            // reconnect
+            logger.debug("Unable to install server side event filters: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates whitelist filters for the given event types, combining as many
+     * of them into a single regular expression as possible.
+     *
+     * @param eventTypes the lower case event types.
+     * @return the filter actions to send.
+     */
+    static List<FilterAction> createEventFilterActions(Collection<String> eventTypes)
+    {
+        final List<FilterAction> filterActions = new ArrayList<>();
+        StringBuilder sb = null;
+
+        for (String eventType : eventTypes)
+        {
+            final String alternative = toCaseInsensitiveRegex(eventType);
+            if (sb != null
+                    && sb.length() + 1 + alternative.length() + EVENT_TYPES_FILTER_END.length() > MAX_EVENT_FILTER_LENGTH)
+            {
+                filterActions.add(new FilterAction(sb.append(EVENT_TYPES_FILTER_END).toString()));
+                sb = null;
+            }
+
+            if (sb == null)
+            {
+                sb = new StringBuilder(ALL_EVENTS_FILTER).append('(');
+            }
+            else
+            {
+                sb.append('|');
+            }
+            sb.append(alternative);
+        }
+
+        if (sb != null)
+        {
+            filterActions.add(new FilterAction(sb.append(EVENT_TYPES_FILTER_END).toString()));
+        }
+        return filterActions;
+    }
+
+    /**
+     * Asterisk uses POSIX regular expressions without a case insensitive
+     * flag while event types are registered in lower case.
+     */
+    private static String toCaseInsensitiveRegex(String s)
+    {
+        final StringBuilder sb = new StringBuilder(s.length() * 4);
+
+        for (int i = 0; i < s.length(); i++)
+        {
+            final char c = s.charAt(i);
+            if (Character.isLetter(c))
+            {
+                sb.append('[').append(Character.toUpperCase(c)).append(Character.toLowerCase(c)).append(']');
+            }
+            else if (Character.isDigit(c))
+            {
+                sb.append(c);
+            }
+            else
+            {
+                sb.append('[').append(c).append(']');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the number of events skipped without being built because none
+     * of the registered listeners required them.
+     *
+     * @return the number of skipped events by lower case event type.
+     * @see FilteredManagerEventListener
+     * @since 2.0.0
+     */
+    public Map<String, Long> getSkippedEventCounts()
+    {
+        if (reader == null)
+        {
+            return Collections.emptyMap();
+        }
+        return reader.getSkippedEventCounts();
     }
 
     public String getProtocolIdentifier()
@@ -1181,19 +1925,12 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
 
         if (internalActionId != null)
         {
-            synchronized (this.responseListeners)
+            listener = responseListeners.remove(internalActionId);
+            if (listener == null)
             {
-                listener = responseListeners.get(internalActionId);
-                if (listener != null)
-                {
-                    this.responseListeners.remove(internalActionId);
-                }
-                else
-                {
-                    // when using the async sendAction it's ok not to register a
-                    // callback so if we don't find a response handler thats ok
-                    logger.debug("No response listener registered for " + "internalActionId '" + internalActionId + "'");
-                }
+                // when using the async sendAction it's ok not to register a
+                // callback so if we don't find a response handler thats ok
+                logger.debug("No response listener registered for " + "internalActionId '" + internalActionId + "'");
             }
         }
         else
@@ -1243,44 +1980,10 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         // These events are handled here at first:
 
         // Dispatch ResponseEvents to the appropriate responseEventListener
-        if (event instanceof ResponseEvent)
+        // unless the reader already did so on its fast lane
+        if (event instanceof ResponseEvent && dispatchQueue == null)
         {
-            ResponseEvent responseEvent;
-            String internalActionId;
-
-            responseEvent = (ResponseEvent) event;
-            internalActionId = responseEvent.getInternalActionId();
-            if (internalActionId != null)
-            {
-                synchronized (responseEventListeners)
-                {
-                    ManagerEventListener listener;
-
-                    listener = responseEventListeners.get(internalActionId);
-                    if (listener != null)
-                    {
-                        try
-                        {
-                            listener.onManagerEvent(event);
-                        }
-                        catch (Exception e)
-                        {
-                            logger.warn("Unexpected exception in response event listener " + listener.getClass().getName(),
-                                    e);
-                        }
-                    }
-                }
-            }
-            else
-            {
-                // ResponseEvent without internalActionId:
-                // this happens if the same event class is used as response
-                // event
-                // and as an event that is not triggered by a Manager command
-                // Example: QueueMemberStatusEvent.
-                // logger.debug("ResponseEvent without "
-                // + "internalActionId:\n" + responseEvent);
-            } // NOPMD
+            dispatchResponseEvent((ResponseEvent) event);
         }
         if (event instanceof DisconnectEvent)
         {
@@ -1294,17 +1997,25 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
                 // After sending the DisconnectThread that thread will die
                 // anyway.
                 cleanup();
-                Thread reconnectThread = new Thread(new Runnable()
+                final String reconnectThreadName = "Asterisk-Java ManagerConnection-" + id + "-Reconnect-"
+                        + reconnectThreadCounter.getAndIncrement();
+                runtime.getExecutor().execute(new Runnable()
                 {
                     public void run()
                     {
-                        reconnect();
+                        final Thread thread = Thread.currentThread();
+                        final String executorThreadName = thread.getName();
+                        thread.setName(reconnectThreadName);
+                        try
+                        {
+                            reconnect();
+                        }
+                        finally
+                        {
+                            thread.setName(executorThreadName);
+                        }
                     }
                 });
-                reconnectThread.setName(
-                        "Asterisk-Java ManagerConnection-" + id + "-Reconnect-" + reconnectThreadCounter.getAndIncrement());
-                reconnectThread.setDaemon(true);
-                reconnectThread.start();
                 // now the DisconnectEvent is dispatched to registered
                 // eventListeners
                 // (clients) and after that the ManagerReaderThread is gone.
@@ -1333,6 +2044,47 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         fireEvent(event);
     }
 
+    /**
+     * Dispatches a ResponseEvent to the responseEventListener registered for
+     * its internal action id.
+     *
+     * @param responseEvent the event received by the reader
+     * @see ManagerReader
+     */
+    public void dispatchResponseEvent(ResponseEvent responseEvent)
+    {
+        String internalActionId;
+
+        internalActionId = responseEvent.getInternalActionId();
+        if (internalActionId != null)
+        {
+            ManagerEventListener listener;
+
+            listener = responseEventListeners.get(internalActionId);
+            if (listener != null)
+            {
+                try
+                {
+                    listener.onManagerEvent(responseEvent);
+                }
+                catch (Exception e)
+                {
+                    logger.warn("Unexpected exception in response event listener " + listener.getClass().getName(), e);
+                }
+            }
+        }
+        else
+        {
+            // ResponseEvent without internalActionId:
+            // this happens if the same event class is used as response
+            // event
+            // and as an event that is not triggered by a Manager command
+            // Example: QueueMemberStatusEvent.
+            // logger.debug("ResponseEvent without "
+            // + "internalActionId:\n" + responseEvent);
+        } // NOPMD
+    }
+
     /**
      * Enro 2015-03 Workaround to continue having Legacy Events from Asterisk
      * 13.
@@ -1353,18 +2105,17 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
      */
     private void fireEvent(ManagerEvent event)
     {
-        synchronized (eventListeners)
+        // no lock: listeners may be added and removed concurrently and may
+        // call back into the connection
+        for (ManagerEventListener listener : listenerIndex.getListeners(event.getClass()))
         {
-            for (ManagerEventListener listener : eventListeners)
+            try
             {
-                try
-                {
-                    listener.onManagerEvent(event);
-                }
-                catch (RuntimeException e)
-                {
-                    logger.warn("Unexpected exception in eventHandler " + listener.getClass().getName(), e);
-                }
+                listener.onManagerEvent(event);
+            }
+            catch (RuntimeException e)
+            {
+                logger.warn("Unexpected exception in eventHandler " + listener.getClass().getName(), e);
             }
         }
     }
@@ -1571,6 +2322,173 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         }
     }
 
+    /**
+     * Base class for the handlers of asynchronously sent actions. Fails the
+     * future on timeout and removes the handler from the response listeners
+     * once the future is completed, no matter how.
+     */
+    private abstract class AbstractAsyncHandler<V> implements Runnable, ActionFutureCallback<Object>
+    {
+        final ManagerAction action;
+        final String internalActionId;
+        final ActionFutureImpl<V> future;
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        AbstractAsyncHandler(ManagerAction action, String internalActionId)
+        {
+            this.action = action;
+            this.internalActionId = internalActionId;
+            this.future = new ActionFutureImpl<>();
+            this.future.addCallback(this);
+        }
+
+        void scheduleTimeout(long timeoutMillis)
+        {
+            this.timeout = runtime.getTimer().newTimeout(this, timeoutMillis, TimeUnit.MILLISECONDS);
+            // the response may have been faster
+            if (future.isDone())
+            {
+                this.timeout.cancel();
+            }
+        }
+
+        /**
+         * Called by the timer when the timeout expired.
+         */
+        public void run()
+        {
+            future.fail(createTimeoutException());
+        }
+
+        abstract TimeoutException createTimeoutException();
+
+        String getTimeoutMessage()
+        {
+            return action.getAction() + (action.getActionId() == null ? "" : " (actionId: " + action.getActionId() + ")");
+        }
+
+        public void onSuccess(Object result)
+        {
+            cleanup();
+        }
+
+        public void onFailure(Throwable cause)
+        {
+            cleanup();
+        }
+
+        private void cleanup()
+        {
+            responseListeners.remove(internalActionId);
+            responseEventListeners.remove(internalActionId);
+
+            final HashedWheelTimer.Timeout t = timeout;
+            if (t != null)
+            {
+                t.cancel();
+            }
+        }
+    }
+
+    /**
+     * Completes the future with the response of an action sent by
+     * {@link ManagerConnectionImpl#sendActionAsync(ManagerAction, long)}.
+     */
+    private class AsyncResponseHandler extends AbstractAsyncHandler<ManagerResponse> implements SendActionCallback
+    {
+        AsyncResponseHandler(ManagerAction action, String internalActionId)
+        {
+            super(action, internalActionId);
+        }
+
+        public void onResponse(ManagerResponse response)
+        {
+            future.complete(response);
+        }
+
+        @Override
+        TimeoutException createTimeoutException()
+        {
+            return new TimeoutException("Timeout waiting for response to " + getTimeoutMessage());
+        }
+    }
+
+    /**
+     * Completes the future with the response and the response events of an
+     * action sent by
+     * {@link ManagerConnectionImpl#sendEventGeneratingActionAsync(EventGeneratingAction, long)}
+     * .
+     */
+    private class AsyncResponseEventsHandler extends AbstractAsyncHandler<ResponseEvents>
+            implements
+                ManagerEventListener,
+                SendActionCallback
+    {
+        private final ResponseEventsImpl events;
+        private final ResponseEventHandler delegate;
+
+        AsyncResponseEventsHandler(EventGeneratingAction action, String internalActionId)
+        {
+            super(action, internalActionId);
+            this.events = new ResponseEventsImpl();
+            this.delegate = new ResponseEventHandler(events, action.getActionCompleteEventClass());
+        }
+
+        public void onManagerEvent(ManagerEvent event)
+        {
+            delegate.onManagerEvent(event);
+            completeIfDone();
+        }
+
+        public void onResponse(ManagerResponse response)
+        {
+            delegate.onResponse(response);
+            completeIfDone();
+        }
+
+        private void completeIfDone()
+        {
+            final boolean done;
+            synchronized (events)
+            {
+                done = events.getResponse() != null && events.isComplete();
+            }
+            if (done)
+            {
+                future.complete(events);
+            }
+        }
+
+        @Override
+        TimeoutException createTimeoutException()
+        {
+            return new EventTimeoutException("Timeout waiting for response or response events to " + getTimeoutMessage(),
+                    events);
+        }
+    }
+
+    /**
+     * Records the round trip time in the response time histogram before
+     * passing the response on.
+     */
+    private class TimedSendActionCallback implements SendActionCallback
+    {
+        private final SendActionCallback callback;
+        private final long sent;
+
+        TimedSendActionCallback(SendActionCallback callback)
+        {
+            this.callback = callback;
+            this.sent = System.nanoTime();
+        }
+
+        public void onResponse(ManagerResponse response)
+        {
+            responseTimeHistogram.record(System.nanoTime() - sent);
+            callback.onResponse(response);
+        }
+    }
+
     /**
      * A combinded event and response handler that adds received events and the
      * response to a ResponseEvents object.
@@ -1657,4 +2575,107 @@ public class ManagerConnectionImpl implements ManagerConnection, Dispatcher
         reader.deregisterEventClass(eventClass);
 
     }
+
+    /**
+     * Snapshot of the registered listeners together with the event classes
+     * they require.
+     * <p>
+     * The listeners interested in an event class are resolved when the first
+     * event of that class is dispatched and cached, so dispatching is a walk
+     * over an array of exactly the listeners to notify, in the order they
+     * were registered.
+     */
+    private static final class ListenerIndex
+    {
+        private static final ManagerEventListener[] NO_LISTENERS = new ManagerEventListener[0];
+
+        private final ManagerEventListener[] listeners;
+
+        /**
+         * The event classes required by each listener, <code>null</code>
+         * entries for listeners that require all events.
+         */
+        private final List<Set<Class< ? extends ManagerEvent>>> listenerRequiredEvents;
+
+        /**
+         * The union of the event classes required by the listeners or
+         * <code>null</code> if one of them requires all events.
+         */
+        private final Set<Class< ? extends ManagerEvent>> requiredEvents;
+
+        private final ConcurrentMap<Class< ? >, ManagerEventListener[]> listenersByEventClass = new ConcurrentHashMap<>();
+
+        ListenerIndex(List<ManagerEventListener> eventListeners)
+        {
+            Set<Class< ? extends ManagerEvent>> union = new HashSet<>();
+
+            this.listeners = eventListeners.toArray(new ManagerEventListener[eventListeners.size()]);
+            this.listenerRequiredEvents = new ArrayList<>(listeners.length);
+            for (ManagerEventListener listener : listeners)
+            {
+                Set<Class< ? extends ManagerEvent>> required = null;
+                if (listener instanceof FilteredManagerEventListener)
+                {
+                    required = ((FilteredManagerEventListener) listener).requiredEvents();
+                }
+
+                if (required == null)
+                {
+                    union = null;
+                }
+                else
+                {
+                    // the listener may change its set later on
+                    required = new HashSet<>(required);
+                    if (union != null)
+                    {
+                        union.addAll(required);
+                    }
+                }
+                listenerRequiredEvents.add(required);
+            }
+            this.requiredEvents = union;
+        }
+
+        ManagerEventListener[] getListeners(Class< ? > eventClass)
+        {
+            ManagerEventListener[] result = listenersByEventClass.get(eventClass);
+            if (result == null)
+            {
+                result = resolveListeners(eventClass);
+                listenersByEventClass.putIfAbsent(eventClass, result);
+            }
+            return result;
+        }
+
+        private ManagerEventListener[] resolveListeners(Class< ? > eventClass)
+        {
+            final List<ManagerEventListener> result = new ArrayList<>(listeners.length);
+
+            for (int i = 0; i < listeners.length; i++)
+            {
+                if (isRequired(listenerRequiredEvents.get(i), eventClass))
+                {
+                    result.add(listeners[i]);
+                }
+            }
+            return result.isEmpty() ? NO_LISTENERS : result.toArray(new ManagerEventListener[result.size()]);
+        }
+
+        private static boolean isRequired(Set<Class< ? extends ManagerEvent>> required, Class< ? > eventClass)
+        {
+            if (required == null)
+            {
+                return true;
+            }
+            for (Class< ? extends ManagerEvent> requiredClass : required)
+            {
+                if (requiredClass.isAssignableFrom(eventClass))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,311 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A single event or response received from Asterisk, kept as slices of the
+ * buffer it was read into.
+ * <p>
+ * Header names are resolved to lower case Strings through a small cache so
+ * that recurring names do not allocate. Values are only decoded when they
+ * are requested. The slices are only valid until the underlying buffer is
+ * modified, i.e. until the reader reads the next chunk of data.
+ * <p>
+ * Instances are not thread safe and are reused by the reader for every frame.
+ *
+ * @see NioManagerReaderImpl
+ */
+final class ManagerFrame
+{
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * Number of entries in the header name cache, must be a power of two.
+     */
+    private static final int NAME_CACHE_SIZE = 1024;
+
+    private final Charset encoding;
+    private final String[] nameCache;
+
+    private ByteBuffer data;
+    private int size;
+    private String[] names;
+    private int[] valueOffsets;
+    private byte[] scratch;
+
+    /**
+     * Creates a new empty frame.
+     *
+     * @param encoding the encoding used to decode values.
+     */
+    ManagerFrame(Charset encoding)
+    {
+        this.encoding = encoding;
+        this.nameCache = new String[NAME_CACHE_SIZE];
+        this.names = new String[INITIAL_CAPACITY];
+        this.valueOffsets = new int[INITIAL_CAPACITY * 2];
+        this.scratch = new byte[256];
+    }
+
+    /**
+     * Clears this frame and attaches it to the given buffer.
+     *
+     * @param data the buffer the slices refer to.
+     */
+    void reset(ByteBuffer data)
+    {
+        this.data = data;
+        this.size = 0;
+    }
+
+    /**
+     * Adds a header whose name and value are given as slices of the buffer.
+     * The name is converted to lower case.
+     *
+     * @param nameStart index of the first byte of the name.
+     * @param nameEnd index after the last byte of the name.
+     * @param valueStart index of the first byte of the value.
+     * @param valueEnd index after the last byte of the value.
+     */
+    void addHeader(int nameStart, int nameEnd, int valueStart, int valueEnd)
+    {
+        addHeader(lookupName(nameStart, nameEnd), valueStart, valueEnd);
+    }
+
+    /**
+     * Adds a header with a fixed name and a value given as a slice of the
+     * buffer.
+     *
+     * @param name the lower case name of the header.
+     * @param valueStart index of the first byte of the value.
+     * @param valueEnd index after the last byte of the value.
+     */
+    void addHeader(String name, int valueStart, int valueEnd)
+    {
+        if (size == names.length)
+        {
+            names = Arrays.copyOf(names, size * 2);
+            valueOffsets = Arrays.copyOf(valueOffsets, size * 4);
+        }
+        names[size] = name;
+        valueOffsets[size * 2] = valueStart;
+        valueOffsets[size * 2 + 1] = valueEnd;
+        size++;
+    }
+
+    /**
+     * Returns the number of headers in this frame.
+     *
+     * @return the number of headers in this frame.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Returns the lower case name of the header at the given index.
+     *
+     * @param index the index of the header.
+     * @return the name of the header.
+     */
+    String getName(int index)
+    {
+        return names[index];
+    }
+
+    /**
+     * Decodes the value of the header at the given index.
+     *
+     * @param index the index of the header.
+     * @return the value of the header.
+     */
+    String getValue(int index)
+    {
+        final int start = valueOffsets[index * 2];
+        final int length = valueOffsets[index * 2 + 1] - start;
+
+        if (data.hasArray())
+        {
+            return new String(data.array(), data.arrayOffset() + start, length, encoding);
+        }
+
+        if (scratch.length < length)
+        {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++)
+        {
+            scratch[i] = data.get(start + i);
+        }
+        return new String(scratch, 0, length, encoding);
+    }
+
+    /**
+     * Returns the index of the first header with the given name.
+     *
+     * @param name the lower case name of the header.
+     * @return the index of the header or -1 if there is no such header.
+     */
+    int indexOf(String name)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (name.equals(names[i]))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the decoded value of the first header with the given name.
+     *
+     * @param name the lower case name of the header.
+     * @return the value of the header or <code>null</code> if there is no such
+     *         header.
+     */
+    String getValue(String name)
+    {
+        final int index = indexOf(name);
+        return index < 0 ? null : getValue(index);
+    }
+
+    /**
+     * Compares the value of the header at the given index to an ASCII string
+     * without decoding it.
+     *
+     * @param index the index of the header.
+     * @param s the string to compare to.
+     * @param ignoreCase <code>true</code> to compare ignoring case.
+     * @return <code>true</code> if the value equals the given string.
+     */
+    boolean valueEquals(int index, String s, boolean ignoreCase)
+    {
+        final int start = valueOffsets[index * 2];
+        final int length = valueOffsets[index * 2 + 1] - start;
+
+        if (length != s.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            int b = data.get(start + i) & 0xff;
+            int c = s.charAt(i);
+            if (ignoreCase)
+            {
+                b = toLowerCase(b);
+                c = toLowerCase(c);
+            }
+            if (b != c)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies all headers to the given map. Headers that occur more than once
+     * are converted to a list of values like the line based reader does.
+     *
+     * @param target the map to add the headers to.
+     * @return the given map.
+     */
+    Map<String, Object> toMap(Map<String, Object> target)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            ManagerReaderImpl.addToBuffer(target, names[i], getValue(i));
+        }
+        return target;
+    }
+
+    private String lookupName(int start, int end)
+    {
+        int hash = 0;
+        boolean ascii = true;
+
+        for (int i = start; i < end; i++)
+        {
+            final int b = data.get(i) & 0xff;
+            ascii &= b < 0x80;
+            hash = 31 * hash + toLowerCase(b);
+        }
+
+        if (!ascii)
+        {
+            // rare enough to not bother caching it
+            final byte[] bytes = new byte[end - start];
+            for (int i = start; i < end; i++)
+            {
+                bytes[i - start] = data.get(i);
+            }
+            return new String(bytes, encoding).toLowerCase(Locale.ENGLISH);
+        }
+
+        final int slot = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+        final String cached = nameCache[slot];
+        if (cached != null && matches(cached, start, end))
+        {
+            return cached;
+        }
+
+        final char[] chars = new char[end - start];
+        for (int i = start; i < end; i++)
+        {
+            chars[i - start] = (char) toLowerCase(data.get(i) & 0xff);
+        }
+        final String name = new String(chars);
+        nameCache[slot] = name;
+        return name;
+    }
+
+    private boolean matches(String name, int start, int end)
+    {
+        if (name.length() != end - start)
+        {
+            return false;
+        }
+        for (int i = start; i < end; i++)
+        {
+            if (name.charAt(i - start) != toLowerCase(data.get(i) & 0xff))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLowerCase(int c)
+    {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+}
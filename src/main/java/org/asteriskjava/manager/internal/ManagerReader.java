@@ -17,6 +17,8 @@
 package org.asteriskjava.manager.internal;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
 
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.response.ManagerResponse;
@@ -47,6 +49,57 @@ public interface ManagerReader extends Runnable
      */
     void setSocket(final SocketConnectionFacade socket);
 
+    /**
+     * Sets the queue to pass received events and responses to a separate
+     * dispatch thread.
+     *
+     * @param dispatchQueue the queue to use or <code>null</code> to dispatch
+     *            on the reader thread.
+     * @since 2.0.0
+     */
+    void setDispatchQueue(DispatchQueue dispatchQueue);
+
+    /**
+     * Set to <code>true</code> to build events that support it with their
+     * attributes converted and set on demand.
+     *
+     * @param lazyEvents <code>true</code> to build events lazily.
+     * @see EventBuilder#setLazyEvents(boolean)
+     * @since 2.0.0
+     */
+    void setLazyEvents(boolean lazyEvents);
+
+    /**
+     * Sets the event classes to build and dispatch. Events of other classes
+     * are skipped based on their "Event" header before they are built. Events
+     * that belong to the response of an action are never skipped.
+     *
+     * @param requiredEvents the event classes to dispatch including their
+     *            subclasses or <code>null</code> to dispatch all events.
+     * @since 2.0.0
+     */
+    void setRequiredEvents(Set<Class< ? extends ManagerEvent>> requiredEvents);
+
+    /**
+     * Returns the number of events skipped because no listener required
+     * them.
+     *
+     * @return the number of skipped events by lower case event type.
+     * @see #setRequiredEvents(Set)
+     * @since 2.0.0
+     */
+    Map<String, Long> getSkippedEventCounts();
+
+    /**
+     * Returns the registered event types of the events that are not skipped.
+     *
+     * @return the lower case event types or <code>null</code> if no events
+     *         are skipped.
+     * @see #setRequiredEvents(Set)
+     * @since 2.0.0
+     */
+    Set<String> getRequiredEventTypes();
+
     /**
      * Registers a new event type with the underlying EventBuilderImpl.
      * <p>
@@ -18,15 +18,21 @@ package org.asteriskjava.manager.internal;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.asteriskjava.manager.event.DisconnectEvent;
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.event.ProtocolIdentifierReceivedEvent;
+import org.asteriskjava.manager.event.ResponseEvent;
 import org.asteriskjava.manager.internal.backwardsCompatibility.BackwardsCompatibilityForManagerEvents;
 import org.asteriskjava.manager.response.ManagerResponse;
 import org.asteriskjava.util.DateUtil;
@@ -40,8 +46,23 @@ import org.asteriskjava.util.SocketConnectionFacade;
  * @author srt
  * @version $Id$
  */
-public class ManagerReaderImpl implements ManagerReader
+public class ManagerReaderImpl implements ManagerReader, DispatchQueue.FrameHandler
 {
+    /**
+     * Prefixes of the protocol identifiers sent by Asterisk and compatible
+     * servers on connect.
+     */
+    static final String[] PROTOCOL_IDENTIFIER_PREFIXES = {"Asterisk Call Manager/", "Asterisk Call Manager Proxy/",
+            "Asterisk Manager Proxy/", "OpenPBX Call Manager/", "CallWeaver Call Manager/"};
+
+    /**
+     * Keys used in frames passed through the {@link DispatchQueue}.
+     */
+    private static final String DATE_RECEIVED_KEY = "__datereceived__";
+    private static final String PROTOCOL_IDENTIFIER_KEY = "__protocolidentifier__";
+    private static final String DISCONNECT_KEY = "__disconnect__";
+    private static final String EVENT_KEY = "__event__";
+
     /**
      * Instance logger.
      */
@@ -91,6 +112,26 @@ public class ManagerReaderImpl implements ManagerReader
      */
     private IOException terminationException;
 
+    /**
+     * The queue to pass received frames to the dispatch thread or
+     * <code>null</code> to dispatch on the reader thread.
+     */
+    private volatile DispatchQueue dispatchQueue;
+
+    /**
+     * The event classes to build and dispatch or <code>null</code> to
+     * dispatch all events.
+     */
+    private volatile EventFilter eventFilter;
+
+    /**
+     * Whether events may keep the map of attributes they are built from, see
+     * {@link #setLazyEvents(boolean)}.
+     */
+    private volatile boolean lazyEvents;
+
+    private final ConcurrentMap<String, AtomicLong> skippedEventCounts = new ConcurrentHashMap<>();
+
     /**
      * set of classes able to take newer versions of ManagerEvents and emit
      * older style manager Events
@@ -124,9 +165,64 @@ public class ManagerReaderImpl implements ManagerReader
         this.socket = socket;
     }
 
+    public void setDispatchQueue(DispatchQueue dispatchQueue)
+    {
+        if (dispatchQueue != null)
+        {
+            dispatchQueue.setHandler(this);
+        }
+        this.dispatchQueue = dispatchQueue;
+    }
+
+    public void setLazyEvents(boolean lazyEvents)
+    {
+        this.lazyEvents = lazyEvents;
+        eventBuilder.setLazyEvents(lazyEvents);
+    }
+
+    public void setRequiredEvents(Set<Class< ? extends ManagerEvent>> requiredEvents)
+    {
+        this.eventFilter = requiredEvents == null ? null : new EventFilter(requiredEvents);
+    }
+
+    public Map<String, Long> getSkippedEventCounts()
+    {
+        final Map<String, Long> copy = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : skippedEventCounts.entrySet())
+        {
+            copy.put(entry.getKey(), entry.getValue().get());
+        }
+        return copy;
+    }
+
+    public Set<String> getRequiredEventTypes()
+    {
+        final EventFilter filter = eventFilter;
+        if (filter == null)
+        {
+            return null;
+        }
+
+        final Set<String> requiredEventTypes = new HashSet<>();
+        for (String eventType : eventBuilder.getRegisteredEventTypes())
+        {
+            if (filter.isRequired(eventBuilder.getEventClass(eventType)))
+            {
+                requiredEventTypes.add(eventType);
+            }
+        }
+        return requiredEventTypes;
+    }
+
     public void registerEventClass(Class< ? extends ManagerEvent> eventClass)
     {
         eventBuilder.registerEventClass(eventClass);
+        final EventFilter filter = eventFilter;
+        if (filter != null)
+        {
+            // the event type may have been resolved to another class before
+            setRequiredEvents(filter.requiredEvents);
+        }
     }
 
     public void expectResponseClass(String internalActionId, Class< ? extends ManagerResponse> responseClass)
@@ -135,8 +231,8 @@ public class ManagerReaderImpl implements ManagerReader
     }
 
     /**
-     * Reads line by line from the asterisk server, sets the protocol identifier
-     * (using a generated
+     * Reads from the asterisk server, sets the protocol identifier (using a
+     * generated
      * {@link org.asteriskjava.manager.event.ProtocolIdentifierReceivedEvent})
      * as soon as it is received and dispatches the received events and
      * responses via the associated dispatcher.
@@ -146,9 +242,6 @@ public class ManagerReaderImpl implements ManagerReader
      */
     public void run()
     {
-        final Map<String, Object> buffer = new HashMap<>();
-        String line;
-
         if (socket == null)
         {
             throw new IllegalStateException("Unable to run: socket is null.");
@@ -160,137 +253,378 @@ public class ManagerReaderImpl implements ManagerReader
         try
         {
             // main loop
-            while (!this.die && (line = socket.readLine()) != null)
+            readLoop(socket);
+            this.dead = true;
+            logger.debug("Reached end of stream, terminating reader.");
+        }
+        catch (IOException e)
+        {
+            this.terminationException = e;
+            this.dead = true;
+            logger.info("Terminating reader thread: " + e.getMessage());
+        }
+        finally
+        {
+            this.dead = true;
+            // cleans resources and reconnects if needed
+            final DispatchQueue queue = dispatchQueue;
+            if (queue == null)
             {
-                // maybe we will find a better way to identify the protocol
-                // identifier but for now
-                // this works quite well.
-                if (line.startsWith("Asterisk Call Manager/") || line.startsWith("Asterisk Call Manager Proxy/")
-                        || line.startsWith("Asterisk Manager Proxy/") || line.startsWith("OpenPBX Call Manager/")
-                        || line.startsWith("CallWeaver Call Manager/"))
-                {
-                    ProtocolIdentifierReceivedEvent protocolIdentifierReceivedEvent;
-                    protocolIdentifierReceivedEvent = new ProtocolIdentifierReceivedEvent(source);
-                    protocolIdentifierReceivedEvent.setProtocolIdentifier(line);
-                    protocolIdentifierReceivedEvent.setDateReceived(DateUtil.getDate());
-                    dispatcher.dispatchEvent(protocolIdentifierReceivedEvent);
-                    continue;
-                }
+                dispatchDisconnect(DateUtil.getDate());
+            }
+            else
+            {
+                // after all events received before
+                final Map<String, Object> frame = new HashMap<>();
+                frame.put(DISCONNECT_KEY, Boolean.TRUE);
+                frame.put(DATE_RECEIVED_KEY, DateUtil.getDate());
+                queue.put(frame);
+            }
+        }
+    }
+
+    /**
+     * Reads line by line from the given socket until the end of the stream is
+     * reached or {@link #die()} is called.
+     *
+     * @param socket the socket to read from.
+     * @throws IOException if reading from the socket fails.
+     */
+    protected void readLoop(SocketConnectionFacade socket) throws IOException
+    {
+        Map<String, Object> buffer = new HashMap<>();
+        String line;
 
-                /*
-                 * Special handling for "Response: Follows" (CommandResponse) As
-                 * we are using "\r\n" as the delimiter for line this also
-                 * handles multiline results as long as they only contain "\n".
-                 */
-                if ("Follows".equals(buffer.get("response")) && line.endsWith("--END COMMAND--"))
+        while (!this.die && (line = socket.readLine()) != null)
+        {
+            // maybe we will find a better way to identify the protocol
+            // identifier but for now
+            // this works quite well.
+            if (isProtocolIdentifier(line))
+            {
+                dispatchProtocolIdentifier(line);
+                continue;
+            }
+
+            /*
+             * Special handling for "Response: Follows" (CommandResponse) As we
+             * are using "\r\n" as the delimiter for line this also handles
+             * multiline results as long as they only contain "\n".
+             */
+            if ("Follows".equals(buffer.get("response")) && line.endsWith("--END COMMAND--"))
+            {
+                buffer.put(COMMAND_RESULT_RESPONSE_KEY, line);
+                continue;
+            }
+
+            if (line.length() > 0)
+            {
+                // begin of workaround for Astersik bug 13319
+                // see AJ-77
+                // Use this workaround only when line starts from "From "
+                // and "To "
+                int isFromAtStart = line.indexOf("From ");
+                int isToAtStart = line.indexOf("To ");
+
+                int delimiterIndex = isFromAtStart == 0 || isToAtStart == 0 ? line.indexOf(" ") : line.indexOf(":");
+                // end of workaround for Astersik bug 13319
+
+                int delimiterLength = 1;
+
+                if (delimiterIndex > 0 && line.length() > delimiterIndex + delimiterLength)
                 {
-                    buffer.put(COMMAND_RESULT_RESPONSE_KEY, line);
-                    continue;
+                    String name = line.substring(0, delimiterIndex).toLowerCase(Locale.ENGLISH).trim();
+                    String value = line.substring(delimiterIndex + delimiterLength).trim();
+
+                    addToBuffer(buffer, name, value);
+                    // TODO tracing
+                    // logger.debug("Got name [" + name + "], value: [" +
+                    // value + "]");
                 }
+            }
 
-                if (line.length() > 0)
+            // an empty line indicates a normal response's or event's end so
+            // we build
+            // the corresponding value object and dispatch it through the
+            // ManagerConnection.
+            if (line.length() == 0)
+            {
+                if (dispatchBuffer(buffer))
                 {
-                    // begin of workaround for Astersik bug 13319
-                    // see AJ-77
-                    // Use this workaround only when line starts from "From "
-                    // and "To "
-                    int isFromAtStart = line.indexOf("From ");
-                    int isToAtStart = line.indexOf("To ");
-
-                    int delimiterIndex = isFromAtStart == 0 || isToAtStart == 0
-                        ? line.indexOf(" ") : line.indexOf(":");
-                    // end of workaround for Astersik bug 13319
-
-                    int delimiterLength = 1;
-
-                    if (delimiterIndex > 0 && line.length() > delimiterIndex + delimiterLength)
-                    {
-                        String name = line.substring(0, delimiterIndex).toLowerCase(Locale.ENGLISH).trim();
-                        String value = line.substring(delimiterIndex + delimiterLength).trim();
-
-                        addToBuffer(buffer, name, value);
-                        // TODO tracing
-                        // logger.debug("Got name [" + name + "], value: [" +
-                        // value + "]");
-                    }
+                    buffer = new HashMap<>();
                 }
-
-                // an empty line indicates a normal response's or event's end so
-                // we build
-                // the corresponding value object and dispatch it through the
-                // ManagerConnection.
-                if (line.length() == 0)
+                else
                 {
-                    if (buffer.containsKey("event"))
-                    {
-                        // TODO tracing
-                        // logger.debug("attempting to build event: " +
-                        // buffer.get("event"));
-                        ManagerEvent event = buildEvent(source, buffer);
-                        if (event != null)
-                        {
-                            dispatcher.dispatchEvent(event);
-
-                            // Backwards compatibility for bridge events.
-                            // Asterisk 13 uses BridgeCreate,
-                            // BridgeEnter, BridgeLeave and BridgeDestroy
-                            // events.
-                            // So here we track active bridges and simulate
-                            // BridgeEvent's for them allowing legacy code to
-                            // still work with BridgeEvent's
-                            ManagerEvent secondaryEvent = compatibility.handleEvent(event);
-                            if (secondaryEvent != null)
-                            {
-                                dispatcher.dispatchEvent(secondaryEvent);
-                            }
-                        }
-                        else
-                        {
-                            logger.debug("buildEvent returned null");
-                        }
-                    }
-                    else if (buffer.containsKey("response"))
-                    {
-                        ManagerResponse response = buildResponse(buffer);
-                        // TODO tracing
-                        // logger.debug("attempting to build response");
-                        if (response != null)
-                        {
-                            dispatcher.dispatchResponse(response);
-                        }
-                    }
-                    else
-                    {
-                        if (!buffer.isEmpty())
-                        {
-                            logger.debug("Buffer contains neither response nor event");
-                        }
-                    }
-
                     buffer.clear();
                 }
             }
-            this.dead = true;
-            logger.debug("Reached end of stream, terminating reader.");
         }
-        catch (IOException e)
+    }
+
+    /**
+     * Returns whether {@link #die()} has been called and the read loop should
+     * terminate.
+     *
+     * @return <code>true</code> if the read loop should terminate.
+     */
+    protected final boolean isDieRequested()
+    {
+        return die;
+    }
+
+    /**
+     * Checks whether the given line is the protocol identifier Asterisk sends
+     * on connect.
+     *
+     * @param line the line to check.
+     * @return <code>true</code> if the line is a protocol identifier.
+     */
+    static boolean isProtocolIdentifier(String line)
+    {
+        for (String prefix : PROTOCOL_IDENTIFIER_PREFIXES)
         {
-            this.terminationException = e;
-            this.dead = true;
-            logger.info("Terminating reader thread: " + e.getMessage());
+            if (line.startsWith(prefix))
+            {
+                return true;
+            }
         }
-        finally
+        return false;
+    }
+
+    /**
+     * Dispatches a {@link ProtocolIdentifierReceivedEvent} for the given
+     * protocol identifier.
+     *
+     * @param identifier the protocol identifier received.
+     */
+    protected final void dispatchProtocolIdentifier(String identifier)
+    {
+        final DispatchQueue queue = dispatchQueue;
+        if (queue == null)
         {
-            this.dead = true;
-            // cleans resources and reconnects if needed
-            DisconnectEvent disconnectEvent = new DisconnectEvent(source);
-            disconnectEvent.setDateReceived(DateUtil.getDate());
-            dispatcher.dispatchEvent(disconnectEvent);
+            dispatchProtocolIdentifier(identifier, DateUtil.getDate());
+            return;
+        }
+
+        final Map<String, Object> frame = new HashMap<>();
+        frame.put(PROTOCOL_IDENTIFIER_KEY, identifier);
+        frame.put(DATE_RECEIVED_KEY, DateUtil.getDate());
+        queue.put(frame);
+    }
+
+    /**
+     * Builds the event or response contained in the given map of attributes
+     * and dispatches it. If a {@link DispatchQueue} is set the map is passed
+     * to the dispatch thread instead, except for responses, which are always
+     * dispatched on the reader thread, and ResponseEvents, which are built
+     * and passed to {@link Dispatcher#dispatchResponseEvent(ResponseEvent)}
+     * right away and then queued along with the map.
+     *
+     * @param buffer the attributes of a completely received event or response.
+     * @return <code>true</code> if the map has been handed over to the
+     *         dispatch queue or to an event with lazy attributes and the
+     *         caller must use a new one, <code>false</code> if it may be
+     *         cleared and reused.
+     */
+    protected final boolean dispatchBuffer(Map<String, Object> buffer)
+    {
+        if (isSkipped(buffer))
+        {
+            return false;
+        }
+
+        final DispatchQueue queue = dispatchQueue;
+        if (queue == null)
+        {
+            dispatchBuffer(buffer, DateUtil.getDate());
+            return lazyEvents;
+        }
+
+        if (buffer.isEmpty())
+        {
+            return false;
+        }
+
+        // responses and the events that belong to them take the fast lane:
+        // they are dispatched right away and never wait behind queued events
+        if (buffer.containsKey("response") && !buffer.containsKey("event"))
+        {
+            dispatchBuffer(buffer, DateUtil.getDate());
+            return false;
+        }
+
+        final Date dateReceived = DateUtil.getDate();
+        if (isResponseEvent(buffer))
+        {
+            // the event is built once and queued for the listeners, an event
+            // with lazy attributes takes over the map it is built from
+            final ManagerEvent event = buildEvent(source, lazyEvents ? new HashMap<>(buffer) : buffer,
+                    dateReceived);
+            if (event instanceof ResponseEvent && ((ResponseEvent) event).getInternalActionId() != null)
+            {
+                dispatcher.dispatchResponseEvent((ResponseEvent) event);
+            }
+            if (event != null)
+            {
+                buffer.put(EVENT_KEY, event);
+            }
+        }
+
+        buffer.put(DATE_RECEIVED_KEY, dateReceived);
+        queue.put(buffer);
+        return true;
+    }
+
+    /**
+     * Checks whether the given attributes are those of an event that no
+     * listener requires and counts it if so.
+     *
+     * @param buffer the attributes of a completely received event or response.
+     * @return <code>true</code> if the event must neither be built nor
+     *         dispatched.
+     */
+    private boolean isSkipped(Map<String, Object> buffer)
+    {
+        final EventFilter filter = eventFilter;
+        if (filter == null || !(buffer.get("event") instanceof String) || isResponseEvent(buffer))
+        {
+            return false;
+        }
+
+        final String eventType = DispatchQueue.getEventType(buffer);
+        Boolean required = filter.requiredEventTypes.get(eventType);
+        if (required == null)
+        {
+            required = filter.isRequired(eventBuilder.getEventClass(eventType));
+            filter.requiredEventTypes.put(eventType, required);
+        }
+        if (required)
+        {
+            return false;
+        }
+
+        AtomicLong counter = skippedEventCounts.get(eventType);
+        if (counter == null)
+        {
+            skippedEventCounts.putIfAbsent(eventType, new AtomicLong());
+            counter = skippedEventCounts.get(eventType);
+        }
+        counter.incrementAndGet();
+        return true;
+    }
+
+    private static boolean isResponseEvent(Map<String, Object> buffer)
+    {
+        final Object actionId = buffer.get("actionid");
+        return buffer.containsKey("event") && actionId instanceof String
+                && ManagerUtil.getInternalActionId((String) actionId) != null;
+    }
+
+    /**
+     * Dispatches a frame taken from the {@link DispatchQueue}. Called on the
+     * dispatch thread.
+     *
+     * @param frame the frame received by the reader thread.
+     */
+    public void handleFrame(Map<String, Object> frame)
+    {
+        final Date dateReceived = (Date) frame.remove(DATE_RECEIVED_KEY);
+
+        if (frame.containsKey(PROTOCOL_IDENTIFIER_KEY))
+        {
+            dispatchProtocolIdentifier((String) frame.get(PROTOCOL_IDENTIFIER_KEY), dateReceived);
+        }
+        else if (frame.containsKey(DISCONNECT_KEY))
+        {
+            dispatchDisconnect(dateReceived);
+        }
+        else
+        {
+            final ManagerEvent event = (ManagerEvent) frame.remove(EVENT_KEY);
+            // the source is lost when the frame has been spilled to disk
+            if (event != null && event.getSource() != null)
+            {
+                dispatchEvent(event);
+            }
+            else
+            {
+                dispatchBuffer(frame, dateReceived);
+            }
+        }
+    }
+
+    private void dispatchProtocolIdentifier(String identifier, Date dateReceived)
+    {
+        ProtocolIdentifierReceivedEvent protocolIdentifierReceivedEvent;
+        protocolIdentifierReceivedEvent = new ProtocolIdentifierReceivedEvent(source);
+        protocolIdentifierReceivedEvent.setProtocolIdentifier(identifier);
+        protocolIdentifierReceivedEvent.setDateReceived(dateReceived);
+        dispatcher.dispatchEvent(protocolIdentifierReceivedEvent);
+    }
+
+    private void dispatchDisconnect(Date dateReceived)
+    {
+        DisconnectEvent disconnectEvent = new DisconnectEvent(source);
+        disconnectEvent.setDateReceived(dateReceived);
+        dispatcher.dispatchEvent(disconnectEvent);
+    }
+
+    private void dispatchEvent(ManagerEvent event)
+    {
+        dispatcher.dispatchEvent(event);
+
+        // Backwards compatibility for bridge events.
+        // Asterisk 13 uses BridgeCreate,
+        // BridgeEnter, BridgeLeave and BridgeDestroy
+        // events.
+        // So here we track active bridges and simulate
+        // BridgeEvent's for them allowing legacy code to
+        // still work with BridgeEvent's
+        ManagerEvent secondaryEvent = compatibility.handleEvent(event);
+        if (secondaryEvent != null)
+        {
+            dispatcher.dispatchEvent(secondaryEvent);
+        }
+    }
+
+    private void dispatchBuffer(Map<String, Object> buffer, Date dateReceived)
+    {
+        if (buffer.containsKey("event"))
+        {
+            // TODO tracing
+            // logger.debug("attempting to build event: " +
+            // buffer.get("event"));
+            ManagerEvent event = buildEvent(source, buffer, dateReceived);
+            if (event != null)
+            {
+                dispatchEvent(event);
+            }
+            else
+            {
+                logger.debug("buildEvent returned null");
+            }
+        }
+        else if (buffer.containsKey("response"))
+        {
+            ManagerResponse response = buildResponse(buffer, dateReceived);
+            // TODO tracing
+            // logger.debug("attempting to build response");
+            if (response != null)
+            {
+                dispatcher.dispatchResponse(response);
+            }
+        }
+        else
+        {
+            if (!buffer.isEmpty())
+            {
+                logger.debug("Buffer contains neither response nor event");
+            }
         }
     }
 
     @SuppressWarnings("unchecked")
-    private void addToBuffer(Map<String, Object> buffer, String name, String value)
+    static void addToBuffer(Map<String, Object> buffer, String name, String value)
     {
         // if we already have a value for that key, convert the value to a list
         // and add
@@ -336,7 +670,7 @@ public class ManagerReaderImpl implements ManagerReader
         return terminationException;
     }
 
-    private ManagerResponse buildResponse(Map<String, Object> buffer)
+    private ManagerResponse buildResponse(Map<String, Object> buffer, Date dateReceived)
     {
         Class< ? extends ManagerResponse> responseClass = null;
         final String actionId = (String) buffer.get("actionid");
@@ -350,13 +684,13 @@ public class ManagerReaderImpl implements ManagerReader
 
         if (response != null)
         {
-            response.setDateReceived(DateUtil.getDate());
+            response.setDateReceived(dateReceived);
         }
 
         return response;
     }
 
-    private ManagerEvent buildEvent(Object source, Map<String, Object> buffer)
+    private ManagerEvent buildEvent(Object source, Map<String, Object> buffer, Date dateReceived)
     {
         ManagerEvent event;
 
@@ -364,7 +698,7 @@ public class ManagerReaderImpl implements ManagerReader
 
         if (event != null)
         {
-            event.setDateReceived(DateUtil.getDate());
+            event.setDateReceived(dateReceived);
         }
 
         return event;
@@ -377,4 +711,40 @@ public class ManagerReaderImpl implements ManagerReader
         eventBuilder.deregisterEventClass(eventClass);
 
     }
+
+    /**
+     * The event classes required by the listeners with the decision cached
+     * per event type. Replaced as a whole when the required events change.
+     */
+    private static final class EventFilter
+    {
+        private final Set<Class< ? extends ManagerEvent>> requiredEvents;
+        private final ConcurrentMap<String, Boolean> requiredEventTypes = new ConcurrentHashMap<>();
+
+        EventFilter(Set<Class< ? extends ManagerEvent>> requiredEvents)
+        {
+            this.requiredEvents = new HashSet<>(requiredEvents);
+        }
+
+        boolean isRequired(Class< ? extends ManagerEvent> eventClass)
+        {
+            // unknown events are passed on to be logged by the event builder
+            if (eventClass == null)
+            {
+                return true;
+            }
+
+            final Class< ? extends ManagerEvent> derivedEventClass = BackwardsCompatibilityForManagerEvents
+                    .getDerivedEventClass(eventClass);
+            for (Class< ? extends ManagerEvent> requiredEvent : requiredEvents)
+            {
+                if (requiredEvent.isAssignableFrom(eventClass)
+                        || (derivedEventClass != null && requiredEvent.isAssignableFrom(derivedEventClass)))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
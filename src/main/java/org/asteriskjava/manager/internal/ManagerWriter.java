@@ -17,6 +17,7 @@
 package org.asteriskjava.manager.internal;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.asteriskjava.AsteriskVersion;
 import org.asteriskjava.manager.action.ManagerAction;
@@ -58,4 +59,15 @@ public interface ManagerWriter
      * @throws IOException if there is a problem sending the action.
      */
     void sendAction(final ManagerAction action, String internalActionId) throws IOException;
+
+    /**
+     * Sends the given actions to the asterisk server in the given order,
+     * flushing the connection once after all of them have been written.
+     * 
+     * @param actions the actions to send to the asterisk server.
+     * @param internalActionIds the internal action ids to add, one per action.
+     * @throws IOException if there is a problem sending the actions.
+     * @since 2.0.0
+     */
+    void sendActions(List< ? extends ManagerAction> actions, List<String> internalActionIds) throws IOException;
 }
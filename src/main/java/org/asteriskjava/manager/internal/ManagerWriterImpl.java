@@ -17,6 +17,7 @@
 package org.asteriskjava.manager.internal;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.asteriskjava.AsteriskVersion;
 import org.asteriskjava.manager.action.ManagerAction;
@@ -79,4 +80,19 @@ public class ManagerWriterImpl implements ManagerWriter
         // TODO tracing
         //logger.debug("Sent " + action.getAction() + " action with actionId '" + action.getActionId() + "':\n" + actionString);
     }
+
+    public synchronized void sendActions(final List< ? extends ManagerAction> actions,
+            final List<String> internalActionIds) throws IOException
+    {
+        if (socket == null)
+        {
+            throw new IllegalStateException("Unable to send actions: socket is null");
+        }
+
+        for (int i = 0; i < actions.size(); i++)
+        {
+            socket.write(actionBuilder.buildAction(actions.get(i), internalActionIds.get(i)));
+        }
+        socket.flush();
+    }
 }
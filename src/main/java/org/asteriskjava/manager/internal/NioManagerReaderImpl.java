@@ -0,0 +1,356 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.asteriskjava.util.SocketConnectionFacade;
+
+/**
+ * ManagerReader that reads the raw bytes received from Asterisk into a
+ * reusable direct {@link ByteBuffer} and splits them into frames at the byte
+ * level instead of creating a String per line.
+ * <p>
+ * A frame is an event or response terminated by an empty line
+ * ("\r\n\r\n"). Its headers are collected as slices of the buffer in a
+ * {@link ManagerFrame} while it is read. Once the frame is complete all its
+ * values are decoded into the attribute map the event or response is built
+ * from, so this saves the per line Strings and the repeated header names but
+ * not the decoding of the values.
+ * <p>
+ * The parsing rules are the same as those of {@link ManagerReaderImpl},
+ * including the workarounds for "Response: Follows" and AJ-77.
+ *
+ * @see ManagerConnectionImpl#setNioReader(boolean)
+ */
+public class NioManagerReaderImpl extends ManagerReaderImpl
+{
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final byte CR = '\r';
+    private static final byte NL = '\n';
+    private static final byte[][] PROTOCOL_IDENTIFIER_PREFIX_BYTES;
+
+    static
+    {
+        PROTOCOL_IDENTIFIER_PREFIX_BYTES = new byte[PROTOCOL_IDENTIFIER_PREFIXES.length][];
+        for (int i = 0; i < PROTOCOL_IDENTIFIER_PREFIXES.length; i++)
+        {
+            PROTOCOL_IDENTIFIER_PREFIX_BYTES[i] = PROTOCOL_IDENTIFIER_PREFIXES[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final Charset encoding;
+    private final ManagerFrame frame;
+    private Map<String, Object> attributes;
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a new NioManagerReaderImpl.
+     *
+     * @param dispatcher the dispatcher to use for dispatching events and
+     *            responses.
+     * @param source the source to use when creating
+     *            {@link org.asteriskjava.manager.event.ManagerEvent}s
+     * @param encoding the encoding used by Asterisk.
+     */
+    public NioManagerReaderImpl(final Dispatcher dispatcher, Object source, Charset encoding)
+    {
+        super(dispatcher, source);
+        this.encoding = encoding;
+        this.frame = new ManagerFrame(encoding);
+        this.attributes = new HashMap<>();
+        this.buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    protected void readLoop(SocketConnectionFacade socket) throws IOException
+    {
+        final ReadableByteChannel channel = socket.getReadableByteChannel();
+
+        buffer.clear();
+        while (!isDieRequested())
+        {
+            if (channel.read(buffer) < 0)
+            {
+                break;
+            }
+
+            buffer.flip();
+            processFrames();
+            buffer.compact();
+
+            // a single frame that does not fit into the buffer
+            if (!buffer.hasRemaining())
+            {
+                final ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+    }
+
+    /**
+     * Dispatches all complete frames between the buffer's position and limit
+     * and advances the position to the start of the first incomplete frame.
+     */
+    private void processFrames()
+    {
+        int position = buffer.position();
+        final int limit = buffer.limit();
+
+        while (position < limit)
+        {
+            // skip stray empty lines between frames
+            if (position + 1 < limit && buffer.get(position) == CR && buffer.get(position + 1) == NL)
+            {
+                position += 2;
+                continue;
+            }
+
+            final int lineEnd = indexOfLineEnd(position, limit);
+            if (lineEnd < 0)
+            {
+                break;
+            }
+
+            // the protocol identifier is a single line not followed by an
+            // empty line so it must be handled before looking for the end
+            // of the frame.
+            if (startsWithProtocolIdentifier(position, lineEnd))
+            {
+                dispatchProtocolIdentifier(decode(position, lineEnd));
+                position = lineEnd + 2;
+                continue;
+            }
+
+            final int frameEnd = indexOfFrameEnd(lineEnd, limit);
+            if (frameEnd < 0)
+            {
+                break;
+            }
+
+            parseFrame(position, frameEnd);
+            dispatchFrame();
+            position = frameEnd + 4;
+        }
+
+        buffer.position(position);
+    }
+
+    /**
+     * Splits the frame between start and end (exclusive of the terminating
+     * "\r\n\r\n") into lines and adds the headers to the frame.
+     */
+    private void parseFrame(int start, int end)
+    {
+        frame.reset(buffer);
+
+        int lineStart = start;
+        while (lineStart <= end)
+        {
+            int lineEnd = indexOfLineEnd(lineStart, end);
+            if (lineEnd < 0)
+            {
+                lineEnd = end;
+            }
+            parseLine(lineStart, lineEnd);
+            lineStart = lineEnd + 2;
+        }
+    }
+
+    private void parseLine(int start, int end)
+    {
+        if (start == end)
+        {
+            return;
+        }
+
+        /*
+         * Special handling for "Response: Follows" (CommandResponse). Lines
+         * are delimited by "\r\n" so multiline results are handled as long as
+         * they only contain "\n".
+         */
+        if (endsWith(start, end, "--END COMMAND--"))
+        {
+            final int responseIndex = frame.indexOf("response");
+            if (responseIndex >= 0 && frame.valueEquals(responseIndex, "Follows", false))
+            {
+                frame.addHeader(COMMAND_RESULT_RESPONSE_KEY, start, end);
+                return;
+            }
+        }
+
+        // workaround for Asterisk bug 13319, see AJ-77
+        final byte delimiter = startsWith(start, end, "From ") || startsWith(start, end, "To ") ? (byte) ' ' : (byte) ':';
+        int delimiterIndex = -1;
+        for (int i = start; i < end; i++)
+        {
+            if (buffer.get(i) == delimiter)
+            {
+                delimiterIndex = i;
+                break;
+            }
+        }
+
+        if (delimiterIndex <= start || end <= delimiterIndex + 1)
+        {
+            return;
+        }
+
+        int nameStart = start;
+        int nameEnd = delimiterIndex;
+        while (nameStart < nameEnd && isWhitespace(buffer.get(nameStart)))
+        {
+            nameStart++;
+        }
+        while (nameEnd > nameStart && isWhitespace(buffer.get(nameEnd - 1)))
+        {
+            nameEnd--;
+        }
+
+        int valueStart = delimiterIndex + 1;
+        int valueEnd = end;
+        while (valueStart < valueEnd && isWhitespace(buffer.get(valueStart)))
+        {
+            valueStart++;
+        }
+        while (valueEnd > valueStart && isWhitespace(buffer.get(valueEnd - 1)))
+        {
+            valueEnd--;
+        }
+
+        frame.addHeader(nameStart, nameEnd, valueStart, valueEnd);
+    }
+
+    private void dispatchFrame()
+    {
+        if (frame.isEmpty())
+        {
+            return;
+        }
+
+        attributes.clear();
+        if (dispatchBuffer(frame.toMap(attributes)))
+        {
+            attributes = new HashMap<>();
+        }
+        else
+        {
+            attributes.clear();
+        }
+    }
+
+    private int indexOfLineEnd(int from, int limit)
+    {
+        for (int i = from; i + 1 < limit; i++)
+        {
+            if (buffer.get(i) == CR && buffer.get(i + 1) == NL)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the next "\r\n\r\n" at or after the given index.
+     */
+    private int indexOfFrameEnd(int from, int limit)
+    {
+        int i = indexOfLineEnd(from, limit);
+        while (i >= 0)
+        {
+            if (i + 3 < limit && buffer.get(i + 2) == CR && buffer.get(i + 3) == NL)
+            {
+                return i;
+            }
+            i = indexOfLineEnd(i + 2, limit);
+        }
+        return -1;
+    }
+
+    private boolean startsWithProtocolIdentifier(int start, int end)
+    {
+        for (byte[] prefix : PROTOCOL_IDENTIFIER_PREFIX_BYTES)
+        {
+            if (startsWith(start, end, prefix))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean startsWith(int start, int end, String prefix)
+    {
+        if (end - start < prefix.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++)
+        {
+            if (buffer.get(start + i) != prefix.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWith(int start, int end, byte[] prefix)
+    {
+        if (end - start < prefix.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++)
+        {
+            if (buffer.get(start + i) != prefix[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean endsWith(int start, int end, String suffix)
+    {
+        return end - start >= suffix.length() && startsWith(end - suffix.length(), end, suffix);
+    }
+
+    private String decode(int start, int end)
+    {
+        final byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++)
+        {
+            bytes[i - start] = buffer.get(i);
+        }
+        return new String(bytes, encoding);
+    }
+
+    private static boolean isWhitespace(byte b)
+    {
+        return (b & 0xff) <= ' ';
+    }
+}
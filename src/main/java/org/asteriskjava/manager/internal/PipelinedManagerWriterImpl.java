@@ -0,0 +1,292 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import org.asteriskjava.AsteriskVersion;
+import org.asteriskjava.manager.action.ManagerAction;
+import org.asteriskjava.util.ExecutionRuntime;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+import org.asteriskjava.util.SocketConnectionFacade;
+
+/**
+ * ManagerWriter that sends actions from a separate writer thread.
+ * <p>
+ * Callers only add the action to a lock-free queue and return. The writer
+ * thread drains the queue, encodes all actions of a batch directly into a
+ * reusable {@link ActionBuffer} and sends the whole batch with a single write and flush, so bursts
+ * of actions do not cost a system call per action.
+ * <p>
+ * As sending happens asynchronously {@link #sendAction(ManagerAction, String)}
+ * never throws an IOException. If sending fails the error is logged and the
+ * actions of the batch are discarded, callers notice this by the missing
+ * response.
+ *
+ * @see ManagerWriterImpl
+ * @since 2.0.0
+ */
+public class PipelinedManagerWriterImpl implements ManagerWriter, Runnable
+{
+    /**
+     * Maximum number of actions encoded into one batch.
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Buffers that grew larger than this because of a large batch are not
+     * kept after the batch has been sent.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private final Log logger = LogFactory.getLog(getClass());
+
+    /**
+     * The action builder utility to convert ManagerAction to a String suitable
+     * to be sent to the asterisk server.
+     */
+    private final ActionBuilder actionBuilder;
+    private final Queue<PendingAction> queue = new ConcurrentLinkedQueue<>();
+    private final Object lock = new Object();
+
+    private volatile SocketConnectionFacade socket;
+    private volatile Thread thread;
+
+    /**
+     * The writer thread last stopped, guarded by lock.
+     */
+    private Thread stoppedThread;
+
+    /**
+     * Only accessed by the writer thread.
+     */
+    private final ActionBuffer buffer;
+
+    /**
+     * Creates a new ManagerWriter.
+     *
+     * @param encoding the encoding of the connection.
+     */
+    public PipelinedManagerWriterImpl(Charset encoding)
+    {
+        this.actionBuilder = new ActionBuilderImpl();
+        this.buffer = new ActionBuffer(encoding, INITIAL_BUFFER_SIZE);
+    }
+
+    public void setTargetVersion(AsteriskVersion version)
+    {
+        actionBuilder.setTargetVersion(version);
+    }
+
+    public void setSocket(final SocketConnectionFacade socket)
+    {
+        this.socket = socket;
+    }
+
+    /**
+     * Starts the writer thread unless it is already running.
+     *
+     * @param threadName the name of the writer thread.
+     */
+    public void start(String threadName)
+    {
+        start(threadName, ExecutionRuntime.getDefault());
+    }
+
+    /**
+     * Starts the writer thread unless it is already running. If a writer
+     * thread has been stopped before this waits for it to finish its current
+     * batch, so there is never more than one thread writing to the socket.
+     *
+     * @param threadName the name of the writer thread.
+     * @param runtime the runtime that creates the writer thread.
+     * @since 2.0.0
+     */
+    public void start(String threadName, ExecutionRuntime runtime)
+    {
+        synchronized (lock)
+        {
+            if (thread != null)
+            {
+                return;
+            }
+
+            if (stoppedThread != null)
+            {
+                try
+                {
+                    stoppedThread.join();
+                }
+                catch (InterruptedException e)
+                {
+                    logger.warn("Interrupted while waiting for the previous writer thread, not starting");
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                stoppedThread = null;
+            }
+
+            thread = runtime.newThread(this, threadName);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the writer thread. Actions still queued are sent when the writer
+     * is started again. The thread finishes the batch it is sending, this
+     * method does not wait for it.
+     */
+    public void stop()
+    {
+        final Thread t;
+
+        synchronized (lock)
+        {
+            t = thread;
+            if (t == null)
+            {
+                return;
+            }
+            thread = null;
+            stoppedThread = t;
+        }
+        LockSupport.unpark(t);
+    }
+
+    /**
+     * Returns the number of actions queued but not yet sent.
+     *
+     * @return the number of actions queued but not yet sent.
+     */
+    public int getQueueSize()
+    {
+        return queue.size();
+    }
+
+    public void sendAction(final ManagerAction action, final String internalActionId) throws IOException
+    {
+        if (socket == null)
+        {
+            throw new IllegalStateException("Unable to send action: socket is null");
+        }
+
+        queue.add(new PendingAction(action, internalActionId));
+        wakeUp();
+    }
+
+    public void sendActions(final List< ? extends ManagerAction> actions, final List<String> internalActionIds)
+            throws IOException
+    {
+        if (socket == null)
+        {
+            throw new IllegalStateException("Unable to send actions: socket is null");
+        }
+
+        for (int i = 0; i < actions.size(); i++)
+        {
+            queue.add(new PendingAction(actions.get(i), internalActionIds.get(i)));
+        }
+        wakeUp();
+    }
+
+    private void wakeUp()
+    {
+        final Thread t = thread;
+        if (t != null)
+        {
+            LockSupport.unpark(t);
+        }
+    }
+
+    public void run()
+    {
+        while (thread == Thread.currentThread())
+        {
+            PendingAction pendingAction = queue.poll();
+            if (pendingAction == null)
+            {
+                LockSupport.park(this);
+                continue;
+            }
+
+            buffer.clear(MAX_RETAINED_BUFFER_SIZE);
+            int batchSize = 0;
+            do
+            {
+                encode(pendingAction);
+                batchSize++;
+            }
+            while (batchSize < MAX_BATCH_SIZE && (pendingAction = queue.poll()) != null);
+
+            send(batchSize);
+        }
+    }
+
+    private void encode(PendingAction pendingAction)
+    {
+        final int length = buffer.length();
+
+        try
+        {
+            actionBuilder.buildAction(pendingAction.action, pendingAction.internalActionId, buffer);
+        }
+        catch (RuntimeException e)
+        {
+            logger.error("Unable to build " + pendingAction.action.getAction() + " action", e);
+            buffer.truncate(length);
+        }
+    }
+
+    private void send(int batchSize)
+    {
+        final SocketConnectionFacade s = socket;
+        if (s == null)
+        {
+            logger.warn("Discarding " + batchSize + " action(s): socket is null");
+            return;
+        }
+
+        try
+        {
+            s.write(buffer.flip());
+        }
+        catch (IOException e)
+        {
+            logger.warn("Unable to send " + batchSize + " action(s): " + e.getMessage());
+        }
+    }
+
+    private static final class PendingAction
+    {
+        private final ManagerAction action;
+        private final String internalActionId;
+
+        PendingAction(ManagerAction action, String internalActionId)
+        {
+            this.action = action;
+            this.internalActionId = internalActionId;
+        }
+    }
+}
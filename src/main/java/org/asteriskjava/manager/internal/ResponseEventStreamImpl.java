@@ -0,0 +1,291 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.asteriskjava.manager.EventTimeoutException;
+import org.asteriskjava.manager.ManagerEventListener;
+import org.asteriskjava.manager.ResponseEventStream;
+import org.asteriskjava.manager.SendActionCallback;
+import org.asteriskjava.manager.action.EventGeneratingAction;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.ResponseEvent;
+import org.asteriskjava.manager.response.ManagerError;
+import org.asteriskjava.manager.response.ManagerResponse;
+
+/**
+ * Default implementation of the ResponseEventStream interface. The response
+ * and the events are passed in by the thread reading from the connection,
+ * which blocks while the buffer is full.
+ *
+ * @since 2.0.0
+ */
+class ResponseEventStreamImpl implements ResponseEventStream, ManagerEventListener, SendActionCallback
+{
+    private final EventGeneratingAction action;
+    private final int capacity;
+    private final long timeoutNanos;
+    private final Runnable onClose;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    // guarded by lock
+    private final Deque<ResponseEvent> buffer;
+    private ManagerResponse response;
+    private boolean complete;
+    private boolean closed;
+    private Exception failure;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param action the action the events are received for.
+     * @param capacity the maximum number of events to buffer.
+     * @param timeout milliseconds to wait for the next event and for space
+     *            in the buffer.
+     * @param onClose called once when the stream is closed, completed or
+     *            failed.
+     */
+    ResponseEventStreamImpl(EventGeneratingAction action, int capacity, long timeout, Runnable onClose)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.action = action;
+        this.capacity = capacity;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.onClose = onClose;
+        this.buffer = new ArrayDeque<>(Math.min(capacity, 64));
+    }
+
+    public ResponseEvent next() throws EventTimeoutException, IOException
+    {
+        final ResponseEvent event;
+        final boolean done;
+        final Exception cause;
+
+        lock.lock();
+        try
+        {
+            long remaining = timeoutNanos;
+            while (buffer.isEmpty() && !complete && !closed && failure == null)
+            {
+                if (remaining <= 0)
+                {
+                    fail(new EventTimeoutException("Timeout waiting for response events to " + describeAction(), null));
+                    break;
+                }
+                try
+                {
+                    remaining = notEmpty.awaitNanos(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for response events to "
+                            + describeAction());
+                }
+            }
+
+            event = buffer.poll();
+            if (event != null)
+            {
+                notFull.signal();
+                return event;
+            }
+            cause = failure;
+            done = complete;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        if (cause != null)
+        {
+            release();
+            if (cause instanceof EventTimeoutException)
+            {
+                throw (EventTimeoutException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+        if (done)
+        {
+            close();
+        }
+        return null;
+    }
+
+    public ManagerResponse getResponse()
+    {
+        lock.lock();
+        try
+        {
+            return response;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public void close()
+    {
+        lock.lock();
+        try
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            buffer.clear();
+            notEmpty.signalAll();
+            notFull.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        release();
+    }
+
+    /**
+     * Called by the reader for each response event, blocks while the buffer
+     * is full.
+     */
+    public void onManagerEvent(ManagerEvent event)
+    {
+        final boolean failed;
+
+        if (!(event instanceof ResponseEvent))
+        {
+            return;
+        }
+
+        lock.lock();
+        try
+        {
+            long remaining = timeoutNanos;
+            while (buffer.size() >= capacity && !closed && failure == null)
+            {
+                if (remaining <= 0)
+                {
+                    buffer.clear();
+                    fail(new EventTimeoutException("Response events to " + describeAction()
+                            + " have not been consumed in time", null));
+                    break;
+                }
+                try
+                {
+                    remaining = notFull.awaitNanos(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    fail(new InterruptedIOException("Interrupted while waiting for response events to "
+                            + describeAction() + " to be consumed"));
+                    break;
+                }
+            }
+            failed = failure != null;
+            if (!closed && !failed && !complete)
+            {
+                buffer.addLast((ResponseEvent) event);
+                complete = action.getActionCompleteEventClass().isInstance(event);
+                notEmpty.signal();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        // no longer receive the events nobody is going to take
+        if (failed)
+        {
+            release();
+        }
+    }
+
+    public void onResponse(ManagerResponse response)
+    {
+        lock.lock();
+        try
+        {
+            this.response = response;
+            if (response instanceof ManagerError)
+            {
+                complete = true;
+                notEmpty.signalAll();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fails the stream, for example because the action could not be sent.
+     *
+     * @param cause the cause of the failure.
+     */
+    void fail(Exception cause)
+    {
+        lock.lock();
+        try
+        {
+            if (failure == null && !closed)
+            {
+                failure = cause;
+            }
+            notEmpty.signalAll();
+            notFull.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void release()
+    {
+        if (released.compareAndSet(false, true))
+        {
+            onClose.run();
+        }
+    }
+
+    private String describeAction()
+    {
+        return action.getAction() + (action.getActionId() == null ? "" : " (actionId: " + action.getActionId() + ")");
+    }
+}
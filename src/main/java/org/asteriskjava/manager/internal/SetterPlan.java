@@ -0,0 +1,316 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.asteriskjava.util.ReflectionUtil;
+
+/**
+ * The setters of an event or response class prepared once for use by the
+ * builders.
+ * <p>
+ * A plan maps the attribute names received from Asterisk to a
+ * {@link Setter} holding a {@link MethodHandle} and the conversion to apply
+ * to the received value. Plans are cached per class in a {@link ClassValue}
+ * and the resolution of attribute names (stripping illegal characters, the
+ * renaming of "source" and "class" and the plural fallback for maps) is
+ * cached per plan, so building an object does not perform any reflective
+ * lookups once the plan is warm.
+ *
+ * @see AbstractBuilder
+ */
+final class SetterPlan
+{
+    private static final ClassValue<SetterPlan> PLANS = new ClassValue<SetterPlan>()
+    {
+        @Override
+        protected SetterPlan computeValue(Class< ? > type)
+        {
+            return new SetterPlan(type);
+        }
+    };
+
+    /**
+     * Marks attribute names without a setter in {@link #resolved}.
+     */
+    private static final Setter NO_SETTER = new Setter(null, null, null, Conversion.NONE, null);
+
+    /**
+     * Maximum number of attribute names cached per plan. Asterisk sends a
+     * fixed set of names for most events but the headers of user events
+     * are chosen freely, names beyond the limit are resolved on each call.
+     */
+    private static final int MAX_RESOLVED = 256;
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, String.class);
+
+    /**
+     * Conversion to apply to the value received from Asterisk before passing
+     * it to the setter.
+     */
+    enum Conversion
+    {
+        NONE, BOOLEAN, STRING, MAP, INTEGER, LONG, DOUBLE, CONSTRUCTOR
+    }
+
+    private final Map<String, Setter> setters;
+    private final ConcurrentMap<String, Setter> resolved;
+
+    private SetterPlan(Class< ? > type)
+    {
+        this.setters = new HashMap<>();
+        this.resolved = new ConcurrentHashMap<>();
+
+        for (Map.Entry<String, Method> entry : ReflectionUtil.getSetters(type).entrySet())
+        {
+            setters.put(entry.getKey(), createSetter(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Returns the plan for the given class.
+     *
+     * @param type the class to return the plan for.
+     * @return the plan for the given class.
+     */
+    static SetterPlan forClass(Class< ? > type)
+    {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Returns the setter to use for the attribute with the given name as
+     * received from Asterisk.
+     *
+     * @param attributeName the lower case name of the attribute.
+     * @return the setter or <code>null</code> if there is no setter for this
+     *         attribute.
+     */
+    Setter getSetter(String attributeName)
+    {
+        Setter setter = resolved.get(attributeName);
+        if (setter == null)
+        {
+            setter = resolve(attributeName);
+            if (resolved.size() < MAX_RESOLVED)
+            {
+                resolved.put(attributeName, setter == null ? NO_SETTER : setter);
+            }
+            return setter;
+        }
+        return setter == NO_SETTER ? null : setter;
+    }
+
+    private Setter resolve(String attributeName)
+    {
+        String setterName = ReflectionUtil.stripIllegalCharacters(attributeName);
+
+        /*
+         * The source property needs special handling as it is already defined
+         * in java.util.EventObject (the base class of ManagerEvent), so we
+         * have to translate it. The class property is used in
+         * MusicOnHoldEvent.
+         */
+        if ("source".equals(setterName))
+        {
+            setterName = "src";
+        }
+        else if ("class".equals(setterName))
+        {
+            setterName = "clazz";
+        }
+
+        Setter setter = setters.get(setterName);
+
+        // no exact match => try plural but only for maps
+        if (setter == null && !setterName.endsWith("s"))
+        {
+            setter = setters.get(setterName + "s");
+            if (setter != null && !setter.getDataType().isAssignableFrom(Map.class))
+            {
+                setter = null;
+            }
+        }
+
+        return setter;
+    }
+
+    private static Setter createSetter(String name, Method method)
+    {
+        final Class< ? > dataType = method.getParameterTypes()[0];
+        final Conversion conversion;
+        MethodHandle constructor = null;
+
+        if (dataType == Boolean.class)
+        {
+            conversion = Conversion.BOOLEAN;
+        }
+        else if (dataType.isAssignableFrom(String.class))
+        {
+            conversion = Conversion.STRING;
+        }
+        else if (dataType.isAssignableFrom(Map.class))
+        {
+            conversion = Conversion.MAP;
+        }
+        else if (dataType == Integer.class)
+        {
+            conversion = Conversion.INTEGER;
+        }
+        else if (dataType == Long.class)
+        {
+            conversion = Conversion.LONG;
+        }
+        else if (dataType == Double.class)
+        {
+            conversion = Conversion.DOUBLE;
+        }
+        else
+        {
+            conversion = Conversion.CONSTRUCTOR;
+            try
+            {
+                final Constructor< ? > c = dataType.getConstructor(String.class);
+                constructor = unreflect(c).asType(CONSTRUCTOR_TYPE);
+            }
+            catch (NoSuchMethodException | IllegalAccessException e)
+            {
+                // reported when the setter is used
+                constructor = null;
+            }
+        }
+
+        MethodHandle handle;
+        try
+        {
+            handle = unreflect(method).asType(SETTER_TYPE);
+        }
+        catch (IllegalAccessException e)
+        {
+            handle = null;
+        }
+
+        return new Setter(name, method, handle, conversion, constructor);
+    }
+
+    private static MethodHandle unreflect(Method method) throws IllegalAccessException
+    {
+        // public methods of non public classes are not accessible otherwise
+        if (!Modifier.isPublic(method.getDeclaringClass().getModifiers()))
+        {
+            method.setAccessible(true);
+        }
+        return MethodHandles.lookup().unreflect(method);
+    }
+
+    private static MethodHandle unreflect(Constructor< ? > constructor) throws IllegalAccessException
+    {
+        if (!Modifier.isPublic(constructor.getDeclaringClass().getModifiers()))
+        {
+            constructor.setAccessible(true);
+        }
+        return MethodHandles.lookup().unreflectConstructor(constructor);
+    }
+
+    /**
+     * A prepared setter.
+     */
+    static final class Setter
+    {
+        private final String name;
+        private final Method method;
+        private final MethodHandle handle;
+        private final Conversion conversion;
+        private final MethodHandle constructor;
+
+        private Setter(String name, Method method, MethodHandle handle, Conversion conversion,
+                MethodHandle constructor)
+        {
+            this.name = name;
+            this.method = method;
+            this.handle = handle;
+            this.conversion = conversion;
+            this.constructor = constructor;
+        }
+
+        /**
+         * Returns the name of the property set by this setter.
+         *
+         * @return the lower case name of the property, i.e. the name of the
+         *         setter without "set".
+         */
+        String getName()
+        {
+            return name;
+        }
+
+        Conversion getConversion()
+        {
+            return conversion;
+        }
+
+        Class< ? > getDataType()
+        {
+            return method.getParameterTypes()[0];
+        }
+
+        /**
+         * Creates an instance of the data type from the given String using
+         * its String constructor. Only used for {@link Conversion#CONSTRUCTOR}.
+         *
+         * @param value the value to pass to the constructor.
+         * @return the new instance.
+         * @throws Throwable if there is no such constructor or it failed.
+         */
+        Object construct(Object value) throws Throwable
+        {
+            if (constructor == null)
+            {
+                throw new NoSuchMethodException(getDataType().getName() + ".<init>(java.lang.String)");
+            }
+            return constructor.invokeExact((String) value);
+        }
+
+        /**
+         * Invokes the setter.
+         *
+         * @param target the object to set the value on.
+         * @param value the converted value.
+         * @throws Throwable if the setter failed.
+         */
+        void invoke(Object target, Object value) throws Throwable
+        {
+            if (handle == null)
+            {
+                method.invoke(target, value);
+                return;
+            }
+            handle.invokeExact(target, value);
+        }
+    }
+}
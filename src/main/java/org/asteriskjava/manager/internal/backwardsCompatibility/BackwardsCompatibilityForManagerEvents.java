@@ -1,11 +1,43 @@
 package org.asteriskjava.manager.internal.backwardsCompatibility;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import org.asteriskjava.manager.event.BridgeCreateEvent;
+import org.asteriskjava.manager.event.BridgeDestroyEvent;
+import org.asteriskjava.manager.event.BridgeEnterEvent;
+import org.asteriskjava.manager.event.BridgeEvent;
+import org.asteriskjava.manager.event.BridgeLeaveEvent;
+import org.asteriskjava.manager.event.ConfbridgeEndEvent;
+import org.asteriskjava.manager.event.ConfbridgeJoinEvent;
+import org.asteriskjava.manager.event.ConfbridgeLeaveEvent;
 import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.MeetMeEndEvent;
+import org.asteriskjava.manager.event.MeetMeJoinEvent;
+import org.asteriskjava.manager.event.MeetMeLeaveEvent;
 import org.asteriskjava.manager.internal.backwardsCompatibility.bridge.BridgesActive;
 import org.asteriskjava.manager.internal.backwardsCompatibility.meetme.MeetmeCompatibility;
 
 public class BackwardsCompatibilityForManagerEvents
 {
+    /**
+     * The class of the event emitted by {@link #handleEvent(ManagerEvent)} by
+     * the class of the event it is emitted for.
+     */
+    private static final Map<Class< ? extends ManagerEvent>, Class< ? extends ManagerEvent>> DERIVED_EVENT_CLASSES =
+            new HashMap<>();
+
+    static
+    {
+        DERIVED_EVENT_CLASSES.put(BridgeCreateEvent.class, BridgeEvent.class);
+        DERIVED_EVENT_CLASSES.put(BridgeDestroyEvent.class, BridgeEvent.class);
+        DERIVED_EVENT_CLASSES.put(BridgeEnterEvent.class, BridgeEvent.class);
+        DERIVED_EVENT_CLASSES.put(BridgeLeaveEvent.class, BridgeEvent.class);
+        DERIVED_EVENT_CLASSES.put(ConfbridgeEndEvent.class, MeetMeEndEvent.class);
+        DERIVED_EVENT_CLASSES.put(ConfbridgeJoinEvent.class, MeetMeJoinEvent.class);
+        DERIVED_EVENT_CLASSES.put(ConfbridgeLeaveEvent.class, MeetMeLeaveEvent.class);
+    }
+
     // Logger logger = LogManager.getLogger();
     BridgesActive bridges = new BridgesActive();
     MeetmeCompatibility meetme = new MeetmeCompatibility();
@@ -20,4 +52,17 @@ public class BackwardsCompatibilityForManagerEvents
         return newEvent;
     }
 
+    /**
+     * Returns the class of the legacy event emitted for events of the given
+     * class, so events required only for their legacy counterpart are not
+     * filtered.
+     *
+     * @param eventClass the class of the event received.
+     * @return the class of the legacy event or <code>null</code> if there is
+     *         none.
+     */
+    public static Class< ? extends ManagerEvent> getDerivedEventClass(Class< ? extends ManagerEvent> eventClass)
+    {
+        return DERIVED_EVENT_CLASSES.get(eventClass);
+    }
 }
@@ -3,6 +3,8 @@ package org.asteriskjava.pbx;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.asteriskjava.pbx.internal.core.AsteriskPBX;
+import org.asteriskjava.util.ExecutorFactory;
+import org.asteriskjava.util.PlatformExecutorFactory;
 
 public class PBXFactory
 {
@@ -33,4 +35,28 @@ public class PBXFactory
         return activeProfile;
     }
 
+    final static AtomicReference<ExecutorFactory> executorFactory = new AtomicReference<ExecutorFactory>(
+            PlatformExecutorFactory.INSTANCE);
+
+    /**
+     * Sets the factory that creates the threads activities run on, for
+     * example a {@link org.asteriskjava.util.VirtualThreadExecutorFactory}.
+     * Defaults to platform daemon threads.
+     * 
+     * @param newExecutorFactory the factory to use.
+     */
+    public static void setExecutorFactory(ExecutorFactory newExecutorFactory)
+    {
+        if (newExecutorFactory == null)
+        {
+            throw new IllegalArgumentException("executorFactory must not be null");
+        }
+        executorFactory.set(newExecutorFactory);
+    }
+
+    public static ExecutorFactory getExecutorFactory()
+    {
+        return executorFactory.get();
+    }
+
 }
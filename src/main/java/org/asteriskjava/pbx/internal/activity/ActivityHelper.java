@@ -97,8 +97,7 @@ public abstract class ActivityHelper<T extends Activity> implements Runnable, Ac
             this.callback.progress((T) this, ActivityStatusEnum.START, ActivityStatusEnum.START.getDefaultMessage());
         }
 
-        final Thread thread = new Thread(this, this.activityName);
-        thread.setDaemon(true);
+        final Thread thread = PBXFactory.getExecutorFactory().newThread(this, this.activityName);
         thread.start();
 
     }
@@ -2,7 +2,9 @@ package org.asteriskjava.pbx.internal.core;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.asteriskjava.pbx.asterisk.wrap.actions.ManagerAction;
@@ -161,6 +163,37 @@ public class CoherentEventFactory
 
     }
 
+    /**
+     * Returns the asterisk-java event classes that are mapped to the given
+     * internal event classes.
+     * 
+     * @param shadowEvents internal event classes
+     * @return the asterisk-java event classes to receive
+     */
+    public static Set<Class< ? extends org.asteriskjava.manager.event.ManagerEvent>> getRequiredEvents(
+            Set<Class< ? extends ManagerEvent>> shadowEvents)
+    {
+        final Set<Class< ? extends org.asteriskjava.manager.event.ManagerEvent>> result = new HashSet<>();
+
+        for (Class< ? extends org.asteriskjava.manager.event.ManagerEvent> eventClass : CoherentEventFactory.mapEvents
+                .keySet())
+        {
+            if (shadowEvents.contains(CoherentEventFactory.mapEvents.get(eventClass)))
+            {
+                result.add(eventClass);
+            }
+        }
+        for (Class< ? extends org.asteriskjava.manager.event.ResponseEvent> eventClass : CoherentEventFactory.mapResponses
+                .keySet())
+        {
+            if (shadowEvents.contains(CoherentEventFactory.mapResponses.get(eventClass)))
+            {
+                result.add(eventClass);
+            }
+        }
+        return result;
+    }
+
     public static ManagerEvent build(final org.asteriskjava.manager.event.ManagerEvent event)
     {
         ManagerEvent iEvent = null;
@@ -34,6 +34,7 @@ import org.asteriskjava.pbx.asterisk.wrap.events.ManagerEvent;
 import org.asteriskjava.pbx.asterisk.wrap.events.ResponseEvents;
 import org.asteriskjava.pbx.asterisk.wrap.response.ManagerResponse;
 import org.asteriskjava.pbx.internal.managerAPI.Connector;
+import org.asteriskjava.util.ExecutionRuntime;
 
 /**
  * This is a wrapper class for the asterisk manager. <br>
@@ -238,7 +239,7 @@ class CoherentManagerConnection implements FilteredManagerListener<ManagerEvent>
      */
     public static void sendActionNoWait(final ManagerAction action)
     {
-        final Thread background = new Thread()
+        ExecutionRuntime.getDefault().getExecutor().execute(new Runnable()
         {
             @Override
             public void run()
@@ -252,10 +253,7 @@ class CoherentManagerConnection implements FilteredManagerListener<ManagerEvent>
                     CoherentManagerConnection.logger.error(e, e);
                 }
             }
-        };
-        background.setName("sendActionNoWait"); //$NON-NLS-1$
-        background.setDaemon(true);
-        background.start();
+        });
     }
 
     public static ResponseEvents sendEventGeneratingAction(EventGeneratingAction action)
@@ -9,7 +9,8 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
-import org.asteriskjava.manager.ManagerEventListener;
+import org.asteriskjava.manager.FilteredManagerEventListener;
+import org.asteriskjava.pbx.PBXFactory;
 import org.asteriskjava.pbx.asterisk.wrap.events.ManagerEvent;
 import org.asteriskjava.pbx.internal.eventQueue.EventLifeMonitor;
 import org.asteriskjava.pbx.util.LogTime;
@@ -31,7 +32,7 @@ import org.asteriskjava.pbx.util.LogTime;
  * @author bsutton
  * 
  */
-class CoherentManagerEventQueue implements ManagerEventListener, Runnable
+class CoherentManagerEventQueue implements FilteredManagerEventListener, Runnable
 {
 	static Logger logger = Logger.getLogger(CoherentManagerEventQueue.class);
 
@@ -72,9 +73,7 @@ class CoherentManagerEventQueue implements ManagerEventListener, Runnable
 	{
 		CoherentManagerConnection.managerConnection.addEventListener(this);
 
-		this._th = new Thread(this);
-		this._th.setName("EventQueue: " + name);//$NON-NLS-1$
-		this._th.setDaemon(true);
+		this._th = PBXFactory.getExecutorFactory().newThread(this, "EventQueue: " + name);//$NON-NLS-1$
 		this._th.start();
 	}
 
@@ -128,6 +127,27 @@ class CoherentManagerEventQueue implements ManagerEventListener, Runnable
 		}
 	}
 
+	/**
+	 * Only the asterisk-java events that map to events required by one of our
+	 * listeners need to be built by the manager connection.
+	 */
+	@Override
+	public Set<Class<? extends org.asteriskjava.manager.event.ManagerEvent>> requiredEvents()
+	{
+		synchronized (this.globalEvents)
+		{
+			return CoherentEventFactory.getRequiredEvents(this.globalEvents);
+		}
+	}
+
+	private void refreshRequiredEvents()
+	{
+		if (CoherentManagerConnection.managerConnection != null)
+		{
+			CoherentManagerConnection.managerConnection.refreshRequiredEvents();
+		}
+	}
+
 	@Override
 	public void run()
 	{
@@ -252,6 +272,7 @@ class CoherentManagerEventQueue implements ManagerEventListener, Runnable
 				this.globalEvents.addAll(listener.requiredEvents());
 			}
 		}
+		refreshRequiredEvents();
 		logger.debug("listener  added"); //$NON-NLS-1$
 	}
 
@@ -283,6 +304,7 @@ class CoherentManagerEventQueue implements ManagerEventListener, Runnable
 				}
 			}
 		}
+		refreshRequiredEvents();
 	}
 
 	final class ListenerPriorityComparator implements Comparator<Listener>
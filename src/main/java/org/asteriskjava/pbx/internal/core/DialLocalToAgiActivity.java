@@ -30,6 +30,7 @@ import org.asteriskjava.pbx.asterisk.wrap.events.OriginateResponseEvent;
 import org.asteriskjava.pbx.asterisk.wrap.response.ManagerResponse;
 import org.asteriskjava.pbx.internal.managerAPI.EventListenerBaseClass;
 import org.asteriskjava.pbx.internal.managerAPI.OriginateBaseClass;
+import org.asteriskjava.util.ExecutionRuntime;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
@@ -57,7 +58,7 @@ public class DialLocalToAgiActivity extends EventListenerBaseClass implements Ru
         this.channelVarsToSet = channelVarsToSet;
 
         this.startListener(PBXFactory.getActivePBX());
-        thread = new Thread(this, "Dial " + from + " to AGI");
+        thread = ExecutionRuntime.getDefault().newThread(this, "Dial " + from + " to AGI");
         thread.start();
     }
     // Logger logger = LogManager.getLogger();
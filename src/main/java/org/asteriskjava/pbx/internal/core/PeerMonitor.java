@@ -1,5 +1,6 @@
 package org.asteriskjava.pbx.internal.core;
 
+import java.lang.invoke.MethodHandles;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -24,6 +25,7 @@ import org.asteriskjava.pbx.asterisk.wrap.events.PeerlistCompleteEvent;
 import org.asteriskjava.pbx.asterisk.wrap.events.StatusCompleteEvent;
 import org.asteriskjava.pbx.asterisk.wrap.events.StatusEvent;
 import org.asteriskjava.pbx.internal.managerAPI.EventListenerBaseClass;
+import org.asteriskjava.util.DispatchTable;
 
 /*
  * this class tracks the status of all peers on asterisk.
@@ -31,6 +33,12 @@ import org.asteriskjava.pbx.internal.managerAPI.EventListenerBaseClass;
 public class PeerMonitor extends EventListenerBaseClass implements Runnable
 {
 
+	private static final DispatchTable<PeerMonitor, ManagerEvent> HANDLERS = eventHandlers(PeerMonitor.class)
+			.addMethod(MethodHandles.lookup(), "handleEvent", PeerStatusEvent.class, PeerlistCompleteEvent.class,
+					PeerEntryEvent.class, NewChannelEvent.class, MasqueradeEvent.class, StatusEvent.class,
+					StatusCompleteEvent.class, NewStateEvent.class)
+			.build();
+
 	static Logger logger = Logger.getLogger(PeerMonitor.class);
 
 	LinkedList<Peer> peerList = new LinkedList<>();
@@ -93,9 +101,7 @@ public class PeerMonitor extends EventListenerBaseClass implements Runnable
 			PeerMonitor.logger.error(e, e);
 		}
 
-		this.markAndSweepThread = new Thread(this);
-		this.markAndSweepThread.setName("PeerMonitor-MarkAndSweep"); //$NON-NLS-1$
-		this.markAndSweepThread.setDaemon(true);
+		this.markAndSweepThread = PBXFactory.getExecutorFactory().newThread(this, "PeerMonitor-MarkAndSweep"); //$NON-NLS-1$
 		this.markAndSweepThread.start();
 
 	}
@@ -195,38 +201,7 @@ public class PeerMonitor extends EventListenerBaseClass implements Runnable
 		 * we are interested in.
 		 */
 
-		if (event instanceof PeerStatusEvent)
-		{
-			this.handleEvent((PeerStatusEvent) event);
-		}
-		else if (event instanceof PeerlistCompleteEvent)
-		{
-			this.handleEvent((PeerlistCompleteEvent) event);
-		}
-		else if (event instanceof PeerEntryEvent)
-		{
-			this.handleEvent((PeerEntryEvent) event);
-		}
-		else if (event instanceof NewChannelEvent)
-		{
-			this.handleEvent((NewChannelEvent) event);
-		}
-		else if (event instanceof MasqueradeEvent)
-		{
-			this.handleEvent((MasqueradeEvent) event);
-		}
-		else if (event instanceof StatusEvent)
-		{
-			this.handleEvent((StatusEvent) event);
-		}
-		else if (event instanceof StatusCompleteEvent)
-		{
-			this.handleEvent((StatusCompleteEvent) event);
-		}
-		else if (event instanceof NewStateEvent)
-		{
-			this.handleEvent((NewStateEvent) event);
-		}
+		HANDLERS.dispatch(this, event);
 	}
 
 	private void handleEvent(NewStateEvent event)
@@ -5,6 +5,7 @@ import org.asteriskjava.pbx.PBXFactory;
 import org.asteriskjava.pbx.asterisk.wrap.events.ManagerEvent;
 import org.asteriskjava.pbx.internal.core.AsteriskPBX;
 import org.asteriskjava.pbx.internal.core.FilteredManagerListener;
+import org.asteriskjava.util.DispatchTable;
 
 /*
  * This is the basic abstract event listener class. It implements a thread
@@ -26,6 +27,27 @@ public abstract class EventListenerBaseClass implements FilteredManagerListener<
         return this.name;
     }
 
+    /**
+     * Creates a builder for a table that dispatches the events received by a
+     * listener to its handler methods. The handler for each event class is
+     * resolved once, so subclasses can replace their instanceof chains in
+     * {@link #onManagerEvent(Object)} with a call to
+     * {@link DispatchTable#dispatch(Object, Object)}:
+     * 
+     * <pre>
+     * private static final DispatchTable&lt;MyListener, ManagerEvent&gt; HANDLERS = eventHandlers(MyListener.class)
+     *         .addMethod(MethodHandles.lookup(), &quot;handleEvent&quot;, HangupEvent.class, BridgeEvent.class).build();
+     * </pre>
+     * 
+     * @param listenerClass the class of the listener.
+     * @return the new builder.
+     */
+    protected static <L extends EventListenerBaseClass> DispatchTable.Builder<L, ManagerEvent> eventHandlers(
+            final Class<L> listenerClass)
+    {
+        return DispatchTable.builder(listenerClass, ManagerEvent.class);
+    }
+
     /**
      * we have to take the pbx as an arg here as we sometimes this is called
      * during the creation phase of for the pbx, and the factory can't give out
@@ -24,6 +24,17 @@ public class DaemonThreadFactory implements ThreadFactory
         namePrefix = "AJ DaemonPool-"+ poolNumber.getAndIncrement() +'.';
     }//new
 
+    /**
+     * Creates a new instance that names its threads after the given prefix.
+     *
+     * @param name the prefix of the thread names, followed by "-" and the
+     *            number of the thread.
+     * @since 2.0.0
+     */
+    public DaemonThreadFactory(String name) {
+        namePrefix = name + '-';
+    }//new
+
 
     @Override public Thread newThread (Runnable r) {
 		    final Thread thread = new Thread(r);
@@ -0,0 +1,366 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dispatches events to the handler registered for their class, replacing
+ * long if-then-else constructs with instanceof checks.
+ * <p>
+ * Handlers are registered in order and the first handler whose event class
+ * the event is an instance of is chosen, just like with an instanceof chain.
+ * Unlike a chain the handler is resolved only once per concrete event class
+ * and then cached in a {@link ClassValue}, so dispatching costs the same for
+ * all events, no matter where their handler has been registered. Registering
+ * a handler that can never be chosen because a handler for a superclass has
+ * been registered before is rejected.
+ * <p>
+ * Instances are immutable and thread safe, they are usually kept in a static
+ * field and shared by all instances of the target class.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * private static final DispatchTable&lt;MyListener, ManagerEvent&gt; HANDLERS = DispatchTable
+ *         .builder(MyListener.class, ManagerEvent.class)
+ *         .addMethod(MethodHandles.lookup(), &quot;handleEvent&quot;, NewChannelEvent.class, HangupEvent.class)
+ *         .build();
+ *
+ * public void onManagerEvent(ManagerEvent event)
+ * {
+ *     HANDLERS.dispatch(this, event);
+ * }
+ * </pre>
+ *
+ * @param <T> the type of the objects handling the events.
+ * @param <E> the base type of the events.
+ * @since 2.0.0
+ */
+public final class DispatchTable<T, E>
+{
+    private static final MethodType GENERIC_HANDLER_TYPE = MethodType.methodType(void.class, Object.class,
+            Object.class);
+
+    private final Class<E> eventClass;
+    private final List<Entry<T, E>> entries;
+    private final ClassValue<Handler<T, E>> handlers = new ClassValue<Handler<T, E>>()
+    {
+        @Override
+        protected Handler<T, E> computeValue(Class< ? > type)
+        {
+            return resolve(type);
+        }
+    };
+
+    /**
+     * Handles events of a single class on behalf of a target.
+     *
+     * @param <T> the type of the objects handling the events.
+     * @param <E> the type of the events.
+     */
+    public interface Handler<T, E>
+    {
+        /**
+         * Handles the given event.
+         *
+         * @param target the object handling the event.
+         * @param event the event, an instance of the class the handler has
+         *            been registered for.
+         */
+        void handle(T target, E event);
+    }
+
+    /**
+     * Creates a new builder for a dispatch table.
+     *
+     * @param targetClass the type of the objects handling the events.
+     * @param eventClass the base type of the events.
+     * @return the new builder.
+     */
+    public static <T, E> Builder<T, E> builder(Class<T> targetClass, Class<E> eventClass)
+    {
+        return new Builder<>(targetClass, eventClass);
+    }
+
+    private DispatchTable(Builder<T, E> builder)
+    {
+        this.eventClass = builder.eventClass;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(builder.entries));
+    }
+
+    /**
+     * Passes the event to the handler registered for its class.
+     *
+     * @param target the object handling the event.
+     * @param event the event to dispatch.
+     * @return <code>true</code> if a handler has been called,
+     *         <code>false</code> if no handler has been registered for the
+     *         class of the event or the event is <code>null</code>.
+     */
+    public boolean dispatch(T target, E event)
+    {
+        if (event == null)
+        {
+            return false;
+        }
+
+        final Handler<T, E> handler = handlers.get(event.getClass());
+        if (handler == null)
+        {
+            return false;
+        }
+
+        handler.handle(target, event);
+        return true;
+    }
+
+    /**
+     * Returns the handler events of the given class are passed to.
+     *
+     * @param type the concrete class of the events.
+     * @return the handler or <code>null</code> if none has been registered
+     *         for this class.
+     */
+    public Handler<T, E> getHandler(Class< ? extends E> type)
+    {
+        return handlers.get(type);
+    }
+
+    private Handler<T, E> resolve(Class< ? > type)
+    {
+        if (!eventClass.isAssignableFrom(type))
+        {
+            return null;
+        }
+
+        for (Entry<T, E> entry : entries)
+        {
+            if (entry.eventClass.isAssignableFrom(type))
+            {
+                return entry.handler;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collects the handlers of a {@link DispatchTable}.
+     *
+     * @param <T> the type of the objects handling the events.
+     * @param <E> the base type of the events.
+     */
+    public static final class Builder<T, E>
+    {
+        private final Class<T> targetClass;
+        private final Class<E> eventClass;
+        private final List<Entry<T, E>> entries = new ArrayList<>();
+
+        private Builder(Class<T> targetClass, Class<E> eventClass)
+        {
+            this.targetClass = targetClass;
+            this.eventClass = eventClass;
+        }
+
+        /**
+         * Registers a handler for the given event class and its subclasses.
+         *
+         * @param type the class of events to handle.
+         * @param handler the handler.
+         * @return this builder.
+         * @throws IllegalArgumentException if a handler for the class or one
+         *             of its superclasses has already been registered.
+         */
+        public <X extends E> Builder<T, E> add(Class<X> type, Handler< ? super T, ? super X> handler)
+        {
+            if (handler == null)
+            {
+                throw new IllegalArgumentException("Handler must not be null");
+            }
+            addEntry(type, new NarrowingHandler<T, E, X>(type, handler));
+            return this;
+        }
+
+        /**
+         * Registers a method of the target class for each of the given event
+         * classes. The method is looked up with a single parameter of exactly
+         * the event class and is called virtually, so subclasses of the target
+         * class can override it.
+         *
+         * @param lookup the lookup used to access the methods, usually
+         *            <code>MethodHandles.lookup()</code> of the target class.
+         * @param methodName the name of the methods.
+         * @param types the classes of events to handle, in order.
+         * @return this builder.
+         * @throws IllegalArgumentException if a method does not exist or is
+         *             not accessible, or if a handler for one of the classes
+         *             or one of its superclasses has already been registered.
+         */
+        public Builder<T, E> addMethod(MethodHandles.Lookup lookup, String methodName, Class< ? >... types)
+        {
+            for (Class< ? > type : types)
+            {
+                if (!eventClass.isAssignableFrom(type))
+                {
+                    throw new IllegalArgumentException(type.getName() + " is not a subclass of " + eventClass.getName());
+                }
+
+                final MethodHandle method;
+                try
+                {
+                    method = lookup.findVirtual(targetClass, methodName, MethodType.methodType(void.class, type));
+                }
+                catch (NoSuchMethodException | IllegalAccessException e)
+                {
+                    throw new IllegalArgumentException("Unable to access " + targetClass.getName() + "." + methodName
+                            + "(" + type.getName() + ")", e);
+                }
+                addEntry(type, new MethodHandler<T, E>(method.asType(GENERIC_HANDLER_TYPE)));
+            }
+            return this;
+        }
+
+        /**
+         * Registers a method of an object the target class delegates to. The
+         * object is read from the given field of the target each time an
+         * event is dispatched, the method is looked up on the declared type
+         * of the field with a single parameter of exactly the event class.
+         *
+         * @param lookup the lookup used to access the field and the method,
+         *            usually <code>MethodHandles.lookup()</code> of the target
+         *            class.
+         * @param fieldName the name of the field of the target class holding
+         *            the delegate.
+         * @param methodName the name of the method of the delegate.
+         * @param type the class of events to handle.
+         * @return this builder.
+         * @throws IllegalArgumentException if the field or the method does not
+         *             exist or is not accessible, or if a handler for the
+         *             class or one of its superclasses has already been
+         *             registered.
+         */
+        public Builder<T, E> addDelegate(MethodHandles.Lookup lookup, String fieldName, String methodName,
+                Class< ? > type)
+        {
+            if (!eventClass.isAssignableFrom(type))
+            {
+                throw new IllegalArgumentException(type.getName() + " is not a subclass of " + eventClass.getName());
+            }
+
+            final MethodHandle method;
+            try
+            {
+                final MethodHandle getter = lookup.unreflectGetter(targetClass.getDeclaredField(fieldName));
+                final MethodHandle delegateMethod = lookup.findVirtual(getter.type().returnType(), methodName,
+                        MethodType.methodType(void.class, type));
+                method = MethodHandles.filterArguments(delegateMethod, 0, getter);
+            }
+            catch (NoSuchFieldException | NoSuchMethodException | IllegalAccessException e)
+            {
+                throw new IllegalArgumentException("Unable to access " + targetClass.getName() + "." + fieldName + "."
+                        + methodName + "(" + type.getName() + ")", e);
+            }
+            addEntry(type, new MethodHandler<T, E>(method.asType(GENERIC_HANDLER_TYPE)));
+            return this;
+        }
+
+        private void addEntry(Class< ? > type, Handler<T, E> handler)
+        {
+            for (Entry<T, E> entry : entries)
+            {
+                if (entry.eventClass.isAssignableFrom(type))
+                {
+                    throw new IllegalArgumentException("Handler for " + type.getName()
+                            + " is never called as it is registered after the handler for "
+                            + entry.eventClass.getName());
+                }
+            }
+            entries.add(new Entry<>(type, handler));
+        }
+
+        /**
+         * Creates the dispatch table.
+         *
+         * @return the new dispatch table.
+         */
+        public DispatchTable<T, E> build()
+        {
+            return new DispatchTable<>(this);
+        }
+    }
+
+    private static final class Entry<T, E>
+    {
+        private final Class< ? > eventClass;
+        private final Handler<T, E> handler;
+
+        private Entry(Class< ? > eventClass, Handler<T, E> handler)
+        {
+            this.eventClass = eventClass;
+            this.handler = handler;
+        }
+    }
+
+    private static final class NarrowingHandler<T, E, X extends E> implements Handler<T, E>
+    {
+        private final Class<X> type;
+        private final Handler< ? super T, ? super X> handler;
+
+        private NarrowingHandler(Class<X> type, Handler< ? super T, ? super X> handler)
+        {
+            this.type = type;
+            this.handler = handler;
+        }
+
+        public void handle(T target, E event)
+        {
+            handler.handle(target, type.cast(event));
+        }
+    }
+
+    private static final class MethodHandler<T, E> implements Handler<T, E>
+    {
+        private final MethodHandle method;
+
+        private MethodHandler(MethodHandle method)
+        {
+            this.method = method;
+        }
+
+        public void handle(T target, E event)
+        {
+            try
+            {
+                method.invokeExact((Object) target, (Object) event);
+            }
+            catch (RuntimeException | Error e)
+            {
+                throw e;
+            }
+            catch (Throwable t)
+            {
+                // handler methods do not declare checked exceptions
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the threads used by Asterisk-Java: dedicated threads for long
+ * running loops like the reader of a manager connection, an executor for
+ * blocking tasks like reconnecting, a scheduler for short periodic tasks and
+ * a timer for large numbers of timeouts.
+ * <p>
+ * Manager connections, Asterisk servers and AGI servers use the shared
+ * {@link #getDefault() default runtime} unless they are configured to use
+ * another one. Sharing a runtime between many connections keeps the number
+ * of threads under control, as only the threads that are inherently per
+ * connection (like the reader thread) are created per connection.
+ * <p>
+ * Threads are created by an {@link ExecutorFactory}, so a runtime can run on
+ * virtual threads. The runtime counts the threads and tasks it runs, see
+ * {@link #getLiveThreadCount()} and {@link #getActiveTaskCount()}.
+ *
+ * @since 2.0.0
+ */
+public class ExecutionRuntime
+{
+    private static final int DEFAULT_SCHEDULER_POOL_SIZE = 1;
+
+    private static ExecutionRuntime defaultRuntime;
+
+    private final String name;
+    private final ExecutorFactory executorFactory;
+    private final int schedulerPoolSize;
+    private final AtomicInteger liveThreads = new AtomicInteger();
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private HashedWheelTimer timer;
+    private ScheduledThreadPoolExecutor scheduler;
+    private ExecutorService executor;
+    private boolean shutdown;
+
+    /**
+     * Returns the runtime shared by all users that have not been configured
+     * to use another one. It uses platform daemon threads and the
+     * {@link HashedWheelTimer#getDefault() default timer}.
+     *
+     * @return the shared runtime.
+     */
+    public static synchronized ExecutionRuntime getDefault()
+    {
+        if (defaultRuntime == null)
+        {
+            defaultRuntime = new ExecutionRuntime("Asterisk-Java", PlatformExecutorFactory.INSTANCE,
+                    DEFAULT_SCHEDULER_POOL_SIZE, HashedWheelTimer.getDefault());
+        }
+        return defaultRuntime;
+    }
+
+    /**
+     * Creates a new runtime that uses platform daemon threads.
+     *
+     * @param name the prefix of the names of its threads.
+     */
+    public ExecutionRuntime(String name)
+    {
+        this(name, PlatformExecutorFactory.INSTANCE, DEFAULT_SCHEDULER_POOL_SIZE, null);
+    }
+
+    /**
+     * Creates a new runtime.
+     *
+     * @param name the prefix of the names of its threads.
+     * @param executorFactory creates the threads and the executor.
+     * @param schedulerPoolSize the number of threads of the scheduler.
+     * @param timer the timer to use or <code>null</code> to create one when
+     *            it is first used.
+     */
+    public ExecutionRuntime(String name, ExecutorFactory executorFactory, int schedulerPoolSize,
+            HashedWheelTimer timer)
+    {
+        if (executorFactory == null)
+        {
+            throw new IllegalArgumentException("ExecutorFactory must not be null");
+        }
+        if (schedulerPoolSize < 1)
+        {
+            throw new IllegalArgumentException("schedulerPoolSize must be at least 1");
+        }
+
+        this.name = name;
+        this.executorFactory = executorFactory;
+        this.schedulerPoolSize = schedulerPoolSize;
+        this.timer = timer;
+    }
+
+    /**
+     * Returns the factory used to create threads.
+     *
+     * @return the factory used to create threads.
+     */
+    public ExecutorFactory getExecutorFactory()
+    {
+        return executorFactory;
+    }
+
+    /**
+     * Creates a new thread for a long running task, like the reader of a
+     * manager connection. The thread has not been started.
+     *
+     * @param task the task to run.
+     * @param threadName the name of the thread.
+     * @return the new thread.
+     */
+    public Thread newThread(Runnable task, String threadName)
+    {
+        return executorFactory.newThread(new CountingRunnable(task, liveThreads), threadName);
+    }
+
+    /**
+     * Returns the executor for tasks that block, like reconnecting to
+     * Asterisk. The number of tasks it runs concurrently is not limited.
+     *
+     * @return the executor for blocking tasks.
+     */
+    public synchronized ExecutorService getExecutor()
+    {
+        checkNotShutdown();
+        if (executor == null)
+        {
+            executor = new CountingExecutorService(executorFactory.newExecutor(name + "-Executor"), activeTasks);
+        }
+        return executor;
+    }
+
+    /**
+     * Returns the scheduler for short periodic or delayed tasks. Tasks must
+     * not block as they share a small number of threads. Cancelled tasks are
+     * removed from the scheduler immediately.
+     *
+     * @return the scheduler.
+     */
+    public synchronized ScheduledExecutorService getScheduler()
+    {
+        checkNotShutdown();
+        if (scheduler == null)
+        {
+            final ThreadFactory threadFactory = executorFactory.newThreadFactory(name + "-Scheduler");
+            scheduler = new ScheduledThreadPoolExecutor(schedulerPoolSize, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    return threadFactory.newThread(new CountingRunnable(r, liveThreads));
+                }
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Returns the timer for large numbers of short timeouts that are usually
+     * cancelled before they expire.
+     *
+     * @return the timer.
+     */
+    public synchronized HashedWheelTimer getTimer()
+    {
+        checkNotShutdown();
+        if (timer == null)
+        {
+            timer = new HashedWheelTimer(name + "-Timer", 100L, TimeUnit.MILLISECONDS, 512);
+        }
+        return timer;
+    }
+
+    /**
+     * Returns the number of threads created by {@link #newThread(Runnable, String)}
+     * and by the scheduler that are currently running.
+     *
+     * @return the number of live threads.
+     */
+    public int getLiveThreadCount()
+    {
+        return liveThreads.get();
+    }
+
+    /**
+     * Returns the number of tasks currently run by the executor.
+     *
+     * @return the number of active tasks.
+     * @see #getExecutor()
+     */
+    public int getActiveTaskCount()
+    {
+        return activeTasks.get();
+    }
+
+    /**
+     * Shuts down the executor, the scheduler and the timer. Threads created by
+     * {@link #newThread(Runnable, String)} are not affected. The default
+     * runtime should not be shut down as it is shared.
+     */
+    public synchronized void shutdown()
+    {
+        shutdown = true;
+        if (executor != null)
+        {
+            executor.shutdown();
+        }
+        if (scheduler != null)
+        {
+            scheduler.shutdown();
+        }
+        if (timer != null)
+        {
+            timer.stop();
+        }
+    }
+
+    private void checkNotShutdown()
+    {
+        if (shutdown)
+        {
+            throw new IllegalStateException("ExecutionRuntime " + name + " has been shut down");
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ExecutionRuntime[name='" + name + "',executorFactory=" + executorFactory.getClass().getSimpleName()
+                + ",liveThreads=" + liveThreads.get() + ",activeTasks=" + activeTasks.get() + "]";
+    }
+
+    private static final class CountingRunnable implements Runnable
+    {
+        private final Runnable task;
+        private final AtomicInteger counter;
+
+        private CountingRunnable(Runnable task, AtomicInteger counter)
+        {
+            this.task = task;
+            this.counter = counter;
+        }
+
+        @Override
+        public void run()
+        {
+            counter.incrementAndGet();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                counter.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class CountingExecutorService extends AbstractExecutorService
+    {
+        private final ExecutorService delegate;
+        private final AtomicInteger activeTasks;
+
+        private CountingExecutorService(ExecutorService delegate, AtomicInteger activeTasks)
+        {
+            this.delegate = delegate;
+            this.activeTasks = activeTasks;
+        }
+
+        @Override
+        public void execute(Runnable command)
+        {
+            delegate.execute(new CountingRunnable(command, activeTasks));
+        }
+
+        @Override
+        public void shutdown()
+        {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow()
+        {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown()
+        {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated()
+        {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+        {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads and executors used to run blocking tasks like AGI
+ * scripts, pbx activities and event listeners.
+ * <p>
+ * {@link PlatformExecutorFactory} creates platform daemon threads and is used
+ * by default. {@link VirtualThreadExecutorFactory} creates virtual threads on
+ * Java 21 and later, which is a good fit for tasks that spend most of their
+ * time waiting for Asterisk.
+ *
+ * @see PlatformExecutorFactory
+ * @see VirtualThreadExecutorFactory
+ * @since 2.0.0
+ */
+public interface ExecutorFactory
+{
+    /**
+     * Creates a new thread that has not yet been started. Platform threads
+     * are daemon threads.
+     *
+     * @param task the task to run.
+     * @param name the name of the thread.
+     * @return the new thread.
+     */
+    Thread newThread(Runnable task, String name);
+
+    /**
+     * Creates a thread factory that names its threads after the given prefix.
+     *
+     * @param name the prefix of the thread names.
+     * @return the new thread factory.
+     */
+    ThreadFactory newThreadFactory(String name);
+
+    /**
+     * Creates an executor without an upper bound on the number of tasks it
+     * runs concurrently.
+     *
+     * @param name the prefix of the names of its threads.
+     * @return the new executor.
+     */
+    ExecutorService newExecutor(String name);
+}
@@ -0,0 +1,445 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer for a large number of short tasks that are usually cancelled before
+ * they expire, like timeouts of actions sent to Asterisk.
+ * <p>
+ * Timeouts are kept in a wheel of buckets that is advanced by a single
+ * thread once per tick, so scheduling and cancelling are O(1) and do not
+ * lock. Timeouts are run with a precision of one tick on the timer thread,
+ * so tasks must be short and must not block.
+ * <p>
+ * The thread is started on the first call to
+ * {@link #newTimeout(Runnable, long, TimeUnit)}.
+ *
+ * @since 2.0.0
+ */
+public class HashedWheelTimer
+{
+    private static final long DEFAULT_TICK_DURATION = 100L;
+    private static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private static HashedWheelTimer defaultTimer;
+
+    private final Log logger = LogFactory.getLog(getClass());
+
+    private final String threadName;
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<TimeoutImpl> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<TimeoutImpl> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingTimeouts = new AtomicInteger();
+
+    private final Object lock = new Object();
+    private volatile Thread workerThread;
+    private volatile boolean stopped;
+    private volatile long startTime;
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public interface Timeout
+    {
+        /**
+         * Cancels the task unless it has already been run.
+         *
+         * @return <code>true</code> if the task was cancelled,
+         *         <code>false</code> if it has already been run or cancelled.
+         */
+        boolean cancel();
+
+        /**
+         * Returns whether the task has been run.
+         *
+         * @return <code>true</code> if the task has been run.
+         */
+        boolean isExpired();
+
+        /**
+         * Returns whether the task has been cancelled.
+         *
+         * @return <code>true</code> if the task has been cancelled.
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * Returns a timer shared by all users that do not need a dedicated one.
+     * Its tick duration is 100ms.
+     *
+     * @return the shared timer.
+     */
+    public static synchronized HashedWheelTimer getDefault()
+    {
+        if (defaultTimer == null)
+        {
+            defaultTimer = new HashedWheelTimer("Asterisk-Java HashedWheelTimer", DEFAULT_TICK_DURATION,
+                    TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL);
+        }
+        return defaultTimer;
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadName the name of the timer thread.
+     * @param tickDuration the precision of the timer.
+     * @param unit the unit of tickDuration.
+     * @param ticksPerWheel the number of buckets, rounded up to the next power
+     *            of two.
+     */
+    public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel)
+    {
+        if (tickDuration <= 0)
+        {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30)
+        {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+        }
+
+        int size = 1;
+        while (size < ticksPerWheel)
+        {
+            size <<= 1;
+        }
+
+        this.threadName = threadName;
+        this.tickDuration = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++)
+        {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Schedules the given task to be run once after the given delay.
+     *
+     * @param task the task to run on the timer thread.
+     * @param delay the delay after which to run the task.
+     * @param unit the unit of delay.
+     * @return a handle to cancel the task.
+     * @throws IllegalStateException if the timer has been stopped.
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit)
+    {
+        if (task == null)
+        {
+            throw new IllegalArgumentException("task must not be null");
+        }
+        start();
+
+        final TimeoutImpl timeout = new TimeoutImpl(task, System.nanoTime() + unit.toNanos(Math.max(0L, delay)));
+        pendingTimeouts.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the number of tasks scheduled but not yet run or cancelled.
+     *
+     * @return the number of pending tasks.
+     */
+    public int getPendingTimeouts()
+    {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * Stops the timer thread. Pending tasks are not run.
+     */
+    public void stop()
+    {
+        synchronized (lock)
+        {
+            stopped = true;
+            if (workerThread != null)
+            {
+                workerThread.interrupt();
+            }
+        }
+    }
+
+    private void start()
+    {
+        if (workerThread != null && !stopped)
+        {
+            return;
+        }
+
+        synchronized (lock)
+        {
+            if (stopped)
+            {
+                throw new IllegalStateException("Timer has been stopped");
+            }
+            if (workerThread != null)
+            {
+                return;
+            }
+
+            startTime = System.nanoTime();
+            workerThread = new Thread(new Worker(), threadName);
+            workerThread.setDaemon(true);
+            workerThread.start();
+        }
+    }
+
+    private final class Worker implements Runnable
+    {
+        private long tick;
+
+        public void run()
+        {
+            while (!stopped)
+            {
+                if (waitForNextTick() < 0)
+                {
+                    break;
+                }
+
+                removeCancelledTimeouts();
+                transferNewTimeouts();
+                wheel[(int) (tick & mask)].expireTimeouts();
+                tick++;
+            }
+        }
+
+        /**
+         * Sleeps until the end of the current tick.
+         *
+         * @return the time since the start of the timer or -1 if stopped.
+         */
+        private long waitForNextTick()
+        {
+            final long deadline = tickDuration * (tick + 1);
+
+            while (true)
+            {
+                final long current = System.nanoTime() - startTime;
+                final long sleepMillis = (deadline - current + 999999L) / 1000000L;
+
+                if (sleepMillis <= 0)
+                {
+                    return current;
+                }
+
+                try
+                {
+                    Thread.sleep(sleepMillis);
+                }
+                catch (InterruptedException e)
+                {
+                    if (stopped)
+                    {
+                        return -1L;
+                    }
+                }
+            }
+        }
+
+        private void transferNewTimeouts()
+        {
+            // limit the number per tick so a flood of new timeouts does not
+            // starve expiration
+            for (int i = 0; i < 100000; i++)
+            {
+                final TimeoutImpl timeout = newTimeouts.poll();
+                if (timeout == null)
+                {
+                    break;
+                }
+                if (timeout.state.get() != TimeoutImpl.ST_INIT)
+                {
+                    continue;
+                }
+
+                final long calculated = (timeout.deadline - startTime) / tickDuration;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+                // never schedule into the past
+                final long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void removeCancelledTimeouts()
+        {
+            while (true)
+            {
+                final TimeoutImpl timeout = cancelledTimeouts.poll();
+                if (timeout == null)
+                {
+                    break;
+                }
+                if (timeout.bucket != null)
+                {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts, only accessed by the timer thread.
+     */
+    private final class Bucket
+    {
+        private TimeoutImpl head;
+        private TimeoutImpl tail;
+
+        void add(TimeoutImpl timeout)
+        {
+            timeout.bucket = this;
+            if (head == null)
+            {
+                head = timeout;
+                tail = timeout;
+            }
+            else
+            {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expireTimeouts()
+        {
+            TimeoutImpl timeout = head;
+            while (timeout != null)
+            {
+                final TimeoutImpl next = timeout.next;
+                if (timeout.remainingRounds <= 0)
+                {
+                    remove(timeout);
+                    timeout.expire();
+                }
+                else if (timeout.isCancelled())
+                {
+                    remove(timeout);
+                }
+                else
+                {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(TimeoutImpl timeout)
+        {
+            if (timeout.bucket != this)
+            {
+                return;
+            }
+
+            if (timeout.prev != null)
+            {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next != null)
+            {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head)
+            {
+                head = timeout.next;
+            }
+            if (timeout == tail)
+            {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    private final class TimeoutImpl implements Timeout
+    {
+        static final int ST_INIT = 0;
+        static final int ST_CANCELLED = 1;
+        static final int ST_EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // only accessed by the timer thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private TimeoutImpl prev;
+        private TimeoutImpl next;
+
+        TimeoutImpl(Runnable task, long deadline)
+        {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public boolean cancel()
+        {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED))
+            {
+                return false;
+            }
+            pendingTimeouts.decrementAndGet();
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isExpired()
+        {
+            return state.get() == ST_EXPIRED;
+        }
+
+        public boolean isCancelled()
+        {
+            return state.get() == ST_CANCELLED;
+        }
+
+        void expire()
+        {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED))
+            {
+                return;
+            }
+            pendingTimeouts.decrementAndGet();
+
+            try
+            {
+                task.run();
+            }
+            catch (Throwable t)
+            {
+                logger.warn("Exception thrown by " + task.getClass().getName(), t);
+            }
+        }
+    }
+}
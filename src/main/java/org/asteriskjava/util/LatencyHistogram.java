@@ -0,0 +1,206 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of latencies with power of two buckets in
+ * microseconds.
+ * <p>
+ * Bucket 0 counts latencies below 1 microsecond, bucket <i>i</i> counts
+ * latencies from 2<sup>i-1</sup> up to but excluding 2<sup>i</sup>
+ * microseconds and the last bucket counts everything above. Recording a value
+ * does not allocate and does not lock.
+ *
+ * @since 2.0.0
+ */
+public class LatencyHistogram
+{
+    /**
+     * Number of buckets, the last one covers latencies of about 18 minutes
+     * and more.
+     */
+    public static final int BUCKETS = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(long nanos)
+    {
+        final long micros = Math.max(0L, nanos / 1000L);
+
+        buckets.incrementAndGet(getBucket(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros))
+        {
+            max = maxMicros.get();
+        }
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return the number of latencies recorded.
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * Returns the highest latency recorded.
+     *
+     * @return the highest latency recorded in microseconds.
+     */
+    public long getMaxMicros()
+    {
+        return maxMicros.get();
+    }
+
+    /**
+     * Returns the mean of the latencies recorded.
+     *
+     * @return the mean latency in microseconds or 0 if nothing has been
+     *         recorded.
+     */
+    public double getMeanMicros()
+    {
+        final long n = count.get();
+        return n == 0 ? 0.0 : (double) totalMicros.get() / n;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile, i.e. the exclusive upper
+     * bound of the bucket the percentile falls into.
+     *
+     * @param percentile the percentile between 0 and 100.
+     * @return the upper bound of the percentile in microseconds or 0 if
+     *         nothing has been recorded.
+     */
+    public long getPercentileMicros(double percentile)
+    {
+        final long[] snapshot = getBucketCounts();
+        long n = 0;
+        for (long c : snapshot)
+        {
+            n += c;
+        }
+        if (n == 0)
+        {
+            return 0L;
+        }
+
+        final long rank = (long) Math.ceil(n * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += snapshot[i];
+            if (seen >= rank && seen > 0)
+            {
+                return i == BUCKETS - 1 ? maxMicros.get() : getBucketUpperBoundMicros(i);
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * Returns a copy of the bucket counts.
+     *
+     * @return the number of latencies recorded per bucket.
+     */
+    public long[] getBucketCounts()
+    {
+        final long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            snapshot[i] = buckets.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the exclusive upper bound of the given bucket.
+     *
+     * @param bucket the index of the bucket.
+     * @return the upper bound in microseconds.
+     */
+    public static long getBucketUpperBoundMicros(int bucket)
+    {
+        return 1L << bucket;
+    }
+
+    /**
+     * Clears all recorded latencies.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            buckets.set(i, 0L);
+        }
+        count.set(0L);
+        totalMicros.set(0L);
+        maxMicros.set(0L);
+    }
+
+    private static int getBucket(long micros)
+    {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder(256);
+        sb.append(getClass().getSimpleName()).append("[");
+        sb.append("count=").append(getCount()).append(",");
+        sb.append("meanMicros=").append((long) getMeanMicros()).append(",");
+        sb.append("p50Micros=").append(getPercentileMicros(50)).append(",");
+        sb.append("p99Micros=").append(getPercentileMicros(99)).append(",");
+        sb.append("maxMicros=").append(getMaxMicros()).append(",");
+        sb.append("buckets={");
+        final long[] snapshot = getBucketCounts();
+        boolean first = true;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            if (snapshot[i] == 0)
+            {
+                continue;
+            }
+            if (!first)
+            {
+                sb.append(",");
+            }
+            sb.append("<").append(getBucketUpperBoundMicros(i)).append("us=").append(snapshot[i]);
+            first = false;
+        }
+        sb.append("}]");
+        return sb.toString();
+    }
+}
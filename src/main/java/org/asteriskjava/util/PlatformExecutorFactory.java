@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates platform daemon threads, executors are cached thread pools.
+ *
+ * @since 2.0.0
+ */
+public class PlatformExecutorFactory implements ExecutorFactory
+{
+    /**
+     * Shared instance.
+     */
+    public static final PlatformExecutorFactory INSTANCE = new PlatformExecutorFactory();
+
+    @Override
+    public Thread newThread(Runnable task, String name)
+    {
+        final Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @Override
+    public ThreadFactory newThreadFactory(String name)
+    {
+        return new DaemonThreadFactory(name);
+    }
+
+    @Override
+    public ExecutorService newExecutor(String name)
+    {
+        return Executors.newCachedThreadPool(newThreadFactory(name));
+    }
+}
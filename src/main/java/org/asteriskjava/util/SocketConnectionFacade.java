@@ -18,6 +18,8 @@ package org.asteriskjava.util;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * The SocketConnectionFacade provides read and write operation for
@@ -42,6 +44,20 @@ public interface SocketConnectionFacade
      */
     String readLine() throws IOException;
 
+    /**
+     * Returns a channel to read the raw bytes received from the socket
+     * connection.<p>
+     * This is an alternative to {@link #readLine()} for readers that do their
+     * own framing. Both must not be mixed on the same connection as
+     * {@link #readLine()} buffers data internally. Data read through the
+     * channel is not traced.
+     *
+     * @return the channel to read from.
+     * @throws IOException if the channel cannot be obtained.
+     * @since 2.0.0
+     */
+    ReadableByteChannel getReadableByteChannel() throws IOException;
+
     /**
      * Sends a given String to the socket connection.
      * 
@@ -51,6 +67,20 @@ public interface SocketConnectionFacade
      */
     void write(String s) throws IOException;
 
+    /**
+     * Sends the bytes remaining in the given buffer to the socket connection
+     * and flushes it. Strings previously written by {@link #write(String)}
+     * are sent first.<p>
+     * This is an alternative to {@link #write(String)} for writers that do
+     * their own encoding using the connection's encoding.
+     *
+     * @param buffer the bytes to send, the position is advanced to its limit.
+     * @throws IOException if the bytes cannot be sent, maybe because the
+     *             connection has already been closed.
+     * @since 2.0.0
+     */
+    void write(ByteBuffer buffer) throws IOException;
+
     /**
      * Flushes the socket connection by sending any buffered but yet unsent
      * data.
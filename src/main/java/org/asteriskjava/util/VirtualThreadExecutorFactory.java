@@ -0,0 +1,148 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads, executors start a new virtual thread for each
+ * task.
+ * <p>
+ * Virtual threads are available on Java 21 and later. As Asterisk-Java is
+ * built for older Java versions the virtual thread API is accessed
+ * reflectively, use {@link #isSupported()} to check whether it is available
+ * on the running JVM.
+ *
+ * @since 2.0.0
+ */
+public class VirtualThreadExecutorFactory implements ExecutorFactory
+{
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle NAME;
+    private static final MethodHandle NAME_WITH_COUNTER;
+    private static final MethodHandle UNSTARTED;
+    private static final MethodHandle FACTORY;
+    private static final MethodHandle NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static
+    {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle nameWithCounter = null;
+        MethodHandle unstarted = null;
+        MethodHandle factory = null;
+        MethodHandle newThreadPerTaskExecutor = null;
+
+        try
+        {
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            final Class< ? > builderClass = Class.forName("java.lang.Thread$Builder");
+            final Class< ? > ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass));
+            name = lookup.findVirtual(ofVirtualClass, "name", MethodType.methodType(ofVirtualClass, String.class));
+            nameWithCounter = lookup.findVirtual(ofVirtualClass, "name",
+                    MethodType.methodType(ofVirtualClass, String.class, long.class));
+            unstarted = lookup.findVirtual(builderClass, "unstarted",
+                    MethodType.methodType(Thread.class, Runnable.class));
+            factory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+            newThreadPerTaskExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        }
+        catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e)
+        {
+            // not supported by this JVM
+            ofVirtual = null;
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        NAME_WITH_COUNTER = nameWithCounter;
+        UNSTARTED = unstarted;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    /**
+     * Returns whether the running JVM supports virtual threads.
+     *
+     * @return <code>true</code> if virtual threads are supported,
+     *         <code>false</code> otherwise.
+     */
+    public static boolean isSupported()
+    {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a new VirtualThreadExecutorFactory.
+     *
+     * @throws UnsupportedOperationException if the running JVM does not
+     *             support virtual threads.
+     */
+    public VirtualThreadExecutorFactory()
+    {
+        if (!isSupported())
+        {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        }
+    }
+
+    @Override
+    public Thread newThread(Runnable task, String name)
+    {
+        try
+        {
+            return (Thread) UNSTARTED.invoke(NAME.invoke(OF_VIRTUAL.invoke(), name), task);
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException("Unable to create virtual thread", t);
+        }
+    }
+
+    @Override
+    public ThreadFactory newThreadFactory(String name)
+    {
+        try
+        {
+            return (ThreadFactory) FACTORY.invoke(NAME_WITH_COUNTER.invoke(OF_VIRTUAL.invoke(), name + "-", 1L));
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException("Unable to create virtual thread factory", t);
+        }
+    }
+
+    @Override
+    public ExecutorService newExecutor(String name)
+    {
+        try
+        {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(newThreadFactory(name));
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException("Unable to create virtual thread executor", t);
+        }
+    }
+}
@@ -26,6 +26,10 @@ import java.io.OutputStreamWriter;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.NoSuchElementException;
@@ -49,7 +53,10 @@ public class SocketConnectionFacadeImpl implements SocketConnectionFacade
     public static final Pattern NL_PATTERN = Pattern.compile("\n");
     private Socket socket;
     private Scanner scanner;
+    private ReadableByteChannel channel;
     private BufferedWriter writer;
+    private OutputStream outputStream;
+    private Charset encoding;
     private Trace trace;
 
     /**
@@ -125,6 +132,35 @@ public class SocketConnectionFacadeImpl implements SocketConnectionFacade
      */
     public SocketConnectionFacadeImpl(String host, int port, boolean ssl, int timeout, int readTimeout, Charset encoding,
             Pattern lineDelimiter) throws IOException
+    {
+        this(host, port, ssl, timeout, readTimeout, encoding, lineDelimiter, false);
+    }
+
+    /**
+     * Creates a new instance for use with the Manager API that uses the given
+     * encoding and line delimiter.
+     * <p>
+     * If useChannel is <code>true</code> and neither SSL nor a read timeout is
+     * used the connection is established through a {@link SocketChannel} so
+     * that {@link #getReadableByteChannel()} can read directly into NIO
+     * buffers. Otherwise the channel returned wraps the socket's input stream.
+     *
+     * @param host the foreign host to connect to.
+     * @param port the foreign port to connect to.
+     * @param ssl <code>true</code> to use SSL, <code>false</code> otherwise.
+     * @param timeout 0 incidcates default
+     * @param readTimeout see {@link Socket#setSoTimeout(int)}
+     * @param encoding the encoding used for transmission of strings (all
+     *            connections should use the same encoding)
+     * @param lineDelimiter a {@link Pattern} for matching the line delimiter
+     *            for the socket
+     * @param useChannel <code>true</code> to connect through a
+     *            {@link SocketChannel} if possible.
+     * @throws IOException if the connection cannot be established.
+     * @since 2.0.0
+     */
+    public SocketConnectionFacadeImpl(String host, int port, boolean ssl, int timeout, int readTimeout, Charset encoding,
+            Pattern lineDelimiter, boolean useChannel) throws IOException
     {
         Socket socket;
 
@@ -132,6 +168,11 @@ public class SocketConnectionFacadeImpl implements SocketConnectionFacade
         {
             socket = SSLSocketFactory.getDefault().createSocket();
         }
+        else if (useChannel && readTimeout == 0)
+        {
+            // channel reads ignore SO_TIMEOUT so only use them without one
+            socket = SocketChannel.open().socket();
+        }
         else
         {
             socket = SocketFactory.getDefault().createSocket();
@@ -173,6 +214,8 @@ public class SocketConnectionFacadeImpl implements SocketConnectionFacade
         this.scanner = new Scanner(reader);
         this.scanner.useDelimiter(pattern);
         this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, encoding));
+        this.outputStream = outputStream;
+        this.encoding = encoding;
     }
 
     @Override
@@ -209,6 +252,22 @@ public class SocketConnectionFacadeImpl implements SocketConnectionFacade
         return line;
     }
 
+    public ReadableByteChannel getReadableByteChannel() throws IOException
+    {
+        if (channel == null)
+        {
+            if (socket.getChannel() != null)
+            {
+                channel = socket.getChannel();
+            }
+            else
+            {
+                channel = Channels.newChannel(socket.getInputStream());
+            }
+        }
+        return channel;
+    }
+
     public void write(String s) throws IOException
     {
         writer.write(s);
@@ -218,6 +277,28 @@ public class SocketConnectionFacadeImpl implements SocketConnectionFacade
         }
     }
 
+    public void write(ByteBuffer buffer) throws IOException
+    {
+        writer.flush();
+        if (trace != null)
+        {
+            trace.sent(encoding.decode(buffer.duplicate()).toString());
+        }
+
+        if (buffer.hasArray())
+        {
+            outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        }
+        else
+        {
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            outputStream.write(bytes);
+        }
+        outputStream.flush();
+    }
+
     public void flush() throws IOException
     {
         writer.flush();
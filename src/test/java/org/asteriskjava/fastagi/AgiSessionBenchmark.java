@@ -0,0 +1,144 @@
+package org.asteriskjava.fastagi;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.asteriskjava.util.ExecutorFactory;
+import org.asteriskjava.util.VirtualThreadExecutorFactory;
+
+/**
+ * Measures how many concurrent AGI sessions fit into a GB of memory when they
+ * are served by the thread pool and when they are served by virtual threads.
+ * <p>
+ * Each session blocks like an AGI script waiting for the reply to a command
+ * in <code>AgiChannelImpl.sendCommand()</code>. Heap usage is measured after a
+ * full GC, the resident set size includes the stacks of platform threads.
+ * <p>
+ * This is not a unit test, run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.asteriskjava.fastagi.AgiSessionBenchmark
+ * -Dexec.args="pool 5000"</code> and again with <code>virtual</code> instead
+ * of <code>pool</code> on Java 21 or later. Run each mode in a fresh JVM.
+ */
+public class AgiSessionBenchmark
+{
+    private static final long GB = 1024L * 1024L * 1024L;
+
+    public static void main(String[] args) throws Exception
+    {
+        final boolean virtual = args.length > 0 && "virtual".equals(args[0]);
+        final int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+        final BenchmarkAgiServer server = new BenchmarkAgiServer();
+        if (virtual)
+        {
+            final ExecutorFactory executorFactory = new VirtualThreadExecutorFactory();
+            server.setExecutorFactory(executorFactory);
+        }
+        else
+        {
+            server.setMaximumPoolSize(sessions);
+        }
+
+        final long heapBefore = usedHeap();
+        final long rssBefore = residentSetSize();
+        final CountDownLatch started = new CountDownLatch(sessions);
+        final CountDownLatch hangup = new CountDownLatch(1);
+
+        for (int i = 0; i < sessions; i++)
+        {
+            server.execute(new Runnable()
+            {
+                public void run()
+                {
+                    started.countDown();
+                    try
+                    {
+                        // like waiting for the reply to an AGI command
+                        hangup.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        if (!started.await(60, TimeUnit.SECONDS))
+        {
+            throw new IllegalStateException("Sessions did not start");
+        }
+
+        final long heap = usedHeap() - heapBefore;
+        final long rss = residentSetSize() - rssBefore;
+        System.out.printf("mode: %s, sessions: %d, live threads: %d%n", virtual ? "virtual" : "pool", sessions,
+                ManagementFactory.getThreadMXBean().getThreadCount());
+        System.out.printf("heap: %d KB (%.0f sessions per GB)%n", heap / 1024, perGb(sessions, heap));
+        if (rssBefore > 0)
+        {
+            System.out.printf("rss:  %d KB (%.0f sessions per GB)%n", rss / 1024, perGb(sessions, rss));
+        }
+
+        hangup.countDown();
+        server.shutdown();
+    }
+
+    private static double perGb(int sessions, long bytes)
+    {
+        return bytes <= 0 ? Double.POSITIVE_INFINITY : (double) sessions * GB / bytes;
+    }
+
+    private static long usedHeap() throws InterruptedException
+    {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Returns the resident set size of this process on Linux or 0 elsewhere.
+     */
+    private static long residentSetSize()
+    {
+        try (Scanner scanner = new Scanner(new File("/proc/self/status")))
+        {
+            while (scanner.hasNextLine())
+            {
+                final String line = scanner.nextLine();
+                if (line.startsWith("VmRSS:"))
+                {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024L;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            // not available
+        }
+        return 0L;
+    }
+
+    private static class BenchmarkAgiServer extends AbstractAgiServer
+    {
+        @Override
+        protected void execute(Runnable command)
+        {
+            super.execute(command);
+        }
+
+        @Override
+        protected synchronized void shutdown()
+        {
+            super.shutdown();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.asteriskjava.live;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Date;
+
+import org.junit.Test;
+
+public class ChannelStateHistoryEntryTest
+{
+    @Test
+    public void testSerializedFormStoresDate()
+    {
+        final ObjectStreamClass form = ObjectStreamClass.lookup(ChannelStateHistoryEntry.class);
+
+        assertEquals(5437551192335452460L, form.getSerialVersionUID());
+        assertEquals(Date.class, form.getField("date").getType());
+        assertEquals(ChannelState.class, form.getField("state").getType());
+    }
+
+    @Test
+    public void testSerialize() throws Exception
+    {
+        final Date date = new Date(1400000000000L);
+
+        final ChannelStateHistoryEntry entry = roundTrip(new ChannelStateHistoryEntry(date, ChannelState.UP));
+        assertEquals(date, entry.getDate());
+        assertEquals(ChannelState.UP, entry.getState());
+
+        assertNull(roundTrip(new ChannelStateHistoryEntry(null, ChannelState.UP)).getDate());
+    }
+
+    private static ChannelStateHistoryEntry roundTrip(ChannelStateHistoryEntry entry) throws Exception
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(entry);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            return (ChannelStateHistoryEntry) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.asteriskjava.live.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Date;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.live.Extension;
+
+/**
+ * Measures the heap retained by channels: freshly created channels, channels
+ * of a typical call and channels of calls that loop through an IVR and visit
+ * many extensions. Also reports the bytes allocated to create a channel, the
+ * memory documented for {@link AsteriskChannelImpl}, on JVMs that count the
+ * allocations per thread.
+ * <p>
+ * This is not a unit test, run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.asteriskjava.live.internal.AsteriskChannelImplMemoryBenchmark</code>.
+ */
+public class AsteriskChannelImplMemoryBenchmark
+{
+    private static final int CHANNELS = 20000;
+
+    public static void main(String[] args) throws Exception
+    {
+        final AsteriskServerImpl server = new AsteriskServerImpl();
+        final Extension[] extensions = new Extension[16];
+        for (int i = 0; i < extensions.length; i++)
+        {
+            extensions[i] = new Extension("ivr", "s", i + 1, "Background", "menu-" + i);
+        }
+
+        System.out.println("extensions visited  bytes/channel");
+        for (int visits : new int[]{0, 10, 1000})
+        {
+            // warm up, then measure
+            measure(server, extensions, visits);
+            System.out.printf("%18d  %13d%n", visits, measure(server, extensions, visits));
+        }
+
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean)
+        {
+            // warm up, then measure
+            allocatedBytesPerChannel(server, (com.sun.management.ThreadMXBean) threadMXBean);
+            System.out.println();
+            System.out.println("allocated bytes/new channel: "
+                    + allocatedBytesPerChannel(server, (com.sun.management.ThreadMXBean) threadMXBean));
+        }
+    }
+
+    private static long allocatedBytesPerChannel(AsteriskServerImpl server, com.sun.management.ThreadMXBean allocations)
+    {
+        final AsteriskChannelImpl[] channels = new AsteriskChannelImpl[CHANNELS];
+        final Date date = new Date();
+        final long threadId = Thread.currentThread().getId();
+
+        final long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < CHANNELS; i++)
+        {
+            channels[i] = new AsteriskChannelImpl(server, "SIP/1234", "0123456789.125", date);
+        }
+        final long bytesPerChannel = (allocations.getThreadAllocatedBytes(threadId) - before) / CHANNELS;
+
+        if (channels[CHANNELS - 1] == null)
+        {
+            throw new IllegalStateException();
+        }
+        return bytesPerChannel;
+    }
+
+    private static long measure(AsteriskServerImpl server, Extension[] extensions, int visits)
+    {
+        final AsteriskChannelImpl[] channels = new AsteriskChannelImpl[CHANNELS];
+        final Date date = new Date();
+        final long before = usedHeap();
+
+        for (int i = 0; i < CHANNELS; i++)
+        {
+            final AsteriskChannelImpl channel = new AsteriskChannelImpl(server, "SIP/1000-" + i, "1400000000." + i,
+                    date);
+            if (visits > 0)
+            {
+                channel.stateChanged(date, ChannelState.RING);
+                channel.stateChanged(date, ChannelState.UP);
+            }
+            for (int j = 0; j < visits; j++)
+            {
+                channel.extensionVisited(date, extensions[j % extensions.length]);
+            }
+            channels[i] = channel;
+        }
+
+        final long after = usedHeap();
+        if (channels[CHANNELS - 1] == null)
+        {
+            throw new IllegalStateException();
+        }
+        return (after - before) / CHANNELS;
+    }
+
+    private static long usedHeap()
+    {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -1,24 +1,33 @@
 package org.asteriskjava.live.internal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.Date;
+import java.util.List;
 
+import org.asteriskjava.live.AsteriskChannel;
 import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.live.Extension;
+import org.asteriskjava.live.ExtensionHistoryEntry;
 import org.asteriskjava.util.DateUtil;
 import org.junit.Before;
 import org.junit.Test;
 
 public class AsteriskChannelImplTest
 {
+    private AsteriskServerImpl server;
     private AsteriskChannelImpl channel;
     private int numberOfChanges;
 
     @Before
     public void setUp()
     {
-        AsteriskServerImpl server = new AsteriskServerImpl();
+        server = new AsteriskServerImpl();
         channel = new AsteriskChannelImpl(server, "SIP/1234", "0123456789.123", DateUtil.getDate());
         channel.stateChanged(DateUtil.getDate(), ChannelState.DOWN);
         numberOfChanges = 0;
@@ -42,4 +51,53 @@ public class AsteriskChannelImplTest
         channel.stateChanged(DateUtil.getDate(), ChannelState.DIALING);
         assertEquals("wrong number of propagated changes", 1, numberOfChanges);
     }
+
+    @Test
+    public void testHistoriesAreBounded()
+    {
+        server.setChannelHistorySize(4);
+        channel = new AsteriskChannelImpl(server, "SIP/1234", "0123456789.124", DateUtil.getDate());
+        assertNull(channel.getCurrentExtension());
+        assertTrue(channel.getExtensionHistory().isEmpty());
+
+        final Extension first = new Extension("ivr", "s", 1);
+        channel.stateChanged(new Date(1000L), ChannelState.RING);
+        channel.extensionVisited(new Date(1000L), first);
+        for (int i = 2; i <= 10; i++)
+        {
+            channel.stateChanged(new Date(i * 1000L), i % 2 == 0 ? ChannelState.UP : ChannelState.RINGING);
+            channel.extensionVisited(new Date(i * 1000L), new Extension("ivr", "s", i));
+        }
+
+        final List<ExtensionHistoryEntry> history = channel.getExtensionHistory();
+        assertEquals(4, history.size());
+        assertEquals(Integer.valueOf(7), history.get(0).getExtension().getPriority());
+        assertEquals(new Date(7000L), history.get(0).getDate());
+        assertEquals(Integer.valueOf(10), channel.getCurrentExtension().getPriority());
+        assertSame(first, channel.getFirstExtension());
+        assertTrue(channel.wasInState(ChannelState.RING));
+    }
+
+    @Test
+    public void testDialedChannelsAreBounded()
+    {
+        server.setChannelHistorySize(4);
+        channel = new AsteriskChannelImpl(server, "SIP/1234", "0123456789.124", DateUtil.getDate());
+        assertNull(channel.getDialedChannel());
+        assertTrue(channel.getDialedChannels().isEmpty());
+
+        final AsteriskChannelImpl[] dialed = new AsteriskChannelImpl[10];
+        for (int i = 0; i < dialed.length; i++)
+        {
+            dialed[i] = new AsteriskChannelImpl(server, "SIP/100" + i, "0123456789.2" + i, DateUtil.getDate());
+            channel.channelDialed(new Date(i * 1000L), dialed[i]);
+        }
+
+        final List<AsteriskChannel> dialedChannels = channel.getDialedChannels();
+        assertEquals(4, dialedChannels.size());
+        assertSame(dialed[6], dialedChannels.get(0));
+        assertSame(dialed[9], dialedChannels.get(3));
+        assertSame(dialed[6], channel.getDialedChannel());
+        assertEquals(4, channel.getDialedChannelHistory().size());
+    }
 }
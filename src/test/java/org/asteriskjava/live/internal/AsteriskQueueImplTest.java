@@ -0,0 +1,125 @@
+package org.asteriskjava.live.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.asteriskjava.live.AsteriskQueueEntry;
+import org.asteriskjava.live.AsteriskQueueListener;
+import org.asteriskjava.live.AsteriskQueueMember;
+import org.asteriskjava.util.DateUtil;
+import org.asteriskjava.util.ExecutionRuntime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsteriskQueueImplTest
+{
+    private AsteriskServerImpl server;
+    private ExecutionRuntime runtime;
+
+    @Before
+    public void setUp()
+    {
+        server = new AsteriskServerImpl();
+        runtime = new ExecutionRuntime("test");
+        server.setRuntime(runtime);
+    }
+
+    @After
+    public void tearDown()
+    {
+        runtime.shutdown();
+    }
+
+    @Test
+    public void testServiceLevelExceeded() throws Exception
+    {
+        final List<AsteriskQueueImpl> queues = new ArrayList<>();
+        final CountDownLatch exceeded = new CountDownLatch(1);
+        final List<AsteriskQueueEntry> exceededEntries = new CopyOnWriteArrayList<>();
+        final int threadsBefore = Thread.activeCount();
+
+        for (int i = 0; i < 100; i++)
+        {
+            queues.add(new AsteriskQueueImpl(server, "queue" + i, 25, "RoundRobin", 1, 5, 0, 0, 1, 1, 1, 1.0));
+        }
+        assertTrue("thread count depends on the number of queues", Thread.activeCount() - threadsBefore < 100);
+
+        final AsteriskQueueImpl queue = queues.get(0);
+        queue.addAsteriskQueueListener(new ServiceLevelListener()
+        {
+            @Override
+            public void onEntryServiceLevelExceeded(AsteriskQueueEntry entry)
+            {
+                exceededEntries.add(entry);
+                exceeded.countDown();
+            }
+        });
+
+        final AsteriskChannelImpl removed = new AsteriskChannelImpl(server, "SIP/1", "1.1", DateUtil.getDate());
+        final AsteriskChannelImpl waiting = new AsteriskChannelImpl(server, "SIP/2", "1.2", DateUtil.getDate());
+        queue.createNewEntry(removed, 1, DateUtil.getDate());
+        queue.createNewEntry(waiting, 2, DateUtil.getDate());
+        queue.removeEntry(removed.getQueueEntry(), DateUtil.getDate());
+
+        assertTrue("service level not exceeded", exceeded.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(1, exceededEntries.size());
+        assertSame(waiting, exceededEntries.get(0).getChannel());
+        assertEquals(0, runtime.getTimer().getPendingTimeouts());
+    }
+
+    @Test
+    public void testCancelServiceLevelTimer() throws Exception
+    {
+        final AsteriskQueueImpl queue = new AsteriskQueueImpl(server, "test", 25, "RoundRobin", 1, 5, 0, 0, 1, 1, 1,
+                1.0);
+        queue.createNewEntry(new AsteriskChannelImpl(server, "SIP/1", "1.1", DateUtil.getDate()), 1,
+                DateUtil.getDate());
+        assertEquals(1, runtime.getTimer().getPendingTimeouts());
+
+        queue.cancelServiceLevelTimer();
+        Thread.sleep(200);
+        assertEquals(0, runtime.getTimer().getPendingTimeouts());
+    }
+
+    private static class ServiceLevelListener implements AsteriskQueueListener
+    {
+        @Override
+        public void onNewEntry(AsteriskQueueEntry entry)
+        {
+        }
+
+        @Override
+        public void onEntryLeave(AsteriskQueueEntry entry)
+        {
+        }
+
+        @Override
+        public void onMemberStateChange(AsteriskQueueMember member)
+        {
+        }
+
+        @Override
+        public void onEntryServiceLevelExceeded(AsteriskQueueEntry entry)
+        {
+        }
+
+        @Override
+        public void onMemberAdded(AsteriskQueueMember member)
+        {
+        }
+
+        @Override
+        public void onMemberRemoved(AsteriskQueueMember member)
+        {
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.asteriskjava.live.internal;
+
+import java.util.Random;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.manager.event.StatusEvent;
+import org.asteriskjava.util.DateUtil;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Measures the cost of the name based channel lookups that are run for most
+ * channel events, depending on the number of channels known to the
+ * {@link ChannelManager}. Every tenth channel is hung up but not yet removed,
+ * like the channels that are retained after a hangup.
+ * <p>
+ * This is not a unit test, run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.asteriskjava.live.internal.ChannelManagerBenchmark</code>.
+ */
+public class ChannelManagerBenchmark
+{
+    private static final int LOOKUPS = 200000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception
+    {
+        ((Logger) LoggerFactory.getLogger(ChannelManager.class)).setLevel(Level.WARN);
+
+        final int[] sizes = {1000, 10000, 50000};
+
+        System.out.println("channels  byName (ns/lookup)  byNameAndActive (ns/lookup)  otherSideOfLocal (ns/lookup)");
+        for (int size : sizes)
+        {
+            final ChannelManager channelManager = createChannelManager(size);
+            final AsteriskChannelImpl[] locals = new AsteriskChannelImpl[size / 2];
+            final String[] names = new String[size];
+            for (int i = 0; i < size; i++)
+            {
+                names[i] = name(i);
+                if (i % 2 == 0)
+                {
+                    locals[i / 2] = channelManager.getChannelImplByName(names[i]);
+                }
+            }
+
+            double byName = 0;
+            double byNameAndActive = 0;
+            double otherSide = 0;
+            for (int round = 0; round < ROUNDS; round++)
+            {
+                byName = measureByName(channelManager, names);
+                byNameAndActive = measureByNameAndActive(channelManager, names);
+                otherSide = measureOtherSideOfLocal(channelManager, locals);
+            }
+            System.out.printf("%8d  %18.1f  %27.1f  %28.1f%n", size, byName, byNameAndActive, otherSide);
+        }
+    }
+
+    private static ChannelManager createChannelManager(int size)
+    {
+        final ChannelManager channelManager = new ChannelManager(new AsteriskServerImpl());
+        for (int i = 0; i < size; i++)
+        {
+            final StatusEvent event = new StatusEvent(ChannelManagerBenchmark.class);
+            event.setChannel(name(i));
+            event.setUniqueId("1400000000." + i);
+            event.setSeconds(10);
+            event.setChannelState(ChannelState.UP.getStatus());
+            channelManager.handleStatusEvent(event);
+        }
+        for (int i = 0; i < size; i += 10)
+        {
+            final AsteriskChannelImpl channel = channelManager.getChannelImplById("1400000000." + i);
+            synchronized (channel)
+            {
+                channel.hungup(DateUtil.getDate(), null, null);
+            }
+        }
+        return channelManager;
+    }
+
+    /**
+     * Returns the names of local channel pairs, the channel at an even index
+     * and the next one are the two sides of a local channel.
+     */
+    private static String name(int i)
+    {
+        return String.format("Local/%d@from-internal-%08x;%d", i / 2, i / 2, i % 2 + 1);
+    }
+
+    private static double measureByName(ChannelManager channelManager, String[] names)
+    {
+        final Random random = new Random(42);
+        int found = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++)
+        {
+            if (channelManager.getChannelImplByName(names[random.nextInt(names.length)]) != null)
+            {
+                found++;
+            }
+        }
+        return result(start, found);
+    }
+
+    private static double measureByNameAndActive(ChannelManager channelManager, String[] names)
+    {
+        final Random random = new Random(42);
+        int found = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++)
+        {
+            if (channelManager.getChannelImplByNameAndActive(names[random.nextInt(names.length)]) != null)
+            {
+                found++;
+            }
+        }
+        return result(start, found);
+    }
+
+    private static double measureOtherSideOfLocal(ChannelManager channelManager, AsteriskChannelImpl[] locals)
+    {
+        final Random random = new Random(42);
+        int found = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++)
+        {
+            if (channelManager.getOtherSideOfLocalChannel(locals[random.nextInt(locals.length)]) != null)
+            {
+                found++;
+            }
+        }
+        return result(start, found);
+    }
+
+    private static double result(long start, int found)
+    {
+        final long elapsed = System.nanoTime() - start;
+        if (found == 0)
+        {
+            throw new IllegalStateException("No channel found");
+        }
+        return (double) elapsed / LOOKUPS;
+    }
+}
@@ -0,0 +1,247 @@
+package org.asteriskjava.live.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.manager.event.BridgeEvent;
+import org.asteriskjava.manager.event.CoreShowChannelEvent;
+import org.asteriskjava.manager.event.HangupEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.manager.event.RenameEvent;
+import org.asteriskjava.manager.event.StatusEvent;
+import org.asteriskjava.manager.event.VarSetEvent;
+import org.asteriskjava.util.DateUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChannelManagerTest
+{
+    private ChannelManager channelManager;
+
+    @Before
+    public void setUp()
+    {
+        channelManager = new ChannelManager(new AsteriskServerImpl());
+    }
+
+    @After
+    public void tearDown()
+    {
+        DateUtil.overrideCurrentDate(null);
+    }
+
+    @Test
+    public void testGetChannelImplByName()
+    {
+        final AsteriskChannelImpl first = addChannel("SIP/1000", "1.1", 20);
+        final AsteriskChannelImpl second = addChannel("SIP/2000", "1.2", 10);
+
+        assertSame(first, channelManager.getChannelImplByName("SIP/1000"));
+        assertSame(second, channelManager.getChannelImplByName("SIP/2000"));
+        assertSame(first, channelManager.getChannelImplByNameAndActive("SIP/1000"));
+        assertNull(channelManager.getChannelImplByName("SIP/3000"));
+        assertNull(channelManager.getChannelImplByName(null));
+    }
+
+    @Test
+    public void testHungupChannelWithSameName()
+    {
+        final AsteriskChannelImpl hungup = addChannel("SIP/1000", "1.1", 20);
+        hangup("1.1");
+        final AsteriskChannelImpl active = addChannel("SIP/1000", "1.2", 10);
+
+        assertEquals(ChannelState.HUNGUP, hungup.getState());
+        assertSame(active, channelManager.getChannelImplByName("SIP/1000"));
+        assertSame(active, channelManager.getChannelImplByNameAndActive("SIP/1000"));
+
+        hangup("1.2");
+        assertSame(active, channelManager.getChannelImplByName("SIP/1000"));
+        assertNull(channelManager.getChannelImplByNameAndActive("SIP/1000"));
+    }
+
+    @Test
+    public void testRename()
+    {
+        final AsteriskChannelImpl channel = addChannel("SIP/1000", "1.1", 10);
+
+        final RenameEvent event = new RenameEvent(this);
+        event.setUniqueId("1.1");
+        event.setChannel("SIP/1000");
+        event.setNewname("SIP/1000<MASQ>");
+        channelManager.handleRenameEvent(event);
+
+        assertNull(channelManager.getChannelImplByName("SIP/1000"));
+        assertSame(channel, channelManager.getChannelImplByName("SIP/1000<MASQ>"));
+        assertSame(channel, channelManager.getChannelImplByNameAndActive("SIP/1000<MASQ>"));
+    }
+
+    @Test
+    public void testGetOtherSideOfLocalChannel()
+    {
+        final AsteriskChannelImpl one = addChannel("Local/1000@default-0001;1", "1.1", 10);
+        final AsteriskChannelImpl two = addChannel("Local/1000@default-0001;2", "1.2", 10);
+
+        assertSame(two, channelManager.getOtherSideOfLocalChannel(one));
+        assertSame(one, channelManager.getOtherSideOfLocalChannel(two));
+        assertNull(channelManager.getOtherSideOfLocalChannel(addChannel("SIP/1000", "1.3", 10)));
+    }
+
+    @Test
+    public void testLinkAndUnlink()
+    {
+        final AsteriskChannelImpl channel1 = addChannel("SIP/1000", "1.1", 10);
+        final AsteriskChannelImpl channel2 = addChannel("SIP/2000", "1.2", 10, "SIP/1000");
+
+        assertSame(channel2, channel1.getLinkedChannel());
+        assertSame(channel1, channel2.getLinkedChannel());
+        assertEquals(2, channelManager.getChannels().size());
+
+        final BridgeEvent event = new BridgeEvent(this);
+        event.setUniqueId1("1.1");
+        event.setUniqueId2("1.2");
+        event.setBridgeState(BridgeEvent.BRIDGE_STATE_UNLINK);
+        channelManager.handleBridgeEvent(event);
+
+        assertNull(channel1.getLinkedChannel());
+        assertNull(channel2.getLinkedChannel());
+    }
+
+    @Test
+    public void testCoreShowChannelLinksAndUnlinks()
+    {
+        final AsteriskChannelImpl channel1 = addChannel("SIP/1000", "1.1", 10);
+        final AsteriskChannelImpl channel2 = addChannel("SIP/2000", "1.2", 10);
+
+        channelManager.handleCoreShowChannelEvent(coreShowChannelEvent("SIP/1000", "1.1", "SIP/2000"));
+        assertSame(channel2, channel1.getLinkedChannel());
+        assertSame(channel1, channel2.getLinkedChannel());
+
+        channelManager.handleCoreShowChannelEvent(coreShowChannelEvent("SIP/1000", "1.1", null));
+        assertNull(channel1.getLinkedChannel());
+        assertNull(channel2.getLinkedChannel());
+    }
+
+    @Test
+    public void testRemoveHungupChannelsAfterRemovalThreshold()
+    {
+        final long start = System.currentTimeMillis();
+        DateUtil.overrideCurrentDate(new Date(start));
+        channelManager.setRemovalThreshold(60000L);
+        addChannel("SIP/1000", "1.1", 10);
+        addChannel("SIP/2000", "1.2", 10);
+        addChannel("SIP/3000", "1.3", 10);
+
+        hangup("1.1");
+        DateUtil.overrideCurrentDate(new Date(start + 30000L));
+        hangup("1.2");
+        assertNotNull(channelManager.getChannelImplById("1.1"));
+
+        DateUtil.overrideCurrentDate(new Date(start + 60000L));
+        hangup("1.3");
+        assertNull(channelManager.getChannelImplById("1.1"));
+        assertNull(channelManager.getChannelImplByName("SIP/1000"));
+        assertNotNull(channelManager.getChannelImplById("1.2"));
+        assertNotNull(channelManager.getChannelImplById("1.3"));
+    }
+
+    @Test
+    public void testMaxHungupChannels()
+    {
+        channelManager.setMaxHungupChannels(1);
+        addChannel("SIP/1000", "1.1", 10);
+        addChannel("SIP/2000", "1.2", 10);
+        addChannel("SIP/3000", "1.3", 10);
+
+        hangup("1.1");
+        hangup("1.1");
+        assertNotNull(channelManager.getChannelImplById("1.1"));
+
+        hangup("1.2");
+        assertNull(channelManager.getChannelImplById("1.1"));
+        assertNotNull(channelManager.getChannelImplById("1.2"));
+        assertNotNull(channelManager.getChannelImplById("1.3"));
+    }
+
+    @Test
+    public void testTraceIdFromChanVariables()
+    {
+        final NewChannelEvent event = new NewChannelEvent(this);
+        event.setChannel("SIP/1000-00000001");
+        event.setUniqueId("1.1");
+        event.setChannelState(ChannelState.DOWN.getStatus());
+        event.setChanVariable(Collections.singletonMap("AJ_TRACE_ID", "AJ_ORIGINATE_1"));
+        event.setDateReceived(DateUtil.getDate());
+        channelManager.handleNewChannelEvent(event);
+
+        final AsteriskChannelImpl channel = channelManager.getChannelImplById("1.1");
+        assertEquals("AJ_ORIGINATE_1", channel.getTraceId());
+        assertEquals("AJ_ORIGINATE_1", channel.getVariables().get("AJ_TRACE_ID"));
+    }
+
+    @Test
+    public void testTraceIdFromVarSetEvent()
+    {
+        final AsteriskChannelImpl channel = addChannel("SIP/1000-00000001", "1.1", 10);
+        assertNull(channel.getTraceId());
+
+        final VarSetEvent event = new VarSetEvent(this);
+        event.setUniqueId("1.1");
+        event.setVariable("__AJ_TRACE_ID");
+        event.setValue("AJ_ORIGINATE_1");
+        channelManager.handleVarSetEvent(event);
+        assertEquals("AJ_ORIGINATE_1", channel.getTraceId());
+
+        event.setValue("AJ_ORIGINATE_2");
+        channelManager.handleVarSetEvent(event);
+        assertEquals("AJ_ORIGINATE_1", channel.getTraceId());
+
+        event.setVariable("AJ_TRACE_ID_OTHER");
+        channelManager.handleVarSetEvent(event);
+        assertEquals("AJ_ORIGINATE_1", channel.getTraceId());
+    }
+
+    private AsteriskChannelImpl addChannel(String name, String uniqueId, int seconds)
+    {
+        return addChannel(name, uniqueId, seconds, null);
+    }
+
+    private AsteriskChannelImpl addChannel(String name, String uniqueId, int seconds, String bridgedChannel)
+    {
+        final StatusEvent event = new StatusEvent(this);
+        event.setChannel(name);
+        event.setUniqueId(uniqueId);
+        event.setSeconds(seconds);
+        event.setChannelState(ChannelState.UP.getStatus());
+        event.setBridgedChannel(bridgedChannel);
+        channelManager.handleStatusEvent(event);
+        return channelManager.getChannelImplById(uniqueId);
+    }
+
+    private CoreShowChannelEvent coreShowChannelEvent(String name, String uniqueId, String bridgedChannel)
+    {
+        final CoreShowChannelEvent event = new CoreShowChannelEvent(this);
+        event.setChannel(name);
+        event.setUniqueid(uniqueId);
+        event.setDuration("00:00:10");
+        event.setChannelState(ChannelState.UP.getStatus());
+        event.setBridgedChannel(bridgedChannel);
+        event.setDateReceived(DateUtil.getDate());
+        return event;
+    }
+
+    private void hangup(String uniqueId)
+    {
+        final HangupEvent event = new HangupEvent(this);
+        event.setUniqueId(uniqueId);
+        event.setCause(16);
+        event.setDateReceived(DateUtil.getDate());
+        channelManager.handleHangupEvent(event);
+    }
+}
@@ -0,0 +1,140 @@
+package org.asteriskjava.live.internal;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Date;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.live.LiveSnapshot;
+import org.asteriskjava.live.MeetMeRoom;
+import org.asteriskjava.live.QueueMemberState;
+import org.asteriskjava.manager.event.AgentsEvent;
+import org.asteriskjava.manager.event.QueueEntryEvent;
+import org.asteriskjava.manager.event.QueueMemberEvent;
+import org.asteriskjava.manager.event.QueueParamsEvent;
+import org.asteriskjava.manager.event.StatusEvent;
+import org.asteriskjava.util.DateUtil;
+
+/**
+ * Measures the time until the live state of a busy server is ready after a
+ * restart: applying the full state reported by Asterisk compared to
+ * restoring it from a checkpoint. The time Asterisk needs to dump its state
+ * and to transfer it is not included, it adds to the full synchronization
+ * only.
+ * <p>
+ * This is not a unit test, run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.asteriskjava.live.internal.CheckpointBenchmark</code>.
+ */
+public class CheckpointBenchmark
+{
+    private static final int CHANNELS = 8000;
+    private static final int QUEUES = 500;
+    private static final int MEMBERS_PER_QUEUE = 10;
+    private static final int ENTRIES_PER_QUEUE = 4;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception
+    {
+        final File file = File.createTempFile("asterisk-java", ".checkpoint");
+        file.deleteOnExit();
+        final LiveCheckpoint checkpoint = new LiveCheckpoint(file);
+
+        final AsteriskServerImpl source = new AsteriskServerImpl();
+        synchronizeFully(source);
+        final LiveSnapshot snapshot = source.snapshotPublisher.getSnapshot();
+
+        System.out.println("round  full sync ms  write ms  restore ms  checkpoint bytes");
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            long start = System.nanoTime();
+            synchronizeFully(new AsteriskServerImpl());
+            final long full = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            checkpoint.write(snapshot, Collections.<MeetMeRoom>emptyList());
+            final long write = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            restore(new AsteriskServerImpl(), checkpoint.read());
+            final long restore = System.nanoTime() - start;
+
+            System.out.printf("%5d  %12.1f  %8.1f  %10.1f  %16d%n", round, full / 1e6, write / 1e6, restore / 1e6,
+                    file.length());
+        }
+        checkpoint.close();
+    }
+
+    /**
+     * Applies the events a full synchronization receives.
+     */
+    private static void synchronizeFully(AsteriskServerImpl server)
+    {
+        for (int i = 0; i < CHANNELS; i++)
+        {
+            final StatusEvent event = new StatusEvent(server);
+            event.setChannel("SIP/" + i + "-00000001");
+            event.setUniqueId("1400000000." + i);
+            event.setChannelState(ChannelState.UP.getStatus());
+            event.setCallerIdNum(Integer.toString(i));
+            event.setContext("default");
+            event.setExten("100");
+            event.setPriority(1);
+            event.setSeconds(60);
+            event.setBridgedChannel(i % 2 == 1 ? "SIP/" + (i - 1) + "-00000001" : null);
+            event.setDateReceived(DateUtil.getDate());
+            server.channelManager.handleStatusEvent(event);
+        }
+
+        for (int q = 0; q < QUEUES; q++)
+        {
+            final QueueParamsEvent params = new QueueParamsEvent(server);
+            params.setQueue("queue-" + q);
+            params.setMax(0);
+            params.setStrategy("ringall");
+            params.setServiceLevel(60);
+            params.setWeight(0);
+            server.queueManager.handleQueueParamsEvent(params);
+
+            for (int m = 0; m < MEMBERS_PER_QUEUE; m++)
+            {
+                final QueueMemberEvent member = new QueueMemberEvent(server);
+                member.setQueue("queue-" + q);
+                member.setLocation("Agent/" + (q * MEMBERS_PER_QUEUE + m));
+                member.setStatus(QueueMemberState.DEVICE_NOT_INUSE.getStatus());
+                member.setPaused(false);
+                member.setPenalty(0);
+                member.setMembership("static");
+                server.queueManager.handleQueueMemberEvent(member);
+            }
+            for (int e = 0; e < ENTRIES_PER_QUEUE; e++)
+            {
+                final QueueEntryEvent entry = new QueueEntryEvent(server);
+                entry.setQueue("queue-" + q);
+                entry.setChannel("SIP/" + ((q * ENTRIES_PER_QUEUE + e) % CHANNELS) + "-00000001");
+                entry.setPosition(e + 1);
+                entry.setDateReceived(DateUtil.getDate());
+                server.queueManager.handleQueueEntryEvent(entry);
+            }
+        }
+
+        for (int a = 0; a < QUEUES * MEMBERS_PER_QUEUE; a++)
+        {
+            final AgentsEvent agent = new AgentsEvent(server);
+            agent.setAgent(Integer.toString(a));
+            agent.setName("Agent " + a);
+            agent.setStatus("AGENT_IDLE");
+            server.agentManager.handleAgentsEvent(agent);
+        }
+    }
+
+    private static void restore(AsteriskServerImpl server, LiveCheckpoint.Contents contents)
+    {
+        final Date date = new Date(contents.date);
+
+        server.channelManager.restoreChannels(contents.channels, date);
+        server.queueManager.restoreQueues(contents.queues, date);
+        server.agentManager.restoreAgents(contents.agents);
+        server.meetMeManager.restoreRooms(contents.rooms, date);
+    }
+}
@@ -0,0 +1,176 @@
+package org.asteriskjava.live.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+
+import org.asteriskjava.live.AgentState;
+import org.asteriskjava.live.ChannelSnapshot;
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.live.LiveSnapshot;
+import org.asteriskjava.live.MeetMeRoom;
+import org.asteriskjava.live.QueueMemberState;
+import org.asteriskjava.live.QueueSnapshot;
+import org.asteriskjava.manager.event.AgentsEvent;
+import org.asteriskjava.manager.event.QueueEntryEvent;
+import org.asteriskjava.manager.event.QueueMemberEvent;
+import org.asteriskjava.manager.event.QueueParamsEvent;
+import org.asteriskjava.manager.event.StatusEvent;
+import org.asteriskjava.util.DateUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LiveCheckpointTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LiveCheckpoint checkpoint;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        checkpoint = new LiveCheckpoint(new File(folder.getRoot(), "live.checkpoint"));
+    }
+
+    @After
+    public void tearDown()
+    {
+        checkpoint.close();
+    }
+
+    @Test
+    public void testReadMissingCheckpoint() throws IOException
+    {
+        assertNull(checkpoint.read());
+    }
+
+    @Test
+    public void testWriteAndRestore() throws IOException
+    {
+        final AsteriskServerImpl server = new AsteriskServerImpl();
+        addChannel(server, "SIP/1000", "1.1", null);
+        addChannel(server, "SIP/2000", "1.2", "SIP/1000");
+        addChannel(server, "SIP/3000", "1.3", null);
+        addQueue(server, "support");
+        final LiveSnapshot snapshot = server.snapshotPublisher.getSnapshot();
+
+        checkpoint.write(snapshot, Collections.<MeetMeRoom>emptyList());
+        final LiveCheckpoint.Contents contents = checkpoint.read();
+
+        assertEquals(snapshot.getDate().getTime(), contents.date);
+        assertEquals(3, contents.channels.size());
+        final ChannelSnapshot channel = contents.channels.get(1);
+        assertEquals("SIP/2000", channel.getName());
+        assertEquals("1.2", channel.getId());
+        assertEquals(ChannelState.UP, channel.getState());
+        assertEquals("1.1", channel.getLinkedChannelId());
+        assertEquals(snapshot.getChannel("1.2").getDateOfCreation(), channel.getDateOfCreation());
+
+        final QueueSnapshot queue = contents.queues.get(0);
+        assertEquals("support", queue.getName());
+        assertEquals(Integer.valueOf(60), queue.getServiceLevel());
+        assertEquals(1, queue.getMembers().size());
+        assertEquals("Agent/1000", queue.getMembers().get(0).getLocation());
+        assertEquals(QueueMemberState.DEVICE_NOT_INUSE, queue.getMembers().get(0).getState());
+        assertEquals(Collections.singletonList("1.3"), queue.getEntryChannelIds());
+        assertEquals(AgentState.AGENT_IDLE, contents.agents.get(0).getState());
+
+        final AsteriskServerImpl restored = new AsteriskServerImpl();
+        restored.channelManager.restoreChannels(contents.channels, DateUtil.getDate());
+        restored.queueManager.restoreQueues(contents.queues, DateUtil.getDate());
+        restored.agentManager.restoreAgents(contents.agents);
+
+        final AsteriskChannelImpl channel1 = restored.channelManager.getChannelImplById("1.1");
+        final AsteriskChannelImpl channel2 = restored.channelManager.getChannelImplById("1.2");
+        assertSame(channel2, channel1.getLinkedChannel());
+        assertSame(channel1, channel2.getLinkedChannel());
+        final AsteriskQueueImpl support = restored.queueManager.getInternalQueueByName("support");
+        assertNotNull(support.getMember("Agent/1000"));
+        assertNotNull(support.getEntry("SIP/3000"));
+        assertNotNull(restored.agentManager.getAgentByAgentId("Agent/1000"));
+    }
+
+    @Test
+    public void testCorruptCheckpoint() throws IOException
+    {
+        final AsteriskServerImpl server = new AsteriskServerImpl();
+        addChannel(server, "SIP/1000", "1.1", null);
+        checkpoint.write(server.snapshotPublisher.getSnapshot(), Collections.<MeetMeRoom>emptyList());
+        checkpoint.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(checkpoint.getFile(), "rw"))
+        {
+            file.seek(30);
+            file.write(file.read() ^ 0xff);
+        }
+
+        try
+        {
+            checkpoint.read();
+            fail("IOException expected");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    private void addChannel(AsteriskServerImpl server, String name, String uniqueId, String bridgedChannel)
+    {
+        final StatusEvent event = new StatusEvent(this);
+        event.setChannel(name);
+        event.setUniqueId(uniqueId);
+        event.setSeconds(10);
+        event.setChannelState(ChannelState.UP.getStatus());
+        event.setCallerIdNum("1000");
+        event.setBridgedChannel(bridgedChannel);
+        event.setDateReceived(DateUtil.getDate());
+        server.channelManager.handleStatusEvent(event);
+    }
+
+    private void addQueue(AsteriskServerImpl server, String name)
+    {
+        final QueueParamsEvent params = new QueueParamsEvent(this);
+        params.setQueue(name);
+        params.setMax(0);
+        params.setStrategy("ringall");
+        params.setServiceLevel(60);
+        params.setWeight(0);
+        server.queueManager.handleQueueParamsEvent(params);
+
+        final QueueMemberEvent member = new QueueMemberEvent(this);
+        member.setQueue(name);
+        member.setLocation("Agent/1000");
+        member.setStatus(QueueMemberState.DEVICE_NOT_INUSE.getStatus());
+        member.setPaused(false);
+        member.setPenalty(0);
+        member.setMembership("static");
+        member.setCallsTaken(3);
+        member.setLastCall(0L);
+        server.queueManager.handleQueueMemberEvent(member);
+
+        final QueueEntryEvent entry = new QueueEntryEvent(this);
+        entry.setQueue(name);
+        entry.setChannel("SIP/3000");
+        entry.setPosition(1);
+        entry.setDateReceived(DateUtil.getDate());
+        server.queueManager.handleQueueEntryEvent(entry);
+
+        final AgentsEvent agent = new AgentsEvent(this);
+        agent.setAgent("1000");
+        agent.setName("Alice");
+        agent.setStatus("AGENT_IDLE");
+        server.agentManager.handleAgentsEvent(agent);
+    }
+}
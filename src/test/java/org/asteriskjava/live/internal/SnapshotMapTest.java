@@ -0,0 +1,86 @@
+package org.asteriskjava.live.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SnapshotMapTest
+{
+    @Test
+    public void testWith()
+    {
+        final Map<String, String> base = new HashMap<>();
+        base.put("a", "1");
+        base.put("b", "2");
+        final SnapshotMap<String> first = SnapshotMap.of(base);
+
+        final Map<String, String> updates = new HashMap<>();
+        updates.put("a", null);
+        updates.put("c", "3");
+        updates.put("d", null);
+        final SnapshotMap<String> second = first.with(updates);
+
+        assertEquals(2, first.size());
+        assertEquals("1", first.get("a"));
+        assertNull(first.get("c"));
+
+        assertEquals(2, second.size());
+        assertNull(second.get("a"));
+        assertFalse(second.containsKey("a"));
+        assertEquals("2", second.get("b"));
+        assertEquals("3", second.get("c"));
+
+        final Map<String, String> expected = new HashMap<>();
+        expected.put("b", "2");
+        expected.put("c", "3");
+        assertEquals(expected, new HashMap<>(second));
+        assertEquals(expected, second);
+    }
+
+    @Test
+    public void testWithoutUpdatesReturnsSameMap()
+    {
+        final SnapshotMap<String> map = SnapshotMap.of(Collections.singletonMap("a", "1"));
+
+        assertSame(map, map.with(Collections.<String, String> emptyMap()));
+    }
+
+    @Test
+    public void testManyChanges()
+    {
+        final Map<String, Integer> expected = new HashMap<>();
+        SnapshotMap<Integer> map = SnapshotMap.of(new HashMap<String, Integer>());
+
+        for (int i = 0; i < 1000; i++)
+        {
+            final Map<String, Integer> updates = new HashMap<>();
+            updates.put(Integer.toString(i % 300), i);
+            if (i % 7 == 0)
+            {
+                updates.put(Integer.toString((i * 13) % 300), null);
+            }
+            for (Map.Entry<String, Integer> update : updates.entrySet())
+            {
+                if (update.getValue() == null)
+                {
+                    expected.remove(update.getKey());
+                }
+                else
+                {
+                    expected.put(update.getKey(), update.getValue());
+                }
+            }
+            map = map.with(updates);
+
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, new HashMap<>(map));
+    }
+}
@@ -0,0 +1,198 @@
+package org.asteriskjava.live.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.asteriskjava.live.ChannelSnapshot;
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.live.LiveSnapshot;
+import org.asteriskjava.live.QueueMemberState;
+import org.asteriskjava.live.QueueSnapshot;
+import org.asteriskjava.manager.event.BridgeEvent;
+import org.asteriskjava.manager.event.DisconnectEvent;
+import org.asteriskjava.manager.event.HangupEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.manager.event.NewStateEvent;
+import org.asteriskjava.util.DateUtil;
+import org.asteriskjava.util.ExecutionRuntime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotPublisherTest
+{
+    private AsteriskServerImpl server;
+    private ExecutionRuntime runtime;
+    private SnapshotPublisher publisher;
+
+    @Before
+    public void setUp()
+    {
+        server = new AsteriskServerImpl();
+        runtime = new ExecutionRuntime("test");
+        server.setRuntime(runtime);
+        publisher = server.snapshotPublisher;
+        publisher.setInterval(0);
+    }
+
+    @After
+    public void tearDown()
+    {
+        runtime.shutdown();
+    }
+
+    @Test
+    public void testChannels()
+    {
+        addChannel("SIP/1000", "1.1");
+        final LiveSnapshot first = publisher.getSnapshot();
+        assertEquals(1, first.getChannels().size());
+        assertEquals("SIP/1000", first.getChannel("1.1").getName());
+
+        addChannel("SIP/2000", "1.2");
+        final BridgeEvent bridge = new BridgeEvent(this);
+        bridge.setUniqueId1("1.1");
+        bridge.setUniqueId2("1.2");
+        bridge.setBridgeState(BridgeEvent.BRIDGE_STATE_LINK);
+        bridge.setDateReceived(DateUtil.getDate());
+        processEvent(bridge);
+        final LiveSnapshot second = publisher.getSnapshot();
+        assertTrue(second.getSequence() > first.getSequence());
+        assertEquals(1, first.getChannels().size());
+        assertEquals(2, second.getChannels().size());
+
+        final ChannelSnapshot channel1 = second.getChannel("1.1");
+        final ChannelSnapshot channel2 = second.getChannel("1.2");
+        assertEquals("1.2", channel1.getLinkedChannelId());
+        assertEquals("1.1", channel2.getLinkedChannelId());
+        assertNull(first.getChannel("1.1").getLinkedChannelId());
+
+        final HangupEvent hangup = new HangupEvent(this);
+        hangup.setUniqueId("1.2");
+        hangup.setCause(16);
+        hangup.setDateReceived(DateUtil.getDate());
+        processEvent(hangup);
+        final LiveSnapshot third = publisher.getSnapshot();
+        assertNull(third.getChannel("1.2"));
+        assertEquals(1, third.getChannels().size());
+    }
+
+    @Test
+    public void testUnchangedObjectsAreShared()
+    {
+        addChannel("SIP/1000", "1.1");
+        addChannel("SIP/2000", "1.2");
+        final LiveSnapshot first = publisher.getSnapshot();
+
+        final NewStateEvent event = new NewStateEvent(this);
+        event.setChannel("SIP/2000");
+        event.setUniqueId("1.2");
+        event.setChannelState(ChannelState.RINGING.getStatus());
+        event.setDateReceived(DateUtil.getDate());
+        processEvent(event);
+        final LiveSnapshot second = publisher.getSnapshot();
+
+        assertSame(first.getChannel("1.1"), second.getChannel("1.1"));
+        assertNotSame(first.getChannel("1.2"), second.getChannel("1.2"));
+        assertEquals(ChannelState.RINGING, second.getChannel("1.2").getState());
+    }
+
+    @Test
+    public void testQueues()
+    {
+        final AsteriskQueueImpl queue1 = new AsteriskQueueImpl(server, "queue1", 25, "RoundRobin", 0, 5, 0, 0, 1, 1,
+                1, 1.0);
+        final AsteriskQueueImpl queue2 = new AsteriskQueueImpl(server, "queue2", 25, "RoundRobin", 0, 5, 0, 0, 1, 1,
+                1, 1.0);
+        final AsteriskQueueMemberImpl member = new AsteriskQueueMemberImpl(server, queue1, "SIP/1000",
+                QueueMemberState.DEVICE_NOT_INUSE, false, 0, "dynamic", 0, 0L);
+        server.queueManager.addQueue(queue1);
+        server.queueManager.addQueue(queue2);
+        queue1.addMember(member);
+        final LiveSnapshot first = publisher.getSnapshot();
+        assertEquals(2, first.getQueues().size());
+        assertEquals(QueueMemberState.DEVICE_NOT_INUSE, first.getQueue("queue1").getMembers().get(0).getState());
+
+        member.stateChanged(QueueMemberState.DEVICE_INUSE);
+        publisher.update();
+        final LiveSnapshot second = publisher.getSnapshot();
+        final QueueSnapshot queue = second.getQueue("queue1");
+        assertEquals(QueueMemberState.DEVICE_INUSE, queue.getMembers().get(0).getState());
+        assertSame(first.getQueue("queue2"), second.getQueue("queue2"));
+
+        final AsteriskChannelImpl channel = addChannel("SIP/2000", "1.2");
+        queue1.createNewEntry(channel, 1, DateUtil.getDate());
+        publisher.update();
+        final LiveSnapshot third = publisher.getSnapshot();
+        assertEquals(Collections.singletonList("1.2"), third.getQueue("queue1").getEntryChannelIds());
+        assertEquals("queue1", third.getChannel("1.2").getQueueName());
+        assertSame(queue.getMembers().get(0), third.getQueue("queue1").getMembers().get(0));
+    }
+
+    @Test
+    public void testObjectsArePublishedOnceRegistered()
+    {
+        assertEquals(0, publisher.getSnapshot().getQueues().size());
+
+        final AsteriskQueueImpl queue = new AsteriskQueueImpl(server, "queue1", 25, "RoundRobin", 0, 5, 0, 0, 1, 1,
+                1, 1.0);
+        publisher.update();
+        assertEquals(0, publisher.getSnapshot().getQueues().size());
+
+        server.queueManager.addQueue(queue);
+        publisher.update();
+        assertEquals("queue1", publisher.getSnapshot().getQueue("queue1").getName());
+    }
+
+    @Test
+    public void testDisconnect()
+    {
+        addChannel("SIP/1000", "1.1");
+        final LiveSnapshot first = publisher.getSnapshot();
+        assertEquals(1, first.getChannels().size());
+
+        processEvent(new DisconnectEvent(this));
+
+        assertEquals(0, publisher.getSnapshot().getChannels().size());
+    }
+
+    @Test
+    public void testPublishedAfterInterval() throws Exception
+    {
+        publisher.setInterval(50);
+        final LiveSnapshot first = publisher.getSnapshot();
+
+        addChannel("SIP/1000", "1.1");
+        addChannel("SIP/2000", "1.2");
+
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (publisher.getSnapshot().getChannels().size() < 2 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(2, publisher.getSnapshot().getChannels().size());
+        assertTrue(publisher.getSnapshot().getSequence() > first.getSequence());
+    }
+
+    private AsteriskChannelImpl addChannel(String name, String uniqueId)
+    {
+        final NewChannelEvent event = new NewChannelEvent(this);
+        event.setChannel(name);
+        event.setUniqueId(uniqueId);
+        event.setChannelState(ChannelState.UP.getStatus());
+        event.setDateReceived(DateUtil.getDate());
+        processEvent(event);
+        return server.channelManager.getChannelImplById(uniqueId);
+    }
+
+    private void processEvent(ManagerEvent event)
+    {
+        server.onManagerEvent(event);
+    }
+}
@@ -0,0 +1,355 @@
+package org.asteriskjava.live.internal;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.live.ManagerCommunicationException;
+import org.asteriskjava.live.MeetMeRoom;
+import org.asteriskjava.live.QueueMemberState;
+import org.asteriskjava.manager.ActionFuture;
+import org.asteriskjava.manager.ActionFutureCallback;
+import org.asteriskjava.manager.ManagerConnection;
+import org.asteriskjava.manager.ManagerConnectionState;
+import org.asteriskjava.manager.ManagerEventListener;
+import org.asteriskjava.manager.action.AgentsAction;
+import org.asteriskjava.manager.action.CoreShowChannelsAction;
+import org.asteriskjava.manager.action.ManagerAction;
+import org.asteriskjava.manager.action.QueueStatusAction;
+import org.asteriskjava.manager.action.QueueSummaryAction;
+import org.asteriskjava.manager.action.StatusAction;
+import org.asteriskjava.manager.event.AgentsCompleteEvent;
+import org.asteriskjava.manager.event.ConnectEvent;
+import org.asteriskjava.manager.event.CoreShowChannelEvent;
+import org.asteriskjava.manager.event.CoreShowChannelsCompleteEvent;
+import org.asteriskjava.manager.event.HangupEvent;
+import org.asteriskjava.manager.event.LeaveEvent;
+import org.asteriskjava.manager.event.QueueEntryEvent;
+import org.asteriskjava.manager.event.QueueMemberEvent;
+import org.asteriskjava.manager.event.QueueParamsEvent;
+import org.asteriskjava.manager.event.QueueStatusCompleteEvent;
+import org.asteriskjava.manager.event.QueueSummaryCompleteEvent;
+import org.asteriskjava.manager.event.QueueSummaryEvent;
+import org.asteriskjava.manager.event.ResponseEvent;
+import org.asteriskjava.manager.event.StatusCompleteEvent;
+import org.asteriskjava.manager.event.StatusEvent;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.asteriskjava.util.DateUtil;
+import org.asteriskjava.util.ExecutionRuntime;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StateSynchronizerTest
+{
+    private static final long TIMEOUT = 5000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AsteriskServerImpl server;
+    private ExecutionRuntime runtime;
+    private Capture<ManagerAction> actions;
+    private Capture<ActionFutureCallback<ManagerResponse>> callbacks;
+
+    @Before
+    public void setUp()
+    {
+        actions = Capture.newInstance(CaptureType.ALL);
+        callbacks = Capture.newInstance(CaptureType.ALL);
+
+        @SuppressWarnings("unchecked")
+        final ActionFuture<ManagerResponse> future = createNiceMock(ActionFuture.class);
+        future.addCallback(capture(callbacks));
+        expectLastCall().anyTimes();
+        replay(future);
+
+        final ManagerConnection connection = createNiceMock(ManagerConnection.class);
+        expect(connection.getState()).andReturn(ManagerConnectionState.CONNECTED).anyTimes();
+        expect(connection.sendActionAsync(capture(actions))).andReturn(future).anyTimes();
+        replay(connection);
+
+        server = new AsteriskServerImpl(connection);
+        runtime = new ExecutionRuntime("test");
+        server.setRuntime(runtime);
+    }
+
+    @After
+    public void tearDown()
+    {
+        runtime.shutdown();
+    }
+
+    @Test
+    public void testStateIsAppliedAsItArrives() throws Exception
+    {
+        final Thread initializer = initializeInBackground(new AtomicReference<Throwable>());
+        final List<ManagerAction> sent = awaitActions(3);
+        final String status = actionId(sent, StatusAction.class);
+        final String agents = actionId(sent, AgentsAction.class);
+        final String queues = actionId(sent, QueueStatusAction.class);
+
+        server.onManagerEvent(statusEvent(status, "SIP/1000", "1.1"));
+        assertNotNull(server.channelManager.getChannelImplById("1.1"));
+        assertTrue(initializer.isAlive());
+
+        // a live event received during the synchronization is not undone
+        final HangupEvent hangup = new HangupEvent(this);
+        hangup.setUniqueId("1.1");
+        hangup.setCause(16);
+        hangup.setDateReceived(DateUtil.getDate());
+        server.onManagerEvent(hangup);
+
+        final QueueParamsEvent queue = new QueueParamsEvent(this);
+        queue.setActionId(queues);
+        queue.setQueue("support");
+        queue.setMax(0);
+        queue.setServiceLevel(0);
+        queue.setWeight(0);
+        server.onManagerEvent(queue);
+        server.onManagerEvent(queueEntryEvent(queues, "support", "SIP/2000"));
+        server.onManagerEvent(queueEntryEvent(queues, "support", "SIP/3000"));
+        final LeaveEvent leave = new LeaveEvent(this);
+        leave.setQueue("support");
+        leave.setChannel("SIP/3000");
+        server.onManagerEvent(leave);
+        server.onManagerEvent(complete(new QueueStatusCompleteEvent(this), queues));
+        server.onManagerEvent(complete(new AgentsCompleteEvent(this), agents));
+
+        server.onManagerEvent(statusEvent(status, "SIP/2000", "1.2"));
+        server.onManagerEvent(statusEvent(status, "SIP/3000", "1.3"));
+        assertTrue(initializer.isAlive());
+        server.onManagerEvent(complete(new StatusCompleteEvent(this), status));
+
+        initializer.join(TIMEOUT);
+        assertFalse(initializer.isAlive());
+        assertEquals(ChannelState.HUNGUP, server.channelManager.getChannelImplById("1.1").getState());
+
+        final AsteriskQueueImpl support = server.queueManager.getQueueImpls().iterator().next();
+        assertNotNull("deferred until the channel is known", support.getEntry("SIP/2000"));
+        assertNull("channel left the queue during the synchronization", support.getEntry("SIP/3000"));
+
+        // the synchronization is done, response events are handled as usual
+        server.onManagerEvent(statusEvent(status, "SIP/4000", "1.4"));
+        assertNull(server.channelManager.getChannelImplById("1.4"));
+    }
+
+    @Test
+    public void testFailedSynchronizationIsRetried() throws Exception
+    {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread initializer = initializeInBackground(failure);
+        awaitActions(3);
+
+        callbacks.getValues().get(0).onFailure(new IOException("Broken pipe"));
+        initializer.join(TIMEOUT);
+        assertFalse(initializer.isAlive());
+        assertTrue(failure.get() instanceof ManagerCommunicationException);
+
+        initializeInBackground(new AtomicReference<Throwable>());
+        awaitActions(6);
+    }
+
+    @Test
+    public void testRestoredStateIsReconciled() throws Exception
+    {
+        server.setCheckpointFile(writeCheckpoint());
+
+        // the restored state is used at once
+        final Thread initializer = initializeInBackground(new AtomicReference<Throwable>());
+        initializer.join(TIMEOUT);
+        assertFalse(initializer.isAlive());
+        assertNotNull(server.channelManager.getChannelImplById("1.1"));
+        assertNotNull(server.queueManager.getInternalQueueByName("support").getMember("Agent/1000"));
+
+        final List<ManagerAction> sent = awaitActions(3);
+        final String channels = actionId(sent, CoreShowChannelsAction.class);
+        final String agents = actionId(sent, AgentsAction.class);
+        final String summary = actionId(sent, QueueSummaryAction.class);
+
+        final CoreShowChannelEvent channel = new CoreShowChannelEvent(this);
+        channel.setActionId(channels);
+        channel.setChannel("SIP/1000");
+        channel.setUniqueid("1.1");
+        channel.setDuration("00:01:05");
+        channel.setChannelState(ChannelState.UP.getStatus());
+        channel.setDateReceived(DateUtil.getDate());
+        server.onManagerEvent(channel);
+        server.onManagerEvent(complete(new CoreShowChannelsCompleteEvent(this), channels));
+        assertEquals(ChannelState.UP, server.channelManager.getChannelImplById("1.1").getState());
+        assertEquals("hung up while disconnected", ChannelState.HUNGUP,
+                server.channelManager.getChannelImplById("1.2").getState());
+
+        // the member logged off while disconnected
+        final QueueSummaryEvent queue = new QueueSummaryEvent(this);
+        queue.setActionId(summary);
+        queue.setQueue("support");
+        queue.setLoggedIn(0);
+        queue.setCallers(0);
+        server.onManagerEvent(queue);
+        server.onManagerEvent(complete(new QueueSummaryCompleteEvent(this), summary));
+
+        final QueueStatusAction status = (QueueStatusAction) awaitActions(4).get(3);
+        assertEquals("support", status.getQueue());
+        server.onManagerEvent(complete(new QueueStatusCompleteEvent(this), status.getActionId()));
+        server.onManagerEvent(complete(new AgentsCompleteEvent(this), agents));
+        assertNull(server.queueManager.getInternalQueueByName("support").getMember("Agent/1000"));
+
+        // the synchronization is done, response events are handled as usual
+        server.onManagerEvent(statusEvent(channels, "SIP/4000", "1.4"));
+        assertNull(server.channelManager.getChannelImplById("1.4"));
+    }
+
+    @Test
+    public void testRestoredStateWithAsyncEventHandling() throws Exception
+    {
+        final Capture<ManagerEventListener> listener = Capture.newInstance();
+        final ManagerConnection connection = createNiceMock(ManagerConnection.class);
+        expect(connection.getState()).andReturn(ManagerConnectionState.INITIAL).anyTimes();
+        connection.addEventListener(capture(listener));
+        connection.login();
+        expectLastCall().andAnswer(new IAnswer<Object>()
+        {
+            @Override
+            public Object answer() throws Throwable
+            {
+                // the event is handled while the server is still initialized
+                listener.getValue().onManagerEvent(new ConnectEvent(this));
+                Thread.sleep(200);
+                return null;
+            }
+        });
+        replay(connection);
+
+        server = new AsteriskServerImpl(connection);
+        server.setRuntime(runtime);
+        server.setCheckpointFile(writeCheckpoint());
+
+        final Thread initializer = initializeInBackground(new AtomicReference<Throwable>());
+        initializer.join(TIMEOUT);
+        assertFalse("deadlocked", initializer.isAlive());
+        assertNotNull(server.snapshotPublisher.getSnapshot().getChannel("1.1"));
+    }
+
+    private File writeCheckpoint() throws IOException
+    {
+        final AsteriskServerImpl previous = new AsteriskServerImpl();
+        previous.channelManager.handleStatusEvent(statusEvent(null, "SIP/1000", "1.1"));
+        previous.channelManager.handleStatusEvent(statusEvent(null, "SIP/2000", "1.2"));
+
+        final QueueParamsEvent params = new QueueParamsEvent(this);
+        params.setQueue("support");
+        params.setMax(0);
+        params.setServiceLevel(0);
+        params.setWeight(0);
+        previous.queueManager.handleQueueParamsEvent(params);
+        final QueueMemberEvent member = new QueueMemberEvent(this);
+        member.setQueue("support");
+        member.setLocation("Agent/1000");
+        member.setStatus(QueueMemberState.DEVICE_NOT_INUSE.getStatus());
+        member.setPaused(false);
+        previous.queueManager.handleQueueMemberEvent(member);
+
+        final LiveCheckpoint checkpoint = new LiveCheckpoint(new File(folder.getRoot(), "live.checkpoint"));
+        checkpoint.write(previous.snapshotPublisher.getSnapshot(), Collections.<MeetMeRoom>emptyList());
+        checkpoint.close();
+        return checkpoint.getFile();
+    }
+
+    private Thread initializeInBackground(final AtomicReference<Throwable> failure)
+    {
+        final Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    server.initialize();
+                }
+                catch (Throwable t)
+                {
+                    failure.set(t);
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private List<ManagerAction> awaitActions(int count) throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (callbacks.getValues().size() < count)
+        {
+            if (System.currentTimeMillis() > deadline)
+            {
+                fail("Expected " + count + " actions to be sent");
+            }
+            Thread.sleep(10);
+        }
+        return actions.getValues();
+    }
+
+    private static String actionId(List<ManagerAction> sent, Class< ? > type)
+    {
+        for (ManagerAction action : sent)
+        {
+            if (type.isInstance(action))
+            {
+                return action.getActionId();
+            }
+        }
+        throw new AssertionError("No " + type.getSimpleName() + " sent");
+    }
+
+    private StatusEvent statusEvent(String actionId, String channel, String uniqueId)
+    {
+        final StatusEvent event = new StatusEvent(this);
+        event.setActionId(actionId);
+        event.setChannel(channel);
+        event.setUniqueId(uniqueId);
+        event.setSeconds(10);
+        event.setChannelState(ChannelState.UP.getStatus());
+        event.setDateReceived(DateUtil.getDate());
+        return event;
+    }
+
+    private QueueEntryEvent queueEntryEvent(String actionId, String queue, String channel)
+    {
+        final QueueEntryEvent event = new QueueEntryEvent(this);
+        event.setActionId(actionId);
+        event.setQueue(queue);
+        event.setChannel(channel);
+        event.setPosition(1);
+        event.setDateReceived(DateUtil.getDate());
+        return event;
+    }
+
+    private static <T extends ResponseEvent> T complete(T event, String actionId)
+    {
+        event.setActionId(actionId);
+        return event;
+    }
+}
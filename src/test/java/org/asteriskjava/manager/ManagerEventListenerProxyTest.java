@@ -0,0 +1,133 @@
+package org.asteriskjava.manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.asteriskjava.manager.event.ConnectEvent;
+import org.asteriskjava.manager.event.HangupEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.NewStateEvent;
+import org.junit.Test;
+
+public class ManagerEventListenerProxyTest
+{
+    @Test
+    public void testCallKeyExtractor()
+    {
+        final NewStateEvent newState = new NewStateEvent(this);
+        newState.setUniqueId("1234.1");
+        assertEquals("1234.1", ManagerEventListenerProxy.CALL_KEY_EXTRACTOR.getKey(newState));
+
+        newState.setLinkedId("1234.0");
+        assertEquals("1234.0", ManagerEventListenerProxy.CALL_KEY_EXTRACTOR.getKey(newState));
+
+        assertNull(ManagerEventListenerProxy.CALL_KEY_EXTRACTOR.getKey(new ConnectEvent(this)));
+    }
+
+    @Test
+    public void testEventsWithSameKeyAreProcessedInOrder() throws Exception
+    {
+        final int calls = 16;
+        final int eventsPerCall = 200;
+        final CountDownLatch done = new CountDownLatch(calls * eventsPerCall);
+        final Map<String, List<Integer>> received = Collections.synchronizedMap(new HashMap<String, List<Integer>>());
+        final ManagerEventListenerProxy proxy = new ManagerEventListenerProxy(new ManagerEventListener()
+        {
+            public void onManagerEvent(ManagerEvent event)
+            {
+                final HangupEvent hangup = (HangupEvent) event;
+                final List<Integer> sequence = received.get(hangup.getUniqueId());
+                // only touched by the lane of this call
+                sequence.add(hangup.getCause());
+                done.countDown();
+            }
+        }, 4, 8);
+
+        for (int i = 0; i < calls; i++)
+        {
+            received.put("call-" + i, new ArrayList<Integer>());
+        }
+        for (int n = 0; n < eventsPerCall; n++)
+        {
+            for (int i = 0; i < calls; i++)
+            {
+                final HangupEvent event = new HangupEvent(this);
+                event.setUniqueId("call-" + i);
+                event.setCause(n);
+                proxy.onManagerEvent(event);
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        proxy.shutdown();
+
+        for (List<Integer> sequence : received.values())
+        {
+            assertEquals(eventsPerCall, sequence.size());
+            for (int n = 0; n < eventsPerCall; n++)
+            {
+                assertEquals(Integer.valueOf(n), sequence.get(n));
+            }
+        }
+        assertEquals(4, proxy.getLaneCount());
+        for (int depth : proxy.getMaxQueueDepths())
+        {
+            assertTrue(depth <= 8);
+        }
+    }
+
+    @Test
+    public void testFullQueueBlocksUntilThereIsRoom() throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+        final ManagerEventListenerProxy proxy = new ManagerEventListenerProxy(new ManagerEventListener()
+        {
+            public void onManagerEvent(ManagerEvent event)
+            {
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        }, 1, 2);
+
+        // the first event is taken by the lane's thread, two are queued
+        proxy.onManagerEvent(new ConnectEvent(this));
+        proxy.onManagerEvent(new ConnectEvent(this));
+        proxy.onManagerEvent(new ConnectEvent(this));
+
+        final Thread producer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                proxy.onManagerEvent(new ConnectEvent(this));
+            }
+        };
+        producer.start();
+        producer.join(200);
+        assertTrue("producer must wait for room in the queue", producer.isAlive());
+
+        release.countDown();
+        producer.join(5000);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, proxy.getMaxQueueDepths()[0]);
+        assertEquals(0, proxy.getQueueDepths()[0]);
+        proxy.shutdown();
+    }
+}
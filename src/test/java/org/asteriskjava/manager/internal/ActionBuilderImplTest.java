@@ -20,6 +20,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -143,6 +145,30 @@ public class ActionBuilderImplTest
         assertTrue("Missing trailing CRNL CRNL", actual.endsWith("\r\n\r\n"));
     }
 
+    @Test
+    public void testBuildActionIntoBuffer()
+    {
+        final OriginateAction originateAction = new OriginateAction();
+        final Map<String, String> variables = new LinkedHashMap<>();
+        variables.put("var1", "välue1");
+        variables.put("var2", "value2");
+        originateAction.setChannel("SIP/1000");
+        originateAction.setCallerId("Jörg <1000>");
+        originateAction.setVariables(variables);
+        actionBuilder.setTargetVersion(AsteriskVersion.ASTERISK_1_6);
+
+        for (Charset encoding : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1,
+                StandardCharsets.UTF_16})
+        {
+            final ActionBuffer buffer = new ActionBuffer(encoding, 16);
+            final String expected = actionBuilder.buildAction(originateAction, "123_0");
+
+            actionBuilder.buildAction(originateAction, "123_0", buffer);
+
+            assertEquals("Incorrect encoding with " + encoding, expected, encoding.decode(buffer.flip()).toString());
+        }
+    }
+
     @SuppressWarnings("deprecation")
     @Test
     public void testBuildActionWithVariablesForAsterisk10()
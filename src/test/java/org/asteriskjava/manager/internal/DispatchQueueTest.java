@@ -0,0 +1,314 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.asteriskjava.manager.DispatchQueueOverflowPolicy;
+import org.asteriskjava.manager.event.DisconnectEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.ProtocolIdentifierReceivedEvent;
+import org.asteriskjava.manager.event.ResponseEvent;
+import org.asteriskjava.manager.event.StatusCompleteEvent;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.asteriskjava.util.DateUtil;
+import org.asteriskjava.util.SocketConnectionFacade;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DispatchQueueTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private DispatchQueue queue;
+
+    @After
+    public void tearDown()
+    {
+        DateUtil.overrideCurrentDate(null);
+        if (queue != null)
+        {
+            queue.stop();
+        }
+    }
+
+    @Test
+    public void testDropDroppableEventTypesWhenFull()
+    {
+        queue = new DispatchQueue(2, DispatchQueueOverflowPolicy.DROP, Arrays.asList("VarSet"), null);
+
+        queue.put(event("Newchannel", 1));
+        queue.put(event("VarSet", 2));
+        queue.put(event("VarSet", 3));
+        queue.put(event("VarSet", 4));
+
+        assertEquals(2, queue.getDepth());
+        assertEquals(2, queue.getHighWaterMark());
+        assertEquals(2L, queue.getDroppedCount());
+        assertEquals(Collections.singletonMap("varset", 2L), queue.getDroppedCountByEventType());
+    }
+
+    @Test
+    public void testBlockPreservesOrder() throws Exception
+    {
+        final RecordingHandler handler = new RecordingHandler(100);
+        queue = new DispatchQueue(2, DispatchQueueOverflowPolicy.BLOCK, null, null);
+        queue.setHandler(handler);
+        queue.start("DispatchQueueTest");
+
+        for (int i = 0; i < 100; i++)
+        {
+            queue.put(event("Newchannel", i));
+        }
+
+        assertTrue("frames not dispatched", handler.latch.await(5, TimeUnit.SECONDS));
+        assertInOrder(handler.frames, 100);
+        assertTrue(queue.getHighWaterMark() <= 2);
+    }
+
+    @Test
+    public void testSpillPreservesOrder() throws Exception
+    {
+        final RecordingHandler handler = new RecordingHandler(10);
+        queue = new DispatchQueue(2, DispatchQueueOverflowPolicy.SPILL, null, temporaryFolder.getRoot());
+        queue.setHandler(handler);
+
+        for (int i = 0; i < 10; i++)
+        {
+            queue.put(event("Newchannel", i));
+        }
+
+        assertEquals(10, queue.getDepth());
+        assertEquals(10, queue.getHighWaterMark());
+        assertEquals(8L, queue.getSpilledCount());
+
+        queue.start("DispatchQueueTest");
+
+        assertTrue("frames not dispatched", handler.latch.await(5, TimeUnit.SECONDS));
+        assertInOrder(handler.frames, 10);
+        assertEquals(0, queue.getDepth());
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testStartAfterDispatchThreadDied() throws Exception
+    {
+        final RecordingHandler handler = new RecordingHandler(1)
+        {
+            @Override
+            public void handleFrame(Map<String, Object> frame)
+            {
+                if ("0".equals(frame.get("sequence")))
+                {
+                    throw new Error("Expected by DispatchQueueTest");
+                }
+                super.handleFrame(frame);
+            }
+        };
+        queue = new DispatchQueue(2, DispatchQueueOverflowPolicy.BLOCK, null, null);
+        queue.setHandler(handler);
+        queue.start("DispatchQueueTest");
+
+        queue.put(event("Newchannel", 0));
+        queue.put(event("Newchannel", 1));
+
+        // start() is a no-op until the dead thread has been noticed
+        for (int i = 0; i < 500 && handler.latch.getCount() > 0; i++)
+        {
+            queue.start("DispatchQueueTest");
+            handler.latch.await(10, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(1, handler.frames.size());
+        assertEquals("1", handler.frames.get(0).get("sequence"));
+    }
+
+    @Test
+    public void testReaderDispatchesThroughQueue() throws Exception
+    {
+        final Date now = new Date();
+        DateUtil.overrideCurrentDate(now);
+
+        final SocketConnectionFacade socketConnectionFacade = createMock(SocketConnectionFacade.class);
+        expect(socketConnectionFacade.readLine()).andReturn("Asterisk Call Manager/1.0");
+        expect(socketConnectionFacade.readLine()).andReturn("Event: StatusComplete");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn(null);
+        replay(socketConnectionFacade);
+
+        final RecordingDispatcher dispatcher = new RecordingDispatcher(3);
+        final ManagerReader reader = new ManagerReaderImpl(dispatcher, this);
+        queue = new DispatchQueue(16, DispatchQueueOverflowPolicy.BLOCK, null, null);
+        reader.setDispatchQueue(queue);
+        reader.setSocket(socketConnectionFacade);
+        reader.run();
+        verify(socketConnectionFacade);
+
+        // the reader only queues the frames
+        DateUtil.overrideCurrentDate(new Date(now.getTime() + 1000L));
+        assertEquals(0, dispatcher.events.size());
+        assertEquals(3, queue.getDepth());
+
+        queue.start("DispatchQueueTest");
+
+        assertTrue("events not dispatched", dispatcher.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(ProtocolIdentifierReceivedEvent.class, dispatcher.events.get(0).getClass());
+        assertEquals(StatusCompleteEvent.class, dispatcher.events.get(1).getClass());
+        assertEquals(DisconnectEvent.class, dispatcher.events.get(2).getClass());
+        for (ManagerEvent event : dispatcher.events)
+        {
+            assertEquals("dateReceived must be the time the frame was read", now, event.getDateReceived());
+        }
+    }
+
+    @Test
+    public void testResponsesAreNotDelayedByBlockedListeners() throws Exception
+    {
+        final SocketConnectionFacade socketConnectionFacade = createMock(SocketConnectionFacade.class);
+        expect(socketConnectionFacade.readLine()).andReturn("Event: StatusComplete");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn("Response: Success");
+        expect(socketConnectionFacade.readLine()).andReturn("ActionID: 123_0#abc");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn("Event: StatusComplete");
+        expect(socketConnectionFacade.readLine()).andReturn("ActionID: 123_0#abc");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn(null);
+        replay(socketConnectionFacade);
+
+        final RecordingDispatcher dispatcher = new RecordingDispatcher(3);
+        final ManagerReader reader = new ManagerReaderImpl(dispatcher, this);
+        queue = new DispatchQueue(16, DispatchQueueOverflowPolicy.BLOCK, null, null);
+        reader.setDispatchQueue(queue);
+        reader.setSocket(socketConnectionFacade);
+        queue.start("DispatchQueueTest");
+
+        // the first event blocks the dispatch thread until released
+        dispatcher.blocked = new CountDownLatch(1);
+        reader.run();
+        verify(socketConnectionFacade);
+
+        assertEquals(1, dispatcher.responses.size());
+        assertEquals("abc", ManagerUtil.stripInternalActionId(dispatcher.responses.get(0).getActionId()));
+        assertEquals(1, dispatcher.responseEvents.size());
+        assertEquals("123_0", dispatcher.responseEvents.get(0).getInternalActionId());
+        assertTrue(dispatcher.events.size() <= 1);
+
+        dispatcher.blocked.countDown();
+
+        assertTrue("events not dispatched", dispatcher.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(StatusCompleteEvent.class, dispatcher.events.get(0).getClass());
+        assertEquals(StatusCompleteEvent.class, dispatcher.events.get(1).getClass());
+        assertEquals(DisconnectEvent.class, dispatcher.events.get(2).getClass());
+        assertEquals("response events must only be correlated once", 1, dispatcher.responseEvents.size());
+        assertSame("response events must only be built once", dispatcher.responseEvents.get(0),
+                dispatcher.events.get(1));
+    }
+
+    private static Map<String, Object> event(String eventType, int sequence)
+    {
+        final Map<String, Object> frame = new HashMap<>();
+        frame.put("event", eventType);
+        frame.put("sequence", Integer.toString(sequence));
+        return frame;
+    }
+
+    private static void assertInOrder(List<Map<String, Object>> frames, int expectedSize)
+    {
+        assertEquals(expectedSize, frames.size());
+        for (int i = 0; i < expectedSize; i++)
+        {
+            assertEquals(Integer.toString(i), frames.get(i).get("sequence"));
+        }
+    }
+
+    private static class RecordingHandler implements DispatchQueue.FrameHandler
+    {
+        final List<Map<String, Object>> frames = Collections.synchronizedList(new ArrayList<Map<String, Object>>());
+        final CountDownLatch latch;
+
+        RecordingHandler(int expected)
+        {
+            this.latch = new CountDownLatch(expected);
+        }
+
+        public void handleFrame(Map<String, Object> frame)
+        {
+            frames.add(frame);
+            latch.countDown();
+        }
+    }
+
+    private static class RecordingDispatcher implements Dispatcher
+    {
+        final List<ManagerEvent> events = Collections.synchronizedList(new ArrayList<ManagerEvent>());
+        final List<ManagerResponse> responses = Collections.synchronizedList(new ArrayList<ManagerResponse>());
+        final List<ResponseEvent> responseEvents = Collections.synchronizedList(new ArrayList<ResponseEvent>());
+        final CountDownLatch latch;
+        volatile CountDownLatch blocked;
+
+        RecordingDispatcher(int expected)
+        {
+            this.latch = new CountDownLatch(expected);
+        }
+
+        public void dispatchResponse(ManagerResponse response)
+        {
+            responses.add(response);
+        }
+
+        public void dispatchEvent(ManagerEvent event)
+        {
+            if (blocked != null)
+            {
+                try
+                {
+                    blocked.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(event);
+            latch.countDown();
+        }
+
+        public void dispatchResponseEvent(ResponseEvent event)
+        {
+            responseEvents.add(event);
+        }
+    }
+}
@@ -22,14 +22,28 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.asteriskjava.manager.event.AbstractChannelEvent;
 import org.asteriskjava.manager.event.AgentCalledEvent;
+import org.asteriskjava.manager.event.AttendedTransferEvent;
 import org.asteriskjava.manager.event.CdrEvent;
+import org.asteriskjava.manager.event.DialBeginEvent;
+import org.asteriskjava.manager.event.DialEndEvent;
+import org.asteriskjava.manager.event.DialEvent;
 import org.asteriskjava.manager.event.HangupEvent;
+import org.asteriskjava.manager.event.LazyAttributes;
 import org.asteriskjava.manager.event.LogChannelEvent;
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.event.MeetMeLeaveEvent;
@@ -39,11 +53,15 @@ import org.asteriskjava.manager.event.NewChannelEvent;
 import org.asteriskjava.manager.event.NewExtenEvent;
 import org.asteriskjava.manager.event.PeersEvent;
 import org.asteriskjava.manager.event.ResponseEvent;
+import org.asteriskjava.manager.event.RtcpReceivedEvent;
 import org.asteriskjava.manager.event.RtpReceiverStatEvent;
 import org.asteriskjava.manager.event.ShutdownEvent;
 import org.asteriskjava.manager.event.StatusCompleteEvent;
 import org.asteriskjava.manager.event.T38FaxStatusEvent;
 import org.asteriskjava.manager.event.TransferEvent;
+import org.asteriskjava.manager.event.VarSetEvent;
+import org.asteriskjava.util.AstUtil;
+import org.asteriskjava.util.ReflectionUtil;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -65,6 +83,154 @@ public class EventBuilderImplTest
         eventBuilder.registerEventClass(NewChannelEvent.class);
     }
 
+    @Test
+    public void testBuildLazyEvent() throws Exception
+    {
+        eventBuilder.setLazyEvents(true);
+        properties.put("event", "VarSet");
+        properties.put("channel", "SIP/1000-00000001");
+        properties.put("uniqueid", "1234567890.1");
+        properties.put("variable", "MY_VAR");
+        properties.put("value", "my value");
+        properties.put("privilege", "dialplan,all");
+
+        final VarSetEvent event = (VarSetEvent) eventBuilder.buildEvent(this, properties);
+
+        assertNull("attributes must not be set before they are used", getField(event, VarSetEvent.class, "variable"));
+        assertEquals("SIP/1000-00000001", event.getChannel());
+        assertEquals("1234567890.1", event.getUniqueId());
+        assertNull("only the attributes used must be set", getField(event, VarSetEvent.class, "variable"));
+        assertEquals("MY_VAR", event.getVariable());
+        assertEquals("my value", event.getValue());
+        assertEquals("dialplan,all", event.getPrivilege());
+    }
+
+    @Test
+    public void testBuildLazyEventConvertsOnDemand()
+    {
+        eventBuilder.setLazyEvents(true);
+        properties.put("event", "RTCPReceived");
+        properties.put("ssrc", "0x2b5d0d3a");
+        properties.put("sentpackets", "1234");
+        properties.put("lastsr", "0.5");
+        properties.put("rtt", "0.25");
+
+        final RtcpReceivedEvent event = (RtcpReceivedEvent) eventBuilder.buildEvent(this, properties);
+
+        assertEquals(Integer.valueOf(1234), event.getSentPackets());
+        assertEquals(250L, event.getRttAsMillseconds().longValue());
+        assertTrue("toString must include pending attributes", event.toString().contains("lastsr='0.5'"));
+    }
+
+    @Test
+    public void testSerializeLazyEvent() throws Exception
+    {
+        eventBuilder.setLazyEvents(true);
+        properties.put("event", "Newexten");
+        properties.put("channel", "SIP/1000-00000001");
+        properties.put("application", "Dial");
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(eventBuilder.buildEvent(this, properties));
+        }
+
+        final NewExtenEvent event;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            event = (NewExtenEvent) in.readObject();
+        }
+        assertEquals("SIP/1000-00000001", event.getChannel());
+        assertEquals("Dial", event.getApplication());
+    }
+
+    @Test
+    public void testBuildEventWithoutLazyAttributesIsEager() throws Exception
+    {
+        eventBuilder.setLazyEvents(true);
+        properties.put("event", "Newchannel");
+        properties.put("channel", "SIP/1000-00000001");
+
+        final ManagerEvent event = eventBuilder.buildEvent(this, properties);
+
+        assertEquals("SIP/1000-00000001", getField(event, AbstractChannelEvent.class, "channel"));
+    }
+
+    @Test
+    public void testLazyGettersMaterializeTheirAttributes() throws Exception
+    {
+        final List<Class< ? extends ManagerEvent>> lazyClasses = Arrays.asList(AttendedTransferEvent.class,
+                CdrEvent.class, DialBeginEvent.class, DialEndEvent.class, DialEvent.class, NewExtenEvent.class,
+                RtcpReceivedEvent.class, VarSetEvent.class);
+        final Builder builder = new Builder();
+        final List<String> failures = new ArrayList<>();
+
+        for (Class< ? extends ManagerEvent> type : lazyClasses)
+        {
+            assertTrue(type.getSimpleName(), type.isAnnotationPresent(LazyAttributes.class));
+            for (Map.Entry<String, Method> setter : ReflectionUtil.getSetters(type).entrySet())
+            {
+                final String value = sampleValue(setter.getValue().getParameterTypes()[0]);
+                if (value == null)
+                {
+                    continue;
+                }
+
+                final Map<String, Object> attributes = new HashMap<>();
+                attributes.put(setter.getKey(), value);
+                final ManagerEvent eager = type.getConstructor(Object.class).newInstance(this);
+                builder.setAttributes(eager, new HashMap<>(attributes), null);
+                final ManagerEvent lazy = type.getConstructor(Object.class).newInstance(this);
+                builder.setAttributesLazily(lazy, attributes, null);
+
+                for (Method getter : type.getMethods())
+                {
+                    if (getter.getParameterTypes().length == 0 && getter.getName().matches("(get|is)[A-Z].*")
+                            && getter.getDeclaringClass() != Object.class
+                            && !AstUtil.isEqual(invoke(getter, eager), invoke(getter, lazy)))
+                    {
+                        failures.add(type.getSimpleName() + "." + getter.getName() + "() with " + setter.getKey());
+                    }
+                }
+            }
+        }
+        assertTrue("Getters not materializing their attribute: " + failures, failures.isEmpty());
+    }
+
+    private static String sampleValue(Class< ? > type)
+    {
+        if (type == String.class || type == Integer.class || type == Long.class || type == Double.class
+                || type == int.class || type == long.class || type == double.class)
+        {
+            return "1";
+        }
+        if (type == Boolean.class || type == boolean.class)
+        {
+            return "true";
+        }
+        return null;
+    }
+
+    private static Object invoke(Method getter, Object target) throws Exception
+    {
+        try
+        {
+            return getter.invoke(target);
+        }
+        catch (InvocationTargetException e)
+        {
+            return e.getCause().getClass();
+        }
+    }
+
+    private static Object getField(Object target, Class< ? > declaringClass, String name) throws Exception
+    {
+        final Field field = declaringClass.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
     @Test
     public void testRegisterUserEventWithA()
     {
@@ -504,6 +670,21 @@ public class EventBuilderImplTest
         assertEquals("Invalid size of variables property", 1, event.getVariables().size());
     }
 
+    @Test
+    public void testBuildEventWithChanVariables()
+    {
+        NewChannelEvent event;
+
+        properties.put("event", "Newchannel");
+        properties.put("chanvariable", Arrays.asList("AJ_TRACE_ID=AJ_ORIGINATE_1", "var2=val2"));
+        event = (NewChannelEvent) eventBuilder.buildEvent(this, properties);
+
+        assertNotNull(event);
+        assertEquals("Property chanVariables[AJ_TRACE_ID] is not set correctly", "AJ_ORIGINATE_1",
+                event.getChanVariables().get("AJ_TRACE_ID"));
+        assertEquals("Invalid size of chanVariables property", 2, event.getChanVariables().size());
+    }
+
     @Test
     public void testBuildEventWithSpace()
     {
@@ -565,4 +746,11 @@ public class EventBuilderImplTest
         assertEquals("Property events[status] is not set correctly", "OK", event.getChildEvents().get(0).getStatus());
         assertEquals("Invalid size of peers property", 1, event.getChildEvents().size());
     }
+
+    /**
+     * Gives access to the attribute handling of the builders.
+     */
+    private static final class Builder extends AbstractBuilder
+    {
+    }
 }
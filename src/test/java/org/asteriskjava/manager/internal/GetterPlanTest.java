@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.asteriskjava.manager.action.OriginateAction;
+import org.asteriskjava.manager.action.UpdateConfigAction;
+import org.junit.Test;
+
+public class GetterPlanTest
+{
+    @Test
+    public void testPlanIsCachedPerClass()
+    {
+        assertSame(GetterPlan.forClass(OriginateAction.class), GetterPlan.forClass(OriginateAction.class));
+    }
+
+    @Test
+    public void testIgnoredMembers()
+    {
+        final Map<String, GetterPlan.Getter> getters = getters(GetterPlan.forClass(OriginateAction.class));
+
+        assertTrue(getters.containsKey("channel"));
+        assertTrue(getters.containsKey("variables"));
+        assertNull(getters.get("action"));
+        assertNull(getters.get("actionid"));
+        assertNull(getters.get("class"));
+        assertNull(GetterPlan.forClass(OriginateAction.class).getAttributesGetter());
+        assertNotNull(GetterPlan.forClass(UpdateConfigAction.class).getAttributesGetter());
+    }
+
+    @Test
+    public void testHeaders()
+    {
+        final GetterPlan.Getter getter = getters(GetterPlan.forClass(OriginateAction.class)).get("variables");
+
+        assertEquals("variables: ", getter.getHeader());
+        assertArrayEquals("variables: ".getBytes(StandardCharsets.US_ASCII), getter.getHeaderBytes());
+        assertEquals("variable: ", getter.getSingularHeader());
+    }
+
+    @Test
+    public void testUserEventType()
+    {
+        assertEquals("myuser", GetterPlan.forClass(MyUserEvent.class).getUserEventType());
+        assertNull(GetterPlan.forClass(OriginateAction.class).getUserEventType());
+    }
+
+    @Test
+    public void testInvoke() throws Throwable
+    {
+        final OriginateAction action = new OriginateAction();
+        action.setChannel("SIP/1000");
+
+        assertEquals("SIP/1000", getters(GetterPlan.forClass(OriginateAction.class)).get("channel").invoke(action));
+    }
+
+    private static Map<String, GetterPlan.Getter> getters(GetterPlan plan)
+    {
+        final Map<String, GetterPlan.Getter> getters = new HashMap<>();
+        for (GetterPlan.Getter getter : plan.getGetters())
+        {
+            getters.put(getter.getName(), getter);
+        }
+        return getters;
+    }
+}
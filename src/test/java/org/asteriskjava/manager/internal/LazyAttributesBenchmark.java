@@ -0,0 +1,118 @@
+package org.asteriskjava.manager.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.asteriskjava.manager.event.NewExtenEvent;
+import org.asteriskjava.manager.event.VarSetEvent;
+
+/**
+ * Compares building VarSet and Newexten events eagerly with building them
+ * with lazy attributes when a listener only reads the channel, the typical
+ * case for listeners that filter on it.
+ * <p>
+ * The attribute maps are filled the way the reader does: eagerly built
+ * events reuse a single map, events with lazy attributes keep their map so
+ * each one gets a new map.
+ * <p>
+ * This is not a unit test, run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.asteriskjava.manager.internal.LazyAttributesBenchmark</code>.
+ */
+public class LazyAttributesBenchmark
+{
+    private static final int EVENTS = 500000;
+    private static final int ROUNDS = 5;
+
+    private static final String[] VAR_SET = {"event", "VarSet", "privilege", "dialplan,all", "channel",
+            "SIP/1000-00000001", "variable", "RTPAUDIOQOS", "value",
+            "ssrc=1;themssrc=2;lp=0;rxjitter=0.000000;rxcount=100", "uniqueid", "1400000000.1"};
+
+    private static final String[] NEW_EXTEN = {"event", "Newexten", "privilege", "dialplan,all", "channel",
+            "SIP/1000-00000001", "channelstate", "6", "channelstatedesc", "Up", "calleridnum", "1000",
+            "calleridname", "Alice", "connectedlinenum", "<unknown>", "connectedlinename", "<unknown>", "language",
+            "en", "accountcode", "", "context", "default", "exten", "2000", "priority", "1", "uniqueid",
+            "1400000000.1", "linkedid", "1400000000.1", "extension", "2000", "application", "Dial", "appdata",
+            "SIP/2000,30"};
+
+    public static void main(String[] args)
+    {
+        final EventBuilderImpl eager = new EventBuilderImpl();
+        final EventBuilderImpl lazy = new EventBuilderImpl();
+        lazy.setLazyEvents(true);
+
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            final boolean print = round == ROUNDS - 1;
+            if (print)
+            {
+                System.out.println("event     eager ns/event  eager B/event  lazy ns/event  lazy B/event");
+            }
+            run("VarSet", VAR_SET, eager, lazy, print);
+            run("Newexten", NEW_EXTEN, eager, lazy, print);
+        }
+    }
+
+    private static void run(String name, String[] headers, EventBuilderImpl eager, EventBuilderImpl lazy,
+            boolean print)
+    {
+        final Map<String, Object> buffer = new HashMap<>();
+        int checksum = 0;
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++)
+        {
+            fill(buffer, headers);
+            checksum += readChannel(eager.buildEvent(LazyAttributesBenchmark.class, buffer));
+            buffer.clear();
+        }
+        final long eagerTime = System.nanoTime() - start;
+        final long eagerBytes = allocatedBytes() - bytes;
+
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++)
+        {
+            final Map<String, Object> attributes = new HashMap<>();
+            fill(attributes, headers);
+            checksum += readChannel(lazy.buildEvent(LazyAttributesBenchmark.class, attributes));
+        }
+        final long lazyTime = System.nanoTime() - start;
+        final long lazyBytes = allocatedBytes() - bytes;
+
+        if (print)
+        {
+            System.out.printf("%-8s  %14.1f  %13d  %13.1f  %12d%n", name, (double) eagerTime / EVENTS,
+                    eagerBytes / EVENTS, (double) lazyTime / EVENTS, lazyBytes / EVENTS);
+        }
+        if (checksum == 42)
+        {
+            System.out.println();
+        }
+    }
+
+    private static void fill(Map<String, Object> attributes, String[] headers)
+    {
+        for (int i = 0; i < headers.length; i += 2)
+        {
+            attributes.put(headers[i], headers[i + 1]);
+        }
+    }
+
+    private static int readChannel(Object event)
+    {
+        if (event instanceof VarSetEvent)
+        {
+            return ((VarSetEvent) event).getChannel().length();
+        }
+        return ((NewExtenEvent) event).getChannel().length();
+    }
+
+    private static long allocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -22,25 +22,44 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.asteriskjava.AsteriskVersion;
+import org.asteriskjava.manager.ActionFuture;
+import org.asteriskjava.manager.ActionFutureCallback;
 import org.asteriskjava.manager.AuthenticationFailedException;
+import org.asteriskjava.manager.EventTimeoutException;
+import org.asteriskjava.manager.FilteredManagerEventListener;
 import org.asteriskjava.manager.ManagerConnectionState;
 import org.asteriskjava.manager.ManagerEventListener;
+import org.asteriskjava.manager.ResponseEventStream;
+import org.asteriskjava.manager.ResponseEvents;
 import org.asteriskjava.manager.TimeoutException;
 import org.asteriskjava.manager.action.CommandAction;
+import org.asteriskjava.manager.action.FilterAction;
+import org.asteriskjava.manager.action.ManagerAction;
 import org.asteriskjava.manager.action.PingAction;
 import org.asteriskjava.manager.action.StatusAction;
 import org.asteriskjava.manager.event.ConnectEvent;
 import org.asteriskjava.manager.event.DisconnectEvent;
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.manager.event.StatusCompleteEvent;
+import org.asteriskjava.manager.event.StatusEvent;
 import org.asteriskjava.manager.response.ManagerResponse;
 import org.asteriskjava.util.SocketConnectionFacade;
 import org.junit.Before;
@@ -434,6 +453,349 @@ public class ManagerConnectionImplTest
         assertEquals("other actions not sent 1 time", 1, mockWriter.otherActionsSent);
     }
 
+    @Test
+    public void testSendActionAsync() throws Exception
+    {
+        StatusAction statusAction;
+        ActionFuture<ManagerResponse> future;
+
+        statusAction = new StatusAction();
+        statusAction.setActionId("123");
+
+        // fake connect
+        mc.connect();
+        mc.setState(ManagerConnectionState.CONNECTED);
+        future = mc.sendActionAsync(statusAction);
+
+        ManagerResponse response = future.get(5, TimeUnit.SECONDS);
+        assertEquals("incorrect actionId in response", "123", response.getActionId());
+        assertEquals("incorrect response", "Success", response.getResponse());
+        assertEquals("other actions not sent 1 time", 1, mockWriter.otherActionsSent);
+    }
+
+    @Test
+    public void testSendActionAsyncTimeout() throws Exception
+    {
+        StatusAction statusAction;
+        ActionFuture<ManagerResponse> future;
+
+        statusAction = new StatusAction();
+
+        // fake connect
+        mc.connect();
+        mc.setState(ManagerConnectionState.CONNECTED);
+
+        // provoke timeout
+        mockWriter.setSendResponse(false);
+        future = mc.sendActionAsync(statusAction, 200);
+        try
+        {
+            future.get(5, TimeUnit.SECONDS);
+            fail("No TimeoutException thrown");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue("cause must be a TimeoutException", e.getCause() instanceof TimeoutException);
+        }
+
+        // a late response is ignored
+        ManagerResponse response = new ManagerResponse();
+        response.setActionId(ManagerUtil.addInternalActionId(null, mockWriter.lastInternalActionId));
+        response.setResponse("Success");
+        mc.dispatchResponse(response);
+        assertTrue(future.isDone());
+    }
+
+    @Test
+    public void testSendActions() throws Exception
+    {
+        final List<ManagerAction> actions = new ArrayList<>();
+        List<ActionFuture<ManagerResponse>> futures;
+
+        for (int i = 0; i < 3; i++)
+        {
+            final StatusAction statusAction = new StatusAction();
+            statusAction.setActionId("id" + i);
+            actions.add(statusAction);
+        }
+
+        // fake connect
+        mc.connect();
+        mc.setState(ManagerConnectionState.CONNECTED);
+        futures = mc.sendActions(actions);
+
+        assertEquals(3, futures.size());
+        for (int i = 0; i < 3; i++)
+        {
+            assertEquals("id" + i, futures.get(i).get(5, TimeUnit.SECONDS).getActionId());
+        }
+        assertEquals("other actions not sent 3 times", 3, mockWriter.otherActionsSent);
+    }
+
+    @Test
+    public void testRequiredEvents() throws Exception
+    {
+        final FilteredManagerEventListener newChannelListener = new FilteredManagerEventListener()
+        {
+            public void onManagerEvent(ManagerEvent event)
+            {
+            }
+
+            public Set<Class< ? extends ManagerEvent>> requiredEvents()
+            {
+                return Collections.<Class< ? extends ManagerEvent>> singleton(NewChannelEvent.class);
+            }
+        };
+        final ManagerEventListener plainListener = new ManagerEventListener()
+        {
+            public void onManagerEvent(ManagerEvent event)
+            {
+            }
+        };
+
+        mc.addEventListener(newChannelListener);
+
+        // fake connect
+        mc.connect();
+        assertEquals(Collections.singleton(NewChannelEvent.class), mockReader.requiredEvents);
+
+        mc.addEventListener(plainListener);
+        assertNull("a plain listener requires all events", mockReader.requiredEvents);
+
+        mc.removeEventListener(plainListener);
+        assertEquals(Collections.singleton(NewChannelEvent.class), mockReader.requiredEvents);
+
+        mc.removeEventListener(newChannelListener);
+        assertTrue(mockReader.requiredEvents.isEmpty());
+    }
+
+    @Test
+    public void testFireEventNotifiesOnlyRequiringListeners()
+    {
+        final List<ManagerEvent> newChannelEvents = new ArrayList<>();
+        final List<ManagerEvent> allEvents = new ArrayList<>();
+
+        mc.addEventListener(new FilteredManagerEventListener()
+        {
+            public void onManagerEvent(ManagerEvent event)
+            {
+                newChannelEvents.add(event);
+            }
+
+            public Set<Class< ? extends ManagerEvent>> requiredEvents()
+            {
+                return Collections.<Class< ? extends ManagerEvent>> singleton(NewChannelEvent.class);
+            }
+        });
+        mc.addEventListener(new ManagerEventListener()
+        {
+            public void onManagerEvent(ManagerEvent event)
+            {
+                allEvents.add(event);
+                // listeners can be changed while events are dispatched
+                mc.removeEventListener(this);
+            }
+        });
+
+        mc.dispatchEvent(new StatusEvent(this));
+        mc.dispatchEvent(new NewChannelEvent(this));
+
+        assertEquals(1, newChannelEvents.size());
+        assertEquals(NewChannelEvent.class, newChannelEvents.get(0).getClass());
+        assertEquals(1, allEvents.size());
+        assertEquals(StatusEvent.class, allEvents.get(0).getClass());
+    }
+
+    @Test
+    public void testLoginInstallsEventFilters() throws Exception
+    {
+        replay(mockSocket);
+
+        mockReader.requiredEventTypes = new HashSet<>(Arrays.asList("newchannel", "usereventfoo"));
+        mc.version = AsteriskVersion.ASTERISK_13;
+        mc.setUsername("username");
+        mc.setPassword("password");
+        mc.setAutoEventFilters(true);
+        mc.setDefaultResponseTimeout(5000);
+        mc.login();
+
+        assertEquals("filter actions not sent 2 times", 2, mockWriter.otherActionsSent);
+        assertEquals("ActionID: ", ((FilterAction) mockWriter.otherActions.get(0)).getFilter());
+        assertEquals("Event: ([Nn][Ee][Ww][Cc][Hh][Aa][Nn][Nn][Ee][Ll]|[Uu][Ss][Ee][Rr][Ee][Vv][Ee][Nn][Tt])[[:space:]]",
+                ((FilterAction) mockWriter.otherActions.get(1)).getFilter());
+
+        // only the missing event type is added
+        mockReader.requiredEventTypes.add("hangup");
+        mc.refreshRequiredEvents();
+        assertEquals(3, mockWriter.otherActionsSent);
+        assertEquals("Event: ([Hh][Aa][Nn][Gg][Uu][Pp])[[:space:]]", ((FilterAction) mockWriter.otherActions.get(2)).getFilter());
+
+        // all events are required again
+        mockReader.requiredEventTypes = null;
+        mc.refreshRequiredEvents();
+        mc.refreshRequiredEvents();
+        assertEquals(4, mockWriter.otherActionsSent);
+        assertEquals("Event: ", ((FilterAction) mockWriter.otherActions.get(3)).getFilter());
+    }
+
+    @Test
+    public void testLoginDoesNotInstallEventFiltersBeforeAsterisk13() throws Exception
+    {
+        replay(mockSocket);
+
+        mockReader.requiredEventTypes = new HashSet<>(Arrays.asList("newchannel"));
+        mc.version = AsteriskVersion.ASTERISK_11;
+        mc.setUsername("username");
+        mc.setPassword("password");
+        mc.setAutoEventFilters(true);
+        mc.setDefaultResponseTimeout(5000);
+        mc.login();
+
+        assertEquals("filter actions sent", 0, mockWriter.otherActionsSent);
+    }
+
+    @Test
+    public void testCreateEventFilterActionsSplitsLongFilters()
+    {
+        final List<String> eventTypes = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+        {
+            eventTypes.add("eventtype" + i);
+        }
+
+        final List<FilterAction> filterActions = ManagerConnectionImpl.createEventFilterActions(eventTypes);
+
+        assertTrue("not split", filterActions.size() > 1);
+        for (FilterAction filterAction : filterActions)
+        {
+            assertTrue("filter too long", filterAction.getFilter().length() <= 512);
+            assertTrue(filterAction.getFilter().startsWith("Event: ("));
+            assertTrue(filterAction.getFilter().endsWith(")[[:space:]]"));
+        }
+    }
+
+    @Test
+    public void testSendEventGeneratingActionAsync() throws Exception
+    {
+        StatusAction statusAction;
+        ActionFuture<ResponseEvents> future;
+        final List<ResponseEvents> results = new ArrayList<>();
+        final CountDownLatch callbackCalled = new CountDownLatch(1);
+
+        statusAction = new StatusAction();
+
+        // fake connect
+        mc.connect();
+        mc.setState(ManagerConnectionState.CONNECTED);
+        future = mc.sendEventGeneratingActionAsync(statusAction);
+        future.addCallback(new ActionFutureCallback<ResponseEvents>()
+        {
+            public void onSuccess(ResponseEvents result)
+            {
+                results.add(result);
+                callbackCalled.countDown();
+            }
+
+            public void onFailure(Throwable cause)
+            {
+            }
+        });
+
+        StatusEvent statusEvent = new StatusEvent(this);
+        statusEvent.setInternalActionId(mockWriter.lastInternalActionId);
+        mc.dispatchEvent(statusEvent);
+        assertFalse("must wait for the action complete event", future.isDone());
+
+        StatusCompleteEvent statusCompleteEvent = new StatusCompleteEvent(this);
+        statusCompleteEvent.setInternalActionId(mockWriter.lastInternalActionId);
+        mc.dispatchEvent(statusCompleteEvent);
+
+        ResponseEvents responseEvents = future.get(5, TimeUnit.SECONDS);
+        assertEquals("Success", responseEvents.getResponse().getResponse());
+        assertEquals(2, responseEvents.getEvents().size());
+        assertTrue("callback not called", callbackCalled.await(5, TimeUnit.SECONDS));
+        assertEquals(1, results.size());
+    }
+
+    @Test
+    public void testStreamEventGeneratingAction() throws Exception
+    {
+        mc.connect();
+        mc.setState(ManagerConnectionState.CONNECTED);
+        final ResponseEventStream stream = mc.streamEventGeneratingAction(new StatusAction());
+
+        final StatusEvent statusEvent = new StatusEvent(this);
+        statusEvent.setInternalActionId(mockWriter.lastInternalActionId);
+        mc.dispatchEvent(statusEvent);
+        assertSame("delivered before the action complete event", statusEvent, stream.next());
+
+        final StatusCompleteEvent statusCompleteEvent = new StatusCompleteEvent(this);
+        statusCompleteEvent.setInternalActionId(mockWriter.lastInternalActionId);
+        mc.dispatchEvent(statusCompleteEvent);
+        assertSame(statusCompleteEvent, stream.next());
+        assertNull(stream.next());
+    }
+
+    @Test
+    public void testStreamEventGeneratingActionBlocksReaderWhenFull() throws Exception
+    {
+        mc.connect();
+        mc.setState(ManagerConnectionState.CONNECTED);
+        final ResponseEventStream stream = mc.streamEventGeneratingAction(new StatusAction(), 1, 5000);
+        final String internalActionId = mockWriter.lastInternalActionId;
+
+        final Thread reader = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                for (int i = 0; i < 3; i++)
+                {
+                    final StatusEvent statusEvent = new StatusEvent(this);
+                    statusEvent.setInternalActionId(internalActionId);
+                    statusEvent.setUniqueId("1." + i);
+                    mc.dispatchEvent(statusEvent);
+                }
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+
+        reader.join(200);
+        assertTrue("reader must wait for the buffer to have space", reader.isAlive());
+        for (int i = 0; i < 3; i++)
+        {
+            assertEquals("1." + i, ((StatusEvent) stream.next()).getUniqueId());
+        }
+        reader.join(5000);
+        assertFalse(reader.isAlive());
+        stream.close();
+    }
+
+    @Test
+    public void testStreamEventGeneratingActionNotConsumed() throws Exception
+    {
+        mc.connect();
+        mc.setState(ManagerConnectionState.CONNECTED);
+        final ResponseEventStream stream = mc.streamEventGeneratingAction(new StatusAction(), 1, 100);
+
+        for (int i = 0; i < 2; i++)
+        {
+            final StatusEvent statusEvent = new StatusEvent(this);
+            statusEvent.setInternalActionId(mockWriter.lastInternalActionId);
+            mc.dispatchEvent(statusEvent);
+        }
+
+        try
+        {
+            stream.next();
+            fail("EventTimeoutException expected");
+        }
+        catch (EventTimeoutException e)
+        {
+            // expected
+        }
+    }
+
     @Test
     public void testDispatchResponseUnexpectedResponse()
     {
@@ -651,6 +1013,8 @@ public class ManagerConnectionImplTest
 
         public int loginCalls = 0;
 
+        AsteriskVersion version;
+
         public MockedManagerConnectionImpl(ManagerReader mockReader, ManagerWriter mockWriter,
                 SocketConnectionFacade mockSocket)
         {
@@ -730,7 +1094,7 @@ public class ManagerConnectionImplTest
         @Override
         protected AsteriskVersion determineVersion()
         {
-            return null;
+            return version;
         }
     }
 }
@@ -26,15 +26,19 @@ import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
 import org.asteriskjava.manager.event.AgentCalledEvent;
 import org.asteriskjava.manager.event.DisconnectEvent;
 import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.MeetMeEndEvent;
 import org.asteriskjava.manager.event.ProtocolIdentifierReceivedEvent;
+import org.asteriskjava.manager.event.ResponseEvent;
 import org.asteriskjava.manager.event.RtcpReceivedEvent;
 import org.asteriskjava.manager.event.StatusCompleteEvent;
+import org.asteriskjava.manager.event.VarSetEvent;
 import org.asteriskjava.manager.response.CommandResponse;
 import org.asteriskjava.manager.response.ManagerResponse;
 import org.asteriskjava.util.DateUtil;
@@ -136,6 +140,105 @@ public class ManagerReaderImplTest
                 dispatcher.dispatchedEvents.get(1).getClass());
     }
 
+    @Test
+    public void testRunSkippingEventsNotRequired() throws Exception
+    {
+        expect(socketConnectionFacade.readLine()).andReturn("Event: VarSet");
+        expect(socketConnectionFacade.readLine()).andReturn("Variable: foo");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn("Event: StatusComplete");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn("Event: VarSet");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn(null);
+
+        replay(socketConnectionFacade);
+
+        managerReader.setRequiredEvents(Collections.<Class< ? extends ManagerEvent>> singleton(ResponseEvent.class));
+        managerReader.setSocket(socketConnectionFacade);
+        managerReader.run();
+
+        verify(socketConnectionFacade);
+
+        assertEquals("not exactly two events dispatched", 2, dispatcher.dispatchedEvents.size());
+
+        assertEquals("first event must be a StatusCompleteEvent", StatusCompleteEvent.class,
+                dispatcher.dispatchedEvents.get(0).getClass());
+
+        assertEquals("second event must be a DisconnectEvent", DisconnectEvent.class,
+                dispatcher.dispatchedEvents.get(1).getClass());
+
+        assertEquals(Long.valueOf(2L), managerReader.getSkippedEventCounts().get("varset"));
+        assertEquals(1, managerReader.getSkippedEventCounts().size());
+    }
+
+    @Test
+    public void testRunReceivingLazyEvents() throws Exception
+    {
+        expect(socketConnectionFacade.readLine()).andReturn("Event: VarSet");
+        expect(socketConnectionFacade.readLine()).andReturn("Variable: foo");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn("Event: VarSet");
+        expect(socketConnectionFacade.readLine()).andReturn("Variable: bar");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn(null);
+
+        replay(socketConnectionFacade);
+
+        managerReader.setLazyEvents(true);
+        managerReader.setSocket(socketConnectionFacade);
+        managerReader.run();
+
+        verify(socketConnectionFacade);
+
+        assertEquals("not exactly three events dispatched", 3, dispatcher.dispatchedEvents.size());
+        assertEquals("foo", ((VarSetEvent) dispatcher.dispatchedEvents.get(0)).getVariable());
+        assertEquals("bar", ((VarSetEvent) dispatcher.dispatchedEvents.get(1)).getVariable());
+    }
+
+    @Test
+    public void testRunNotSkippingResponseEvents() throws Exception
+    {
+        expect(socketConnectionFacade.readLine()).andReturn("Event: StatusComplete");
+        expect(socketConnectionFacade.readLine()).andReturn("ActionID: 123_42#abc");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn(null);
+
+        replay(socketConnectionFacade);
+
+        managerReader.setRequiredEvents(Collections.<Class< ? extends ManagerEvent>> emptySet());
+        managerReader.setSocket(socketConnectionFacade);
+        managerReader.run();
+
+        verify(socketConnectionFacade);
+
+        assertEquals("not exactly two events dispatched", 2, dispatcher.dispatchedEvents.size());
+        assertEquals("first event must be a StatusCompleteEvent", StatusCompleteEvent.class,
+                dispatcher.dispatchedEvents.get(0).getClass());
+        assertTrue(managerReader.getSkippedEventCounts().isEmpty());
+    }
+
+    @Test
+    public void testRunNotSkippingEventsRequiredForLegacyEvents() throws Exception
+    {
+        expect(socketConnectionFacade.readLine()).andReturn("Event: ConfbridgeEnd");
+        expect(socketConnectionFacade.readLine()).andReturn("Conference: 1");
+        expect(socketConnectionFacade.readLine()).andReturn("");
+        expect(socketConnectionFacade.readLine()).andReturn(null);
+
+        replay(socketConnectionFacade);
+
+        managerReader.setRequiredEvents(Collections.<Class< ? extends ManagerEvent>> singleton(MeetMeEndEvent.class));
+        managerReader.setSocket(socketConnectionFacade);
+        managerReader.run();
+
+        verify(socketConnectionFacade);
+
+        assertEquals("not exactly three events dispatched", 3, dispatcher.dispatchedEvents.size());
+        assertEquals("second event must be a MeetMeEndEvent", MeetMeEndEvent.class,
+                dispatcher.dispatchedEvents.get(1).getClass());
+    }
+
     @Test
     public void testRunReceivingEventWithMapProperty() throws Exception
     {
@@ -372,5 +475,9 @@ public class ManagerReaderImplTest
         {
             dispatchedEvents.add(event);
         }
+
+        public void dispatchResponseEvent(ResponseEvent event)
+        {
+        }
     }
 }
@@ -17,6 +17,9 @@
 package org.asteriskjava.manager.internal;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.response.ManagerResponse;
@@ -27,6 +30,8 @@ public class ManagerReaderMock implements ManagerReader
     public int setSocketCalls = 0;
     public int dieCalls = 0;
     public int runCalls = 0;
+    public Set<Class< ? extends ManagerEvent>> requiredEvents;
+    public Set<String> requiredEventTypes;
 
     public ManagerReaderMock()
     {
@@ -43,6 +48,31 @@ public class ManagerReaderMock implements ManagerReader
         setSocketCalls++;
     }
 
+    public void setDispatchQueue(DispatchQueue dispatchQueue)
+    {
+
+    }
+
+    public void setLazyEvents(boolean lazyEvents)
+    {
+
+    }
+
+    public void setRequiredEvents(Set<Class< ? extends ManagerEvent>> requiredEvents)
+    {
+        this.requiredEvents = requiredEvents;
+    }
+
+    public Map<String, Long> getSkippedEventCounts()
+    {
+        return Collections.emptyMap();
+    }
+
+    public Set<String> getRequiredEventTypes()
+    {
+        return requiredEventTypes;
+    }
+
     public void expectResponseClass(String actionId, Class< ? extends ManagerResponse> responseClass)
     {
 
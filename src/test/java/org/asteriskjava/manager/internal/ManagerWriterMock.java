@@ -17,6 +17,8 @@
 package org.asteriskjava.manager.internal;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.asteriskjava.AsteriskVersion;
 import org.asteriskjava.manager.action.ChallengeAction;
@@ -47,6 +49,8 @@ public class ManagerWriterMock implements ManagerWriter
     public int loginActionsSent = 0;
     public int logoffActionsSent = 0;
     public int otherActionsSent = 0;
+    public final List<ManagerAction> otherActions = new ArrayList<>();
+    public String lastInternalActionId;
 
     public ManagerWriterMock()
     {
@@ -108,8 +112,18 @@ public class ManagerWriterMock implements ManagerWriter
         }
     }
 
+    public void sendActions(List< ? extends ManagerAction> actions, List<String> internalActionIds)
+            throws IOException
+    {
+        for (int i = 0; i < actions.size(); i++)
+        {
+            sendAction(actions.get(i), internalActionIds.get(i));
+        }
+    }
+
     public void sendAction(ManagerAction action, String internalActionId) throws IOException
     {
+        lastInternalActionId = internalActionId;
         if (action instanceof ChallengeAction)
         {
             ChallengeAction challengeAction = (ChallengeAction) action;
@@ -191,6 +205,7 @@ public class ManagerWriterMock implements ManagerWriter
         else
         {
             otherActionsSent++;
+            otherActions.add(action);
 
             if (sendResponse)
             {
@@ -0,0 +1,260 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.asteriskjava.manager.event.AgentCalledEvent;
+import org.asteriskjava.manager.event.DisconnectEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.manager.event.ProtocolIdentifierReceivedEvent;
+import org.asteriskjava.manager.event.ResponseEvent;
+import org.asteriskjava.manager.event.StatusCompleteEvent;
+import org.asteriskjava.manager.response.CommandResponse;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.asteriskjava.util.DateUtil;
+import org.asteriskjava.util.SocketConnectionFacade;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NioManagerReaderImplTest
+{
+    private Date now;
+    private MockedDispatcher dispatcher;
+    private SocketConnectionFacade socketConnectionFacade;
+    private ManagerReader managerReader;
+
+    @Before
+    public void setUp()
+    {
+        now = new Date();
+        DateUtil.overrideCurrentDate(now);
+        dispatcher = new MockedDispatcher();
+        managerReader = new NioManagerReaderImpl(dispatcher, this, StandardCharsets.UTF_8);
+
+        socketConnectionFacade = createMock(SocketConnectionFacade.class);
+    }
+
+    @After
+    public void tearDown()
+    {
+        DateUtil.overrideCurrentDate(null);
+    }
+
+    @Test
+    public void testRunReceivingProtocolIdentifierAndEvent() throws Exception
+    {
+        run(7, "Asterisk Call Manager/1.0\r\n", "Event: StatusComplete\r\n\r\n");
+
+        assertEquals("not exactly three events dispatched", 3, dispatcher.dispatchedEvents.size());
+
+        assertEquals("first event must be a ProtocolIdentifierReceivedEvent", ProtocolIdentifierReceivedEvent.class,
+                dispatcher.dispatchedEvents.get(0).getClass());
+        assertEquals("ProtocolIdentifierReceivedEvent contains incorrect protocol identifier", "Asterisk Call Manager/1.0",
+                ((ProtocolIdentifierReceivedEvent) dispatcher.dispatchedEvents.get(0)).getProtocolIdentifier());
+
+        assertEquals("second event must be a StatusCompleteEvent", StatusCompleteEvent.class,
+                dispatcher.dispatchedEvents.get(1).getClass());
+        assertEquals("StatusCompleteEvent contains incorrect dateReceived", now,
+                dispatcher.dispatchedEvents.get(1).getDateReceived());
+
+        assertEquals("third event must be a DisconnectEvent", DisconnectEvent.class,
+                dispatcher.dispatchedEvents.get(2).getClass());
+    }
+
+    @Test
+    public void testRunReceivingEventsSplitAcrossReads() throws Exception
+    {
+        run(3, "Event: Newchannel\r\nChannel: SIP/1000-00000001\r\nUniqueid: 1234.5\r\n\r\n",
+                "Event: Newchannel\r\nChannel: SIP/1001-00000002\r\nUniqueid: 1234.6\r\n\r\n");
+
+        assertEquals("not exactly three events dispatched", 3, dispatcher.dispatchedEvents.size());
+
+        NewChannelEvent event = (NewChannelEvent) dispatcher.dispatchedEvents.get(0);
+        assertEquals("SIP/1000-00000001", event.getChannel());
+        assertEquals("1234.5", event.getUniqueId());
+
+        event = (NewChannelEvent) dispatcher.dispatchedEvents.get(1);
+        assertEquals("SIP/1001-00000002", event.getChannel());
+        assertEquals("1234.6", event.getUniqueId());
+    }
+
+    @Test
+    public void testRunReceivingEventWithMapProperty() throws Exception
+    {
+        run(1024, "Event: AgentCalled\r\nVariable: var1=val1\r\nVariable: var2=val2\r\n\r\n");
+
+        assertEquals("not exactly two events dispatched", 2, dispatcher.dispatchedEvents.size());
+
+        AgentCalledEvent event = (AgentCalledEvent) dispatcher.dispatchedEvents.get(0);
+        assertEquals("Property variables[var1] is not set correctly", "val1", event.getVariables().get("var1"));
+        assertEquals("Property variables[var2] is not set correctly", "val2", event.getVariables().get("var2"));
+        assertEquals("Invalid size of variables property", 2, event.getVariables().size());
+    }
+
+    @Test
+    public void testRunReceivingNonAsciiValue() throws Exception
+    {
+        run(5, "Event: Newchannel\r\nCallerIDName: Jürgen Müller\r\n\r\n");
+
+        assertEquals("not exactly two events dispatched", 2, dispatcher.dispatchedEvents.size());
+        assertEquals("Jürgen Müller", ((NewChannelEvent) dispatcher.dispatchedEvents.get(0)).getCallerIdName());
+    }
+
+    @Test
+    public void testRunReceivingFrameLargerThanBuffer() throws Exception
+    {
+        final StringBuilder sb = new StringBuilder("Event: AgentCalled\r\n");
+        for (int i = 0; i < 10000; i++)
+        {
+            sb.append("Variable: var").append(i).append("=val").append(i).append("\r\n");
+        }
+        sb.append("\r\n");
+
+        run(4096, sb.toString());
+
+        assertEquals("not exactly two events dispatched", 2, dispatcher.dispatchedEvents.size());
+        AgentCalledEvent event = (AgentCalledEvent) dispatcher.dispatchedEvents.get(0);
+        assertEquals("Invalid size of variables property", 10000, event.getVariables().size());
+        assertEquals("val9999", event.getVariables().get("var9999"));
+    }
+
+    @Test
+    public void testWorkaroundForAsteriskBug13319() throws Exception
+    {
+        run(1024, "Event: AgentCalled\r\nFrom 1: abc\r\n\r\n");
+
+        assertEquals("not exactly two events dispatched", 2, dispatcher.dispatchedEvents.size());
+        assertEquals("first event must be a AgentCalledEvent", AgentCalledEvent.class,
+                dispatcher.dispatchedEvents.get(0).getClass());
+    }
+
+    @Test
+    public void testRunReceivingCommandResponse() throws Exception
+    {
+        List<String> result = new ArrayList<String>();
+        result.add("Line1");
+        result.add("Line2");
+
+        managerReader.expectResponseClass("678", CommandResponse.class);
+        run(2, "Response: Follows\r\nActionID: 678#12345\r\nLine1\nLine2\n--END COMMAND--\r\n\r\n");
+
+        assertEquals("not exactly one response dispatched", 1, dispatcher.dispatchedResponses.size());
+
+        assertEquals("first response must be a CommandResponse", CommandResponse.class,
+                dispatcher.dispatchedResponses.get(0).getClass());
+        assertEquals("CommandResponse contains incorrect response", "Follows",
+                dispatcher.dispatchedResponses.get(0).getResponse());
+        assertEquals("CommandResponse contains incorrect actionId", "678#12345",
+                dispatcher.dispatchedResponses.get(0).getActionId());
+        assertEquals("CommandResponse contains incorrect result", result,
+                ((CommandResponse) dispatcher.dispatchedResponses.get(0)).getResult());
+    }
+
+    private void run(int chunkSize, String... data) throws IOException
+    {
+        expect(socketConnectionFacade.getReadableByteChannel()).andReturn(new ChunkedChannel(chunkSize, data));
+        replay(socketConnectionFacade);
+
+        managerReader.setSocket(socketConnectionFacade);
+        managerReader.run();
+
+        verify(socketConnectionFacade);
+    }
+
+    /**
+     * Returns the given data in chunks of at most chunkSize bytes.
+     */
+    private static class ChunkedChannel implements ReadableByteChannel
+    {
+        private final ByteBuffer data;
+        private final int chunkSize;
+
+        ChunkedChannel(int chunkSize, String... data)
+        {
+            StringBuilder sb = new StringBuilder();
+            for (String s : data)
+            {
+                sb.append(s);
+            }
+            this.data = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            this.chunkSize = chunkSize;
+        }
+
+        public int read(ByteBuffer dst)
+        {
+            if (!data.hasRemaining())
+            {
+                return -1;
+            }
+            int n = Math.min(chunkSize, Math.min(dst.remaining(), data.remaining()));
+            byte[] chunk = new byte[n];
+            data.get(chunk);
+            dst.put(chunk);
+            return n;
+        }
+
+        public boolean isOpen()
+        {
+            return true;
+        }
+
+        public void close()
+        {
+        }
+    }
+
+    private class MockedDispatcher implements Dispatcher
+    {
+        List<ManagerEvent> dispatchedEvents;
+        List<ManagerResponse> dispatchedResponses;
+
+        public MockedDispatcher()
+        {
+            this.dispatchedEvents = new ArrayList<ManagerEvent>();
+            this.dispatchedResponses = new ArrayList<ManagerResponse>();
+        }
+
+        public void dispatchResponse(ManagerResponse response)
+        {
+            dispatchedResponses.add(response);
+        }
+
+        public void dispatchEvent(ManagerEvent event)
+        {
+            dispatchedEvents.add(event);
+        }
+
+        public void dispatchResponseEvent(ResponseEvent event)
+        {
+        }
+    }
+}
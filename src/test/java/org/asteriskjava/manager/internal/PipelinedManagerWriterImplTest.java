@@ -0,0 +1,265 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.asteriskjava.manager.action.ManagerAction;
+import org.asteriskjava.manager.action.SetVarAction;
+import org.asteriskjava.util.SocketConnectionFacade;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PipelinedManagerWriterImplTest
+{
+    private PipelinedManagerWriterImpl writer;
+    private RecordingSocket socket;
+
+    @Before
+    public void setUp()
+    {
+        writer = new PipelinedManagerWriterImpl(StandardCharsets.UTF_8);
+        socket = new RecordingSocket();
+        writer.setSocket(socket);
+    }
+
+    @After
+    public void tearDown()
+    {
+        writer.stop();
+    }
+
+    @Test
+    public void testSendActionsIsWrittenAsOneBatch() throws Exception
+    {
+        final List<ManagerAction> actions = new ArrayList<>();
+        final List<String> internalActionIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            actions.add(new SetVarAction("var" + i, "valueä" + i));
+            internalActionIds.add("id" + i);
+        }
+
+        writer.sendActions(actions, internalActionIds);
+        assertEquals(100, writer.getQueueSize());
+
+        socket.expectWrites(1);
+        writer.start("PipelinedManagerWriterImplTest");
+
+        assertTrue("batch not written", socket.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, socket.writes.size());
+
+        final String written = socket.writes.get(0);
+        int previous = -1;
+        for (int i = 0; i < 100; i++)
+        {
+            final int index = written.indexOf("variable: var" + i + "\r\nvalue: valueä" + i + "\r\n");
+            assertTrue("action " + i + " not written in order", index > previous);
+            previous = index;
+        }
+        assertEquals(0, writer.getQueueSize());
+    }
+
+    @Test
+    public void testSendActionFromManyThreads() throws Exception
+    {
+        final int threads = 4;
+        final int actionsPerThread = 500;
+        final List<Thread> senders = new ArrayList<>();
+
+        writer.start("PipelinedManagerWriterImplTest");
+        for (int t = 0; t < threads; t++)
+        {
+            final int thread = t;
+            senders.add(new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    for (int i = 0; i < actionsPerThread; i++)
+                    {
+                        try
+                        {
+                            writer.sendAction(new SetVarAction("var", thread + "-" + i), "id");
+                        }
+                        catch (IOException e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread sender : senders)
+        {
+            sender.start();
+        }
+        for (Thread sender : senders)
+        {
+            sender.join();
+        }
+
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (socket.countActions() < threads * actionsPerThread && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(threads * actionsPerThread, socket.countActions());
+        assertTrue("actions not batched", socket.writes.size() < threads * actionsPerThread);
+    }
+
+    @Test
+    public void testStartWaitsForStoppedWriter() throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        socket.blockWrites(release);
+        writer.start("PipelinedManagerWriterImplTest");
+        writer.sendAction(new SetVarAction("var", "value"), "id");
+        assertTrue("writer not writing", socket.writing.await(5, TimeUnit.SECONDS));
+
+        writer.stop();
+        final Thread starter = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                writer.start("PipelinedManagerWriterImplTest");
+            }
+        });
+        starter.start();
+        starter.join(200);
+        assertTrue("start() must wait for the stopped writer thread", starter.isAlive());
+
+        release.countDown();
+        starter.join(5000);
+        assertFalse(starter.isAlive());
+    }
+
+    private static class RecordingSocket implements SocketConnectionFacade
+    {
+        final List<String> writes = Collections.synchronizedList(new ArrayList<String>());
+        volatile CountDownLatch latch = new CountDownLatch(0);
+        volatile CountDownLatch writing = new CountDownLatch(0);
+        volatile CountDownLatch release;
+
+        void expectWrites(int count)
+        {
+            latch = new CountDownLatch(count);
+        }
+
+        void blockWrites(CountDownLatch release)
+        {
+            this.writing = new CountDownLatch(1);
+            this.release = release;
+        }
+
+        int countActions()
+        {
+            int count = 0;
+            synchronized (writes)
+            {
+                for (String write : writes)
+                {
+                    int index = -1;
+                    while ((index = write.indexOf("action: SetVar", index + 1)) >= 0)
+                    {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        public String readLine() throws IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public ReadableByteChannel getReadableByteChannel() throws IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public void write(String s) throws IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public void write(ByteBuffer buffer) throws IOException
+        {
+            writing.countDown();
+            if (release != null)
+            {
+                try
+                {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            writes.add(StandardCharsets.UTF_8.decode(buffer).toString());
+            latch.countDown();
+        }
+
+        public void flush() throws IOException
+        {
+        }
+
+        public void close() throws IOException
+        {
+        }
+
+        public boolean isConnected()
+        {
+            return true;
+        }
+
+        public InetAddress getLocalAddress()
+        {
+            return null;
+        }
+
+        public int getLocalPort()
+        {
+            return 0;
+        }
+
+        public InetAddress getRemoteAddress()
+        {
+            return null;
+        }
+
+        public int getRemotePort()
+        {
+            return 0;
+        }
+    }
+}
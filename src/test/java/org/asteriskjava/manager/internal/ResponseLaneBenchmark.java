@@ -0,0 +1,229 @@
+package org.asteriskjava.manager.internal;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.asteriskjava.manager.DispatchQueueOverflowPolicy;
+import org.asteriskjava.manager.event.DisconnectEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.ResponseEvent;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.asteriskjava.util.LatencyHistogram;
+import org.asteriskjava.util.SocketConnectionFacade;
+
+/**
+ * Measures how long responses wait before they are dispatched during an
+ * event storm that the listeners cannot keep up with, with the listeners
+ * invoked on the reader thread and with the dispatch queue, where responses
+ * take the fast lane on the reader thread.
+ * <p>
+ * Asterisk sends an event every {@link #EVENT_INTERVAL_NANOS} and a response
+ * after every {@link #EVENTS_PER_RESPONSE} events, the listener takes
+ * {@link #LISTENER_NANOS} per event. The time is measured from when the
+ * response has been sent until it is passed to the dispatcher.
+ * <p>
+ * This is not a unit test, run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.asteriskjava.manager.internal.ResponseLaneBenchmark</code>.
+ */
+public class ResponseLaneBenchmark
+{
+    private static final int EVENTS = 20000;
+    private static final int EVENTS_PER_RESPONSE = 100;
+    private static final long EVENT_INTERVAL_NANOS = 20000L;
+    private static final long LISTENER_NANOS = 30000L;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception
+    {
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            final LatencyHistogram readerThread = run(false);
+            final LatencyHistogram fastLane = run(true);
+
+            if (round == ROUNDS - 1)
+            {
+                System.out.println("listeners on      responses  mean us   p50 us   p99 us   max us");
+                print("reader thread", readerThread);
+                print("dispatch queue", fastLane);
+                System.out.println();
+                System.out.println("reader thread:  " + readerThread);
+                System.out.println("dispatch queue: " + fastLane);
+            }
+        }
+    }
+
+    private static LatencyHistogram run(boolean dispatchQueue) throws Exception
+    {
+        final TimingDispatcher dispatcher = new TimingDispatcher();
+        final ManagerReaderImpl reader = new ManagerReaderImpl(dispatcher, ResponseLaneBenchmark.class);
+        DispatchQueue queue = null;
+
+        if (dispatchQueue)
+        {
+            queue = new DispatchQueue(EVENTS * 2, DispatchQueueOverflowPolicy.BLOCK, null, null);
+            reader.setDispatchQueue(queue);
+            queue.start("ResponseLaneBenchmark");
+        }
+        reader.setSocket(new EventStorm());
+        reader.run();
+
+        if (!dispatcher.disconnected.await(1, TimeUnit.MINUTES))
+        {
+            throw new IllegalStateException("Events not dispatched");
+        }
+        if (queue != null)
+        {
+            queue.stop();
+        }
+        return dispatcher.responseTimes;
+    }
+
+    private static void print(String name, LatencyHistogram histogram)
+    {
+        System.out.printf("%-16s  %9d  %7d  %7d  %7d  %7d%n", name, histogram.getCount(),
+                (long) histogram.getMeanMicros(), histogram.getPercentileMicros(50),
+                histogram.getPercentileMicros(99), histogram.getMaxMicros());
+    }
+
+    /**
+     * Records the time responses waited and spends {@link #LISTENER_NANOS}
+     * on each event like a slow listener.
+     */
+    private static class TimingDispatcher implements Dispatcher
+    {
+        final LatencyHistogram responseTimes = new LatencyHistogram();
+        final CountDownLatch disconnected = new CountDownLatch(1);
+
+        public void dispatchResponse(ManagerResponse response)
+        {
+            final long sent = Long.parseLong(ManagerUtil.stripInternalActionId(response.getActionId()));
+            responseTimes.record(System.nanoTime() - sent);
+        }
+
+        public void dispatchEvent(ManagerEvent event)
+        {
+            if (event instanceof DisconnectEvent)
+            {
+                disconnected.countDown();
+                return;
+            }
+
+            final long start = System.nanoTime();
+            while (System.nanoTime() - start < LISTENER_NANOS)
+            {
+                // busy listener
+            }
+        }
+
+        public void dispatchResponseEvent(ResponseEvent event)
+        {
+        }
+    }
+
+    /**
+     * Sends a VarSet event every {@link #EVENT_INTERVAL_NANOS} and a response
+     * with the time it has been sent as its action id after every
+     * {@link #EVENTS_PER_RESPONSE} events. A frame is only readable once it
+     * has been sent, frames the reader is behind on are readable at once.
+     */
+    private static class EventStorm implements SocketConnectionFacade
+    {
+        private static final String[] EVENT = {"Event: VarSet", "Privilege: dialplan,all",
+                "Channel: SIP/1000-00000001", "Variable: RTPAUDIOQOS", "Value: ssrc=1;themssrc=2;lp=0",
+                "Uniqueid: 1400000000.1", ""};
+
+        private long start;
+        private int frame;
+        private int line;
+        private String[] lines;
+
+        public String readLine() throws IOException
+        {
+            if (lines == null || line == lines.length)
+            {
+                if (frame == EVENTS + EVENTS / EVENTS_PER_RESPONSE)
+                {
+                    return null;
+                }
+                nextFrame();
+            }
+            return lines[line++];
+        }
+
+        private void nextFrame()
+        {
+            if (start == 0)
+            {
+                start = System.nanoTime();
+            }
+
+            final long sent = start + frame * EVENT_INTERVAL_NANOS;
+            while (System.nanoTime() < sent)
+            {
+                // not yet sent by Asterisk
+            }
+
+            if (frame % (EVENTS_PER_RESPONSE + 1) == EVENTS_PER_RESPONSE)
+            {
+                lines = new String[]{"Response: Success", "ActionID: 0_0#" + sent, "Message: Variable Set", ""};
+            }
+            else
+            {
+                lines = EVENT;
+            }
+            frame++;
+            line = 0;
+        }
+
+        public ReadableByteChannel getReadableByteChannel()
+        {
+            return null;
+        }
+
+        public void write(String s)
+        {
+        }
+
+        public void write(ByteBuffer buffer)
+        {
+        }
+
+        public void flush()
+        {
+        }
+
+        public void close()
+        {
+        }
+
+        public boolean isConnected()
+        {
+            return true;
+        }
+
+        public InetAddress getLocalAddress()
+        {
+            return null;
+        }
+
+        public int getLocalPort()
+        {
+            return 0;
+        }
+
+        public InetAddress getRemoteAddress()
+        {
+            return null;
+        }
+
+        public int getRemotePort()
+        {
+            return 0;
+        }
+    }
+}
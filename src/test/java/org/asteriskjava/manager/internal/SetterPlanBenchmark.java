@@ -0,0 +1,193 @@
+package org.asteriskjava.manager.internal;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.manager.event.RtcpReceivedEvent;
+import org.asteriskjava.manager.event.VarSetEvent;
+import org.asteriskjava.util.AstUtil;
+import org.asteriskjava.util.ReflectionUtil;
+
+/**
+ * Compares setting the attributes of events through a {@link SetterPlan}
+ * with the reflective lookup that looked up the setters of the event class
+ * and the constructor of the parameter type for each event.
+ * <p>
+ * This is not a unit test, run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.asteriskjava.manager.internal.SetterPlanBenchmark</code>.
+ */
+public class SetterPlanBenchmark
+{
+    private static final int EVENTS = 200000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception
+    {
+        final Builder builder = new Builder();
+        final Map<String, Object> newChannel = newChannelAttributes();
+        final Map<String, Object> varSet = varSetAttributes();
+        final Map<String, Object> rtcpReceived = rtcpReceivedAttributes();
+
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            final boolean print = round == ROUNDS - 1;
+            if (print)
+            {
+                System.out.println("event              reflective ns/event  plan ns/event");
+            }
+            run(builder, NewChannelEvent.class, newChannel, print);
+            run(builder, VarSetEvent.class, varSet, print);
+            run(builder, RtcpReceivedEvent.class, rtcpReceived, print);
+        }
+    }
+
+    private static void run(Builder builder, Class< ? extends ManagerEvent> type, Map<String, Object> attributes,
+            boolean print) throws Exception
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++)
+        {
+            setAttributesReflectively(newEvent(type), attributes);
+        }
+        final long reflective = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++)
+        {
+            builder.setAttributes(newEvent(type), attributes, null);
+        }
+        final long plan = System.nanoTime() - start;
+
+        if (print)
+        {
+            System.out.printf("%-17s  %19.1f  %13.1f%n", type.getSimpleName(), (double) reflective / EVENTS,
+                    (double) plan / EVENTS);
+        }
+    }
+
+    private static ManagerEvent newEvent(Class< ? extends ManagerEvent> type) throws Exception
+    {
+        return type.getConstructor(Object.class).newInstance(SetterPlanBenchmark.class);
+    }
+
+    /**
+     * The attribute handling of the builders before the setters were
+     * prepared in a {@link SetterPlan}, without the logging.
+     */
+    private static void setAttributesReflectively(Object target, Map<String, Object> attributes) throws Exception
+    {
+        final Map<String, Method> setters = ReflectionUtil.getSetters(target.getClass());
+        for (Map.Entry<String, Object> entry : attributes.entrySet())
+        {
+            String setterName = ReflectionUtil.stripIllegalCharacters(entry.getKey());
+            if ("source".equals(setterName))
+            {
+                setterName = "src";
+            }
+            else if ("class".equals(setterName))
+            {
+                setterName = "clazz";
+            }
+
+            Method setter = setters.get(setterName);
+            if (setter == null && !setterName.endsWith("s"))
+            {
+                setter = setters.get(setterName + "s");
+                if (setter != null && !(setter.getParameterTypes()[0].isAssignableFrom(Map.class)))
+                {
+                    setter = null;
+                }
+            }
+            if (setter == null)
+            {
+                continue;
+            }
+
+            final Class< ? > dataType = setter.getParameterTypes()[0];
+            final Object value;
+            if (dataType == Boolean.class)
+            {
+                value = AstUtil.isTrue(entry.getValue());
+            }
+            else if (dataType.isAssignableFrom(String.class))
+            {
+                value = AstUtil.isNull(entry.getValue()) ? null : entry.getValue();
+            }
+            else
+            {
+                value = dataType.getConstructor(String.class).newInstance(entry.getValue());
+            }
+            setter.invoke(target, value);
+        }
+    }
+
+    private static Map<String, Object> newChannelAttributes()
+    {
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("privilege", "call,all");
+        attributes.put("channel", "SIP/1000-00000001");
+        attributes.put("channelstate", "0");
+        attributes.put("channelstatedesc", "Down");
+        attributes.put("calleridnum", "1000");
+        attributes.put("calleridname", "Alice");
+        attributes.put("connectedlinenum", "<unknown>");
+        attributes.put("connectedlinename", "<unknown>");
+        attributes.put("language", "en");
+        attributes.put("accountcode", "");
+        attributes.put("context", "default");
+        attributes.put("exten", "2000");
+        attributes.put("priority", "1");
+        attributes.put("uniqueid", "1400000000.1");
+        attributes.put("linkedid", "1400000000.1");
+        return attributes;
+    }
+
+    private static Map<String, Object> varSetAttributes()
+    {
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("privilege", "dialplan,all");
+        attributes.put("channel", "SIP/1000-00000001");
+        attributes.put("variable", "RTPAUDIOQOS");
+        attributes.put("value", "ssrc=1;themssrc=2;lp=0;rxjitter=0.000000;rxcount=100");
+        attributes.put("uniqueid", "1400000000.1");
+        return attributes;
+    }
+
+    private static Map<String, Object> rtcpReceivedAttributes()
+    {
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("privilege", "reporting,all");
+        attributes.put("channel", "SIP/1000-00000001");
+        attributes.put("uniqueid", "1400000000.1");
+        attributes.put("linkedid", "1400000000.1");
+        attributes.put("ssrc", "0x2f7c6a1b");
+        attributes.put("pt", "200(Sender Report)");
+        attributes.put("from", "10.0.0.1:10000");
+        attributes.put("to", "10.0.0.2:20000");
+        attributes.put("reportcount", "1");
+        attributes.put("sentntp", "1400000000.000000");
+        attributes.put("sentrtp", "160000");
+        attributes.put("sentpackets", "1000");
+        attributes.put("sentoctets", "160000");
+        attributes.put("fractionlost", "0");
+        attributes.put("packetslost", "0");
+        attributes.put("highestsequence", "1000");
+        attributes.put("sequencenumbercycles", "0");
+        attributes.put("iajitter", "0.0012");
+        attributes.put("lastsr", "0.0");
+        attributes.put("dlsr", "0.0000(sec)");
+        attributes.put("rtt", "0.0010(sec)");
+        return attributes;
+    }
+
+    /**
+     * Gives access to the plan based attribute handling.
+     */
+    private static final class Builder extends AbstractBuilder
+    {
+    }
+}
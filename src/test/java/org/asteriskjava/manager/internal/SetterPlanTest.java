@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2004-2006 Stefan Reuter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.asteriskjava.manager.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.asteriskjava.manager.event.AgentCalledEvent;
+import org.asteriskjava.manager.event.MusicOnHoldEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.manager.event.RtcpReceivedEvent;
+import org.junit.Test;
+
+public class SetterPlanTest
+{
+    @Test
+    public void testPlanIsCachedPerClass()
+    {
+        assertSame(SetterPlan.forClass(NewChannelEvent.class), SetterPlan.forClass(NewChannelEvent.class));
+    }
+
+    @Test
+    public void testConversions()
+    {
+        final SetterPlan plan = SetterPlan.forClass(RtcpReceivedEvent.class);
+
+        assertEquals(SetterPlan.Conversion.STRING, plan.getSetter("channel").getConversion());
+        assertEquals(SetterPlan.Conversion.LONG, plan.getSetter("sentoctets").getConversion());
+        assertEquals(SetterPlan.Conversion.DOUBLE, plan.getSetter("lastsr").getConversion());
+        assertEquals(SetterPlan.Conversion.INTEGER, plan.getSetter("report0cumulativelost").getConversion());
+        assertNull(plan.getSetter("nosuchattribute"));
+        assertNull("missing setter must be cached", plan.getSetter("nosuchattribute"));
+    }
+
+    @Test
+    public void testAttributeNameResolution()
+    {
+        assertNotNull("illegal characters must be stripped",
+                SetterPlan.forClass(NewChannelEvent.class).getSetter("caller-id_num"));
+        assertEquals("plural fallback for maps", SetterPlan.Conversion.MAP,
+                SetterPlan.forClass(AgentCalledEvent.class).getSetter("variable").getConversion());
+        assertNotNull("class must be mapped to clazz", SetterPlan.forClass(MusicOnHoldEvent.class).getSetter("class"));
+    }
+
+    @Test
+    public void testInvoke() throws Throwable
+    {
+        final NewChannelEvent event = new NewChannelEvent(this);
+
+        SetterPlan.forClass(NewChannelEvent.class).getSetter("channel").invoke(event, "SIP/1000-00000001");
+
+        assertEquals("SIP/1000-00000001", event.getChannel());
+    }
+}
@@ -0,0 +1,176 @@
+package org.asteriskjava.util;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.asteriskjava.manager.event.AgentCalledEvent;
+import org.asteriskjava.manager.event.AgentCompleteEvent;
+import org.asteriskjava.manager.event.AgentConnectEvent;
+import org.asteriskjava.manager.event.AgentLoginEvent;
+import org.asteriskjava.manager.event.AgentLogoffEvent;
+import org.asteriskjava.manager.event.AlarmClearEvent;
+import org.asteriskjava.manager.event.AlarmEvent;
+import org.asteriskjava.manager.event.BridgeEvent;
+import org.asteriskjava.manager.event.CdrEvent;
+import org.asteriskjava.manager.event.ConnectEvent;
+import org.asteriskjava.manager.event.CoreShowChannelEvent;
+import org.asteriskjava.manager.event.DialEvent;
+import org.asteriskjava.manager.event.DisconnectEvent;
+import org.asteriskjava.manager.event.DtmfEvent;
+import org.asteriskjava.manager.event.ExtensionStatusEvent;
+import org.asteriskjava.manager.event.HangupEvent;
+import org.asteriskjava.manager.event.HoldEvent;
+import org.asteriskjava.manager.event.JoinEvent;
+import org.asteriskjava.manager.event.LeaveEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.MeetMeJoinEvent;
+import org.asteriskjava.manager.event.MeetMeLeaveEvent;
+import org.asteriskjava.manager.event.MonitorStartEvent;
+import org.asteriskjava.manager.event.MonitorStopEvent;
+import org.asteriskjava.manager.event.NewCallerIdEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.manager.event.NewExtenEvent;
+import org.asteriskjava.manager.event.NewStateEvent;
+import org.asteriskjava.manager.event.OriginateResponseEvent;
+import org.asteriskjava.manager.event.ParkedCallEvent;
+import org.asteriskjava.manager.event.PeerStatusEvent;
+import org.asteriskjava.manager.event.QueueMemberAddedEvent;
+import org.asteriskjava.manager.event.QueueMemberPausedEvent;
+import org.asteriskjava.manager.event.QueueMemberRemovedEvent;
+import org.asteriskjava.manager.event.QueueMemberStatusEvent;
+import org.asteriskjava.manager.event.RenameEvent;
+import org.asteriskjava.manager.event.StatusEvent;
+import org.asteriskjava.manager.event.UnparkedCallEvent;
+import org.asteriskjava.manager.event.VarSetEvent;
+
+/**
+ * Compares the cost of dispatching an event through an instanceof chain with
+ * the cost of dispatching it through a {@link DispatchTable}, depending on the
+ * position of the event's handler in the chain.
+ * <p>
+ * This is not a unit test, run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.asteriskjava.util.DispatchTableBenchmark</code>.
+ * The chain is simulated by a loop of {@link Class#isInstance(Object)} checks,
+ * which the JIT compiles to the same type checks as instanceof.
+ */
+public class DispatchTableBenchmark
+{
+    private static final int EVENTS = 1 << 10;
+    private static final int ITERATIONS = 20000;
+    private static final int ROUNDS = 5;
+
+    private static final List<Class< ? extends ManagerEvent>> CHAIN = Arrays.<Class< ? extends ManagerEvent>> asList(
+            ConnectEvent.class, DisconnectEvent.class, NewChannelEvent.class, NewExtenEvent.class, NewStateEvent.class,
+            NewCallerIdEvent.class, DialEvent.class, BridgeEvent.class, RenameEvent.class, HangupEvent.class,
+            CdrEvent.class, VarSetEvent.class, DtmfEvent.class, MonitorStartEvent.class, MonitorStopEvent.class,
+            ParkedCallEvent.class, UnparkedCallEvent.class, JoinEvent.class, LeaveEvent.class,
+            QueueMemberStatusEvent.class, QueueMemberAddedEvent.class, QueueMemberRemovedEvent.class,
+            QueueMemberPausedEvent.class, MeetMeJoinEvent.class, MeetMeLeaveEvent.class,
+            OriginateResponseEvent.class, AgentCalledEvent.class, AgentConnectEvent.class, AgentCompleteEvent.class,
+            AgentLoginEvent.class, AgentLogoffEvent.class, AlarmEvent.class, AlarmClearEvent.class,
+            ExtensionStatusEvent.class, HoldEvent.class, PeerStatusEvent.class, StatusEvent.class,
+            CoreShowChannelEvent.class);
+
+    private static final DispatchTable<Counter, ManagerEvent> TABLE;
+
+    static
+    {
+        final DispatchTable.Builder<Counter, ManagerEvent> builder = DispatchTable.builder(Counter.class,
+                ManagerEvent.class);
+        for (Class< ? extends ManagerEvent> type : CHAIN)
+        {
+            builder.add(type, new DispatchTable.Handler<Counter, ManagerEvent>()
+            {
+                public void handle(Counter counter, ManagerEvent event)
+                {
+                    counter.count++;
+                }
+            });
+        }
+        TABLE = builder.build();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        final int[] depths = {1, 5, 10, 20, CHAIN.size()};
+
+        System.out.println("depth  instanceof chain (ns/event)  dispatch table (ns/event)");
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            final boolean warmup = round < ROUNDS - 1;
+            for (int depth : depths)
+            {
+                final ManagerEvent[] events = createEvents(depth);
+                final Counter counter = new Counter();
+
+                final double chain = measureChain(events, counter);
+                final double table = measureTable(events, counter);
+                if (!warmup)
+                {
+                    System.out.printf("%5d  %28.1f  %25.1f%n", depth, chain, table);
+                }
+                if (counter.count == 0)
+                {
+                    throw new IllegalStateException("No event handled");
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates events that are all handled by the handler at the given
+     * position in the chain, mixed with events handled before them.
+     */
+    private static ManagerEvent[] createEvents(int depth) throws Exception
+    {
+        final List<ManagerEvent> events = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++)
+        {
+            final Class< ? extends ManagerEvent> type = CHAIN.get((i % 4 == 0) ? (i / 4) % depth : depth - 1);
+            final Constructor< ? extends ManagerEvent> constructor = type.getConstructor(Object.class);
+            events.add(constructor.newInstance(DispatchTableBenchmark.class));
+        }
+        return events.toArray(new ManagerEvent[events.size()]);
+    }
+
+    private static double measureChain(ManagerEvent[] events, Counter counter)
+    {
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            for (ManagerEvent event : events)
+            {
+                for (Class< ? extends ManagerEvent> type : CHAIN)
+                {
+                    if (type.isInstance(event))
+                    {
+                        counter.count++;
+                        break;
+                    }
+                }
+            }
+        }
+        return (double) (System.nanoTime() - start) / ((long) ITERATIONS * events.length);
+    }
+
+    private static double measureTable(ManagerEvent[] events, Counter counter)
+    {
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            for (ManagerEvent event : events)
+            {
+                TABLE.dispatch(counter, event);
+            }
+        }
+        return (double) (System.nanoTime() - start) / ((long) ITERATIONS * events.length);
+    }
+
+    static class Counter
+    {
+        long count;
+    }
+}
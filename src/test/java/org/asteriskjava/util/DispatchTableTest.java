@@ -0,0 +1,155 @@
+package org.asteriskjava.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.asteriskjava.manager.event.DialBeginEvent;
+import org.asteriskjava.manager.event.DialEvent;
+import org.asteriskjava.manager.event.HangupEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.junit.Test;
+
+public class DispatchTableTest
+{
+    @Test
+    public void testDispatchToMethods()
+    {
+        final DispatchTable<Target, ManagerEvent> table = DispatchTable.builder(Target.class, ManagerEvent.class)
+                .addMethod(MethodHandles.lookup(), "handleEvent", NewChannelEvent.class, DialEvent.class).build();
+        final Target target = new Target();
+
+        assertTrue(table.dispatch(target, new NewChannelEvent(this)));
+        assertTrue(table.dispatch(target, new DialBeginEvent(this)));
+        assertFalse(table.dispatch(target, new HangupEvent(this)));
+        assertFalse(table.dispatch(target, null));
+
+        assertEquals(2, target.handled.size());
+        assertEquals("NewChannelEvent", target.handled.get(0));
+        assertEquals("DialEvent", target.handled.get(1));
+    }
+
+    @Test
+    public void testDispatchToOverriddenMethod()
+    {
+        final DispatchTable<Target, ManagerEvent> table = DispatchTable.builder(Target.class, ManagerEvent.class)
+                .addMethod(MethodHandles.lookup(), "handleEvent", NewChannelEvent.class).build();
+        final Target target = new Target()
+        {
+            @Override
+            void handleEvent(NewChannelEvent event)
+            {
+                handled.add("overridden");
+            }
+        };
+
+        table.dispatch(target, new NewChannelEvent(this));
+        assertEquals("overridden", target.handled.get(0));
+    }
+
+    @Test
+    public void testDispatchToDelegate()
+    {
+        final DispatchTable<Holder, ManagerEvent> table = DispatchTable.builder(Holder.class, ManagerEvent.class)
+                .addDelegate(MethodHandles.lookup(), "target", "handleEvent", HangupEvent.class).build();
+        final Holder holder = new Holder();
+
+        assertTrue(table.dispatch(holder, new HangupEvent(this)));
+        assertEquals("HangupEvent", holder.target.handled.get(0));
+    }
+
+    @Test
+    public void testFirstMatchingHandlerIsUsed()
+    {
+        final DispatchTable<Target, ManagerEvent> table = DispatchTable.builder(Target.class, ManagerEvent.class)
+                .add(DialBeginEvent.class, new DispatchTable.Handler<Target, DialBeginEvent>()
+                {
+                    public void handle(Target target, DialBeginEvent event)
+                    {
+                        target.handled.add("begin");
+                    }
+                }).addMethod(MethodHandles.lookup(), "handleEvent", DialEvent.class).build();
+        final Target target = new Target();
+
+        table.dispatch(target, new DialBeginEvent(this));
+        table.dispatch(target, new DialEvent(this));
+
+        assertEquals("begin", target.handled.get(0));
+        assertEquals("DialEvent", target.handled.get(1));
+        assertSame(table.getHandler(DialBeginEvent.class), table.getHandler(DialBeginEvent.class));
+        assertNull(table.getHandler(HangupEvent.class));
+    }
+
+    @Test
+    public void testUnreachableHandlerIsRejected()
+    {
+        try
+        {
+            DispatchTable.builder(Target.class, ManagerEvent.class)
+                    .addMethod(MethodHandles.lookup(), "handleEvent", DialEvent.class, DialBeginEvent.class);
+            fail("No IllegalArgumentException thrown");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMissingMethodIsRejected()
+    {
+        try
+        {
+            DispatchTable.builder(Target.class, ManagerEvent.class)
+                    .addMethod(MethodHandles.lookup(), "handleEvent", HangupEvent.class);
+            fail("No IllegalArgumentException thrown");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    static class Target
+    {
+        final List<String> handled = new ArrayList<>();
+
+        void handleEvent(NewChannelEvent event)
+        {
+            handled.add("NewChannelEvent");
+        }
+
+        void handleEvent(DialEvent event)
+        {
+            handled.add("DialEvent");
+        }
+
+        void handleEvent(DialBeginEvent event)
+        {
+            handled.add("DialBeginEvent");
+        }
+    }
+
+    static class Holder
+    {
+        final HangupTarget target = new HangupTarget();
+    }
+
+    static class HangupTarget
+    {
+        final List<String> handled = new ArrayList<>();
+
+        void handleEvent(HangupEvent event)
+        {
+            handled.add("HangupEvent");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.asteriskjava.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ExecutionRuntimeTest
+{
+    @Test
+    public void testCountsThreadsAndTasks() throws Exception
+    {
+        final ExecutionRuntime runtime = new ExecutionRuntime("test");
+        final CountDownLatch running = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable task = new Runnable()
+        {
+            public void run()
+            {
+                running.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        final Thread thread = runtime.newThread(task, "test-thread");
+        assertEquals("test-thread", thread.getName());
+        assertTrue(thread.isDaemon());
+        thread.start();
+        final ExecutorService executor = runtime.getExecutor();
+        executor.execute(task);
+
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        assertEquals(1, runtime.getLiveThreadCount());
+        assertEquals(1, runtime.getActiveTaskCount());
+
+        release.countDown();
+        thread.join(5000);
+        runtime.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, runtime.getLiveThreadCount());
+        assertEquals(0, runtime.getActiveTaskCount());
+    }
+
+    @Test
+    public void testSchedulerAndTimer() throws Exception
+    {
+        final ExecutionRuntime runtime = new ExecutionRuntime("test");
+        final CountDownLatch done = new CountDownLatch(2);
+        final Runnable task = new Runnable()
+        {
+            public void run()
+            {
+                done.countDown();
+            }
+        };
+
+        assertSame(runtime.getScheduler(), runtime.getScheduler());
+        runtime.getScheduler().schedule(task, 10, TimeUnit.MILLISECONDS);
+        runtime.getTimer().newTimeout(task, 10, TimeUnit.MILLISECONDS);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        runtime.shutdown();
+        try
+        {
+            runtime.getScheduler();
+            fail("No IllegalStateException thrown");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.asteriskjava.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ExecutorFactoryTest
+{
+    @Test
+    public void testPlatformExecutorFactory() throws Exception
+    {
+        final ExecutorFactory factory = PlatformExecutorFactory.INSTANCE;
+
+        final Thread thread = factory.newThread(new Runnable()
+        {
+            public void run()
+            {
+            }
+        }, "test");
+        assertEquals("test", thread.getName());
+        assertTrue(thread.isDaemon());
+        assertFalse(thread.isAlive());
+
+        final Thread pooled = factory.newThreadFactory("pool").newThread(null);
+        assertEquals("pool-1", pooled.getName());
+        assertTrue(pooled.isDaemon());
+
+        assertExecutorRunsTasks(factory.newExecutor("executor"));
+    }
+
+    @Test
+    public void testVirtualThreadExecutorFactory() throws Exception
+    {
+        if (!VirtualThreadExecutorFactory.isSupported())
+        {
+            try
+            {
+                new VirtualThreadExecutorFactory();
+                fail("No UnsupportedOperationException thrown");
+            }
+            catch (UnsupportedOperationException e)
+            {
+                // expected
+            }
+            return;
+        }
+
+        final ExecutorFactory factory = new VirtualThreadExecutorFactory();
+        final Thread thread = factory.newThread(new Runnable()
+        {
+            public void run()
+            {
+            }
+        }, "test");
+        assertEquals("test", thread.getName());
+        assertTrue(thread.isDaemon());
+
+        final Thread pooled = factory.newThreadFactory("pool").newThread(new Runnable()
+        {
+            public void run()
+            {
+            }
+        });
+        assertEquals("pool-1", pooled.getName());
+        assertExecutorRunsTasks(factory.newExecutor("executor"));
+    }
+
+    private void assertExecutorRunsTasks(ExecutorService executor) throws InterruptedException
+    {
+        final CountDownLatch latch = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++)
+        {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
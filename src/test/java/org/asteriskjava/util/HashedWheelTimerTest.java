@@ -0,0 +1,85 @@
+package org.asteriskjava.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashedWheelTimerTest
+{
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp()
+    {
+        timer = new HashedWheelTimer("HashedWheelTimerTest", 10, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @After
+    public void tearDown()
+    {
+        timer.stop();
+    }
+
+    @Test
+    public void testTimeoutExpires() throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long start = System.nanoTime();
+
+        // more than one round of the wheel
+        final HashedWheelTimer.Timeout timeout = timer.newTimeout(new CountDown(latch), 150, TimeUnit.MILLISECONDS);
+
+        assertTrue("task not run", latch.await(5, TimeUnit.SECONDS));
+        assertTrue("task run too early", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(140));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    @Test
+    public void testCancelledTimeoutDoesNotExpire() throws Exception
+    {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final CountDownLatch other = new CountDownLatch(1);
+
+        final HashedWheelTimer.Timeout timeout = timer.newTimeout(new CountDown(cancelled), 50, TimeUnit.MILLISECONDS);
+        timer.newTimeout(new CountDown(other), 100, TimeUnit.MILLISECONDS);
+        assertEquals(2, timer.getPendingTimeouts());
+
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+
+        assertTrue("task not run", other.await(5, TimeUnit.SECONDS));
+        assertEquals("cancelled task run", 1, cancelled.getCount());
+        assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNewTimeoutAfterStop()
+    {
+        timer.stop();
+        timer.newTimeout(new CountDown(new CountDownLatch(1)), 10, TimeUnit.MILLISECONDS);
+    }
+
+    private static class CountDown implements Runnable
+    {
+        private final CountDownLatch latch;
+
+        CountDown(CountDownLatch latch)
+        {
+            this.latch = latch;
+        }
+
+        public void run()
+        {
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.asteriskjava.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void testRecord()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(500L); // < 1us
+        histogram.record(1500L); // 1us
+        histogram.record(3000L); // 3us
+        histogram.record(2000000L); // 2ms
+
+        final long[] buckets = histogram.getBucketCounts();
+        assertEquals(1L, buckets[0]);
+        assertEquals(1L, buckets[1]);
+        assertEquals(1L, buckets[2]);
+        assertEquals(1L, buckets[11]);
+        assertEquals(4L, histogram.getCount());
+        assertEquals(2000L, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getPercentileMicros(99));
+
+        for (int i = 0; i < 99; i++)
+        {
+            histogram.record(100000L); // 100us
+        }
+        histogram.record(5000000000L); // 5s
+
+        assertEquals(128L, histogram.getPercentileMicros(50));
+        assertEquals(128L, histogram.getPercentileMicros(99));
+        assertEquals(8388608L, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void testReset()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000L);
+        histogram.reset();
+
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMaxMicros());
+        assertEquals(0.0, histogram.getMeanMicros(), 0.0);
+    }
+}